@@ -0,0 +1,72 @@
+package qub;
+
+/**
+ * JMH benchmarks that compare {@link BatchHasher} with hashing the same messages one at a time.
+ */
+@org.openjdk.jmh.annotations.State(org.openjdk.jmh.annotations.Scope.Thread)
+@org.openjdk.jmh.annotations.BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@org.openjdk.jmh.annotations.OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@org.openjdk.jmh.annotations.Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@org.openjdk.jmh.annotations.Fork(1)
+public class BatchHasherBenchmarks
+{
+    @org.openjdk.jmh.annotations.Param({ "32", "64", "256" })
+    public int messageSize;
+
+    @org.openjdk.jmh.annotations.Param({ "1024" })
+    public int messageCount;
+
+    private byte[][] messages;
+    private byte[] sha256Output;
+    private long[] xxh3Output;
+    private JavaMessageDigestHashFunction sha256;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup()
+    {
+        final java.util.Random random = new java.util.Random(this.messageSize);
+        this.messages = new byte[this.messageCount][this.messageSize];
+        for (final byte[] message : this.messages)
+        {
+            random.nextBytes(message);
+        }
+        this.sha256Output = new byte[this.messageCount * BatchHasher.sha256DigestLength];
+        this.xxh3Output = new long[this.messageCount];
+        this.sha256 = JavaMessageDigestHashFunction.create("SHA-256").await();
+    }
+
+    @org.openjdk.jmh.annotations.TearDown
+    public void tearDown()
+    {
+        this.sha256.dispose().await();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] batchSHA256()
+    {
+        BatchHasher.hashSHA256(this.messages, this.sha256Output, 0);
+        return this.sha256Output;
+    }
+
+    /**
+     * The baseline for {@link #batchSHA256()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] messageDigestSHA256()
+    {
+        for (int i = 0; i < this.messages.length; ++i)
+        {
+            this.sha256.addBytes(this.messages[i], 0, this.messages[i].length);
+            this.sha256.takeDigest(this.sha256Output, i * BatchHasher.sha256DigestLength);
+        }
+        return this.sha256Output;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public long[] batchXXH3()
+    {
+        BatchHasher.hashXXH3(this.messages, this.xxh3Output, 0);
+        return this.xxh3Output;
+    }
+}
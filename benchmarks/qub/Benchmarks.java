@@ -0,0 +1,30 @@
+package qub;
+
+/**
+ * Runs the JMH benchmarks in this folder with the GC profiler enabled, so that the allocation
+ * rate (gc.alloc.rate.norm, in bytes per operation) is reported next to the throughput of each
+ * benchmark. Any arguments are passed to JMH as a benchmark name filter, such as
+ * "HashFunctionBenchmarks.addByte" or ".*Stream.*".
+ */
+public interface Benchmarks
+{
+    public static void main(String[] args) throws org.openjdk.jmh.runner.RunnerException
+    {
+        final org.openjdk.jmh.runner.options.ChainedOptionsBuilder options = new org.openjdk.jmh.runner.options.OptionsBuilder()
+            .addProfiler(org.openjdk.jmh.profile.GCProfiler.class)
+            .resultFormat(org.openjdk.jmh.results.format.ResultFormatType.JSON)
+            .result("bench_output.json");
+        if (args.length == 0)
+        {
+            options.include("qub\\..*Benchmarks.*");
+        }
+        else
+        {
+            for (final String arg : args)
+            {
+                options.include(arg);
+            }
+        }
+        new org.openjdk.jmh.runner.Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,171 @@
+package qub;
+
+/**
+ * JMH benchmarks for {@link JavaMessageDigestHashFunction}. Each benchmark is paired with a
+ * baseline that calls the underlying {@link java.security.MessageDigest} directly, so the cost of
+ * the {@link Result} wrapping, the precondition checks, and the {@link BitArray} conversion can be
+ * read off as the difference between the two.
+ */
+@org.openjdk.jmh.annotations.State(org.openjdk.jmh.annotations.Scope.Thread)
+@org.openjdk.jmh.annotations.BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@org.openjdk.jmh.annotations.OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@org.openjdk.jmh.annotations.Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@org.openjdk.jmh.annotations.Fork(1)
+public class HashFunctionBenchmarks
+{
+    @org.openjdk.jmh.annotations.Param({ "MD5", "SHA-1", "SHA-256" })
+    public String algorithm;
+
+    @org.openjdk.jmh.annotations.Param({ "16", "256", "4096", "65536", "1048576", "67108864" })
+    public int messageSize;
+
+    private byte[] message;
+    private byte[] digestOutput;
+    private JavaMessageDigestHashFunction hashFunction;
+    private java.security.MessageDigest messageDigest;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() throws java.security.NoSuchAlgorithmException
+    {
+        this.message = new byte[this.messageSize];
+        new java.util.Random(this.messageSize).nextBytes(this.message);
+        this.hashFunction = JavaMessageDigestHashFunction.create(this.algorithm).await();
+        this.messageDigest = java.security.MessageDigest.getInstance(this.algorithm);
+        this.digestOutput = new byte[this.hashFunction.getDigestLength()];
+    }
+
+    @org.openjdk.jmh.annotations.TearDown
+    public void tearDown()
+    {
+        this.hashFunction.dispose().await();
+    }
+
+    /**
+     * Add the whole message with one addBytes() call and take the digest as a {@link BitArray}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public BitArray addBytes()
+    {
+        this.hashFunction.addBytes(this.message);
+        return this.hashFunction.takeDigest();
+    }
+
+    /**
+     * Add the message one byte at a time and take the digest as a {@link BitArray}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public BitArray addByte()
+    {
+        for (final byte value : this.message)
+        {
+            this.hashFunction.addByte(value);
+        }
+        return this.hashFunction.takeDigest();
+    }
+
+    /**
+     * Add the whole message with one addBytes() call and write the digest into an existing
+     * array, which avoids allocating a {@link BitArray}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] addBytesIntoArray()
+    {
+        this.hashFunction.addBytes(this.message, 0, this.message.length);
+        this.hashFunction.takeDigest(this.digestOutput, 0);
+        return this.digestOutput;
+    }
+
+    /**
+     * The baseline for {@link #addBytes()} and {@link #addBytesIntoArray()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] rawMessageDigestUpdate()
+    {
+        this.messageDigest.update(this.message);
+        return this.messageDigest.digest();
+    }
+
+    /**
+     * The baseline for {@link #addByte()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] rawMessageDigestUpdateByte()
+    {
+        for (final byte value : this.message)
+        {
+            this.messageDigest.update(value);
+        }
+        return this.messageDigest.digest();
+    }
+
+    /**
+     * Benchmarks for the per-call costs that don't depend on the message size.
+     */
+    @org.openjdk.jmh.annotations.State(org.openjdk.jmh.annotations.Scope.Thread)
+    @org.openjdk.jmh.annotations.BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+    @org.openjdk.jmh.annotations.OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)
+    @org.openjdk.jmh.annotations.Warmup(iterations = 3, time = 1)
+    @org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 1)
+    @org.openjdk.jmh.annotations.Fork(1)
+    public static class PerCall
+    {
+        @org.openjdk.jmh.annotations.Param({ "MD5", "SHA-1", "SHA-256" })
+        public String algorithm;
+
+        private JavaMessageDigestHashFunction hashFunction;
+        private java.security.MessageDigest messageDigest;
+        private byte[] digestOutput;
+
+        @org.openjdk.jmh.annotations.Setup
+        public void setup() throws java.security.NoSuchAlgorithmException
+        {
+            this.hashFunction = JavaMessageDigestHashFunction.create(this.algorithm).await();
+            this.messageDigest = java.security.MessageDigest.getInstance(this.algorithm);
+            this.digestOutput = new byte[this.hashFunction.getDigestLength()];
+        }
+
+        @org.openjdk.jmh.annotations.TearDown
+        public void tearDown()
+        {
+            this.hashFunction.dispose().await();
+        }
+
+        /**
+         * Create and dispose a {@link HashFunction}, which includes the {@link Result} wrapping.
+         */
+        @org.openjdk.jmh.annotations.Benchmark
+        public boolean createAndDispose()
+        {
+            return JavaMessageDigestHashFunction.create(this.algorithm).await().dispose().await();
+        }
+
+        /**
+         * Take the digest of an empty message as a {@link BitArray}.
+         */
+        @org.openjdk.jmh.annotations.Benchmark
+        public BitArray takeDigest()
+        {
+            return this.hashFunction.takeDigest();
+        }
+
+        /**
+         * Take the digest of an empty message into an existing array.
+         */
+        @org.openjdk.jmh.annotations.Benchmark
+        public byte[] takeDigestIntoArray()
+        {
+            this.hashFunction.takeDigest(this.digestOutput, 0);
+            return this.digestOutput;
+        }
+
+        /**
+         * The baseline for {@link #takeDigest()} and {@link #takeDigestIntoArray()}.
+         */
+        @org.openjdk.jmh.annotations.Benchmark
+        public byte[] rawMessageDigestDigest()
+        {
+            return this.messageDigest.digest();
+        }
+    }
+}
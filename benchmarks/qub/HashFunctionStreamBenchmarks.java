@@ -0,0 +1,159 @@
+package qub;
+
+/**
+ * JMH benchmarks for {@link HashFunctionByteReadStream} and {@link HashFunctionByteWriteStream}.
+ * Each benchmark is paired with a baseline that moves the same bytes through the same
+ * {@link InMemoryByteStream} without hashing them, so the cost of the wrapper (including the
+ * hashing) can be read off as the difference between the two. Both sides of each pair create their
+ * {@link InMemoryByteStream} inside the benchmark, so that cost cancels out.
+ */
+@org.openjdk.jmh.annotations.State(org.openjdk.jmh.annotations.Scope.Thread)
+@org.openjdk.jmh.annotations.BenchmarkMode(org.openjdk.jmh.annotations.Mode.Throughput)
+@org.openjdk.jmh.annotations.OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@org.openjdk.jmh.annotations.Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@org.openjdk.jmh.annotations.Fork(1)
+public class HashFunctionStreamBenchmarks
+{
+    @org.openjdk.jmh.annotations.Param({ "MD5", "SHA-1", "SHA-256" })
+    public String algorithm;
+
+    @org.openjdk.jmh.annotations.Param({ "16", "256", "4096", "65536", "1048576", "67108864" })
+    public int messageSize;
+
+    /**
+     * The number of bytes that are passed to each readBytes() or write() call.
+     */
+    @org.openjdk.jmh.annotations.Param({ "4096" })
+    public int bufferSize;
+
+    private byte[] message;
+    private byte[] buffer;
+    private JavaMessageDigestHashFunction hashFunction;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup()
+    {
+        this.message = new byte[this.messageSize];
+        new java.util.Random(this.messageSize).nextBytes(this.message);
+        this.buffer = new byte[this.bufferSize];
+        this.hashFunction = JavaMessageDigestHashFunction.create(this.algorithm).await();
+    }
+
+    @org.openjdk.jmh.annotations.TearDown
+    public void tearDown()
+    {
+        this.hashFunction.dispose().await();
+    }
+
+    /**
+     * Read the message from the provided stream through this benchmark's buffer.
+     */
+    private void readAll(ByteReadStream stream)
+    {
+        int bytesRemaining = this.message.length;
+        while (bytesRemaining > 0)
+        {
+            bytesRemaining -= stream.readBytes(this.buffer, 0, java.lang.Math.min(this.buffer.length, bytesRemaining)).await();
+        }
+    }
+
+    /**
+     * Write the message to the provided stream in buffer-sized pieces.
+     */
+    private void writeAll(ByteWriteStream stream)
+    {
+        for (int startIndex = 0; startIndex < this.message.length; startIndex += this.buffer.length)
+        {
+            stream.write(this.message, startIndex, java.lang.Math.min(this.buffer.length, this.message.length - startIndex)).await();
+        }
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public BitArray readBytes()
+    {
+        final HashFunctionByteReadStream stream = HashFunctionByteReadStream.create(InMemoryByteStream.create(this.message).endOfStream(), this.hashFunction);
+        this.readAll(stream);
+        return stream.takeDigest();
+    }
+
+    /**
+     * The baseline for {@link #readBytes()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] rawReadBytes()
+    {
+        this.readAll(InMemoryByteStream.create(this.message).endOfStream());
+        return this.buffer;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public BitArray readByte()
+    {
+        final HashFunctionByteReadStream stream = HashFunctionByteReadStream.create(InMemoryByteStream.create(this.message).endOfStream(), this.hashFunction);
+        for (int i = 0; i < this.message.length; ++i)
+        {
+            stream.readByte().await();
+        }
+        return stream.takeDigest();
+    }
+
+    /**
+     * The baseline for {@link #readByte()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public int rawReadByte()
+    {
+        final InMemoryByteStream stream = InMemoryByteStream.create(this.message).endOfStream();
+        int result = 0;
+        for (int i = 0; i < this.message.length; ++i)
+        {
+            result += stream.readByte().await();
+        }
+        return result;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public BitArray writeBytes()
+    {
+        final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.create(InMemoryByteStream.create(), this.hashFunction);
+        this.writeAll(stream);
+        return stream.takeDigest();
+    }
+
+    /**
+     * The baseline for {@link #writeBytes()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public InMemoryByteStream rawWriteBytes()
+    {
+        final InMemoryByteStream stream = InMemoryByteStream.create();
+        this.writeAll(stream);
+        return stream;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public BitArray writeByte()
+    {
+        final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.create(InMemoryByteStream.create(), this.hashFunction);
+        for (final byte value : this.message)
+        {
+            stream.write(value).await();
+        }
+        return stream.takeDigest();
+    }
+
+    /**
+     * The baseline for {@link #writeByte()}.
+     */
+    @org.openjdk.jmh.annotations.Benchmark
+    public InMemoryByteStream rawWriteByte()
+    {
+        final InMemoryByteStream stream = InMemoryByteStream.create();
+        for (final byte value : this.message)
+        {
+            stream.write(value).await();
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,130 @@
+package qub;
+
+/**
+ * Functions that compute the digests of many small, independent messages at once. Hashing each
+ * small message through its own {@link HashFunction} is dominated by per-message overhead, so
+ * these functions hash a whole batch of messages in one call. The overloads that write into a
+ * caller-provided array don't allocate anything per message.
+ * <p>
+ * SHA-256 batches are hashed with a single {@link java.security.MessageDigest} that is taken from
+ * the same cache as {@link HashFunction#sha256(byte[], int, int, byte[], int)}, so the batch pays
+ * for one cache lookup instead of one per message, and each message gets the JDK's intrinsic
+ * SHA-256 compression.
+ */
+public interface BatchHasher
+{
+    /**
+     * The number of bytes in a SHA-256 digest.
+     */
+    int sha256DigestLength = 32;
+
+    /**
+     * Get the SHA-256 digests of the provided messages.
+     * @param messages The messages to hash.
+     * @return The digest of each message, in the same order as the messages.
+     */
+    static BitArray[] hashSHA256(byte[][] messages)
+    {
+        PreCondition.assertNotNull(messages, "messages");
+
+        final byte[] digests = new byte[messages.length * BatchHasher.sha256DigestLength];
+        BatchHasher.hashSHA256(messages, digests, 0);
+
+        final BitArray[] result = new BitArray[messages.length];
+        for (int i = 0; i < messages.length; ++i)
+        {
+            final int digestStartIndex = i * BatchHasher.sha256DigestLength;
+            result[i] = BitArray.createFromBytes(java.util.Arrays.copyOfRange(digests, digestStartIndex, digestStartIndex + BatchHasher.sha256DigestLength));
+        }
+        return result;
+    }
+
+    /**
+     * Write the SHA-256 digests of the provided messages into the provided output array. The
+     * digest of message i is written at outputStartIndex + (i * 32).
+     * @param messages The messages to hash.
+     * @param output The array to write the digests into.
+     * @param outputStartIndex The index in the output array to write the first digest at.
+     */
+    static void hashSHA256(byte[][] messages, byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(messages, "messages");
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - (messages.length * BatchHasher.sha256DigestLength), "outputStartIndex");
+        for (int i = 0; i < messages.length; ++i)
+        {
+            if (messages[i] == null)
+            {
+                PreCondition.assertNotNull(messages[i], "messages[" + i + "]");
+            }
+        }
+
+        final java.security.MessageDigest messageDigest = MessageDigestCache.sha256.acquire();
+        try
+        {
+            for (int i = 0; i < messages.length; ++i)
+            {
+                messageDigest.update(messages[i]);
+                messageDigest.digest(output, outputStartIndex + i * BatchHasher.sha256DigestLength, BatchHasher.sha256DigestLength);
+            }
+        }
+        catch (java.security.DigestException e)
+        {
+            messageDigest.reset();
+            throw Exceptions.asRuntime(e);
+        }
+        finally
+        {
+            MessageDigestCache.sha256.release(messageDigest);
+        }
+    }
+
+    /**
+     * Get the 64-bit XXH3 hashes (with a seed of 0) of the provided messages.
+     * @param messages The messages to hash.
+     * @return The hash of each message, in the same order as the messages.
+     */
+    static long[] hashXXH3(byte[][] messages)
+    {
+        PreCondition.assertNotNull(messages, "messages");
+
+        final long[] result = new long[messages.length];
+        BatchHasher.hashXXH3(messages, result, 0);
+        return result;
+    }
+
+    /**
+     * Write the 64-bit XXH3 hashes (with a seed of 0) of the provided messages into the provided
+     * output array. XXH3 takes a different code path for each range of message lengths, so it
+     * isn't batched across messages. Each message is hashed with the one-shot function instead,
+     * and messages longer than 240 bytes share one scratch array of accumulators, so a call
+     * allocates at most that one 64-byte array no matter how many messages it hashes.
+     * @param messages The messages to hash.
+     * @param output The array to write the hashes into.
+     * @param outputStartIndex The index in the output array to write the first hash at.
+     */
+    static void hashXXH3(byte[][] messages, long[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(messages, "messages");
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - messages.length, "outputStartIndex");
+        for (int i = 0; i < messages.length; ++i)
+        {
+            if (messages[i] == null)
+            {
+                PreCondition.assertNotNull(messages[i], "messages[" + i + "]");
+            }
+        }
+
+        long[] accumulators = null;
+        for (int i = 0; i < messages.length; ++i)
+        {
+            final byte[] message = messages[i];
+            if (accumulators == null && message.length > XXH3HashFunctionBase.midSizeMaximum)
+            {
+                accumulators = new long[XXH3HashFunctionBase.accumulatorCount];
+            }
+            output[outputStartIndex + i] = XXH3HashFunctionBase.hash64(message, 0, message.length, 0, accumulators);
+        }
+    }
+}
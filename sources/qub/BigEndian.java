@@ -0,0 +1,17 @@
+package qub;
+
+/**
+ * Functions that read big-endian values from byte arrays.
+ */
+interface BigEndian
+{
+    java.lang.invoke.VarHandle intView = java.lang.invoke.MethodHandles.byteArrayViewVarHandle(int[].class, java.nio.ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Read the big-endian {@link int} that starts at the provided index.
+     */
+    static int readInt(byte[] bytes, int index)
+    {
+        return (int)BigEndian.intView.get(bytes, index);
+    }
+}
@@ -0,0 +1,270 @@
+package qub;
+
+/**
+ * The shared implementation of the Merkle-Damgard hash functions (MD5, SHA-1, and SHA-256) that
+ * consume their input in 64-byte blocks and keep their intermediate state in 32-bit words.
+ * <p>
+ * The exported state is an algorithm identifier byte, followed by the big-endian byte count, followed
+ * by the big-endian state words, followed by the bytes of the partial block that haven't been
+ * consumed yet. The length of the partial block is the byte count modulo 64, so it isn't stored.
+ */
+abstract class BlockHashFunctionBase implements ResumableHashFunction
+{
+    static final int blockLength = 64;
+
+    private static final int byteCountLength = Long.BYTES;
+
+    private final byte stateId;
+    private final int[] initialState;
+    private final boolean littleEndian;
+    private final byte[] block;
+    final int[] state;
+    private long byteCount;
+    private boolean disposed;
+
+    BlockHashFunctionBase(byte stateId, int[] initialState, boolean littleEndian)
+    {
+        PreCondition.assertNotNull(initialState, "initialState");
+
+        this.stateId = stateId;
+        this.initialState = initialState;
+        this.littleEndian = littleEndian;
+        this.block = new byte[BlockHashFunctionBase.blockLength];
+        this.state = new int[initialState.length];
+        this.reset();
+    }
+
+    /**
+     * Update the state words with the 64-byte block that starts at the provided index.
+     */
+    abstract void consumeBlock(byte[] values, int startIndex);
+
+    @Override
+    public int getBlockLength()
+    {
+        return BlockHashFunctionBase.blockLength;
+    }
+
+    @Override
+    public long getByteCount()
+    {
+        return this.byteCount;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final int blockIndex = (int)(this.byteCount % BlockHashFunctionBase.blockLength);
+        this.block[blockIndex] = value;
+        ++this.byteCount;
+        if (blockIndex + 1 == BlockHashFunctionBase.blockLength)
+        {
+            this.consumeBlock(this.block, 0);
+        }
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        int blockIndex = (int)(this.byteCount % BlockHashFunctionBase.blockLength);
+        this.byteCount += length;
+
+        if (blockIndex > 0)
+        {
+            final int bytesToCopy = Math.minimum(length, BlockHashFunctionBase.blockLength - blockIndex);
+            System.arraycopy(values, startIndex, this.block, blockIndex, bytesToCopy);
+            blockIndex += bytesToCopy;
+            startIndex += bytesToCopy;
+            length -= bytesToCopy;
+
+            if (blockIndex < BlockHashFunctionBase.blockLength)
+            {
+                return;
+            }
+            this.consumeBlock(this.block, 0);
+        }
+
+        while (length >= BlockHashFunctionBase.blockLength)
+        {
+            this.consumeBlock(values, startIndex);
+            startIndex += BlockHashFunctionBase.blockLength;
+            length -= BlockHashFunctionBase.blockLength;
+        }
+
+        if (length > 0)
+        {
+            System.arraycopy(values, startIndex, this.block, 0, length);
+        }
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return this.state.length * Integer.BYTES;
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] digest = new byte[this.getDigestLength()];
+        this.takeDigest(digest, 0);
+        final BitArray result = BitArray.createFromBytes(digest);
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        final int result = this.finish(output, outputStartIndex);
+        this.reset();
+        return result;
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        // Finishing the hash overwrites the state words and the partial block, so they are
+        // copied beforehand and put back afterwards.
+        final int[] stateCopy = this.state.clone();
+        final byte[] blockCopy = this.block.clone();
+
+        final byte[] digest = new byte[this.getDigestLength()];
+        this.finish(digest, 0);
+
+        System.arraycopy(stateCopy, 0, this.state, 0, stateCopy.length);
+        System.arraycopy(blockCopy, 0, this.block, 0, blockCopy.length);
+
+        return BitArray.createFromBytes(digest);
+    }
+
+    /**
+     * Pad the final block, consume it, and write the state words to the provided output array.
+     * This changes the state words and the block, but not the byte count.
+     */
+    private int finish(byte[] output, int outputStartIndex)
+    {
+        final long bitCount = this.byteCount * 8;
+        int blockIndex = (int)(this.byteCount % BlockHashFunctionBase.blockLength);
+        this.block[blockIndex++] = (byte)0x80;
+        if (blockIndex > BlockHashFunctionBase.blockLength - BlockHashFunctionBase.byteCountLength)
+        {
+            java.util.Arrays.fill(this.block, blockIndex, BlockHashFunctionBase.blockLength, (byte)0);
+            this.consumeBlock(this.block, 0);
+            blockIndex = 0;
+        }
+        java.util.Arrays.fill(this.block, blockIndex, BlockHashFunctionBase.blockLength - BlockHashFunctionBase.byteCountLength, (byte)0);
+        for (int i = 0; i < BlockHashFunctionBase.byteCountLength; ++i)
+        {
+            final int shift = this.littleEndian ? (8 * i) : (8 * (BlockHashFunctionBase.byteCountLength - 1 - i));
+            this.block[BlockHashFunctionBase.blockLength - BlockHashFunctionBase.byteCountLength + i] = (byte)(bitCount >>> shift);
+        }
+        this.consumeBlock(this.block, 0);
+
+        int outputIndex = outputStartIndex;
+        for (final int word : this.state)
+        {
+            if (this.littleEndian)
+            {
+                output[outputIndex] = (byte)word;
+                output[outputIndex + 1] = (byte)(word >>> 8);
+                output[outputIndex + 2] = (byte)(word >>> 16);
+                output[outputIndex + 3] = (byte)(word >>> 24);
+            }
+            else
+            {
+                output[outputIndex] = (byte)(word >>> 24);
+                output[outputIndex + 1] = (byte)(word >>> 16);
+                output[outputIndex + 2] = (byte)(word >>> 8);
+                output[outputIndex + 3] = (byte)word;
+            }
+            outputIndex += Integer.BYTES;
+        }
+
+        return outputIndex - outputStartIndex;
+    }
+
+    @Override
+    public byte[] exportState()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final int partialBlockLength = (int)(this.byteCount % BlockHashFunctionBase.blockLength);
+        final java.nio.ByteBuffer result = java.nio.ByteBuffer.allocate(1 + BlockHashFunctionBase.byteCountLength + this.state.length * Integer.BYTES + partialBlockLength);
+        result.put(this.stateId);
+        result.putLong(this.byteCount);
+        for (final int word : this.state)
+        {
+            result.putInt(word);
+        }
+        result.put(this.block, 0, partialBlockLength);
+        return result.array();
+    }
+
+    @Override
+    public void restoreState(byte[] state)
+    {
+        PreCondition.assertNotNull(state, "state");
+        PreCondition.assertGreaterThanOrEqualTo(state.length, 1 + BlockHashFunctionBase.byteCountLength + this.state.length * Integer.BYTES, "state.length");
+        PreCondition.assertEqual(this.stateId, state[0], "state[0]");
+        PreCondition.assertNotDisposed(this, "this");
+
+        final java.nio.ByteBuffer stateBuffer = java.nio.ByteBuffer.wrap(state, 1, state.length - 1);
+        final long byteCount = stateBuffer.getLong();
+        PreCondition.assertGreaterThanOrEqualTo(byteCount, 0, "byteCount");
+        final int partialBlockLength = (int)(byteCount % BlockHashFunctionBase.blockLength);
+        PreCondition.assertEqual(1 + BlockHashFunctionBase.byteCountLength + this.state.length * Integer.BYTES + partialBlockLength, state.length, "state.length");
+
+        this.byteCount = byteCount;
+        for (int i = 0; i < this.state.length; ++i)
+        {
+            this.state[i] = stateBuffer.getInt();
+        }
+        stateBuffer.get(this.block, 0, partialBlockLength);
+    }
+
+    @Override
+    public void reset()
+    {
+        System.arraycopy(this.initialState, 0, this.state, 0, this.state.length);
+        this.byteCount = 0;
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.reset();
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,342 @@
+package qub;
+
+/**
+ * A Bloom filter: a compact set of keys that can answer "definitely not added" or "possibly
+ * added". A key that was added is always reported as possibly added, and a key that wasn't added
+ * is reported as possibly added with roughly the false positive probability that the filter was
+ * sized for.
+ * <p>
+ * Each key is hashed once with the 128-bit XXH3 hash, and the probe positions are derived from
+ * the two 64-bit halves of that hash with enhanced double hashing (Kirsch and Mitzenmacher), so
+ * the number of probes doesn't change the hashing cost. The bits are kept in a primitive long[]
+ * and are set with atomic bitwise-or operations, so {@link #add(byte[])}, {@link #contains(byte[])}
+ * and {@link #merge(BloomFilter)} can all be called from many threads at once without locking.
+ * <p>
+ * The serialized form of a {@link BloomFilter} is the magic number "QBLF", a format version byte,
+ * the hash count, the bit count, and then the big-endian words of the bit array.
+ */
+public class BloomFilter
+{
+    private static final int magicNumber = 0x51424C46;
+    private static final byte formatVersion = 1;
+    private static final int headerLength = Integer.BYTES + 1 + Integer.BYTES + Long.BYTES;
+
+    private static final java.lang.invoke.VarHandle wordView = java.lang.invoke.MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long bitCount;
+    private final int hashCount;
+    private final long[] words;
+
+    private BloomFilter(long bitCount, int hashCount)
+    {
+        PreCondition.assertBetween(1, bitCount, (long)Integer.MAX_VALUE * Long.SIZE, "bitCount");
+        PreCondition.assertGreaterThanOrEqualTo(hashCount, 1, "hashCount");
+
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.words = new long[BloomFilter.getWordCount(bitCount)];
+    }
+
+    /**
+     * Create a new empty {@link BloomFilter} that is sized to hold the provided number of keys with
+     * the provided false positive probability.
+     * @param expectedKeyCount The number of keys that are expected to be added.
+     * @param falsePositiveProbability The probability that a key that wasn't added will be
+     * reported as possibly added once the expected number of keys have been added.
+     */
+    public static BloomFilter create(long expectedKeyCount, double falsePositiveProbability)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(expectedKeyCount, 1, "expectedKeyCount");
+        PreCondition.assertTrue(0 < falsePositiveProbability && falsePositiveProbability < 1, "0 < falsePositiveProbability && falsePositiveProbability < 1");
+
+        final long bitCount = BloomFilter.getOptimalBitCount(expectedKeyCount, falsePositiveProbability);
+        return BloomFilter.createWithSize(bitCount, BloomFilter.getOptimalHashCount(expectedKeyCount, bitCount));
+    }
+
+    /**
+     * Create a new empty {@link BloomFilter} with the provided number of bits and probes per key.
+     * @param bitCount The number of bits in the filter.
+     * @param hashCount The number of bits that each key sets.
+     */
+    public static BloomFilter createWithSize(long bitCount, int hashCount)
+    {
+        return new BloomFilter(bitCount, hashCount);
+    }
+
+    /**
+     * Read a {@link BloomFilter} from the bytes that were returned by {@link #toBytes()}.
+     * @param bytes The serialized {@link BloomFilter}.
+     */
+    public static Result<BloomFilter> parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                final java.nio.ByteBuffer buffer = BloomFilter.readHeader(bytes, BloomFilter.magicNumber, "Bloom filter");
+                final int hashCount = buffer.getInt();
+                final long bitCount = buffer.getLong();
+                if (hashCount < 1 || bitCount < 1 || bitCount > (long)Integer.MAX_VALUE * Long.SIZE || buffer.remaining() != (long)BloomFilter.getWordCount(bitCount) * Long.BYTES)
+                {
+                    throw new java.io.IOException("The serialized Bloom filter is corrupt.");
+                }
+
+                final BloomFilter result = new BloomFilter(bitCount, hashCount);
+                buffer.asLongBuffer().get(result.words);
+                return result;
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * Get the number of bits that give the provided false positive probability with the provided
+     * number of keys.
+     */
+    static long getOptimalBitCount(long expectedKeyCount, double falsePositiveProbability)
+    {
+        final double ln2 = java.lang.Math.log(2);
+        return java.lang.Math.max(Long.SIZE, (long)java.lang.Math.ceil(-expectedKeyCount * java.lang.Math.log(falsePositiveProbability) / (ln2 * ln2)));
+    }
+
+    /**
+     * Get the number of probes per key that gives the lowest false positive probability for the
+     * provided number of keys and bits.
+     */
+    static int getOptimalHashCount(long expectedKeyCount, long bitCount)
+    {
+        return (int)java.lang.Math.max(1, java.lang.Math.round((double)bitCount / expectedKeyCount * java.lang.Math.log(2)));
+    }
+
+    static int getWordCount(long bitCount)
+    {
+        return (int)((bitCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    /**
+     * Hash the provided key and write the two 64-bit halves of its 128-bit hash to the provided
+     * array.
+     */
+    static void hashKey(byte[] key, int startIndex, int length, long[] hash)
+    {
+        XXH128HashFunction.hash(key, startIndex, length, 0, hash, 0);
+    }
+
+    /**
+     * Get the position of the provided probe for a key with the provided 128-bit hash.
+     */
+    static long getProbePosition(long hashLow, long hashHigh, int probeIndex, long positionCount)
+    {
+        // Enhanced double hashing: h1 + i*h2 + (i^3 - i)/6. The cubic term keeps the probes from
+        // repeating when h2 happens to share a factor with the position count.
+        final long combinedHash = hashLow + probeIndex * hashHigh + ((long)probeIndex * probeIndex * probeIndex - probeIndex) / 6;
+        return Long.remainderUnsigned(combinedHash, positionCount);
+    }
+
+    /**
+     * Check the magic number and format version at the start of the provided serialized filter
+     * and return a buffer that is positioned right after them.
+     */
+    static java.nio.ByteBuffer readHeader(byte[] bytes, int magicNumber, String filterName) throws java.io.IOException
+    {
+        if (bytes.length < BloomFilter.headerLength)
+        {
+            throw new java.io.IOException("The serialized " + filterName + " is too short.");
+        }
+
+        final java.nio.ByteBuffer result = java.nio.ByteBuffer.wrap(bytes);
+        if (result.getInt() != magicNumber)
+        {
+            throw new java.io.IOException("The bytes are not a serialized " + filterName + ".");
+        }
+
+        final byte formatVersion = result.get();
+        if (formatVersion != BloomFilter.formatVersion)
+        {
+            throw new java.io.IOException("Unsupported " + filterName + " format version: " + formatVersion);
+        }
+
+        return result;
+    }
+
+    /**
+     * Serialize the provided filter parameters and words.
+     */
+    static byte[] writeFilter(int magicNumber, int hashCount, long positionCount, long[] words)
+    {
+        final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(BloomFilter.headerLength + words.length * Long.BYTES);
+        buffer.putInt(magicNumber);
+        buffer.put(BloomFilter.formatVersion);
+        buffer.putInt(hashCount);
+        buffer.putLong(positionCount);
+        for (int i = 0; i < words.length; ++i)
+        {
+            buffer.putLong((long)BloomFilter.wordView.getVolatile(words, i));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Get the number of bits in this {@link BloomFilter}.
+     */
+    public long getBitCount()
+    {
+        return this.bitCount;
+    }
+
+    /**
+     * Get the number of bits that each key sets in this {@link BloomFilter}.
+     */
+    public int getHashCount()
+    {
+        return this.hashCount;
+    }
+
+    /**
+     * Get the number of bits that are set in this {@link BloomFilter}.
+     */
+    public long getSetBitCount()
+    {
+        long result = 0;
+        for (int i = 0; i < this.words.length; ++i)
+        {
+            result += Long.bitCount((long)BloomFilter.wordView.getVolatile(this.words, i));
+        }
+        return result;
+    }
+
+    /**
+     * Get the estimated probability that a key that wasn't added will be reported as possibly
+     * added, based on how many bits are currently set.
+     */
+    public double getFalsePositiveProbability()
+    {
+        return java.lang.Math.pow((double)this.getSetBitCount() / this.bitCount, this.hashCount);
+    }
+
+    /**
+     * Set the bit at the provided position.
+     */
+    void setBit(long position)
+    {
+        BloomFilter.wordView.getAndBitwiseOr(this.words, (int)(position >>> 6), 1L << position);
+    }
+
+    /**
+     * Add the provided key to this {@link BloomFilter}.
+     * @param key The bytes of the key.
+     * @return Whether any bits changed. If no bits changed, then the key (or a set of keys that
+     * share its bits) was already added.
+     */
+    public boolean add(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        return this.add(key, 0, key.length);
+    }
+
+    /**
+     * Add the provided key to this {@link BloomFilter}.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return Whether any bits changed. If no bits changed, then the key (or a set of keys that
+     * share its bits) was already added.
+     */
+    public boolean add(byte[] key, int startIndex, int length)
+    {
+        final long[] hash = new long[2];
+        BloomFilter.hashKey(key, startIndex, length, hash);
+
+        boolean result = false;
+        for (int i = 0; i < this.hashCount; ++i)
+        {
+            final long position = BloomFilter.getProbePosition(hash[0], hash[1], i, this.bitCount);
+            final long mask = 1L << position;
+            final long previousWord = (long)BloomFilter.wordView.getAndBitwiseOr(this.words, (int)(position >>> 6), mask);
+            result |= (previousWord & mask) == 0;
+        }
+        return result;
+    }
+
+    /**
+     * Get whether the provided key might have been added to this {@link BloomFilter}.
+     * @param key The bytes of the key.
+     * @return False if the key was definitely not added, or true if it might have been.
+     */
+    public boolean contains(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        return this.contains(key, 0, key.length);
+    }
+
+    /**
+     * Get whether the provided key might have been added to this {@link BloomFilter}.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return False if the key was definitely not added, or true if it might have been.
+     */
+    public boolean contains(byte[] key, int startIndex, int length)
+    {
+        final long[] hash = new long[2];
+        BloomFilter.hashKey(key, startIndex, length, hash);
+
+        boolean result = true;
+        for (int i = 0; result && i < this.hashCount; ++i)
+        {
+            final long position = BloomFilter.getProbePosition(hash[0], hash[1], i, this.bitCount);
+            final long word = (long)BloomFilter.wordView.getVolatile(this.words, (int)(position >>> 6));
+            result = (word & (1L << position)) != 0;
+        }
+        return result;
+    }
+
+    /**
+     * Add all of the keys in the provided {@link BloomFilter} to this {@link BloomFilter}. The
+     * provided {@link BloomFilter} must have the same bit count and hash count as this one.
+     * @param other The {@link BloomFilter} to merge into this one.
+     */
+    public void merge(BloomFilter other)
+    {
+        PreCondition.assertNotNull(other, "other");
+        PreCondition.assertEqual(this.bitCount, other.bitCount, "other.getBitCount()");
+        PreCondition.assertEqual(this.hashCount, other.hashCount, "other.getHashCount()");
+
+        for (int i = 0; i < this.words.length; ++i)
+        {
+            final long otherWord = (long)BloomFilter.wordView.getVolatile(other.words, i);
+            if (otherWord != 0)
+            {
+                BloomFilter.wordView.getAndBitwiseOr(this.words, i, otherWord);
+            }
+        }
+    }
+
+    /**
+     * Remove all of the keys from this {@link BloomFilter}.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.words.length; ++i)
+        {
+            BloomFilter.wordView.setVolatile(this.words, i, 0L);
+        }
+    }
+
+    /**
+     * Serialize this {@link BloomFilter} so that it can be read back with
+     * {@link #parse(byte[])}. Keys that are added while this is running may or may not be
+     * included.
+     */
+    public byte[] toBytes()
+    {
+        return BloomFilter.writeFilter(BloomFilter.magicNumber, this.hashCount, this.bitCount, this.words);
+    }
+}
@@ -0,0 +1,455 @@
+package qub;
+
+/**
+ * Hashes many files concurrently. Hashing lots of small files one at a time is bound by the
+ * latency of opening and reading each file rather than by the hashing itself, so a
+ * {@link BulkFileHasher} keeps up to maximumInFlight files being read at the same time.
+ * <p>
+ * Each file is hashed on its own virtual thread when the runtime supports virtual threads (Java 21
+ * and later). On older runtimes the files are hashed on a fixed pool of maximumInFlight daemon
+ * threads instead. Either way, at most maximumInFlight files are hashed at the same time across
+ * every concurrent call to hashFiles(), so at most maximumInFlight {@link HashFunction}s are ever
+ * created, and they are reused from one file to the next.
+ * <p>
+ * Results are returned as a {@link java.util.stream.Stream} that is filled in as files finish.
+ * A file that can't be hashed produces a failed {@link FileHashResult} rather than ending the
+ * stream. Within each returned stream, results that haven't been consumed count against
+ * maximumInFlight, so a slow consumer slows down the hashing instead of letting results pile up
+ * in memory. Closing the returned stream stops reading paths from the input stream and closes
+ * it. Disposing the {@link BulkFileHasher} stops reading paths for every stream that it returned,
+ * including streams that were abandoned without being closed.
+ */
+public class BulkFileHasher implements Disposable
+{
+    /**
+     * The default maximum number of files that will be hashed (or waiting to be consumed) at the
+     * same time.
+     */
+    public static final int defaultMaximumInFlight = 64;
+
+    private final Function0<Result<? extends HashFunction>> hashFunctionCreator;
+    private final int maximumInFlight;
+    private final java.util.concurrent.ExecutorService executor;
+    private final boolean usesVirtualThreads;
+    private final java.util.concurrent.ConcurrentLinkedQueue<HashFunction> idleHashFunctions;
+    private final java.util.concurrent.Semaphore hashingPermits;
+    private final java.util.Set<Batch> batches;
+    private volatile boolean disposed;
+
+    private BulkFileHasher(Function0<Result<? extends HashFunction>> hashFunctionCreator, int maximumInFlight)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertGreaterThanOrEqualTo(maximumInFlight, 1, "maximumInFlight");
+
+        this.hashFunctionCreator = hashFunctionCreator;
+        this.maximumInFlight = maximumInFlight;
+        this.idleHashFunctions = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.hashingPermits = new java.util.concurrent.Semaphore(maximumInFlight);
+        this.batches = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+        final java.util.concurrent.ExecutorService virtualThreadExecutor = BulkFileHasher.createVirtualThreadExecutor();
+        this.usesVirtualThreads = (virtualThreadExecutor != null);
+        this.executor = this.usesVirtualThreads
+            ? virtualThreadExecutor
+            : java.util.concurrent.Executors.newFixedThreadPool(maximumInFlight, (Runnable runnable) ->
+            {
+                final Thread result = new Thread(runnable, "BulkFileHasher worker");
+                result.setDaemon(true);
+                return result;
+            });
+    }
+
+    /**
+     * Create a new {@link BulkFileHasher} with the default maximum number of files in flight.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will be
+     *                            used to hash the files.
+     */
+    public static BulkFileHasher create(Function0<Result<? extends HashFunction>> hashFunctionCreator)
+    {
+        return BulkFileHasher.create(hashFunctionCreator, BulkFileHasher.defaultMaximumInFlight);
+    }
+
+    /**
+     * Create a new {@link BulkFileHasher}.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will be
+     *                            used to hash the files.
+     * @param maximumInFlight The maximum number of files that will be hashed (or waiting to be
+     *                        consumed) at the same time.
+     */
+    public static BulkFileHasher create(Function0<Result<? extends HashFunction>> hashFunctionCreator, int maximumInFlight)
+    {
+        return new BulkFileHasher(hashFunctionCreator, maximumInFlight);
+    }
+
+    /**
+     * Create a new {@link BulkFileHasher} that produces SHA-256 digests.
+     */
+    public static BulkFileHasher createSHA256()
+    {
+        return BulkFileHasher.create(HashFunction::createSHA256);
+    }
+
+    /**
+     * Get an executor that runs each task on a new virtual thread, or null if this runtime doesn't
+     * support virtual threads. This is looked up with reflection so that this project can still
+     * be compiled for and run on runtimes that are older than Java 21.
+     */
+    private static java.util.concurrent.ExecutorService createVirtualThreadExecutor()
+    {
+        java.util.concurrent.ExecutorService result;
+        try
+        {
+            result = (java.util.concurrent.ExecutorService)java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Get the maximum number of files that will be hashed (or waiting to be consumed) at the same
+     * time.
+     */
+    public int getMaximumInFlight()
+    {
+        return this.maximumInFlight;
+    }
+
+    /**
+     * Get whether this {@link BulkFileHasher} hashes each file on its own virtual thread.
+     */
+    public boolean usesVirtualThreads()
+    {
+        return this.usesVirtualThreads;
+    }
+
+    /**
+     * Hash the files at the provided paths concurrently. The results are returned in the order
+     * that the files finish being hashed.
+     * @param filePaths The paths to the files to hash.
+     * @return The results of hashing each file, in completion order.
+     */
+    public java.util.stream.Stream<FileHashResult> hashFiles(java.util.stream.Stream<java.nio.file.Path> filePaths)
+    {
+        return this.hashFiles(filePaths, false);
+    }
+
+    /**
+     * Hash the files at the provided paths concurrently. The results are returned in the same
+     * order as the provided paths.
+     * @param filePaths The paths to the files to hash.
+     * @return The results of hashing each file, in input order.
+     */
+    public java.util.stream.Stream<FileHashResult> hashFilesInOrder(java.util.stream.Stream<java.nio.file.Path> filePaths)
+    {
+        return this.hashFiles(filePaths, true);
+    }
+
+    private java.util.stream.Stream<FileHashResult> hashFiles(java.util.stream.Stream<java.nio.file.Path> filePaths, boolean inputOrder)
+    {
+        PreCondition.assertNotNull(filePaths, "filePaths");
+        PreCondition.assertNotDisposed(this, "this");
+
+        final Batch batch = new Batch(this, filePaths, inputOrder);
+        this.batches.add(batch);
+        batch.start();
+
+        // dispose() may have already stopped the batches, so stop this one too in case it was
+        // added afterwards.
+        if (this.disposed)
+        {
+            batch.stopDispatching();
+        }
+
+        return java.util.stream.StreamSupport.stream(java.util.Spliterators.spliteratorUnknownSize(batch, java.util.Spliterator.ORDERED | java.util.Spliterator.NONNULL), false)
+            .onClose(batch::cancel);
+    }
+
+    /**
+     * Hash the file at the provided path with an idle {@link HashFunction}, or with a new one if
+     * none are idle. This waits for a hashing permit first, so no more than maximumInFlight files
+     * are hashed at once no matter how many batches are running.
+     */
+    private FileHashResult hashFile(long index, java.nio.file.Path filePath)
+    {
+        FileHashResult result;
+        try
+        {
+            this.hashingPermits.acquire();
+            try
+            {
+                HashFunction hashFunction = this.idleHashFunctions.poll();
+                if (hashFunction == null)
+                {
+                    hashFunction = this.hashFunctionCreator.run().await();
+                }
+
+                try
+                {
+                    result = FileHashResult.createSuccess(index, filePath, HashFunction.hashFile(filePath, hashFunction).await());
+                }
+                finally
+                {
+                    this.releaseHashFunction(hashFunction);
+                }
+            }
+            finally
+            {
+                this.hashingPermits.release();
+            }
+        }
+        catch (Throwable e)
+        {
+            result = FileHashResult.createError(index, filePath, e);
+        }
+        return result;
+    }
+
+    private void releaseHashFunction(HashFunction hashFunction)
+    {
+        this.idleHashFunctions.add(hashFunction);
+
+        // dispose() may have already drained the idle HashFunctions, so drain again in case this
+        // HashFunction was added afterwards.
+        if (this.disposed)
+        {
+            this.disposeIdleHashFunctions();
+        }
+    }
+
+    private void disposeIdleHashFunctions()
+    {
+        HashFunction hashFunction = this.idleHashFunctions.poll();
+        while (hashFunction != null)
+        {
+            hashFunction.dispose().await();
+            hashFunction = this.idleHashFunctions.poll();
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    /**
+     * Dispose of this {@link BulkFileHasher}. Files that are already being hashed will finish, but
+     * no new files will be started. The dispatching thread of every stream that this
+     * {@link BulkFileHasher} returned is stopped, even if it is waiting for its consumer to take
+     * more results, so that abandoned streams don't keep their threads alive.
+     */
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                for (final Batch batch : this.batches)
+                {
+                    batch.stopDispatching();
+                }
+                this.executor.shutdown();
+                this.disposeIdleHashFunctions();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * The marker that the dispatching thread adds to a {@link Batch}'s completed queue after it
+     * has started hashing every file.
+     */
+    private static class EndOfInput
+    {
+        private final long fileCount;
+        private final Throwable error;
+
+        private EndOfInput(long fileCount, Throwable error)
+        {
+            this.fileCount = fileCount;
+            this.error = error;
+        }
+    }
+
+    /**
+     * One call to hashFiles(). A dispatching thread reads the input paths and starts hashing each
+     * one after acquiring an in-flight permit. The permit is released when the file's result is
+     * consumed from this {@link java.util.Iterator}.
+     */
+    private static class Batch implements java.util.Iterator<FileHashResult>
+    {
+        private final BulkFileHasher hasher;
+        private final java.util.stream.Stream<java.nio.file.Path> filePaths;
+        private final boolean inputOrder;
+        private final java.util.concurrent.Semaphore inFlightPermits;
+        private final java.util.concurrent.LinkedBlockingQueue<Object> completed;
+        private final java.util.Map<Long,FileHashResult> pendingResults;
+        private final Thread dispatchingThread;
+        private volatile boolean cancelled;
+        private long nextIndex;
+        private long fileCount;
+        private Throwable inputError;
+        private FileHashResult next;
+
+        private Batch(BulkFileHasher hasher, java.util.stream.Stream<java.nio.file.Path> filePaths, boolean inputOrder)
+        {
+            this.hasher = hasher;
+            this.filePaths = filePaths;
+            this.inputOrder = inputOrder;
+            this.inFlightPermits = new java.util.concurrent.Semaphore(hasher.maximumInFlight);
+            this.completed = new java.util.concurrent.LinkedBlockingQueue<>();
+            this.pendingResults = new java.util.HashMap<>();
+            this.fileCount = -1;
+
+            this.dispatchingThread = new Thread(this::dispatch, "BulkFileHasher dispatcher");
+            this.dispatchingThread.setDaemon(true);
+        }
+
+        private void start()
+        {
+            this.dispatchingThread.start();
+        }
+
+        private void dispatch()
+        {
+            long fileCount = 0;
+            Throwable error = null;
+            try
+            {
+                final java.util.Iterator<java.nio.file.Path> filePathIterator = this.filePaths.iterator();
+                while (!this.cancelled && filePathIterator.hasNext())
+                {
+                    final java.nio.file.Path filePath = filePathIterator.next();
+                    this.inFlightPermits.acquire();
+
+                    final long index = fileCount;
+                    try
+                    {
+                        this.hasher.executor.execute(() -> this.completed.add(this.hasher.hashFile(index, filePath)));
+                    }
+                    catch (Throwable e)
+                    {
+                        this.inFlightPermits.release();
+                        throw e;
+                    }
+                    ++fileCount;
+                }
+            }
+            catch (InterruptedException e)
+            {
+                // The batch was cancelled.
+            }
+            catch (Throwable e)
+            {
+                error = e;
+            }
+            this.hasher.batches.remove(this);
+            this.completed.add(new EndOfInput(fileCount, error));
+        }
+
+        /**
+         * Stop reading paths from the input stream and starting new files. Files that have
+         * already been started will still be returned.
+         */
+        private void stopDispatching()
+        {
+            this.cancelled = true;
+            this.dispatchingThread.interrupt();
+        }
+
+        private void cancel()
+        {
+            this.stopDispatching();
+            this.filePaths.close();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (this.next == null)
+            {
+                this.next = this.takeNext();
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public FileHashResult next()
+        {
+            if (!this.hasNext())
+            {
+                throw new java.util.NoSuchElementException();
+            }
+            final FileHashResult result = this.next;
+            this.next = null;
+            return result;
+        }
+
+        /**
+         * Wait for the next result, or return null if every result has been consumed.
+         */
+        private FileHashResult takeNext()
+        {
+            FileHashResult result = null;
+            while (result == null)
+            {
+                if (this.nextIndex == this.fileCount)
+                {
+                    if (this.inputError != null)
+                    {
+                        throw Exceptions.asRuntime(this.inputError);
+                    }
+                    break;
+                }
+
+                if (this.inputOrder)
+                {
+                    result = this.pendingResults.remove(this.nextIndex);
+                }
+
+                if (result == null)
+                {
+                    final Object item;
+                    try
+                    {
+                        item = this.completed.take();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw Exceptions.asRuntime(e);
+                    }
+
+                    if (item instanceof EndOfInput)
+                    {
+                        final EndOfInput endOfInput = (EndOfInput)item;
+                        this.fileCount = endOfInput.fileCount;
+                        this.inputError = endOfInput.error;
+                    }
+                    else if (!this.inputOrder)
+                    {
+                        result = (FileHashResult)item;
+                    }
+                    else
+                    {
+                        final FileHashResult completedResult = (FileHashResult)item;
+                        this.pendingResults.put(completedResult.getIndex(), completedResult);
+                    }
+                }
+            }
+
+            if (result != null)
+            {
+                ++this.nextIndex;
+                this.inFlightPermits.release();
+            }
+            return result;
+        }
+    }
+}
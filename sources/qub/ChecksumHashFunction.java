@@ -0,0 +1,318 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that is backed by one of the 32-bit {@link java.util.zip.Checksum}
+ * implementations in the JDK. The JDK's CRC-32 and CRC-32C implementations are intrinsified with
+ * the processor's CRC instructions where they are available, so these are much faster than a
+ * cryptographic digest when all that is needed is a block checksum.
+ * <p>
+ * The digest is the big-endian form of the 32-bit checksum. The checksums of adjacent blocks can
+ * be merged with {@link #combine(long, long, long)} without rehashing either block, which allows
+ * the blocks of a large input to be checksummed in parallel.
+ */
+public class ChecksumHashFunction implements LongHashFunction
+{
+    /**
+     * The reversed CRC-32 polynomial (0x04C11DB7).
+     */
+    private static final int crc32Polynomial = 0xEDB88320;
+
+    /**
+     * The reversed CRC-32C (Castagnoli) polynomial (0x1EDC6F41).
+     */
+    private static final int crc32cPolynomial = 0x82F63B78;
+
+    /**
+     * The largest prime number that is smaller than 2^16.
+     */
+    private static final int adler32Base = 65521;
+
+    /**
+     * x^(2^k) modulo each CRC polynomial, where k is the index into the array.
+     */
+    private static final int[] crc32PowerTable = ChecksumHashFunction.createPowerTable(ChecksumHashFunction.crc32Polynomial);
+    private static final int[] crc32cPowerTable = ChecksumHashFunction.createPowerTable(ChecksumHashFunction.crc32cPolynomial);
+
+    private final String algorithm;
+    private final java.util.zip.Checksum checksum;
+    private boolean disposed;
+
+    private ChecksumHashFunction(String algorithm, java.util.zip.Checksum checksum)
+    {
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+        PreCondition.assertNotNull(checksum, "checksum");
+
+        this.algorithm = algorithm;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Create a new CRC-32C (Castagnoli) {@link ChecksumHashFunction}.
+     */
+    public static ChecksumHashFunction createCRC32C()
+    {
+        return new ChecksumHashFunction("CRC32C", new java.util.zip.CRC32C());
+    }
+
+    /**
+     * Create a new CRC-32 {@link ChecksumHashFunction}.
+     */
+    public static ChecksumHashFunction createCRC32()
+    {
+        return new ChecksumHashFunction("CRC32", new java.util.zip.CRC32());
+    }
+
+    /**
+     * Create a new Adler-32 {@link ChecksumHashFunction}.
+     */
+    public static ChecksumHashFunction createAdler32()
+    {
+        return new ChecksumHashFunction("Adler32", new java.util.zip.Adler32());
+    }
+
+    /**
+     * Get the name of the checksum algorithm that this {@link ChecksumHashFunction} is using.
+     */
+    public String getAlgorithm()
+    {
+        return this.algorithm;
+    }
+
+    /**
+     * Get the checksum of two adjacent blocks of bytes from the checksums of each block. This uses
+     * the same checksum algorithm as this {@link ChecksumHashFunction}.
+     * @param firstChecksum The checksum of the first block.
+     * @param secondChecksum The checksum of the second block.
+     * @param secondLength The number of bytes in the second block.
+     * @return The checksum of the first block followed by the second block.
+     */
+    public long combine(long firstChecksum, long secondChecksum, long secondLength)
+    {
+        long result;
+        switch (this.algorithm)
+        {
+            case "CRC32C":
+                result = ChecksumHashFunction.combineCRC32C(firstChecksum, secondChecksum, secondLength);
+                break;
+
+            case "CRC32":
+                result = ChecksumHashFunction.combineCRC32(firstChecksum, secondChecksum, secondLength);
+                break;
+
+            default:
+                result = ChecksumHashFunction.combineAdler32(firstChecksum, secondChecksum, secondLength);
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Get the CRC-32C checksum of two adjacent blocks of bytes from the CRC-32C checksums of each
+     * block. This takes O(log(secondLength)) time.
+     * @param firstChecksum The checksum of the first block.
+     * @param secondChecksum The checksum of the second block.
+     * @param secondLength The number of bytes in the second block.
+     * @return The checksum of the first block followed by the second block.
+     */
+    public static long combineCRC32C(long firstChecksum, long secondChecksum, long secondLength)
+    {
+        return ChecksumHashFunction.combineCRC(firstChecksum, secondChecksum, secondLength, ChecksumHashFunction.crc32cPolynomial, ChecksumHashFunction.crc32cPowerTable);
+    }
+
+    /**
+     * Get the CRC-32 checksum of two adjacent blocks of bytes from the CRC-32 checksums of each
+     * block. This takes O(log(secondLength)) time.
+     * @param firstChecksum The checksum of the first block.
+     * @param secondChecksum The checksum of the second block.
+     * @param secondLength The number of bytes in the second block.
+     * @return The checksum of the first block followed by the second block.
+     */
+    public static long combineCRC32(long firstChecksum, long secondChecksum, long secondLength)
+    {
+        return ChecksumHashFunction.combineCRC(firstChecksum, secondChecksum, secondLength, ChecksumHashFunction.crc32Polynomial, ChecksumHashFunction.crc32PowerTable);
+    }
+
+    /**
+     * Get the Adler-32 checksum of two adjacent blocks of bytes from the Adler-32 checksums of
+     * each block. This takes constant time.
+     * @param firstChecksum The checksum of the first block.
+     * @param secondChecksum The checksum of the second block.
+     * @param secondLength The number of bytes in the second block.
+     * @return The checksum of the first block followed by the second block.
+     */
+    public static long combineAdler32(long firstChecksum, long secondChecksum, long secondLength)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(secondLength, 0L, "secondLength");
+
+        final long base = ChecksumHashFunction.adler32Base;
+        final long remainder = secondLength % base;
+        long sum1 = firstChecksum & 0xFFFF;
+        long sum2 = (remainder * sum1) % base;
+        sum1 += (secondChecksum & 0xFFFF) + base - 1;
+        sum2 += ((firstChecksum >>> 16) & 0xFFFF) + ((secondChecksum >>> 16) & 0xFFFF) + base - remainder;
+        if (sum1 >= base)
+        {
+            sum1 -= base;
+        }
+        if (sum1 >= base)
+        {
+            sum1 -= base;
+        }
+        if (sum2 >= (base << 1))
+        {
+            sum2 -= (base << 1);
+        }
+        if (sum2 >= base)
+        {
+            sum2 -= base;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private static long combineCRC(long firstChecksum, long secondChecksum, long secondLength, int polynomial, int[] powerTable)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(secondLength, 0L, "secondLength");
+
+        // Shifting the first checksum past secondLength zero bytes is the same as multiplying it
+        // by x^(8 * secondLength) modulo the polynomial.
+        int shift = 0x80000000;
+        int k = 3;
+        for (long n = secondLength; n != 0; n >>>= 1, ++k)
+        {
+            if ((n & 1) != 0)
+            {
+                shift = ChecksumHashFunction.multiplyModulo(powerTable[k & 31], shift, polynomial);
+            }
+        }
+        final int result = ChecksumHashFunction.multiplyModulo(shift, (int)firstChecksum, polynomial) ^ (int)secondChecksum;
+        return result & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Multiply two polynomials modulo the provided (reversed) polynomial.
+     */
+    private static int multiplyModulo(int a, int b, int polynomial)
+    {
+        int result = 0;
+        for (int mask = 0x80000000; mask != 0; mask >>>= 1)
+        {
+            if ((a & mask) != 0)
+            {
+                result ^= b;
+                if ((a & (mask - 1)) == 0)
+                {
+                    break;
+                }
+            }
+            b = (b & 1) != 0 ? (b >>> 1) ^ polynomial : b >>> 1;
+        }
+        return result;
+    }
+
+    private static int[] createPowerTable(int polynomial)
+    {
+        final int[] result = new int[32];
+        int power = 0x40000000;
+        result[0] = power;
+        for (int i = 1; i < result.length; ++i)
+        {
+            power = ChecksumHashFunction.multiplyModulo(power, power, polynomial);
+            result[i] = power;
+        }
+        return result;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.checksum.update(value);
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.checksum.update(values, startIndex, length);
+    }
+
+    @Override
+    public void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.checksum.update(values);
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public long takeLongDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final long result = this.checksum.getValue();
+        this.checksum.reset();
+        return result;
+    }
+
+    @Override
+    public long peekLongDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        return this.checksum.getValue();
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - Integer.BYTES, "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        final long digest = this.takeLongDigest();
+        output[outputStartIndex] = (byte)(digest >>> 24);
+        output[outputStartIndex + 1] = (byte)(digest >>> 16);
+        output[outputStartIndex + 2] = (byte)(digest >>> 8);
+        output[outputStartIndex + 3] = (byte)digest;
+        return Integer.BYTES;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.checksum.reset();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.reset();
+            }
+            return result;
+        });
+    }
+}
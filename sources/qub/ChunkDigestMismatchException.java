@@ -0,0 +1,61 @@
+package qub;
+
+/**
+ * An error that is thrown when the digest of a chunk doesn't match the chunk's expected digest in
+ * a {@link DigestManifest}.
+ */
+public class ChunkDigestMismatchException extends java.io.IOException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int chunkIndex;
+    private final long chunkOffset;
+    private final int chunkLength;
+
+    /**
+     * Create a new {@link ChunkDigestMismatchException}.
+     * @param chunkIndex The index of the chunk in its {@link DigestManifest}.
+     * @param chunkOffset The offset of the first byte of the chunk.
+     * @param chunkLength The number of bytes in the chunk.
+     */
+    public ChunkDigestMismatchException(int chunkIndex, long chunkOffset, int chunkLength)
+    {
+        super("The digest of chunk " + chunkIndex + " (offset " + chunkOffset + ", length " + chunkLength + ") doesn't match the manifest.");
+
+        this.chunkIndex = chunkIndex;
+        this.chunkOffset = chunkOffset;
+        this.chunkLength = chunkLength;
+    }
+
+    /**
+     * Get the index of the chunk in its {@link DigestManifest}.
+     */
+    public int getChunkIndex()
+    {
+        return this.chunkIndex;
+    }
+
+    /**
+     * Get the offset of the first byte of the chunk.
+     */
+    public long getChunkOffset()
+    {
+        return this.chunkOffset;
+    }
+
+    /**
+     * Get the number of bytes in the chunk.
+     */
+    public int getChunkLength()
+    {
+        return this.chunkLength;
+    }
+
+    /**
+     * Get the range of bytes that needs to be fetched again.
+     */
+    public ChunkRange getChunkRange()
+    {
+        return ChunkRange.create(this.chunkOffset, this.chunkLength);
+    }
+}
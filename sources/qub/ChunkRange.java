@@ -0,0 +1,79 @@
+package qub;
+
+/**
+ * A contiguous range of bytes in a stream or file, such as the chunks that failed verification
+ * against a {@link DigestManifest} and need to be fetched again.
+ */
+public class ChunkRange
+{
+    private final long offset;
+    private final long length;
+
+    private ChunkRange(long offset, long length)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(offset, 0, "offset");
+        PreCondition.assertGreaterThanOrEqualTo(length, 1, "length");
+
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Create a new {@link ChunkRange}.
+     * @param offset The offset of the first byte of the range.
+     * @param length The number of bytes in the range.
+     */
+    public static ChunkRange create(long offset, long length)
+    {
+        return new ChunkRange(offset, length);
+    }
+
+    /**
+     * Get the offset of the first byte of this range.
+     */
+    public long getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * Get the number of bytes in this range.
+     */
+    public long getLength()
+    {
+        return this.length;
+    }
+
+    /**
+     * Get the offset of the byte after the last byte of this range.
+     */
+    public long getEndOffset()
+    {
+        return this.offset + this.length;
+    }
+
+    @Override
+    public boolean equals(Object rhs)
+    {
+        return rhs instanceof ChunkRange && this.equals((ChunkRange)rhs);
+    }
+
+    public boolean equals(ChunkRange rhs)
+    {
+        return rhs != null &&
+            this.offset == rhs.offset &&
+            this.length == rhs.length;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return java.util.Objects.hash(this.offset, this.length);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "{\"offset\":" + this.offset + ",\"length\":" + this.length + "}";
+    }
+}
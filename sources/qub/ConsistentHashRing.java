@@ -0,0 +1,222 @@
+package qub;
+
+/**
+ * A {@link ShardRouter} that places each node at many points (virtual nodes) on a ring of 64-bit
+ * hashes. A key is owned by the node of the first ring point at or after the key's hash, wrapping
+ * around to the first point. Adding a node only moves the keys that now fall just before one of
+ * its points, and removing a node only moves the keys that it owned.
+ * <p>
+ * The ring points are kept sorted in a primitive long[] so that a lookup is a binary search with
+ * no allocation and no locking. Adding or removing a node builds new arrays by merging (or
+ * filtering) the existing ones and then publishes them with a single volatile write, so lookups
+ * that are running at the same time always see a consistent ring.
+ * @param <T> The type of the nodes.
+ */
+public class ConsistentHashRing<T> implements ShardRouter<T>
+{
+    /**
+     * The default number of points that each node is placed at on the ring.
+     */
+    public static final int defaultVirtualNodeCount = 160;
+
+    private final int virtualNodeCount;
+    private volatile Ring ring;
+
+    private ConsistentHashRing(int virtualNodeCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(virtualNodeCount, 1, "virtualNodeCount");
+
+        this.virtualNodeCount = virtualNodeCount;
+        this.ring = new Ring(new Object[0], new long[0], new Object[0]);
+    }
+
+    /**
+     * Create a new empty {@link ConsistentHashRing} with the default number of virtual nodes.
+     */
+    public static <T> ConsistentHashRing<T> create()
+    {
+        return ConsistentHashRing.create(ConsistentHashRing.defaultVirtualNodeCount);
+    }
+
+    /**
+     * Create a new empty {@link ConsistentHashRing}.
+     * @param virtualNodeCount The number of points that each node is placed at on the ring. More
+     * points spread the keys more evenly between the nodes, at the cost of memory and of a few
+     * more steps in each binary search.
+     */
+    public static <T> ConsistentHashRing<T> create(int virtualNodeCount)
+    {
+        return new ConsistentHashRing<>(virtualNodeCount);
+    }
+
+    /**
+     * Get the number of points that each node is placed at on the ring.
+     */
+    public int getVirtualNodeCount()
+    {
+        return this.virtualNodeCount;
+    }
+
+    /**
+     * Get the ring point of the provided virtual node of the node with the provided name.
+     */
+    static long getRingPoint(byte[] nodeNameBytes, int virtualNodeIndex)
+    {
+        return XXH3HashFunction.hash(nodeNameBytes, 0, nodeNameBytes.length, virtualNodeIndex);
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return this.ring.nodes.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public java.util.List<T> getNodes()
+    {
+        return (java.util.List<T>)java.util.List.of(this.ring.nodes);
+    }
+
+    @Override
+    public synchronized boolean addNode(T node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        final Ring ring = this.ring;
+        final boolean result = ring.indexOfNode(node) == -1;
+        if (result)
+        {
+            final byte[] nodeNameBytes = ShardRouter.getNodeNameBytes(node);
+            final long[] newPoints = new long[this.virtualNodeCount];
+            for (int i = 0; i < newPoints.length; ++i)
+            {
+                newPoints[i] = ConsistentHashRing.getRingPoint(nodeNameBytes, i);
+            }
+            java.util.Arrays.sort(newPoints);
+
+            final int pointCount = ring.points.length + newPoints.length;
+            final long[] points = new long[pointCount];
+            final Object[] owners = new Object[pointCount];
+            int existingIndex = 0;
+            int newIndex = 0;
+            for (int i = 0; i < pointCount; ++i)
+            {
+                if (newIndex == newPoints.length || (existingIndex < ring.points.length && ring.points[existingIndex] <= newPoints[newIndex]))
+                {
+                    points[i] = ring.points[existingIndex];
+                    owners[i] = ring.owners[existingIndex];
+                    ++existingIndex;
+                }
+                else
+                {
+                    points[i] = newPoints[newIndex];
+                    owners[i] = node;
+                    ++newIndex;
+                }
+            }
+
+            final Object[] nodes = java.util.Arrays.copyOf(ring.nodes, ring.nodes.length + 1);
+            nodes[ring.nodes.length] = node;
+            this.ring = new Ring(nodes, points, owners);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean removeNode(T node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        final Ring ring = this.ring;
+        final int nodeIndex = ring.indexOfNode(node);
+        final boolean result = nodeIndex != -1;
+        if (result)
+        {
+            final Object removedNode = ring.nodes[nodeIndex];
+            final int pointCount = ring.points.length - this.virtualNodeCount;
+            final long[] points = new long[pointCount];
+            final Object[] owners = new Object[pointCount];
+            int pointIndex = 0;
+            for (int i = 0; i < ring.points.length; ++i)
+            {
+                if (ring.owners[i] != removedNode)
+                {
+                    points[pointIndex] = ring.points[i];
+                    owners[pointIndex] = ring.owners[i];
+                    ++pointIndex;
+                }
+            }
+
+            final Object[] nodes = new Object[ring.nodes.length - 1];
+            System.arraycopy(ring.nodes, 0, nodes, 0, nodeIndex);
+            System.arraycopy(ring.nodes, nodeIndex + 1, nodes, nodeIndex, nodes.length - nodeIndex);
+            this.ring = new Ring(nodes, points, owners);
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getNode(long keyHash)
+    {
+        final Ring ring = this.ring;
+        final long[] points = ring.points;
+
+        T result = null;
+        if (points.length > 0)
+        {
+            int pointIndex = java.util.Arrays.binarySearch(points, keyHash);
+            if (pointIndex < 0)
+            {
+                pointIndex = -(pointIndex + 1);
+                if (pointIndex == points.length)
+                {
+                    pointIndex = 0;
+                }
+            }
+            else
+            {
+                // When several points share the key's hash, binarySearch() can return any of
+                // them, so step back to the first one to keep the owner deterministic.
+                while (pointIndex > 0 && points[pointIndex - 1] == keyHash)
+                {
+                    --pointIndex;
+                }
+            }
+            result = (T)ring.owners[pointIndex];
+        }
+        return result;
+    }
+
+    /**
+     * An immutable snapshot of the nodes and the ring points.
+     */
+    private static class Ring
+    {
+        final Object[] nodes;
+        final long[] points;
+        final Object[] owners;
+
+        Ring(Object[] nodes, long[] points, Object[] owners)
+        {
+            this.nodes = nodes;
+            this.points = points;
+            this.owners = owners;
+        }
+
+        int indexOfNode(Object node)
+        {
+            int result = -1;
+            for (int i = 0; i < this.nodes.length; ++i)
+            {
+                if (this.nodes[i].equals(node))
+                {
+                    result = i;
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+}
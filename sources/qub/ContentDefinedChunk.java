@@ -0,0 +1,84 @@
+package qub;
+
+/**
+ * A chunk of a stream that was cut at a content-defined boundary by a
+ * {@link ContentDefinedChunkingByteReadStream}.
+ */
+public class ContentDefinedChunk
+{
+    private final long offset;
+    private final int length;
+    private final BitArray digest;
+
+    private ContentDefinedChunk(long offset, int length, BitArray digest)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(offset, 0, "offset");
+        PreCondition.assertGreaterThanOrEqualTo(length, 1, "length");
+        PreCondition.assertNotNull(digest, "digest");
+
+        this.offset = offset;
+        this.length = length;
+        this.digest = digest;
+    }
+
+    /**
+     * Create a new {@link ContentDefinedChunk}.
+     * @param offset The offset of the first byte of the chunk in its stream.
+     * @param length The number of bytes in the chunk.
+     * @param digest The digest of the bytes in the chunk.
+     */
+    public static ContentDefinedChunk create(long offset, int length, BitArray digest)
+    {
+        return new ContentDefinedChunk(offset, length, digest);
+    }
+
+    /**
+     * Get the offset of the first byte of this chunk in its stream.
+     */
+    public long getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * Get the number of bytes in this chunk.
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    /**
+     * Get the digest of the bytes in this chunk.
+     */
+    public BitArray getDigest()
+    {
+        return this.digest;
+    }
+
+    @Override
+    public boolean equals(Object rhs)
+    {
+        return rhs instanceof ContentDefinedChunk && this.equals((ContentDefinedChunk)rhs);
+    }
+
+    public boolean equals(ContentDefinedChunk rhs)
+    {
+        return rhs != null &&
+            this.offset == rhs.offset &&
+            this.length == rhs.length &&
+            this.digest.equals(rhs.digest);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return java.util.Objects.hash(this.offset, this.length, this.digest);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "{\"offset\":" + this.offset + ",\"length\":" + this.length + ",\"digest\":\"" + this.digest.toHexString() + "\"}";
+    }
+}
@@ -0,0 +1,294 @@
+package qub;
+
+/**
+ * A {@link ByteReadStream} that cuts the bytes that are read into content-defined chunks and
+ * computes the digest of each chunk. Chunk boundaries are found with the FastCDC algorithm: a
+ * Gear rolling hash is updated with each byte, and a chunk ends when the rolling hash matches a
+ * mask. Because the boundaries depend only on the nearby content, inserting or removing bytes
+ * only changes the chunks around the edit, which allows unchanged chunks to be deduplicated.
+ * <p>
+ * Chunks are never shorter than the minimum chunk size (except the last chunk of the stream) and
+ * never longer than the maximum chunk size. A stricter mask is used before the average chunk size
+ * and a looser mask is used after it ("normalized chunking"), so most chunks are close to the
+ * average chunk size.
+ * <p>
+ * Each finished chunk is passed to the chunk listener as a {@link ContentDefinedChunk}. The last
+ * chunk is finished when the inner stream reaches its end or when {@link #finishChunk()} is
+ * called.
+ */
+public class ContentDefinedChunkingByteReadStream implements ByteReadStream
+{
+    /**
+     * The default minimum number of bytes in a chunk.
+     */
+    public static final int defaultMinimumChunkSize = 2 * 1024;
+
+    /**
+     * The default average number of bytes in a chunk.
+     */
+    public static final int defaultAverageChunkSize = 8 * 1024;
+
+    /**
+     * The default maximum number of bytes in a chunk.
+     */
+    public static final int defaultMaximumChunkSize = 64 * 1024;
+
+    /**
+     * The number of bits that the mask before the average chunk size has more than (and the mask
+     * after the average chunk size has fewer than) the number of bits in the average chunk size.
+     */
+    private static final int normalizationLevel = 2;
+
+    /**
+     * The random values that each byte value adds to the rolling hash. These are generated from a
+     * fixed seed so that chunk boundaries are the same in every process.
+     */
+    private static final long[] gearTable = ContentDefinedChunkingByteReadStream.createGearTable();
+
+    private final ByteReadStream innerStream;
+    private final HashFunction hashFunction;
+    private final Action1<ContentDefinedChunk> chunkListener;
+    private final int minimumChunkSize;
+    private final int averageChunkSize;
+    private final int maximumChunkSize;
+    private final long smallChunkMask;
+    private final long largeChunkMask;
+    private long rollingHash;
+    private long chunkOffset;
+    private int chunkLength;
+    private boolean isDisposed;
+
+    private ContentDefinedChunkingByteReadStream(ByteReadStream innerStream, HashFunction hashFunction, Action1<ContentDefinedChunk> chunkListener, int minimumChunkSize, int averageChunkSize, int maximumChunkSize)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertNotNull(chunkListener, "chunkListener");
+        PreCondition.assertGreaterThanOrEqualTo(minimumChunkSize, 1, "minimumChunkSize");
+        PreCondition.assertGreaterThanOrEqualTo(averageChunkSize, 16, "averageChunkSize");
+        PreCondition.assertBetween(minimumChunkSize, averageChunkSize, maximumChunkSize, "averageChunkSize");
+
+        this.innerStream = innerStream;
+        this.hashFunction = hashFunction;
+        this.chunkListener = chunkListener;
+        this.minimumChunkSize = minimumChunkSize;
+        this.averageChunkSize = averageChunkSize;
+        this.maximumChunkSize = maximumChunkSize;
+
+        // The Gear hash shifts left, so its high bits depend on the most bytes.
+        final int averageChunkBits = 31 - Integer.numberOfLeadingZeros(averageChunkSize);
+        this.smallChunkMask = -1L << (Long.SIZE - (averageChunkBits + ContentDefinedChunkingByteReadStream.normalizationLevel));
+        this.largeChunkMask = -1L << (Long.SIZE - (averageChunkBits - ContentDefinedChunkingByteReadStream.normalizationLevel));
+    }
+
+    /**
+     * Create a new {@link ContentDefinedChunkingByteReadStream} with the default chunk sizes.
+     * @param innerStream The stream to read bytes from.
+     * @param hashFunction The {@link HashFunction} that computes the digest of each chunk.
+     * @param chunkListener The action that will be run for each chunk that is finished.
+     */
+    public static ContentDefinedChunkingByteReadStream create(ByteReadStream innerStream, HashFunction hashFunction, Action1<ContentDefinedChunk> chunkListener)
+    {
+        return ContentDefinedChunkingByteReadStream.create(innerStream, hashFunction, chunkListener, ContentDefinedChunkingByteReadStream.defaultMinimumChunkSize, ContentDefinedChunkingByteReadStream.defaultAverageChunkSize, ContentDefinedChunkingByteReadStream.defaultMaximumChunkSize);
+    }
+
+    /**
+     * Create a new {@link ContentDefinedChunkingByteReadStream}.
+     * @param innerStream The stream to read bytes from.
+     * @param hashFunction The {@link HashFunction} that computes the digest of each chunk.
+     * @param chunkListener The action that will be run for each chunk that is finished.
+     * @param minimumChunkSize The minimum number of bytes in a chunk.
+     * @param averageChunkSize The average number of bytes in a chunk.
+     * @param maximumChunkSize The maximum number of bytes in a chunk.
+     */
+    public static ContentDefinedChunkingByteReadStream create(ByteReadStream innerStream, HashFunction hashFunction, Action1<ContentDefinedChunk> chunkListener, int minimumChunkSize, int averageChunkSize, int maximumChunkSize)
+    {
+        return new ContentDefinedChunkingByteReadStream(innerStream, hashFunction, chunkListener, minimumChunkSize, averageChunkSize, maximumChunkSize);
+    }
+
+    /**
+     * Create a new {@link ContentDefinedChunkingByteReadStream} that computes the SHA-256 digest of
+     * each chunk with the default chunk sizes.
+     * @param innerStream The stream to read bytes from.
+     * @param chunkListener The action that will be run for each chunk that is finished.
+     */
+    public static Result<ContentDefinedChunkingByteReadStream> createSHA256(ByteReadStream innerStream, Action1<ContentDefinedChunk> chunkListener)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(chunkListener, "chunkListener");
+
+        return Result.create(() ->
+        {
+            return ContentDefinedChunkingByteReadStream.create(innerStream, HashFunction.createSHA256().await(), chunkListener);
+        });
+    }
+
+    private static long[] createGearTable()
+    {
+        final long[] result = new long[256];
+        long state = 0;
+        for (int i = 0; i < result.length; ++i)
+        {
+            // SplitMix64
+            state += 0x9E3779B97F4A7C15L;
+            long value = state;
+            value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+            value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+            result[i] = value ^ (value >>> 31);
+        }
+        return result;
+    }
+
+    /**
+     * Get the minimum number of bytes in a chunk.
+     */
+    public int getMinimumChunkSize()
+    {
+        return this.minimumChunkSize;
+    }
+
+    /**
+     * Get the average number of bytes in a chunk.
+     */
+    public int getAverageChunkSize()
+    {
+        return this.averageChunkSize;
+    }
+
+    /**
+     * Get the maximum number of bytes in a chunk.
+     */
+    public int getMaximumChunkSize()
+    {
+        return this.maximumChunkSize;
+    }
+
+    @Override
+    public Result<Byte> readByte()
+    {
+        return Result.create(() ->
+        {
+            final byte value;
+            try
+            {
+                value = this.innerStream.readByte().await();
+            }
+            catch (EmptyException e)
+            {
+                this.finishChunk();
+                throw e;
+            }
+
+            this.hashFunction.addByte(value);
+            if (this.isChunkBoundary(value))
+            {
+                this.finishChunk();
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public Result<Integer> readBytes(byte[] outputBytes, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(outputBytes, "outputBytes");
+        PreCondition.assertStartIndex(startIndex, outputBytes.length);
+        PreCondition.assertLength(length, startIndex, outputBytes.length);
+
+        return Result.create(() ->
+        {
+            final Integer bytesRead;
+            try
+            {
+                bytesRead = this.innerStream.readBytes(outputBytes, startIndex, length).await();
+            }
+            catch (EmptyException e)
+            {
+                this.finishChunk();
+                throw e;
+            }
+
+            int chunkStartIndex = startIndex;
+            final int endIndex = startIndex + bytesRead;
+            for (int i = startIndex; i < endIndex; ++i)
+            {
+                if (this.isChunkBoundary(outputBytes[i]))
+                {
+                    this.hashFunction.addBytes(outputBytes, chunkStartIndex, i + 1 - chunkStartIndex);
+                    this.finishChunk();
+                    chunkStartIndex = i + 1;
+                }
+            }
+            if (chunkStartIndex < endIndex)
+            {
+                this.hashFunction.addBytes(outputBytes, chunkStartIndex, endIndex - chunkStartIndex);
+            }
+            return bytesRead;
+        });
+    }
+
+    /**
+     * Update the rolling hash with the provided byte, which has just been appended to the current
+     * chunk, and get whether the current chunk should end after the provided byte.
+     */
+    private boolean isChunkBoundary(byte value)
+    {
+        final int chunkLength = ++this.chunkLength;
+
+        // The rolling hash only depends on the last 64 bytes, so it doesn't need to be updated
+        // until those bytes can end a chunk.
+        boolean result = false;
+        if (chunkLength > this.minimumChunkSize - Long.SIZE)
+        {
+            this.rollingHash = (this.rollingHash << 1) + ContentDefinedChunkingByteReadStream.gearTable[value & 0xFF];
+            if (chunkLength >= this.maximumChunkSize)
+            {
+                result = true;
+            }
+            else if (chunkLength >= this.minimumChunkSize)
+            {
+                final long mask = chunkLength < this.averageChunkSize ? this.smallChunkMask : this.largeChunkMask;
+                result = (this.rollingHash & mask) == 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * End the current chunk and pass it to the chunk listener. This does nothing if no bytes have
+     * been read since the last chunk was finished.
+     */
+    public void finishChunk()
+    {
+        if (this.chunkLength > 0)
+        {
+            final ContentDefinedChunk chunk = ContentDefinedChunk.create(this.chunkOffset, this.chunkLength, this.hashFunction.takeDigest());
+            this.chunkOffset += this.chunkLength;
+            this.chunkLength = 0;
+            this.rollingHash = 0;
+            this.chunkListener.run(chunk);
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.isDisposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.isDisposed;
+            if (result)
+            {
+                this.isDisposed = true;
+
+                this.hashFunction.dispose().await();
+                this.innerStream.dispose().await();
+            }
+            return result;
+        });
+    }
+}
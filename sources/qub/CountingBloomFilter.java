@@ -0,0 +1,345 @@
+package qub;
+
+/**
+ * A {@link BloomFilter} variant that keeps a small counter instead of a single bit at each
+ * position, so that keys can be removed as well as added. Each counter takes 4 bits, and sixteen
+ * counters are packed into each long of a primitive long[]. The counters are updated with
+ * compare-and-set loops, so every operation is lock-free.
+ * <p>
+ * A counter that reaches {@link #maximumCount} sticks there: it is never decremented again,
+ * because the number of keys that it stands for is no longer known. This can only make the filter
+ * report more false positives, never a false negative. Removing a key that was never added can
+ * cause false negatives for other keys, so only keys that are known to have been added should be
+ * removed.
+ * <p>
+ * The probe positions for a key are the same as those of a {@link BloomFilter} with the same
+ * position count and hash count. The serialized form is the same as a {@link BloomFilter}'s,
+ * except that the magic number is "QCBF" and the words hold the packed counters.
+ */
+public class CountingBloomFilter
+{
+    /**
+     * The largest value that a counter can hold.
+     */
+    public static final int maximumCount = 15;
+
+    private static final int magicNumber = 0x51434246;
+    private static final int bitsPerCounter = 4;
+    private static final int countersPerWord = Long.SIZE / CountingBloomFilter.bitsPerCounter;
+
+    private static final java.lang.invoke.VarHandle wordView = java.lang.invoke.MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long counterCount;
+    private final int hashCount;
+    private final long[] words;
+
+    private CountingBloomFilter(long counterCount, int hashCount)
+    {
+        PreCondition.assertBetween(1, counterCount, (long)Integer.MAX_VALUE * CountingBloomFilter.countersPerWord, "counterCount");
+        PreCondition.assertGreaterThanOrEqualTo(hashCount, 1, "hashCount");
+
+        this.counterCount = counterCount;
+        this.hashCount = hashCount;
+        this.words = new long[CountingBloomFilter.getWordCount(counterCount)];
+    }
+
+    /**
+     * Create a new empty {@link CountingBloomFilter} that is sized to hold the provided number of
+     * keys with the provided false positive probability.
+     * @param expectedKeyCount The number of keys that are expected to be in the filter at once.
+     * @param falsePositiveProbability The probability that a key that isn't in the filter will be
+     * reported as possibly in the filter when it holds the expected number of keys.
+     */
+    public static CountingBloomFilter create(long expectedKeyCount, double falsePositiveProbability)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(expectedKeyCount, 1, "expectedKeyCount");
+        PreCondition.assertTrue(0 < falsePositiveProbability && falsePositiveProbability < 1, "0 < falsePositiveProbability && falsePositiveProbability < 1");
+
+        final long counterCount = BloomFilter.getOptimalBitCount(expectedKeyCount, falsePositiveProbability);
+        return CountingBloomFilter.createWithSize(counterCount, BloomFilter.getOptimalHashCount(expectedKeyCount, counterCount));
+    }
+
+    /**
+     * Create a new empty {@link CountingBloomFilter} with the provided number of counters and
+     * probes per key.
+     * @param counterCount The number of counters in the filter.
+     * @param hashCount The number of counters that each key increments.
+     */
+    public static CountingBloomFilter createWithSize(long counterCount, int hashCount)
+    {
+        return new CountingBloomFilter(counterCount, hashCount);
+    }
+
+    /**
+     * Read a {@link CountingBloomFilter} from the bytes that were returned by {@link #toBytes()}.
+     * @param bytes The serialized {@link CountingBloomFilter}.
+     */
+    public static Result<CountingBloomFilter> parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                final java.nio.ByteBuffer buffer = BloomFilter.readHeader(bytes, CountingBloomFilter.magicNumber, "counting Bloom filter");
+                final int hashCount = buffer.getInt();
+                final long counterCount = buffer.getLong();
+                if (hashCount < 1 || counterCount < 1 || counterCount > (long)Integer.MAX_VALUE * CountingBloomFilter.countersPerWord || buffer.remaining() != (long)CountingBloomFilter.getWordCount(counterCount) * Long.BYTES)
+                {
+                    throw new java.io.IOException("The serialized counting Bloom filter is corrupt.");
+                }
+
+                final CountingBloomFilter result = new CountingBloomFilter(counterCount, hashCount);
+                buffer.asLongBuffer().get(result.words);
+                return result;
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    private static int getWordCount(long counterCount)
+    {
+        return (int)((counterCount + CountingBloomFilter.countersPerWord - 1) / CountingBloomFilter.countersPerWord);
+    }
+
+    /**
+     * Get the number of counters in this {@link CountingBloomFilter}.
+     */
+    public long getCounterCount()
+    {
+        return this.counterCount;
+    }
+
+    /**
+     * Get the number of counters that each key increments in this {@link CountingBloomFilter}.
+     */
+    public int getHashCount()
+    {
+        return this.hashCount;
+    }
+
+    /**
+     * Get the value of the counter at the provided position.
+     */
+    int getCount(long position)
+    {
+        final long word = (long)CountingBloomFilter.wordView.getVolatile(this.words, (int)(position / CountingBloomFilter.countersPerWord));
+        return CountingBloomFilter.getCount(word, CountingBloomFilter.getShift(position));
+    }
+
+    private static int getShift(long position)
+    {
+        return (int)(position % CountingBloomFilter.countersPerWord) * CountingBloomFilter.bitsPerCounter;
+    }
+
+    private static int getCount(long word, int shift)
+    {
+        return (int)(word >>> shift) & CountingBloomFilter.maximumCount;
+    }
+
+    /**
+     * Add the provided value to the counter at the provided position, keeping it between 0 and
+     * {@link #maximumCount}. A counter that is at {@link #maximumCount} isn't changed.
+     * @return The value of the counter before it was changed.
+     */
+    private int addToCount(long position, int value)
+    {
+        final int wordIndex = (int)(position / CountingBloomFilter.countersPerWord);
+        final int shift = CountingBloomFilter.getShift(position);
+
+        int result;
+        while (true)
+        {
+            final long word = (long)CountingBloomFilter.wordView.getVolatile(this.words, wordIndex);
+            result = CountingBloomFilter.getCount(word, shift);
+            if (result == CountingBloomFilter.maximumCount)
+            {
+                break;
+            }
+
+            final int newCount = Math.minimum(CountingBloomFilter.maximumCount, Math.maximum(0, result + value));
+            if (newCount == result)
+            {
+                break;
+            }
+
+            final long newWord = (word & ~((long)CountingBloomFilter.maximumCount << shift)) | ((long)newCount << shift);
+            if (CountingBloomFilter.wordView.compareAndSet(this.words, wordIndex, word, newWord))
+            {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the provided key to this {@link CountingBloomFilter}.
+     * @param key The bytes of the key.
+     */
+    public void add(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        this.add(key, 0, key.length);
+    }
+
+    /**
+     * Add the provided key to this {@link CountingBloomFilter}.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     */
+    public void add(byte[] key, int startIndex, int length)
+    {
+        final long[] hash = new long[2];
+        BloomFilter.hashKey(key, startIndex, length, hash);
+
+        for (int i = 0; i < this.hashCount; ++i)
+        {
+            this.addToCount(BloomFilter.getProbePosition(hash[0], hash[1], i, this.counterCount), 1);
+        }
+    }
+
+    /**
+     * Remove the provided key from this {@link CountingBloomFilter}. The key must have been added
+     * to this {@link CountingBloomFilter}.
+     * @param key The bytes of the key.
+     * @return Whether the key might have been in this {@link CountingBloomFilter}. If this is false,
+     * then the key definitely wasn't in this {@link CountingBloomFilter} and nothing was changed.
+     */
+    public boolean remove(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        return this.remove(key, 0, key.length);
+    }
+
+    /**
+     * Remove the provided key from this {@link CountingBloomFilter}. The key must have been added
+     * to this {@link CountingBloomFilter}.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return Whether the key might have been in this {@link CountingBloomFilter}. If this is false,
+     * then the key definitely wasn't in this {@link CountingBloomFilter} and nothing was changed.
+     */
+    public boolean remove(byte[] key, int startIndex, int length)
+    {
+        final long[] hash = new long[2];
+        BloomFilter.hashKey(key, startIndex, length, hash);
+
+        final boolean result = this.contains(hash);
+        if (result)
+        {
+            for (int i = 0; i < this.hashCount; ++i)
+            {
+                this.addToCount(BloomFilter.getProbePosition(hash[0], hash[1], i, this.counterCount), -1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get whether the provided key might be in this {@link CountingBloomFilter}.
+     * @param key The bytes of the key.
+     * @return False if the key is definitely not in this {@link CountingBloomFilter}, or true if
+     * it might be.
+     */
+    public boolean contains(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        return this.contains(key, 0, key.length);
+    }
+
+    /**
+     * Get whether the provided key might be in this {@link CountingBloomFilter}.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return False if the key is definitely not in this {@link CountingBloomFilter}, or true if
+     * it might be.
+     */
+    public boolean contains(byte[] key, int startIndex, int length)
+    {
+        final long[] hash = new long[2];
+        BloomFilter.hashKey(key, startIndex, length, hash);
+
+        return this.contains(hash);
+    }
+
+    private boolean contains(long[] hash)
+    {
+        boolean result = true;
+        for (int i = 0; result && i < this.hashCount; ++i)
+        {
+            result = this.getCount(BloomFilter.getProbePosition(hash[0], hash[1], i, this.counterCount)) > 0;
+        }
+        return result;
+    }
+
+    /**
+     * Add all of the keys in the provided {@link CountingBloomFilter} to this
+     * {@link CountingBloomFilter} by adding their counters together. The provided
+     * {@link CountingBloomFilter} must have the same counter count and hash count as this one.
+     * @param other The {@link CountingBloomFilter} to merge into this one.
+     */
+    public void merge(CountingBloomFilter other)
+    {
+        PreCondition.assertNotNull(other, "other");
+        PreCondition.assertEqual(this.counterCount, other.counterCount, "other.getCounterCount()");
+        PreCondition.assertEqual(this.hashCount, other.hashCount, "other.getHashCount()");
+
+        for (long position = 0; position < this.counterCount; ++position)
+        {
+            final int otherCount = other.getCount(position);
+            if (otherCount > 0)
+            {
+                this.addToCount(position, otherCount);
+            }
+        }
+    }
+
+    /**
+     * Get a {@link BloomFilter} with a bit set at every position whose counter is non-zero. The
+     * {@link BloomFilter} answers {@link BloomFilter#contains(byte[])} the same way that this
+     * {@link CountingBloomFilter} does, in a quarter of the memory.
+     */
+    public BloomFilter toBloomFilter()
+    {
+        final BloomFilter result = BloomFilter.createWithSize(this.counterCount, this.hashCount);
+        for (long position = 0; position < this.counterCount; ++position)
+        {
+            if (this.getCount(position) > 0)
+            {
+                result.setBit(position);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove all of the keys from this {@link CountingBloomFilter}.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.words.length; ++i)
+        {
+            CountingBloomFilter.wordView.setVolatile(this.words, i, 0L);
+        }
+    }
+
+    /**
+     * Serialize this {@link CountingBloomFilter} so that it can be read back with
+     * {@link #parse(byte[])}. Keys that are added or removed while this is running may or may not
+     * be included.
+     */
+    public byte[] toBytes()
+    {
+        return BloomFilter.writeFilter(CountingBloomFilter.magicNumber, this.hashCount, this.counterCount, this.words);
+    }
+}
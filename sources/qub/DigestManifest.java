@@ -0,0 +1,433 @@
+package qub;
+
+/**
+ * The expected digest of each fixed-size chunk of some data, so that the data can be verified one
+ * chunk at a time as it arrives instead of only after all of it has been read, and so that only
+ * the chunks that don't match need to be fetched again. Every chunk is chunkSize bytes long
+ * except the last one, which may be shorter. Empty data has no chunks.
+ * <p>
+ * The expected digests are stored one after another in a single flat byte[]. The serialized form
+ * of a {@link DigestManifest} is the magic number "QDMF", the big-endian chunk size, digest length
+ * and data length, followed by the expected digests.
+ */
+public class DigestManifest
+{
+    private static final int magicNumber = 0x51444D46;
+    private static final int headerLength = 3 * Integer.BYTES + Long.BYTES;
+
+    private final long dataLength;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final int digestLength;
+    private final byte[] digests;
+
+    private DigestManifest(long dataLength, int chunkSize, int digestLength, byte[] digests)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(dataLength, 0, "dataLength");
+        PreCondition.assertGreaterThanOrEqualTo(chunkSize, 1, "chunkSize");
+        PreCondition.assertLessThanOrEqualTo(DigestManifest.getChunkCount(dataLength, chunkSize), Integer.MAX_VALUE, "chunkCount");
+        PreCondition.assertGreaterThanOrEqualTo(digestLength, 1, "digestLength");
+        PreCondition.assertNotNull(digests, "digests");
+
+        this.dataLength = dataLength;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int)DigestManifest.getChunkCount(dataLength, chunkSize);
+        this.digestLength = digestLength;
+        this.digests = digests;
+    }
+
+    /**
+     * Create a new {@link DigestManifest} from the provided expected chunk digests.
+     * @param dataLength The number of bytes in the data.
+     * @param chunkSize The number of bytes in each chunk. The last chunk may be shorter.
+     * @param chunkDigests The expected digest of each chunk, in order. Every digest must have the
+     * same length.
+     */
+    public static DigestManifest create(long dataLength, int chunkSize, BitArray[] chunkDigests)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(dataLength, 0, "dataLength");
+        PreCondition.assertGreaterThanOrEqualTo(chunkSize, 1, "chunkSize");
+        PreCondition.assertNotNull(chunkDigests, "chunkDigests");
+        PreCondition.assertEqual(DigestManifest.getChunkCount(dataLength, chunkSize), (long)chunkDigests.length, "chunkDigests.length");
+
+        final int digestLength = chunkDigests.length == 0 ? 1 : chunkDigests[0].toByteArray().length;
+        final byte[] digests = new byte[chunkDigests.length * digestLength];
+        for (int i = 0; i < chunkDigests.length; ++i)
+        {
+            PreCondition.assertNotNull(chunkDigests[i], "chunkDigests[" + i + "]");
+            final byte[] chunkDigest = chunkDigests[i].toByteArray();
+            PreCondition.assertEqual(digestLength, chunkDigest.length, "chunkDigests[" + i + "] byte count");
+
+            System.arraycopy(chunkDigest, 0, digests, i * digestLength, digestLength);
+        }
+        return new DigestManifest(dataLength, chunkSize, digestLength, digests);
+    }
+
+    /**
+     * Create a new {@link DigestManifest} by hashing each chunk of the provided data.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction} that will
+     * hash the chunks.
+     * @param data The data to split into chunks.
+     * @param chunkSize The number of bytes in each chunk. The last chunk may be shorter.
+     */
+    public static Result<DigestManifest> create(Function0<Result<? extends HashFunction>> hashFunctionCreator, byte[] data, int chunkSize)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(data, "data");
+        PreCondition.assertGreaterThanOrEqualTo(chunkSize, 1, "chunkSize");
+
+        return Result.create(() ->
+        {
+            try (final HashFunction hashFunction = hashFunctionCreator.run().await())
+            {
+                final int digestLength = hashFunction.getDigestLength();
+                final int chunkCount = (int)DigestManifest.getChunkCount(data.length, chunkSize);
+                final byte[] digests = new byte[chunkCount * digestLength];
+                for (int chunkIndex = 0; chunkIndex < chunkCount; ++chunkIndex)
+                {
+                    final int chunkStartIndex = (int)((long)chunkIndex * chunkSize);
+                    hashFunction.addBytes(data, chunkStartIndex, Math.minimum(chunkSize, data.length - chunkStartIndex));
+                    hashFunction.takeDigest(digests, chunkIndex * digestLength);
+                }
+                return new DigestManifest(data.length, chunkSize, digestLength, digests);
+            }
+        });
+    }
+
+    /**
+     * Create a new {@link DigestManifest} by hashing each chunk of the provided data with SHA-256.
+     * @param data The data to split into chunks.
+     * @param chunkSize The number of bytes in each chunk. The last chunk may be shorter.
+     */
+    public static Result<DigestManifest> createSHA256(byte[] data, int chunkSize)
+    {
+        return DigestManifest.create(HashFunction::createSHA256, data, chunkSize);
+    }
+
+    /**
+     * Read a {@link DigestManifest} from the bytes that were returned by {@link #toBytes()}.
+     * @param bytes The serialized {@link DigestManifest}.
+     */
+    public static Result<DigestManifest> parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(bytes);
+                if (buffer.remaining() < DigestManifest.headerLength)
+                {
+                    throw new java.io.IOException("The serialized digest manifest is too short.");
+                }
+                if (buffer.getInt() != DigestManifest.magicNumber)
+                {
+                    throw new java.io.IOException("The bytes are not a serialized digest manifest.");
+                }
+
+                final int chunkSize = buffer.getInt();
+                final int digestLength = buffer.getInt();
+                final long dataLength = buffer.getLong();
+                if (chunkSize < 1 || digestLength < 1 || dataLength < 0 || buffer.remaining() != DigestManifest.getChunkCount(dataLength, chunkSize) * digestLength)
+                {
+                    throw new java.io.IOException("The serialized digest manifest is corrupt.");
+                }
+
+                final byte[] digests = new byte[buffer.remaining()];
+                buffer.get(digests);
+                return new DigestManifest(dataLength, chunkSize, digestLength, digests);
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    private static long getChunkCount(long dataLength, int chunkSize)
+    {
+        return (dataLength + chunkSize - 1) / chunkSize;
+    }
+
+    /**
+     * Get the number of bytes in the data that this {@link DigestManifest} describes.
+     */
+    public long getDataLength()
+    {
+        return this.dataLength;
+    }
+
+    /**
+     * Get the number of bytes in each chunk. The last chunk may be shorter.
+     */
+    public int getChunkSize()
+    {
+        return this.chunkSize;
+    }
+
+    /**
+     * Get the number of chunks in this {@link DigestManifest}.
+     */
+    public int getChunkCount()
+    {
+        return this.chunkCount;
+    }
+
+    /**
+     * Get the number of bytes in each expected digest.
+     */
+    public int getDigestLength()
+    {
+        return this.digestLength;
+    }
+
+    /**
+     * Get the offset of the first byte of the chunk at the provided index.
+     * @param chunkIndex The index of the chunk.
+     */
+    public long getChunkOffset(int chunkIndex)
+    {
+        PreCondition.assertIndexAccess(chunkIndex, this.chunkCount, "chunkIndex");
+
+        return (long)chunkIndex * this.chunkSize;
+    }
+
+    /**
+     * Get the number of bytes in the chunk at the provided index.
+     * @param chunkIndex The index of the chunk.
+     */
+    public int getChunkLength(int chunkIndex)
+    {
+        PreCondition.assertIndexAccess(chunkIndex, this.chunkCount, "chunkIndex");
+
+        return (int)java.lang.Math.min(this.chunkSize, this.dataLength - (long)chunkIndex * this.chunkSize);
+    }
+
+    /**
+     * Get the expected digest of the chunk at the provided index.
+     * @param chunkIndex The index of the chunk.
+     */
+    public BitArray getChunkDigest(int chunkIndex)
+    {
+        PreCondition.assertIndexAccess(chunkIndex, this.chunkCount, "chunkIndex");
+
+        final int digestStartIndex = chunkIndex * this.digestLength;
+        return BitArray.createFromBytes(java.util.Arrays.copyOfRange(this.digests, digestStartIndex, digestStartIndex + this.digestLength));
+    }
+
+    /**
+     * Get whether the provided digest is the expected digest of the chunk at the provided index.
+     */
+    boolean matches(int chunkIndex, byte[] digest)
+    {
+        final int digestStartIndex = chunkIndex * this.digestLength;
+        return java.util.Arrays.equals(this.digests, digestStartIndex, digestStartIndex + this.digestLength, digest, 0, digest.length);
+    }
+
+    /**
+     * Get the error that reports that the chunk at the provided index doesn't match.
+     */
+    ChunkDigestMismatchException createMismatchException(int chunkIndex)
+    {
+        return new ChunkDigestMismatchException(chunkIndex, this.getChunkOffset(chunkIndex), this.getChunkLength(chunkIndex));
+    }
+
+    /**
+     * Get the ranges of bytes that are covered by the chunks at the provided indexes. Adjacent
+     * chunks are joined into a single range.
+     */
+    java.util.List<ChunkRange> getChunkRanges(java.util.BitSet chunkIndexes)
+    {
+        final java.util.List<ChunkRange> result = new java.util.ArrayList<>();
+        int startChunkIndex = chunkIndexes.nextSetBit(0);
+        while (0 <= startChunkIndex && startChunkIndex < this.chunkCount)
+        {
+            final int endChunkIndex = Math.minimum(chunkIndexes.nextClearBit(startChunkIndex), this.chunkCount);
+            final long startOffset = this.getChunkOffset(startChunkIndex);
+            final long endOffset = this.getChunkOffset(endChunkIndex - 1) + this.getChunkLength(endChunkIndex - 1);
+            result.add(ChunkRange.create(startOffset, endOffset - startOffset));
+            startChunkIndex = chunkIndexes.nextSetBit(endChunkIndex);
+        }
+        return result;
+    }
+
+    /**
+     * Verify the contents of the file at the provided path against this {@link DigestManifest}.
+     * The chunks are read with positional reads and hashed in parallel, and verification stops as
+     * soon as any chunk doesn't match.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will
+     * hash the chunks.
+     * @param filePath The path to the file to verify.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that the chunks will be hashed on.
+     * @return A {@link Result} that fails with a {@link ChunkDigestMismatchException} for a chunk
+     * that doesn't match, or with a {@link java.io.IOException} if the file is longer than the
+     * data that this {@link DigestManifest} describes.
+     */
+    public Result<Void> verifyFile(Function0<Result<? extends HashFunction>> hashFunctionCreator, java.nio.file.Path filePath, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertNotNull(pool, "pool");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                final java.util.BitSet mismatchedChunks = this.verifyFile(hashFunctionCreator, filePath, pool, true);
+                if (!mismatchedChunks.isEmpty())
+                {
+                    throw this.createMismatchException(mismatchedChunks.nextSetBit(0));
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * Verify every chunk of the file at the provided path against this {@link DigestManifest} and
+     * get the ranges of the file that need to be fetched again. Chunks that are past the end of
+     * the file are included in the ranges. Bytes that are past the end of the data that this
+     * {@link DigestManifest} describes aren't part of any chunk, so they are ignored.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will
+     * hash the chunks.
+     * @param filePath The path to the file to verify.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that the chunks will be hashed on.
+     * @return The ranges of the file that don't match, in order, with adjacent chunks joined.
+     */
+    public Result<java.util.List<ChunkRange>> getMismatchedRanges(Function0<Result<? extends HashFunction>> hashFunctionCreator, java.nio.file.Path filePath, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertNotNull(pool, "pool");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                return this.getChunkRanges(this.verifyFile(hashFunctionCreator, filePath, pool, false));
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * Split the chunks into one contiguous range per thread of the provided pool and verify each
+     * range on its own thread with its own {@link HashFunction} and buffer.
+     * @return The indexes of the chunks that don't match.
+     */
+    private java.util.BitSet verifyFile(Function0<Result<? extends HashFunction>> hashFunctionCreator, java.nio.file.Path filePath, java.util.concurrent.ForkJoinPool pool, boolean failFast) throws java.io.IOException
+    {
+        final java.util.BitSet result = new java.util.BitSet(this.chunkCount);
+        try (final java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(filePath, java.nio.file.StandardOpenOption.READ))
+        {
+            if (failFast && channel.size() > this.dataLength)
+            {
+                throw new java.io.IOException(filePath + " is longer than the " + this.dataLength + " bytes in the digest manifest.");
+            }
+
+            final java.util.concurrent.atomic.AtomicBoolean stop = new java.util.concurrent.atomic.AtomicBoolean();
+            final int rangeCount = Math.minimum(this.chunkCount, pool.getParallelism() * 4);
+            final java.util.List<java.util.concurrent.ForkJoinTask<?>> tasks = new java.util.ArrayList<>(rangeCount);
+            for (int range = 0; range < rangeCount; ++range)
+            {
+                final int rangeStartIndex = (int)((long)this.chunkCount * range / rangeCount);
+                final int rangeEndIndex = (int)((long)this.chunkCount * (range + 1) / rangeCount);
+                tasks.add(pool.submit(() ->
+                {
+                    final HashFunction hashFunction = hashFunctionCreator.run().await();
+                    try
+                    {
+                        PreCondition.assertEqual(this.digestLength, hashFunction.getDigestLength(), "hashFunction.getDigestLength()");
+
+                        final byte[] chunk = new byte[this.chunkSize];
+                        final byte[] digest = new byte[this.digestLength];
+                        for (int chunkIndex = rangeStartIndex; chunkIndex < rangeEndIndex && !stop.get(); ++chunkIndex)
+                        {
+                            final int chunkLength = this.getChunkLength(chunkIndex);
+                            final boolean matches = DigestManifest.readChunk(channel, this.getChunkOffset(chunkIndex), chunk, chunkLength) &&
+                                this.matches(chunkIndex, DigestManifest.hashChunk(hashFunction, chunk, chunkLength, digest));
+                            if (!matches)
+                            {
+                                synchronized (result)
+                                {
+                                    result.set(chunkIndex);
+                                }
+                                if (failFast)
+                                {
+                                    stop.set(true);
+                                }
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        hashFunction.dispose().await();
+                    }
+                }));
+            }
+            for (final java.util.concurrent.ForkJoinTask<?> task : tasks)
+            {
+                task.join();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the chunk at the provided offset of the provided channel into the provided buffer.
+     * @return Whether the whole chunk was read. This is false if the file ends before the chunk
+     * does.
+     */
+    private static boolean readChunk(java.nio.channels.FileChannel channel, long chunkOffset, byte[] chunk, int chunkLength)
+    {
+        final java.nio.ByteBuffer chunkBuffer = java.nio.ByteBuffer.wrap(chunk, 0, chunkLength);
+        try
+        {
+            while (chunkBuffer.hasRemaining())
+            {
+                if (channel.read(chunkBuffer, chunkOffset + chunkBuffer.position()) < 0)
+                {
+                    break;
+                }
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+        return !chunkBuffer.hasRemaining();
+    }
+
+    /**
+     * Write the digest of the provided chunk into the provided digest buffer.
+     * @return The digest buffer.
+     */
+    static byte[] hashChunk(HashFunction hashFunction, byte[] chunk, int chunkLength, byte[] digest)
+    {
+        hashFunction.addBytes(chunk, 0, chunkLength);
+        hashFunction.takeDigest(digest, 0);
+        return digest;
+    }
+
+    /**
+     * Serialize this {@link DigestManifest} so that it can be read back with
+     * {@link #parse(byte[])}.
+     */
+    public byte[] toBytes()
+    {
+        final java.nio.ByteBuffer result = java.nio.ByteBuffer.allocate(DigestManifest.headerLength + this.digests.length);
+        result.putInt(DigestManifest.magicNumber);
+        result.putInt(this.chunkSize);
+        result.putInt(this.digestLength);
+        result.putLong(this.dataLength);
+        result.put(this.digests);
+        return result.array();
+    }
+}
@@ -0,0 +1,406 @@
+package qub;
+
+/**
+ * A cache of file digests that avoids rehashing files that haven't changed. Each entry records the
+ * size, last modified time, and file key (the inode on platforms that have one) that a file had
+ * when it was hashed. A lookup returns the cached digest when all of these are unchanged and
+ * rehashes the file otherwise.
+ * <p>
+ * A file that is modified again within the granularity of its file system's timestamps keeps the
+ * same last modified time, so a digest is only cached when the file's last modified time is
+ * comfortably older than the moment that the file started being hashed. A file that was modified
+ * that recently is "racily clean" (in the sense that git uses the term): it is hashed again on
+ * every lookup until its last modified time ages out of that window.
+ * <p>
+ * Entries are kept in memory in least-recently-used order, and the least recently used entry is
+ * evicted when the cache is full. The entries can be saved to and loaded from a compact index
+ * file so that a later process can reuse them. A missing or unreadable index file is treated as
+ * an empty cache.
+ * <p>
+ * A {@link FileDigestCache} can be used from multiple threads at the same time.
+ */
+public class FileDigestCache
+{
+    /**
+     * The default maximum number of entries that a {@link FileDigestCache} will hold in memory.
+     */
+    public static final int defaultMaximumEntryCount = 100000;
+
+    /**
+     * The first bytes of every index file ("QFDC").
+     */
+    private static final int indexFileMagic = 0x51464443;
+
+    private static final byte indexFileVersion = 1;
+
+    /**
+     * How much older than the start of hashing a file's last modified time must be for its digest
+     * to be cached. This covers the two-second timestamps of FAT file systems and the one-second
+     * timestamps of many others.
+     */
+    private static final long racyWindowNanoseconds = java.util.concurrent.TimeUnit.SECONDS.toNanos(2);
+
+    private final String algorithm;
+    private final Function0<Result<? extends HashFunction>> hashFunctionCreator;
+    private final int maximumEntryCount;
+    private final java.util.LinkedHashMap<String,Entry> entries;
+
+    private FileDigestCache(String algorithm, Function0<Result<? extends HashFunction>> hashFunctionCreator, int maximumEntryCount)
+    {
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertGreaterThanOrEqualTo(maximumEntryCount, 1, "maximumEntryCount");
+
+        this.algorithm = algorithm;
+        this.hashFunctionCreator = hashFunctionCreator;
+        this.maximumEntryCount = maximumEntryCount;
+        this.entries = new java.util.LinkedHashMap<String,Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<String,Entry> eldest)
+            {
+                return this.size() > FileDigestCache.this.maximumEntryCount;
+            }
+        };
+    }
+
+    /**
+     * Create a new empty {@link FileDigestCache} with the default maximum entry count.
+     * @param algorithm The name of the algorithm that the created {@link HashFunction}s implement.
+     * Entries that were saved with a different algorithm are ignored when an index file is loaded.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that are used
+     * to hash files that aren't in the cache.
+     */
+    public static FileDigestCache create(String algorithm, Function0<Result<? extends HashFunction>> hashFunctionCreator)
+    {
+        return FileDigestCache.create(algorithm, hashFunctionCreator, FileDigestCache.defaultMaximumEntryCount);
+    }
+
+    /**
+     * Create a new empty {@link FileDigestCache}.
+     * @param algorithm The name of the algorithm that the created {@link HashFunction}s implement.
+     * Entries that were saved with a different algorithm are ignored when an index file is loaded.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that are used
+     * to hash files that aren't in the cache.
+     * @param maximumEntryCount The maximum number of entries that will be held in memory.
+     */
+    public static FileDigestCache create(String algorithm, Function0<Result<? extends HashFunction>> hashFunctionCreator, int maximumEntryCount)
+    {
+        return new FileDigestCache(algorithm, hashFunctionCreator, maximumEntryCount);
+    }
+
+    /**
+     * Create a new empty {@link FileDigestCache} of SHA-256 digests.
+     */
+    public static FileDigestCache createSHA256()
+    {
+        return FileDigestCache.create("SHA-256", HashFunction::createSHA256);
+    }
+
+    /**
+     * Get the name of the algorithm of the digests in this {@link FileDigestCache}.
+     */
+    public String getAlgorithm()
+    {
+        return this.algorithm;
+    }
+
+    /**
+     * Get the maximum number of entries that this {@link FileDigestCache} will hold in memory.
+     */
+    public int getMaximumEntryCount()
+    {
+        return this.maximumEntryCount;
+    }
+
+    /**
+     * Get the number of entries that this {@link FileDigestCache} is holding in memory.
+     */
+    public int getEntryCount()
+    {
+        synchronized (this.entries)
+        {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Get the digest of the contents of the file at the provided path. If the file's size, last
+     * modified time, and file key match the cached entry for the file, then the cached digest is
+     * returned without reading the file. Otherwise the file is hashed and the cache is updated,
+     * unless the file was modified within the last two seconds.
+     * @param filePath The path to the file.
+     * @return The digest of the file's contents.
+     */
+    public Result<BitArray> getDigest(java.nio.file.Path filePath)
+    {
+        PreCondition.assertNotNull(filePath, "filePath");
+
+        return Result.create(() ->
+        {
+            final String path = FileDigestCache.getKey(filePath);
+            final Entry currentEntry = FileDigestCache.readAttributes(filePath, null);
+
+            final Entry cachedEntry;
+            synchronized (this.entries)
+            {
+                cachedEntry = this.entries.get(path);
+            }
+
+            final BitArray result;
+            if (cachedEntry != null && cachedEntry.matches(currentEntry))
+            {
+                result = cachedEntry.digest;
+            }
+            else
+            {
+                final long hashStartNanoseconds = FileDigestCache.getCurrentTimeNanoseconds();
+                result = HashFunction.hashFile(filePath, this.hashFunctionCreator).await();
+
+                // If the file changed while it was being hashed, then the digest may not match
+                // either version of the file, so it isn't cached. If the file was modified so
+                // recently that a later write could leave its metadata unchanged, then it isn't
+                // cached either.
+                final Entry hashedEntry = FileDigestCache.readAttributes(filePath, result);
+                synchronized (this.entries)
+                {
+                    if (hashedEntry.matches(currentEntry) && !FileDigestCache.isRacilyClean(hashedEntry, hashStartNanoseconds))
+                    {
+                        this.entries.put(path, hashedEntry);
+                    }
+                    else
+                    {
+                        this.entries.remove(path);
+                    }
+                }
+            }
+
+            PostCondition.assertNotNull(result, "result");
+
+            return result;
+        });
+    }
+
+    /**
+     * Remove the entry for the file at the provided path from this {@link FileDigestCache}.
+     * @param filePath The path to the file.
+     * @return Whether an entry was removed.
+     */
+    public boolean remove(java.nio.file.Path filePath)
+    {
+        PreCondition.assertNotNull(filePath, "filePath");
+
+        final String path = FileDigestCache.getKey(filePath);
+        synchronized (this.entries)
+        {
+            return this.entries.remove(path) != null;
+        }
+    }
+
+    /**
+     * Remove all of the entries from this {@link FileDigestCache}.
+     */
+    public void clear()
+    {
+        synchronized (this.entries)
+        {
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * Add the entries in the index file at the provided path to this {@link FileDigestCache}. The
+     * whole index file is read with one sequential read. Entries that were saved with a different
+     * algorithm are ignored. If the index file doesn't exist or can't be parsed, then no entries
+     * are added.
+     * @param indexFilePath The path to the index file.
+     * @return The number of entries that were added.
+     */
+    public Result<Integer> load(java.nio.file.Path indexFilePath)
+    {
+        PreCondition.assertNotNull(indexFilePath, "indexFilePath");
+
+        return Result.create(() ->
+        {
+            final byte[] indexBytes;
+            try
+            {
+                indexBytes = java.nio.file.Files.readAllBytes(indexFilePath);
+            }
+            catch (java.nio.file.NoSuchFileException e)
+            {
+                return 0;
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+
+            final java.util.List<String> paths = new java.util.ArrayList<>();
+            final java.util.List<Entry> loadedEntries = new java.util.ArrayList<>();
+            try (final java.io.DataInputStream input = new java.io.DataInputStream(new java.io.ByteArrayInputStream(indexBytes)))
+            {
+                if (input.readInt() != FileDigestCache.indexFileMagic ||
+                    input.readByte() != FileDigestCache.indexFileVersion ||
+                    !this.algorithm.equals(input.readUTF()))
+                {
+                    return 0;
+                }
+
+                final int entryCount = input.readInt();
+                for (int i = 0; i < entryCount; ++i)
+                {
+                    final String path = input.readUTF();
+                    final long size = input.readLong();
+                    final long lastModifiedNanoseconds = input.readLong();
+                    final String fileKey = input.readUTF();
+                    final byte[] digest = new byte[input.readUnsignedShort()];
+                    input.readFully(digest);
+
+                    paths.add(path);
+                    loadedEntries.add(new Entry(size, lastModifiedNanoseconds, fileKey, BitArray.createFromBytes(digest)));
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                // A truncated or corrupt index file is treated like a missing one.
+                return 0;
+            }
+
+            // The index file is saved from least to most recently used, so adding the entries in
+            // order preserves the least-recently-used order.
+            synchronized (this.entries)
+            {
+                for (int i = 0; i < paths.size(); ++i)
+                {
+                    this.entries.put(paths.get(i), loadedEntries.get(i));
+                }
+            }
+            return paths.size();
+        });
+    }
+
+    /**
+     * Save the entries in this {@link FileDigestCache} to the index file at the provided path. The
+     * index file is written to a temporary file first and then moved into place, so a concurrent
+     * reader never sees a partially written index file.
+     * @param indexFilePath The path to the index file.
+     * @return The number of entries that were saved.
+     */
+    public Result<Integer> save(java.nio.file.Path indexFilePath)
+    {
+        PreCondition.assertNotNull(indexFilePath, "indexFilePath");
+
+        return Result.create(() ->
+        {
+            final java.io.ByteArrayOutputStream indexBytes = new java.io.ByteArrayOutputStream();
+            final int result;
+            try
+            {
+                try (final java.io.DataOutputStream output = new java.io.DataOutputStream(indexBytes))
+                {
+                    output.writeInt(FileDigestCache.indexFileMagic);
+                    output.writeByte(FileDigestCache.indexFileVersion);
+                    output.writeUTF(this.algorithm);
+                    synchronized (this.entries)
+                    {
+                        result = this.entries.size();
+                        output.writeInt(result);
+                        for (final java.util.Map.Entry<String,Entry> entry : this.entries.entrySet())
+                        {
+                            final Entry value = entry.getValue();
+                            final byte[] digest = value.digest.toByteArray();
+                            output.writeUTF(entry.getKey());
+                            output.writeLong(value.size);
+                            output.writeLong(value.lastModifiedNanoseconds);
+                            output.writeUTF(value.fileKey);
+                            output.writeShort(digest.length);
+                            output.write(digest);
+                        }
+                    }
+                }
+
+                final java.nio.file.Path absoluteIndexFilePath = indexFilePath.toAbsolutePath();
+                final java.nio.file.Path temporaryFilePath = absoluteIndexFilePath.resolveSibling(absoluteIndexFilePath.getFileName() + ".tmp");
+                java.nio.file.Files.write(temporaryFilePath, indexBytes.toByteArray());
+                try
+                {
+                    java.nio.file.Files.move(temporaryFilePath, absoluteIndexFilePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (java.nio.file.AtomicMoveNotSupportedException e)
+                {
+                    java.nio.file.Files.move(temporaryFilePath, absoluteIndexFilePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+            return result;
+        });
+    }
+
+    private static String getKey(java.nio.file.Path filePath)
+    {
+        return filePath.toAbsolutePath().normalize().toString();
+    }
+
+    private static long getCurrentTimeNanoseconds()
+    {
+        final java.time.Instant now = java.time.Instant.now();
+        return java.util.concurrent.TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+
+    /**
+     * Get whether the provided entry's file was modified so close to the provided time that the
+     * file could be modified again without changing its last modified time.
+     */
+    private static boolean isRacilyClean(Entry entry, long hashStartNanoseconds)
+    {
+        return hashStartNanoseconds - entry.lastModifiedNanoseconds < FileDigestCache.racyWindowNanoseconds;
+    }
+
+    private static Entry readAttributes(java.nio.file.Path filePath, BitArray digest)
+    {
+        try
+        {
+            final java.nio.file.attribute.BasicFileAttributes attributes = java.nio.file.Files.readAttributes(filePath, java.nio.file.attribute.BasicFileAttributes.class);
+            final Object fileKey = attributes.fileKey();
+            return new Entry(
+                attributes.size(),
+                attributes.lastModifiedTime().to(java.util.concurrent.TimeUnit.NANOSECONDS),
+                fileKey == null ? "" : fileKey.toString(),
+                digest);
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+
+    private static class Entry
+    {
+        private final long size;
+        private final long lastModifiedNanoseconds;
+        private final String fileKey;
+        private final BitArray digest;
+
+        Entry(long size, long lastModifiedNanoseconds, String fileKey, BitArray digest)
+        {
+            this.size = size;
+            this.lastModifiedNanoseconds = lastModifiedNanoseconds;
+            this.fileKey = fileKey;
+            this.digest = digest;
+        }
+
+        /**
+         * Get whether the provided entry has the same file metadata as this entry.
+         */
+        boolean matches(Entry rhs)
+        {
+            return this.size == rhs.size &&
+                this.lastModifiedNanoseconds == rhs.lastModifiedNanoseconds &&
+                this.fileKey.equals(rhs.fileKey);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package qub;
+
+/**
+ * The result of hashing one file with a {@link BulkFileHasher}: either the file's digest or the
+ * error that prevented the file from being hashed.
+ */
+public class FileHashResult
+{
+    private final long index;
+    private final java.nio.file.Path filePath;
+    private final BitArray digest;
+    private final Throwable error;
+
+    private FileHashResult(long index, java.nio.file.Path filePath, BitArray digest, Throwable error)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(index, 0, "index");
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertTrue((digest == null) != (error == null), "(digest == null) != (error == null)");
+
+        this.index = index;
+        this.filePath = filePath;
+        this.digest = digest;
+        this.error = error;
+    }
+
+    /**
+     * Create a new successful {@link FileHashResult}.
+     * @param index The index of the file in the sequence of files that were hashed.
+     * @param filePath The path to the file that was hashed.
+     * @param digest The digest of the file's contents.
+     */
+    public static FileHashResult createSuccess(long index, java.nio.file.Path filePath, BitArray digest)
+    {
+        PreCondition.assertNotNull(digest, "digest");
+
+        return new FileHashResult(index, filePath, digest, null);
+    }
+
+    /**
+     * Create a new failed {@link FileHashResult}.
+     * @param index The index of the file in the sequence of files that were hashed.
+     * @param filePath The path to the file that couldn't be hashed.
+     * @param error The error that prevented the file from being hashed.
+     */
+    public static FileHashResult createError(long index, java.nio.file.Path filePath, Throwable error)
+    {
+        PreCondition.assertNotNull(error, "error");
+
+        return new FileHashResult(index, filePath, null, error);
+    }
+
+    /**
+     * Get the index of the file in the sequence of files that were hashed.
+     */
+    public long getIndex()
+    {
+        return this.index;
+    }
+
+    /**
+     * Get the path to the file.
+     */
+    public java.nio.file.Path getFilePath()
+    {
+        return this.filePath;
+    }
+
+    /**
+     * Get whether the file was hashed successfully.
+     */
+    public boolean isSuccess()
+    {
+        return this.digest != null;
+    }
+
+    /**
+     * Get the digest of the file's contents, or null if the file couldn't be hashed.
+     */
+    public BitArray getDigest()
+    {
+        return this.digest;
+    }
+
+    /**
+     * Get the error that prevented the file from being hashed, or null if the file was hashed
+     * successfully.
+     */
+    public Throwable getError()
+    {
+        return this.error;
+    }
+
+    /**
+     * Get this {@link FileHashResult} as a {@link Result} that contains either the digest or the
+     * error.
+     */
+    public Result<BitArray> toResult()
+    {
+        return this.digest != null ? Result.success(this.digest) : Result.error(this.error);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.filePath + ": " + (this.digest != null ? this.digest.toHexString() : this.error.toString());
+    }
+}
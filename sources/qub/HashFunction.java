@@ -30,6 +30,215 @@ public interface HashFunction extends Disposable
         return JavaMessageDigestHashFunction.create("SHA256");
     }
 
+    /**
+     * Create a new instance of a non-cryptographic 64-bit xxHash (XXH64) hash function.
+     */
+    public static Result<? extends HashFunction> createXXH64()
+    {
+        return Result.success(XXH64HashFunction.create());
+    }
+
+    /**
+     * Create a new instance of a non-cryptographic 64-bit XXH3 hash function.
+     */
+    public static Result<? extends HashFunction> createXXH3()
+    {
+        return Result.success(XXH3HashFunction.create());
+    }
+
+    /**
+     * Create a new instance of a non-cryptographic 128-bit XXH3 (XXH128) hash function.
+     */
+    public static Result<? extends HashFunction> createXXH128()
+    {
+        return Result.success(XXH128HashFunction.create());
+    }
+
+    /**
+     * Create a new instance of a CRC-32C (Castagnoli) checksum function.
+     */
+    public static Result<? extends HashFunction> createCRC32C()
+    {
+        return Result.success(ChecksumHashFunction.createCRC32C());
+    }
+
+    /**
+     * Create a new instance of a CRC-32 checksum function.
+     */
+    public static Result<? extends HashFunction> createCRC32()
+    {
+        return Result.success(ChecksumHashFunction.createCRC32());
+    }
+
+    /**
+     * Create a new instance of an Adler-32 checksum function.
+     */
+    public static Result<? extends HashFunction> createAdler32()
+    {
+        return Result.success(ChecksumHashFunction.createAdler32());
+    }
+
+    /**
+     * Get the digest/hash of the contents of the file at the provided path. Large files are
+     * mapped into memory and hashed without being copied.
+     * @param filePath The path to the file to hash.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction} to use.
+     * @return The digest/hash of the file's contents.
+     */
+    public static Result<BitArray> hashFile(java.nio.file.Path filePath, Function0<Result<? extends HashFunction>> hashFunctionCreator)
+    {
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+
+        return Result.create(() ->
+        {
+            try (final HashFunction hashFunction = hashFunctionCreator.run().await())
+            {
+                return HashFunction.hashFile(filePath, hashFunction).await();
+            }
+        });
+    }
+
+    /**
+     * Get the digest/hash of the contents of the file at the provided path. Large files are
+     * mapped into memory and hashed without being copied. The provided {@link HashFunction} will
+     * be reset after the digest is taken, so it can be used to hash other files.
+     * @param filePath The path to the file to hash.
+     * @param hashFunction The {@link HashFunction} to use.
+     * @return The digest/hash of the file's contents.
+     */
+    public static Result<BitArray> hashFile(java.nio.file.Path filePath, HashFunction hashFunction)
+    {
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertNotDisposed(hashFunction, "hashFunction");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                HashFunctionFiles.addFile(hashFunction, filePath);
+            }
+            catch (Throwable e)
+            {
+                hashFunction.reset();
+                throw e;
+            }
+            return hashFunction.takeDigest();
+        });
+    }
+
+    /**
+     * Write the MD5 digest of the provided bytes into the provided output array. This is safe to
+     * call from any number of threads at once, and it doesn't allocate anything once it has
+     * warmed up.
+     * @param values The bytes to hash.
+     * @param startIndex The index of the first byte to hash.
+     * @param length The number of bytes to hash.
+     * @param output The array to write the 16-byte digest into.
+     * @param outputStartIndex The index in the output array to start writing the digest at.
+     * @return The number of bytes that were written to the output array.
+     */
+    public static int md5(byte[] values, int startIndex, int length, byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - 16, "outputStartIndex");
+
+        return MessageDigestCache.md5.digest(values, startIndex, length, output, outputStartIndex);
+    }
+
+    /**
+     * Get the MD5 digest of the provided bytes. This is safe to call from any number of threads
+     * at once, and the returned array is the only thing that it allocates once it has warmed up.
+     * @param values The bytes to hash.
+     * @return The 16-byte digest.
+     */
+    public static byte[] md5(byte[] values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        final byte[] result = new byte[16];
+        HashFunction.md5(values, 0, values.length, result, 0);
+        return result;
+    }
+
+    /**
+     * Write the SHA-1 digest of the provided bytes into the provided output array. This is safe to
+     * call from any number of threads at once, and it doesn't allocate anything once it has
+     * warmed up.
+     * @param values The bytes to hash.
+     * @param startIndex The index of the first byte to hash.
+     * @param length The number of bytes to hash.
+     * @param output The array to write the 20-byte digest into.
+     * @param outputStartIndex The index in the output array to start writing the digest at.
+     * @return The number of bytes that were written to the output array.
+     */
+    public static int sha1(byte[] values, int startIndex, int length, byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - 20, "outputStartIndex");
+
+        return MessageDigestCache.sha1.digest(values, startIndex, length, output, outputStartIndex);
+    }
+
+    /**
+     * Get the SHA-1 digest of the provided bytes. This is safe to call from any number of threads
+     * at once, and the returned array is the only thing that it allocates once it has warmed up.
+     * @param values The bytes to hash.
+     * @return The 20-byte digest.
+     */
+    public static byte[] sha1(byte[] values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        final byte[] result = new byte[20];
+        HashFunction.sha1(values, 0, values.length, result, 0);
+        return result;
+    }
+
+    /**
+     * Write the SHA-256 digest of the provided bytes into the provided output array. This is safe to
+     * call from any number of threads at once, and it doesn't allocate anything once it has
+     * warmed up.
+     * @param values The bytes to hash.
+     * @param startIndex The index of the first byte to hash.
+     * @param length The number of bytes to hash.
+     * @param output The array to write the 32-byte digest into.
+     * @param outputStartIndex The index in the output array to start writing the digest at.
+     * @return The number of bytes that were written to the output array.
+     */
+    public static int sha256(byte[] values, int startIndex, int length, byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - 32, "outputStartIndex");
+
+        return MessageDigestCache.sha256.digest(values, startIndex, length, output, outputStartIndex);
+    }
+
+    /**
+     * Get the SHA-256 digest of the provided bytes. This is safe to call from any number of threads
+     * at once, and the returned array is the only thing that it allocates once it has warmed up.
+     * @param values The bytes to hash.
+     * @return The 32-byte digest.
+     */
+    public static byte[] sha256(byte[] values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        final byte[] result = new byte[32];
+        HashFunction.sha256(values, 0, values.length, result, 0);
+        return result;
+    }
+
     /**
      * Add a single {@link byte} to the {@link HashFunction}.
      * @param value The {@link byte} to add.
@@ -55,6 +264,43 @@ public interface HashFunction extends Disposable
      */
     public void addBytes(byte[] values, int startIndex, int length);
 
+    /**
+     * Add the remaining bytes in the provided {@link java.nio.ByteBuffer} to the
+     * {@link HashFunction}. The position of the {@link java.nio.ByteBuffer} will be advanced to
+     * its limit.
+     * @param values The {@link java.nio.ByteBuffer} that contains the bytes to add.
+     */
+    public default void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        final int length = values.remaining();
+        if (length > 0)
+        {
+            if (values.hasArray())
+            {
+                final int position = values.position();
+                this.addBytes(values.array(), values.arrayOffset() + position, length);
+                values.position(position + length);
+            }
+            else
+            {
+                final byte[] buffer = new byte[Math.minimum(length, 8192)];
+                while (values.hasRemaining())
+                {
+                    final int bufferLength = Math.minimum(values.remaining(), buffer.length);
+                    values.get(buffer, 0, bufferLength);
+                    this.addBytes(buffer, 0, bufferLength);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes in the digests/hashes that this {@link HashFunction} produces.
+     */
+    public int getDigestLength();
+
     /**
      * Complete the {@link HashFunction} and return the resulting digest/hash. This will reset the
      * {@link HashFunction} so that no trace of the operation remains.
@@ -62,6 +308,33 @@ public interface HashFunction extends Disposable
      */
     public BitArray takeDigest();
 
+    /**
+     * Get the digest/hash of the bytes that have been added to this {@link HashFunction} so far
+     * without completing or resetting it. More bytes can be added afterwards as if this method
+     * had never been called.
+     * @return The digest/hash of the bytes that have been added so far.
+     */
+    public BitArray peekDigest();
+
+    /**
+     * Complete the {@link HashFunction} and write the resulting digest/hash into the provided
+     * output array. This will reset the {@link HashFunction} so that no trace of the operation
+     * remains. Unlike {@link #takeDigest()}, implementations of this method don't need to allocate
+     * anything.
+     * @param output The array to write the digest/hash into.
+     * @param outputStartIndex The index in the output array to start writing the digest/hash at.
+     * @return The number of bytes that were written to the output array.
+     */
+    public default int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+
+        final byte[] digest = this.takeDigest().toByteArray();
+        System.arraycopy(digest, 0, output, outputStartIndex, digest.length);
+        return digest.length;
+    }
+
     /**
      * Add the provided {@link byte} to this {@link HashFunction}, complete this
      * {@link HashFunction}, and then return the resulting digest/hash. This will reset the
@@ -103,6 +376,20 @@ public interface HashFunction extends Disposable
         return this.takeDigest();
     }
 
+    /**
+     * Add the remaining bytes in the provided {@link java.nio.ByteBuffer} to this
+     * {@link HashFunction}, complete this {@link HashFunction}, and then return the resulting
+     * digest/hash. This will reset the {@link HashFunction} so that no trace of the operation
+     * remains.
+     * @param values The {@link java.nio.ByteBuffer} that contains the bytes to add.
+     * @return The resulting digest/hash.
+     */
+    public default BitArray takeDigest(java.nio.ByteBuffer values)
+    {
+        this.addBytes(values);
+        return this.takeDigest();
+    }
+
     /**
      * Reset this {@link HashFunction} so that no trace of the operation remains.
      */
@@ -5,22 +5,48 @@ package qub;
  */
 public class HashFunctionByteReadStream implements ByteReadStream
 {
+    /**
+     * The default number of bytes that are collected from single-byte and other small reads
+     * before they are added to the {@link HashFunction}.
+     */
+    public static final int defaultBlockBufferSize = 4096;
+
+    private static final int transferBufferLength = 8192;
+
     private final ByteReadStream innerStream;
     private final HashFunction hashFunction;
+    private final int blockBufferSize;
+    private byte[] blockBuffer;
+    private int blockBufferLength;
+    private byte[] transferBuffer;
     private boolean isDisposed;
 
-    private HashFunctionByteReadStream(ByteReadStream innerStream, HashFunction hashFunction)
+    private HashFunctionByteReadStream(ByteReadStream innerStream, HashFunction hashFunction, int blockBufferSize)
     {
         PreCondition.assertNotNull(innerStream, "innerStream");
         PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertGreaterThanOrEqualTo(blockBufferSize, 1, "blockBufferSize");
 
         this.innerStream = innerStream;
         this.hashFunction = hashFunction;
+        this.blockBufferSize = blockBufferSize;
     }
 
     public static HashFunctionByteReadStream create(ByteReadStream innerStream, HashFunction hashFunction)
     {
-        return new HashFunctionByteReadStream(innerStream, hashFunction);
+        return HashFunctionByteReadStream.create(innerStream, hashFunction, HashFunctionByteReadStream.defaultBlockBufferSize);
+    }
+
+    /**
+     * Create a new {@link HashFunctionByteReadStream}.
+     * @param innerStream The stream that bytes will be read from.
+     * @param hashFunction The {@link HashFunction} that the read bytes will be added to.
+     * @param blockBufferSize The number of bytes that are collected from single-byte and other
+     *                        small reads before they are added to the {@link HashFunction}.
+     */
+    public static HashFunctionByteReadStream create(ByteReadStream innerStream, HashFunction hashFunction, int blockBufferSize)
+    {
+        return new HashFunctionByteReadStream(innerStream, hashFunction, blockBufferSize);
     }
 
     public static Result<HashFunctionByteReadStream> create(ByteReadStream innerStream, Function0<Result<? extends HashFunction>> hashFunctionCreator)
@@ -55,7 +81,7 @@ public class HashFunctionByteReadStream implements ByteReadStream
         return Result.create(() ->
         {
             final byte value = this.innerStream.readByte().await();
-            this.hashFunction.addByte(value);
+            this.addToHash(value);
             return value;
         });
     }
@@ -70,20 +96,138 @@ public class HashFunctionByteReadStream implements ByteReadStream
         return Result.create(() ->
         {
             final Integer bytesRead = this.innerStream.readBytes(outputBytes, startIndex, length).await();
-            this.hashFunction.addBytes(outputBytes, startIndex, bytesRead);
+            this.addToHash(outputBytes, startIndex, bytesRead);
             return bytesRead;
         });
     }
 
+    /**
+     * Read bytes from the inner stream into the remaining space of the provided
+     * {@link java.nio.ByteBuffer}. Heap buffers are read into and hashed in place. Direct buffers
+     * are hashed in place, but the inner stream only reads into byte[]s, so the bytes are
+     * transferred into the direct buffer through a reusable intermediate array.
+     * @param outputBuffer The {@link java.nio.ByteBuffer} to read bytes into.
+     * @return The number of bytes that were read.
+     */
+    public Result<Integer> readBytes(java.nio.ByteBuffer outputBuffer)
+    {
+        PreCondition.assertNotNull(outputBuffer, "outputBuffer");
+        PreCondition.assertTrue(outputBuffer.hasRemaining(), "outputBuffer.hasRemaining()");
+        PreCondition.assertFalse(outputBuffer.isReadOnly(), "outputBuffer.isReadOnly()");
+
+        return Result.create(() ->
+        {
+            final int position = outputBuffer.position();
+            final int bytesRead;
+            if (outputBuffer.hasArray())
+            {
+                bytesRead = this.innerStream.readBytes(outputBuffer.array(), outputBuffer.arrayOffset() + position, outputBuffer.remaining()).await();
+                this.addToHash(outputBuffer.array(), outputBuffer.arrayOffset() + position, bytesRead);
+            }
+            else
+            {
+                if (this.transferBuffer == null)
+                {
+                    this.transferBuffer = new byte[HashFunctionByteReadStream.transferBufferLength];
+                }
+                bytesRead = this.innerStream.readBytes(this.transferBuffer, 0, Math.minimum(outputBuffer.remaining(), this.transferBuffer.length)).await();
+                outputBuffer.put(this.transferBuffer, 0, bytesRead);
+                outputBuffer.position(position);
+                final int limit = outputBuffer.limit();
+                outputBuffer.limit(position + bytesRead);
+                this.flushBlockBuffer();
+                this.hashFunction.addBytes(outputBuffer);
+                outputBuffer.limit(limit);
+            }
+            outputBuffer.position(position + bytesRead);
+            return bytesRead;
+        });
+    }
+
+    /**
+     * Get the number of bytes that are collected from single-byte and other small reads before
+     * they are added to the {@link HashFunction}.
+     */
+    public int getBlockBufferSize()
+    {
+        return this.blockBufferSize;
+    }
+
+    /**
+     * Add the provided byte to the block buffer.
+     */
+    private void addToHash(byte value)
+    {
+        if (this.blockBuffer == null)
+        {
+            this.blockBuffer = new byte[this.blockBufferSize];
+        }
+        else if (this.blockBufferLength == this.blockBuffer.length)
+        {
+            this.flushBlockBuffer();
+        }
+        this.blockBuffer[this.blockBufferLength++] = value;
+    }
+
+    /**
+     * Add the provided bytes to the block buffer, or directly to the {@link HashFunction} if they
+     * don't fit.
+     */
+    private void addToHash(byte[] values, int startIndex, int length)
+    {
+        if (this.blockBuffer == null)
+        {
+            this.blockBuffer = new byte[this.blockBufferSize];
+        }
+
+        if (this.blockBuffer.length - this.blockBufferLength < length)
+        {
+            this.flushBlockBuffer();
+        }
+
+        if (length < this.blockBuffer.length)
+        {
+            System.arraycopy(values, startIndex, this.blockBuffer, this.blockBufferLength, length);
+            this.blockBufferLength += length;
+        }
+        else
+        {
+            this.hashFunction.addBytes(values, startIndex, length);
+        }
+    }
+
+    /**
+     * Add the bytes that have been collected in the block buffer to the {@link HashFunction}.
+     */
+    private void flushBlockBuffer()
+    {
+        if (this.blockBufferLength > 0)
+        {
+            this.hashFunction.addBytes(this.blockBuffer, 0, this.blockBufferLength);
+            this.blockBufferLength = 0;
+        }
+    }
+
     /**
      * Take the current hash value/message digest that has been computed from the bytes that have
      * been read. This will reset the {@link HashFunction} to its initial state.
      */
     public BitArray takeDigest()
     {
+        this.flushBlockBuffer();
         return this.hashFunction.takeDigest();
     }
 
+    /**
+     * Get the hash value/message digest of the bytes that have been read so far without resetting
+     * the {@link HashFunction}, so that hashing continues with the next byte that is read.
+     */
+    public BitArray peekDigest()
+    {
+        this.flushBlockBuffer();
+        return this.hashFunction.peekDigest();
+    }
+
     @Override
     public boolean isDisposed()
     {
@@ -99,6 +243,7 @@ public class HashFunctionByteReadStream implements ByteReadStream
             if (result)
             {
                 this.isDisposed = true;
+                this.blockBufferLength = 0;
 
                 this.hashFunction.dispose().await();
                 this.innerStream.dispose().await();
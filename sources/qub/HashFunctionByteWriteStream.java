@@ -5,22 +5,104 @@ package qub;
  */
 public class HashFunctionByteWriteStream implements ByteWriteStream
 {
+    /**
+     * The default number of bytes that are collected from single-byte and other small writes
+     * before they are added to the {@link HashFunction}.
+     */
+    public static final int defaultBlockBufferSize = 4096;
+
+    private static final int transferBufferLength = 8192;
+
     private final ByteWriteStream innerStream;
     private final HashFunction hashFunction;
+    private final int blockBufferSize;
+    private byte[] blockBuffer;
+    private int blockBufferLength;
+    private byte[] transferBuffer;
     private boolean isDisposed;
 
-    private HashFunctionByteWriteStream(ByteWriteStream innerStream, HashFunction hashFunction)
+    private HashFunctionByteWriteStream(ByteWriteStream innerStream, HashFunction hashFunction, int blockBufferSize)
     {
         PreCondition.assertNotNull(innerStream, "innerStream");
         PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertGreaterThanOrEqualTo(blockBufferSize, 1, "blockBufferSize");
 
         this.innerStream = innerStream;
         this.hashFunction = hashFunction;
+        this.blockBufferSize = blockBufferSize;
     }
 
     public static HashFunctionByteWriteStream create(ByteWriteStream innerStream, HashFunction hashFunction)
     {
-        return new HashFunctionByteWriteStream(innerStream, hashFunction);
+        return HashFunctionByteWriteStream.create(innerStream, hashFunction, HashFunctionByteWriteStream.defaultBlockBufferSize);
+    }
+
+    /**
+     * Create a new {@link HashFunctionByteWriteStream}.
+     * @param innerStream The stream that bytes will be written to.
+     * @param hashFunction The {@link HashFunction} that the written bytes will be added to.
+     * @param blockBufferSize The number of bytes that are collected from single-byte and other
+     *                        small writes before they are added to the {@link HashFunction}.
+     */
+    public static HashFunctionByteWriteStream create(ByteWriteStream innerStream, HashFunction hashFunction, int blockBufferSize)
+    {
+        return new HashFunctionByteWriteStream(innerStream, hashFunction, blockBufferSize);
+    }
+
+    /**
+     * Create a new {@link HashFunctionByteWriteStream} that hashes the written bytes on a dedicated
+     * thread. Each write returns as soon as the inner stream has written the bytes and the bytes
+     * have been copied into the hashing pipeline, so writing takes about as long as the slower of
+     * the inner stream and the {@link HashFunction} instead of the sum of the two.
+     * {@link #takeDigest()} waits for the pipeline to finish hashing the written bytes.
+     * @param innerStream The stream that bytes will be written to.
+     * @param hashFunction The {@link HashFunction} that the written bytes will be added to on the
+     *                     dedicated thread.
+     */
+    public static HashFunctionByteWriteStream createPipelined(ByteWriteStream innerStream, HashFunction hashFunction)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+
+        return HashFunctionByteWriteStream.create(innerStream, PipelinedHashFunction.create(hashFunction));
+    }
+
+    /**
+     * Create a new {@link HashFunctionByteWriteStream} that hashes the written bytes on a dedicated
+     * thread.
+     * @param innerStream The stream that bytes will be written to.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction} that the
+     *                            written bytes will be added to on the dedicated thread.
+     */
+    public static Result<HashFunctionByteWriteStream> createPipelined(ByteWriteStream innerStream, Function0<Result<? extends HashFunction>> hashFunctionCreator)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+
+        return Result.create(() ->
+        {
+            return HashFunctionByteWriteStream.createPipelined(innerStream, hashFunctionCreator.run().await());
+        });
+    }
+
+    /**
+     * Create a new {@link HashFunctionByteWriteStream} that continues an interrupted hash. The
+     * provided {@link ResumableHashFunction} is restored to the provided state (which was
+     * previously returned from {@link #exportHashState()}), so the bytes that were hashed before
+     * the interruption don't need to be written again. The inner stream should be positioned at
+     * the byte count of the restored state.
+     * @param innerStream The stream that the remaining bytes will be written to.
+     * @param hashFunction The {@link ResumableHashFunction} that will be restored.
+     * @param hashState The state that was exported before the interruption.
+     */
+    public static HashFunctionByteWriteStream createResumed(ByteWriteStream innerStream, ResumableHashFunction hashFunction, byte[] hashState)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertNotNull(hashState, "hashState");
+
+        hashFunction.restoreState(hashState);
+        return HashFunctionByteWriteStream.create(innerStream, hashFunction);
     }
 
     public static Result<HashFunctionByteWriteStream> create(ByteWriteStream innerStream, Function0<Result<? extends HashFunction>> hashFunctionCreator)
@@ -55,7 +137,7 @@ public class HashFunctionByteWriteStream implements ByteWriteStream
         return Result.create(() ->
         {
             final int result = this.innerStream.write(toWrite).await();
-            this.hashFunction.addByte(toWrite);
+            this.addToHash(toWrite);
             return result;
         });
     }
@@ -70,20 +152,167 @@ public class HashFunctionByteWriteStream implements ByteWriteStream
         return Result.create(() ->
         {
             final int result = this.innerStream.write(toWrite, startIndex, length).await();
-            this.hashFunction.addBytes(toWrite, startIndex, result);
+            this.addToHash(toWrite, startIndex, result);
             return result;
         });
     }
 
+    /**
+     * Write the remaining bytes in the provided {@link java.nio.ByteBuffer} to the inner stream.
+     * Heap buffers are written and hashed in place. Direct buffers are hashed in place, but the
+     * inner stream only writes byte[]s, so the bytes are transferred out of the direct buffer
+     * through a reusable intermediate array. The position of the {@link java.nio.ByteBuffer} will
+     * be advanced by the number of bytes that were written.
+     * @param toWrite The {@link java.nio.ByteBuffer} that contains the bytes to write.
+     * @return The number of bytes that were written.
+     */
+    public Result<Integer> write(java.nio.ByteBuffer toWrite)
+    {
+        PreCondition.assertNotNull(toWrite, "toWrite");
+
+        return Result.create(() ->
+        {
+            final int position = toWrite.position();
+            final int result;
+            if (!toWrite.hasRemaining())
+            {
+                result = 0;
+            }
+            else if (toWrite.hasArray())
+            {
+                result = this.innerStream.write(toWrite.array(), toWrite.arrayOffset() + position, toWrite.remaining()).await();
+                this.addToHash(toWrite.array(), toWrite.arrayOffset() + position, result);
+            }
+            else
+            {
+                if (this.transferBuffer == null)
+                {
+                    this.transferBuffer = new byte[HashFunctionByteWriteStream.transferBufferLength];
+                }
+                final int length = Math.minimum(toWrite.remaining(), this.transferBuffer.length);
+                toWrite.get(this.transferBuffer, 0, length);
+                result = this.innerStream.write(this.transferBuffer, 0, length).await();
+                toWrite.position(position);
+                final int limit = toWrite.limit();
+                toWrite.limit(position + result);
+                this.flushBlockBuffer();
+                this.hashFunction.addBytes(toWrite);
+                toWrite.limit(limit);
+            }
+            toWrite.position(position + result);
+            return result;
+        });
+    }
+
+    /**
+     * Get the intermediate state of this stream's {@link ResumableHashFunction} after all of the
+     * bytes that have been written. The state can be passed to
+     * {@link #createResumed(ByteWriteStream, ResumableHashFunction, byte[])} to continue hashing
+     * after an interruption.
+     */
+    public byte[] exportHashState()
+    {
+        PreCondition.assertTrue(this.hashFunction instanceof ResumableHashFunction, "this.hashFunction instanceof ResumableHashFunction");
+
+        this.flushBlockBuffer();
+        return ((ResumableHashFunction)this.hashFunction).exportState();
+    }
+
+    /**
+     * Get the number of bytes that have been added to this stream's {@link ResumableHashFunction}
+     * since it was created, restored, or last had its digest taken.
+     */
+    public long getHashedByteCount()
+    {
+        PreCondition.assertTrue(this.hashFunction instanceof ResumableHashFunction, "this.hashFunction instanceof ResumableHashFunction");
+
+        return ((ResumableHashFunction)this.hashFunction).getByteCount() + this.blockBufferLength;
+    }
+
+    /**
+     * Get the number of bytes that are collected from single-byte and other small writes before
+     * they are added to the {@link HashFunction}.
+     */
+    public int getBlockBufferSize()
+    {
+        return this.blockBufferSize;
+    }
+
+    /**
+     * Add the provided byte to the block buffer.
+     */
+    private void addToHash(byte value)
+    {
+        if (this.blockBuffer == null)
+        {
+            this.blockBuffer = new byte[this.blockBufferSize];
+        }
+        else if (this.blockBufferLength == this.blockBuffer.length)
+        {
+            this.flushBlockBuffer();
+        }
+        this.blockBuffer[this.blockBufferLength++] = value;
+    }
+
+    /**
+     * Add the provided bytes to the block buffer, or directly to the {@link HashFunction} if they
+     * don't fit.
+     */
+    private void addToHash(byte[] values, int startIndex, int length)
+    {
+        if (this.blockBuffer == null)
+        {
+            this.blockBuffer = new byte[this.blockBufferSize];
+        }
+
+        if (this.blockBuffer.length - this.blockBufferLength < length)
+        {
+            this.flushBlockBuffer();
+        }
+
+        if (length < this.blockBuffer.length)
+        {
+            System.arraycopy(values, startIndex, this.blockBuffer, this.blockBufferLength, length);
+            this.blockBufferLength += length;
+        }
+        else
+        {
+            this.hashFunction.addBytes(values, startIndex, length);
+        }
+    }
+
+    /**
+     * Add the bytes that have been collected in the block buffer to the {@link HashFunction}.
+     */
+    private void flushBlockBuffer()
+    {
+        if (this.blockBufferLength > 0)
+        {
+            this.hashFunction.addBytes(this.blockBuffer, 0, this.blockBufferLength);
+            this.blockBufferLength = 0;
+        }
+    }
+
     /**
      * Take the current hash value/message digest that has been computed from the bytes that have
      * been written. This will reset the {@link HashFunction} to its initial state.
      */
     public BitArray takeDigest()
     {
+        this.flushBlockBuffer();
         return this.hashFunction.takeDigest();
     }
 
+    /**
+     * Get the hash value/message digest of the bytes that have been written so far without resetting
+     * the {@link HashFunction}, so that hashing continues with the next byte that is written.
+     */
+    public BitArray peekDigest()
+    {
+        this.flushBlockBuffer();
+        return this.hashFunction.peekDigest();
+    }
+
     @Override
     public boolean isDisposed()
     {
@@ -99,6 +328,7 @@ public class HashFunctionByteWriteStream implements ByteWriteStream
             if (result)
             {
                 this.isDisposed = true;
+                this.blockBufferLength = 0;
 
                 this.hashFunction.dispose().await();
                 this.innerStream.dispose().await();
@@ -0,0 +1,91 @@
+package qub;
+
+/**
+ * A collection of functions that add the contents of files to {@link HashFunction}s.
+ */
+interface HashFunctionFiles
+{
+    /**
+     * The number of bytes of a file that will be mapped into memory at one time.
+     */
+    long mappedWindowSize = 64L * 1024 * 1024;
+
+    /**
+     * Files smaller than this will be read instead of mapped, since mapping a small file costs
+     * more than copying its bytes.
+     */
+    long minimumMappedFileSize = 256L * 1024;
+
+    /**
+     * The size of the buffer that is used to read files that are not mapped.
+     */
+    int readBufferSize = 64 * 1024;
+
+    /**
+     * Add the contents of the file at the provided path to the provided {@link HashFunction}.
+     * @param hashFunction The {@link HashFunction} to add the file's contents to.
+     * @param filePath The path to the file to add.
+     */
+    static void addFile(HashFunction hashFunction, java.nio.file.Path filePath)
+    {
+        HashFunctionFiles.addFile(hashFunction, filePath, HashFunctionFiles.mappedWindowSize, HashFunctionFiles.minimumMappedFileSize);
+    }
+
+    /**
+     * Add the contents of the file at the provided path to the provided {@link HashFunction}.
+     * Large files are mapped into memory in windows of mappedWindowSize bytes and each mapped
+     * window is added directly to the {@link HashFunction}. Files that are smaller than
+     * minimumMappedFileSize or that can't be mapped (such as pipes and other special files) are
+     * read through a buffer instead.
+     * @param hashFunction The {@link HashFunction} to add the file's contents to.
+     * @param filePath The path to the file to add.
+     * @param mappedWindowSize The maximum number of bytes to map at one time.
+     * @param minimumMappedFileSize The minimum file size that will be mapped.
+     */
+    static void addFile(HashFunction hashFunction, java.nio.file.Path filePath, long mappedWindowSize, long minimumMappedFileSize)
+    {
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertBetween(1, mappedWindowSize, Integer.MAX_VALUE, "mappedWindowSize");
+        PreCondition.assertGreaterThanOrEqualTo(minimumMappedFileSize, 0, "minimumMappedFileSize");
+
+        try (final java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(filePath, java.nio.file.StandardOpenOption.READ))
+        {
+            long position = 0;
+            final long fileSize = channel.size();
+            if (fileSize >= minimumMappedFileSize)
+            {
+                try
+                {
+                    while (position < fileSize)
+                    {
+                        final long windowSize = java.lang.Math.min(mappedWindowSize, fileSize - position);
+                        final java.nio.MappedByteBuffer window = channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, position, windowSize);
+                        hashFunction.addBytes(window);
+                        position += windowSize;
+                    }
+                }
+                catch (UnsupportedOperationException | java.io.IOException e)
+                {
+                    // This file can't be mapped, so fall back to reading the rest of it.
+                }
+            }
+
+            if (position < fileSize || fileSize == 0)
+            {
+                channel.position(position);
+                final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(HashFunctionFiles.readBufferSize);
+                while (channel.read(buffer) >= 0)
+                {
+                    buffer.flip();
+                    hashFunction.addBytes(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+}
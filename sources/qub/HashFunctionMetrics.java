@@ -0,0 +1,178 @@
+package qub;
+
+/**
+ * A set of counters that {@link InstrumentedHashFunction}s record their activity in. A single
+ * {@link HashFunctionMetrics} is meant to be shared by every {@link InstrumentedHashFunction} in
+ * a process, so the counters are {@link java.util.concurrent.atomic.LongAdder}s that can be
+ * updated from many threads without contention.
+ * <p>
+ * The counters are never pushed anywhere while they are being updated. Instead,
+ * {@link #publish()} takes a {@link HashFunctionMetricsSnapshot} of the counters and passes it to
+ * each of the registered listeners, which can export it to whatever metrics system is in use.
+ */
+public class HashFunctionMetrics
+{
+    /**
+     * The number of buckets in the block size histogram. Bucket 0 counts empty blocks and bucket
+     * i counts blocks whose length is between 2^(i-1) (inclusive) and 2^i (exclusive).
+     */
+    public static final int blockSizeBucketCount = Integer.SIZE;
+
+    private final java.util.concurrent.atomic.LongAdder bytesHashed;
+    private final java.util.concurrent.atomic.LongAdder addByteCallCount;
+    private final java.util.concurrent.atomic.LongAdder addBytesCallCount;
+    private final java.util.concurrent.atomic.LongAdder addBytesNanoseconds;
+    private final java.util.concurrent.atomic.LongAdder[] blockSizeHistogram;
+    private final java.util.concurrent.atomic.LongAdder digestNanoseconds;
+    private final java.util.concurrent.ConcurrentHashMap<String,java.util.concurrent.atomic.LongAdder> digestCounts;
+    private final java.util.concurrent.CopyOnWriteArrayList<Action1<HashFunctionMetricsSnapshot>> listeners;
+
+    private HashFunctionMetrics()
+    {
+        this.bytesHashed = new java.util.concurrent.atomic.LongAdder();
+        this.addByteCallCount = new java.util.concurrent.atomic.LongAdder();
+        this.addBytesCallCount = new java.util.concurrent.atomic.LongAdder();
+        this.addBytesNanoseconds = new java.util.concurrent.atomic.LongAdder();
+        this.blockSizeHistogram = new java.util.concurrent.atomic.LongAdder[HashFunctionMetrics.blockSizeBucketCount];
+        for (int i = 0; i < this.blockSizeHistogram.length; ++i)
+        {
+            this.blockSizeHistogram[i] = new java.util.concurrent.atomic.LongAdder();
+        }
+        this.digestNanoseconds = new java.util.concurrent.atomic.LongAdder();
+        this.digestCounts = new java.util.concurrent.ConcurrentHashMap<>();
+        this.listeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Create a new {@link HashFunctionMetrics} with all of its counters set to zero.
+     */
+    public static HashFunctionMetrics create()
+    {
+        return new HashFunctionMetrics();
+    }
+
+    /**
+     * Get the index of the block size histogram bucket that a block of the provided length is
+     * counted in.
+     * @param length The length of the block.
+     */
+    public static int getBlockSizeBucket(int length)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(length, 0, "length");
+
+        return Integer.SIZE - Integer.numberOfLeadingZeros(length);
+    }
+
+    /**
+     * Get the counter for the digests that are produced by the provided algorithm. The counter is
+     * created the first time it is requested, so callers should hold on to it instead of
+     * requesting it for every digest.
+     */
+    java.util.concurrent.atomic.LongAdder getDigestCounter(String algorithm)
+    {
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+
+        return this.digestCounts.computeIfAbsent(algorithm, (String key) -> new java.util.concurrent.atomic.LongAdder());
+    }
+
+    /**
+     * Record a single byte that was added to a {@link HashFunction}.
+     */
+    void recordAddByte()
+    {
+        this.bytesHashed.increment();
+        this.addByteCallCount.increment();
+    }
+
+    /**
+     * Record a block of bytes that was added to a {@link HashFunction}.
+     * @param length The number of bytes in the block.
+     * @param nanoseconds The time that it took to add the block.
+     */
+    void recordAddBytes(int length, long nanoseconds)
+    {
+        this.bytesHashed.add(length);
+        this.addBytesCallCount.increment();
+        this.addBytesNanoseconds.add(nanoseconds);
+        this.blockSizeHistogram[HashFunctionMetrics.getBlockSizeBucket(length)].increment();
+    }
+
+    /**
+     * Record a digest that was produced by a {@link HashFunction}.
+     * @param digestCounter The counter for the algorithm of the {@link HashFunction}.
+     * @param nanoseconds The time that it took to produce the digest.
+     */
+    void recordDigest(java.util.concurrent.atomic.LongAdder digestCounter, long nanoseconds)
+    {
+        digestCounter.increment();
+        this.digestNanoseconds.add(nanoseconds);
+    }
+
+    /**
+     * Get the current values of this {@link HashFunctionMetrics}'s counters. Counters that are
+     * updated while the snapshot is being taken may or may not include those updates.
+     */
+    public HashFunctionMetricsSnapshot getSnapshot()
+    {
+        final long[] blockSizeHistogram = new long[this.blockSizeHistogram.length];
+        for (int i = 0; i < blockSizeHistogram.length; ++i)
+        {
+            blockSizeHistogram[i] = this.blockSizeHistogram[i].sum();
+        }
+
+        final java.util.TreeMap<String,Long> digestCounts = new java.util.TreeMap<>();
+        for (final java.util.Map.Entry<String,java.util.concurrent.atomic.LongAdder> entry : this.digestCounts.entrySet())
+        {
+            digestCounts.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return HashFunctionMetricsSnapshot.create(
+            this.bytesHashed.sum(),
+            this.addByteCallCount.sum(),
+            this.addBytesCallCount.sum(),
+            this.addBytesNanoseconds.sum(),
+            blockSizeHistogram,
+            this.digestNanoseconds.sum(),
+            digestCounts);
+    }
+
+    /**
+     * Add a listener that will be run with a {@link HashFunctionMetricsSnapshot} each time that
+     * {@link #publish()} is called.
+     * @param listener The listener to add.
+     */
+    public void addListener(Action1<HashFunctionMetricsSnapshot> listener)
+    {
+        PreCondition.assertNotNull(listener, "listener");
+
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Remove the provided listener from this {@link HashFunctionMetrics}.
+     * @param listener The listener to remove.
+     * @return Whether the listener was removed.
+     */
+    public boolean removeListener(Action1<HashFunctionMetricsSnapshot> listener)
+    {
+        PreCondition.assertNotNull(listener, "listener");
+
+        return this.listeners.remove(listener);
+    }
+
+    /**
+     * Take a snapshot of this {@link HashFunctionMetrics}'s counters and pass it to each of the
+     * registered listeners. This is meant to be called periodically, such as from a scheduled
+     * reporting task.
+     * @return The snapshot that was passed to the listeners.
+     */
+    public HashFunctionMetricsSnapshot publish()
+    {
+        final HashFunctionMetricsSnapshot result = this.getSnapshot();
+        for (final Action1<HashFunctionMetricsSnapshot> listener : this.listeners)
+        {
+            listener.run(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+package qub;
+
+/**
+ * The values of a {@link HashFunctionMetrics}'s counters at one point in time.
+ */
+public class HashFunctionMetricsSnapshot
+{
+    private final long bytesHashed;
+    private final long addByteCallCount;
+    private final long addBytesCallCount;
+    private final long addBytesNanoseconds;
+    private final long[] blockSizeHistogram;
+    private final long digestNanoseconds;
+    private final java.util.Map<String,Long> digestCounts;
+
+    private HashFunctionMetricsSnapshot(long bytesHashed, long addByteCallCount, long addBytesCallCount, long addBytesNanoseconds, long[] blockSizeHistogram, long digestNanoseconds, java.util.Map<String,Long> digestCounts)
+    {
+        PreCondition.assertNotNull(blockSizeHistogram, "blockSizeHistogram");
+        PreCondition.assertEqual(HashFunctionMetrics.blockSizeBucketCount, blockSizeHistogram.length, "blockSizeHistogram.length");
+        PreCondition.assertNotNull(digestCounts, "digestCounts");
+
+        this.bytesHashed = bytesHashed;
+        this.addByteCallCount = addByteCallCount;
+        this.addBytesCallCount = addBytesCallCount;
+        this.addBytesNanoseconds = addBytesNanoseconds;
+        this.blockSizeHistogram = blockSizeHistogram.clone();
+        this.digestNanoseconds = digestNanoseconds;
+        this.digestCounts = java.util.Collections.unmodifiableMap(new java.util.TreeMap<>(digestCounts));
+    }
+
+    /**
+     * Create a new {@link HashFunctionMetricsSnapshot}.
+     * @param bytesHashed The number of bytes that were added to hash functions.
+     * @param addByteCallCount The number of addByte() calls.
+     * @param addBytesCallCount The number of addBytes() calls.
+     * @param addBytesNanoseconds The total time spent in addBytes() calls.
+     * @param blockSizeHistogram The number of addBytes() calls in each block size bucket.
+     * @param digestNanoseconds The total time spent producing digests.
+     * @param digestCounts The number of digests that were produced for each algorithm.
+     */
+    public static HashFunctionMetricsSnapshot create(long bytesHashed, long addByteCallCount, long addBytesCallCount, long addBytesNanoseconds, long[] blockSizeHistogram, long digestNanoseconds, java.util.Map<String,Long> digestCounts)
+    {
+        return new HashFunctionMetricsSnapshot(bytesHashed, addByteCallCount, addBytesCallCount, addBytesNanoseconds, blockSizeHistogram, digestNanoseconds, digestCounts);
+    }
+
+    /**
+     * Get the number of bytes that were added to hash functions.
+     */
+    public long getBytesHashed()
+    {
+        return this.bytesHashed;
+    }
+
+    /**
+     * Get the number of addByte() calls.
+     */
+    public long getAddByteCallCount()
+    {
+        return this.addByteCallCount;
+    }
+
+    /**
+     * Get the number of addBytes() calls.
+     */
+    public long getAddBytesCallCount()
+    {
+        return this.addBytesCallCount;
+    }
+
+    /**
+     * Get the total time in nanoseconds that was spent in addBytes() calls.
+     */
+    public long getAddBytesNanoseconds()
+    {
+        return this.addBytesNanoseconds;
+    }
+
+    /**
+     * Get the number of addBytes() calls in each block size bucket. See
+     * {@link HashFunctionMetrics#blockSizeBucketCount} for the bucket boundaries.
+     */
+    public long[] getBlockSizeHistogram()
+    {
+        return this.blockSizeHistogram.clone();
+    }
+
+    /**
+     * Get the number of addBytes() calls in the block size bucket at the provided index.
+     * @param bucket The index of the bucket.
+     */
+    public long getBlockSizeCount(int bucket)
+    {
+        PreCondition.assertIndexAccess(bucket, this.blockSizeHistogram.length, "bucket");
+
+        return this.blockSizeHistogram[bucket];
+    }
+
+    /**
+     * Get the total time in nanoseconds that was spent producing digests.
+     */
+    public long getDigestNanoseconds()
+    {
+        return this.digestNanoseconds;
+    }
+
+    /**
+     * Get the number of digests that were produced for each algorithm.
+     */
+    public java.util.Map<String,Long> getDigestCounts()
+    {
+        return this.digestCounts;
+    }
+
+    /**
+     * Get the number of digests that were produced for the provided algorithm.
+     * @param algorithm The name of the algorithm.
+     */
+    public long getDigestCount(String algorithm)
+    {
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+
+        final Long result = this.digestCounts.get(algorithm);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * Get the number of digests that were produced for all algorithms.
+     */
+    public long getDigestCount()
+    {
+        long result = 0;
+        for (final long digestCount : this.digestCounts.values())
+        {
+            result += digestCount;
+        }
+        return result;
+    }
+}
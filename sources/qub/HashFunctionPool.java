@@ -0,0 +1,307 @@
+package qub;
+
+/**
+ * A bounded pool of reusable {@link HashFunction}s. The {@link HashFunction}s that are acquired
+ * from a {@link HashFunctionPool} are returned to the pool when they are disposed.
+ * <p>
+ * Each thread keeps the last {@link HashFunction} that it returned in a thread-local slot, so a
+ * thread that repeatedly acquires and disposes {@link HashFunction}s doesn't touch any shared
+ * state. Beyond the thread-local slots, up to maximumSize idle {@link HashFunction}s are kept in
+ * a lock-free shared queue. {@link HashFunction}s that are returned when the shared queue is full
+ * are disposed.
+ * <p>
+ * Every call to {@link #acquire()} returns a new lightweight wrapper around a pooled
+ * {@link HashFunction}, so a reference to a wrapper that has already been disposed stays disposed
+ * and can't touch the {@link HashFunction} after it has been handed to its next owner.
+ */
+public class HashFunctionPool implements Disposable
+{
+    /**
+     * The default maximum number of idle {@link HashFunction}s that will be kept in the shared
+     * queue of a {@link HashFunctionPool}.
+     */
+    public static final int defaultMaximumSize = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final Function0<Result<? extends HashFunction>> hashFunctionCreator;
+    private final int maximumSize;
+    private final ThreadLocal<HashFunction> threadLocalHashFunction;
+    private final java.util.concurrent.ConcurrentLinkedQueue<HashFunction> sharedHashFunctions;
+    private final java.util.concurrent.atomic.AtomicInteger sharedHashFunctionCount;
+    private volatile boolean disposed;
+
+    private HashFunctionPool(Function0<Result<? extends HashFunction>> hashFunctionCreator, int maximumSize)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertGreaterThanOrEqualTo(maximumSize, 0, "maximumSize");
+
+        this.hashFunctionCreator = hashFunctionCreator;
+        this.maximumSize = maximumSize;
+        this.threadLocalHashFunction = new ThreadLocal<>();
+        this.sharedHashFunctions = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.sharedHashFunctionCount = new java.util.concurrent.atomic.AtomicInteger();
+    }
+
+    /**
+     * Create a new {@link HashFunctionPool} with the default maximum size.
+     * @param hashFunctionCreator The function that creates new {@link HashFunction}s when the
+     *                            pool is empty.
+     */
+    public static HashFunctionPool create(Function0<Result<? extends HashFunction>> hashFunctionCreator)
+    {
+        return HashFunctionPool.create(hashFunctionCreator, HashFunctionPool.defaultMaximumSize);
+    }
+
+    /**
+     * Create a new {@link HashFunctionPool}.
+     * @param hashFunctionCreator The function that creates new {@link HashFunction}s when the
+     *                            pool is empty.
+     * @param maximumSize The maximum number of idle {@link HashFunction}s that will be kept in the
+     *                    pool's shared queue.
+     */
+    public static HashFunctionPool create(Function0<Result<? extends HashFunction>> hashFunctionCreator, int maximumSize)
+    {
+        return new HashFunctionPool(hashFunctionCreator, maximumSize);
+    }
+
+    /**
+     * Create a new {@link HashFunctionPool} of MD5 hash functions.
+     */
+    public static HashFunctionPool createMD5()
+    {
+        return HashFunctionPool.create(HashFunction::createMD5);
+    }
+
+    /**
+     * Create a new {@link HashFunctionPool} of SHA-1 hash functions.
+     */
+    public static HashFunctionPool createSHA1()
+    {
+        return HashFunctionPool.create(HashFunction::createSHA1);
+    }
+
+    /**
+     * Create a new {@link HashFunctionPool} of SHA-256 hash functions.
+     */
+    public static HashFunctionPool createSHA256()
+    {
+        return HashFunctionPool.create(HashFunction::createSHA256);
+    }
+
+    /**
+     * Get the maximum number of idle {@link HashFunction}s that will be kept in this pool's shared
+     * queue.
+     */
+    public int getMaximumSize()
+    {
+        return this.maximumSize;
+    }
+
+    /**
+     * Get a {@link HashFunction} from this pool, or create a new one if this pool is empty. The
+     * returned {@link HashFunction} is in its initial state and will be returned to this pool when
+     * it is disposed. The {@link HashFunction} must not be used after it has been disposed.
+     */
+    public Result<HashFunction> acquire()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        HashFunction innerHashFunction = this.threadLocalHashFunction.get();
+        if (innerHashFunction != null)
+        {
+            this.threadLocalHashFunction.set(null);
+        }
+        else
+        {
+            innerHashFunction = this.sharedHashFunctions.poll();
+            if (innerHashFunction != null)
+            {
+                this.sharedHashFunctionCount.decrementAndGet();
+            }
+        }
+
+        if (innerHashFunction != null)
+        {
+            return Result.success(new PooledHashFunction(this, innerHashFunction));
+        }
+        else
+        {
+            return Result.create(() ->
+            {
+                return new PooledHashFunction(this, this.hashFunctionCreator.run().await());
+            });
+        }
+    }
+
+    private void release(HashFunction hashFunction)
+    {
+        boolean released = false;
+        if (!this.disposed)
+        {
+            if (this.threadLocalHashFunction.get() == null)
+            {
+                this.threadLocalHashFunction.set(hashFunction);
+                released = true;
+            }
+            else if (this.sharedHashFunctionCount.incrementAndGet() <= this.maximumSize)
+            {
+                this.sharedHashFunctions.add(hashFunction);
+                released = true;
+            }
+            else
+            {
+                this.sharedHashFunctionCount.decrementAndGet();
+            }
+        }
+
+        if (!released)
+        {
+            hashFunction.dispose().await();
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    /**
+     * Dispose of this pool and the idle {@link HashFunction}s in its shared queue. Idle
+     * {@link HashFunction}s that are held in other threads' thread-local slots are released when
+     * those threads end. {@link HashFunction}s that are disposed after their pool has been
+     * disposed are disposed instead of being returned to the pool.
+     */
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+
+                final HashFunction threadLocalHashFunction = this.threadLocalHashFunction.get();
+                if (threadLocalHashFunction != null)
+                {
+                    this.threadLocalHashFunction.remove();
+                    threadLocalHashFunction.dispose().await();
+                }
+
+                HashFunction sharedHashFunction = this.sharedHashFunctions.poll();
+                while (sharedHashFunction != null)
+                {
+                    this.sharedHashFunctionCount.decrementAndGet();
+                    sharedHashFunction.dispose().await();
+                    sharedHashFunction = this.sharedHashFunctions.poll();
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * A {@link HashFunction} that returns its inner {@link HashFunction} to its
+     * {@link HashFunctionPool} when it is disposed. Each wrapper is only used by one owner.
+     */
+    private static class PooledHashFunction implements HashFunction
+    {
+        private final HashFunctionPool pool;
+        private final HashFunction innerHashFunction;
+        private boolean disposed;
+
+        private PooledHashFunction(HashFunctionPool pool, HashFunction innerHashFunction)
+        {
+            PreCondition.assertNotNull(pool, "pool");
+            PreCondition.assertNotNull(innerHashFunction, "innerHashFunction");
+
+            this.pool = pool;
+            this.innerHashFunction = innerHashFunction;
+        }
+
+        @Override
+        public void addByte(byte value)
+        {
+            PreCondition.assertNotDisposed(this, "this");
+
+            this.innerHashFunction.addByte(value);
+        }
+
+        @Override
+        public void addBytes(byte[] values, int startIndex, int length)
+        {
+            PreCondition.assertNotDisposed(this, "this");
+
+            this.innerHashFunction.addBytes(values, startIndex, length);
+        }
+
+        @Override
+        public void addBytes(java.nio.ByteBuffer values)
+        {
+            PreCondition.assertNotDisposed(this, "this");
+
+            this.innerHashFunction.addBytes(values);
+        }
+
+        @Override
+        public int getDigestLength()
+        {
+            return this.innerHashFunction.getDigestLength();
+        }
+
+        @Override
+        public BitArray takeDigest()
+        {
+            PreCondition.assertNotDisposed(this, "this");
+
+            return this.innerHashFunction.takeDigest();
+        }
+
+        @Override
+        public BitArray peekDigest()
+        {
+            PreCondition.assertNotDisposed(this, "this");
+
+            return this.innerHashFunction.peekDigest();
+        }
+
+        @Override
+        public int takeDigest(byte[] output, int outputStartIndex)
+        {
+            PreCondition.assertNotDisposed(this, "this");
+
+            return this.innerHashFunction.takeDigest(output, outputStartIndex);
+        }
+
+        @Override
+        public void reset()
+        {
+            if (!this.disposed)
+            {
+                this.innerHashFunction.reset();
+            }
+        }
+
+        @Override
+        public boolean isDisposed()
+        {
+            return this.disposed;
+        }
+
+        @Override
+        public Result<Boolean> dispose()
+        {
+            return Result.create(() ->
+            {
+                final boolean result = !this.disposed;
+                if (result)
+                {
+                    this.disposed = true;
+                    this.innerHashFunction.reset();
+                    this.pool.release(this.innerHashFunction);
+                }
+                return result;
+            });
+        }
+    }
+}
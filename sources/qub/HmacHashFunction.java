@@ -0,0 +1,312 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that computes the HMAC (RFC 2104) of the bytes that are added to it with
+ * a fixed key and an underlying {@link ResumableHashFunction} or
+ * {@link JavaMessageDigestHashFunction}.
+ * <p>
+ * HMAC(key, message) is H((key ^ opad) || H((key ^ ipad) || message)). The padded key blocks are
+ * the same for every message, so they are only hashed once, when the {@link HmacHashFunction} is
+ * created. The states of the inner and outer hash functions right after those blocks are saved
+ * and restored at the start of every message, which makes each message cost only its own blocks
+ * plus the two finalizations. A {@link ResumableHashFunction}'s state is saved with
+ * {@link ResumableHashFunction#exportState()}, and a {@link JavaMessageDigestHashFunction}'s
+ * state is saved as a clone of its {@link java.security.MessageDigest}, which is the same thing
+ * that {@link javax.crypto.Mac} does. The key itself isn't kept.
+ */
+public class HmacHashFunction implements HashFunction
+{
+    private static final byte innerPad = 0x36;
+    private static final byte outerPad = 0x5C;
+
+    private final HashFunction innerHashFunction;
+    private final HashFunction outerHashFunction;
+    private final byte[] innerKeyState;
+    private final byte[] outerKeyState;
+    private final java.security.MessageDigest innerKeyMessageDigest;
+    private final java.security.MessageDigest outerKeyMessageDigest;
+    private final byte[] innerDigest;
+    private boolean disposed;
+
+    private HmacHashFunction(HashFunction innerHashFunction, HashFunction outerHashFunction, byte[] key)
+    {
+        PreCondition.assertNotNull(innerHashFunction, "innerHashFunction");
+        PreCondition.assertTrue(innerHashFunction instanceof ResumableHashFunction || innerHashFunction instanceof JavaMessageDigestHashFunction, "innerHashFunction instanceof ResumableHashFunction || innerHashFunction instanceof JavaMessageDigestHashFunction");
+        PreCondition.assertNotNull(outerHashFunction, "outerHashFunction");
+        PreCondition.assertFalse(innerHashFunction == outerHashFunction, "innerHashFunction == outerHashFunction");
+        PreCondition.assertEqual(innerHashFunction.getClass(), outerHashFunction.getClass(), "outerHashFunction.getClass()");
+        PreCondition.assertEqual(HmacHashFunction.getAlgorithm(innerHashFunction), HmacHashFunction.getAlgorithm(outerHashFunction), "outerHashFunction.getAlgorithm()");
+        PreCondition.assertGreaterThan(HmacHashFunction.getBlockLength(innerHashFunction), 0, "innerHashFunction.getBlockLength()");
+        PreCondition.assertNotNull(key, "key");
+
+        this.innerHashFunction = innerHashFunction;
+        this.outerHashFunction = outerHashFunction;
+        this.innerDigest = new byte[innerHashFunction.getDigestLength()];
+
+        final int blockLength = HmacHashFunction.getBlockLength(innerHashFunction);
+        final byte[] paddedKey = new byte[blockLength];
+        if (key.length > blockLength)
+        {
+            innerHashFunction.reset();
+            innerHashFunction.addBytes(key);
+            innerHashFunction.takeDigest(paddedKey, 0);
+        }
+        else
+        {
+            System.arraycopy(key, 0, paddedKey, 0, key.length);
+        }
+
+        HmacHashFunction.addKeyBlock(innerHashFunction, paddedKey, HmacHashFunction.innerPad);
+        HmacHashFunction.addKeyBlock(outerHashFunction, paddedKey, HmacHashFunction.outerPad);
+        java.util.Arrays.fill(paddedKey, (byte)0);
+
+        if (innerHashFunction instanceof ResumableHashFunction)
+        {
+            this.innerKeyState = ((ResumableHashFunction)innerHashFunction).exportState();
+            this.outerKeyState = ((ResumableHashFunction)outerHashFunction).exportState();
+            this.innerKeyMessageDigest = null;
+            this.outerKeyMessageDigest = null;
+        }
+        else
+        {
+            this.innerKeyState = null;
+            this.outerKeyState = null;
+            this.innerKeyMessageDigest = ((JavaMessageDigestHashFunction)innerHashFunction).exportMessageDigest();
+            this.outerKeyMessageDigest = ((JavaMessageDigestHashFunction)outerHashFunction).exportMessageDigest();
+        }
+    }
+
+    /**
+     * Create a new {@link HmacHashFunction}.
+     * @param hashFunctionCreator The function that creates the underlying hash functions. It will
+     * be called twice, and it must create {@link ResumableHashFunction}s or
+     * {@link JavaMessageDigestHashFunction}s whose {@link java.security.MessageDigest}s can be
+     * cloned.
+     * @param key The secret key.
+     */
+    public static Result<HmacHashFunction> create(Function0<Result<? extends HashFunction>> hashFunctionCreator, byte[] key)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(key, "key");
+
+        return Result.create(() ->
+        {
+            final HashFunction innerHashFunction = hashFunctionCreator.run().await();
+            final HashFunction outerHashFunction = hashFunctionCreator.run().await();
+            return new HmacHashFunction(innerHashFunction, outerHashFunction, key);
+        });
+    }
+
+    /**
+     * Create a new {@link HmacHashFunction} that uses MD5.
+     * @param key The secret key.
+     */
+    public static Result<HmacHashFunction> createMD5(byte[] key)
+    {
+        return HmacHashFunction.create(HashFunction::createMD5, key);
+    }
+
+    /**
+     * Create a new {@link HmacHashFunction} that uses SHA-1.
+     * @param key The secret key.
+     */
+    public static Result<HmacHashFunction> createSHA1(byte[] key)
+    {
+        return HmacHashFunction.create(HashFunction::createSHA1, key);
+    }
+
+    /**
+     * Create a new {@link HmacHashFunction} that uses SHA-256.
+     * @param key The secret key.
+     */
+    public static Result<HmacHashFunction> createSHA256(byte[] key)
+    {
+        return HmacHashFunction.create(HashFunction::createSHA256, key);
+    }
+
+    private static String getAlgorithm(HashFunction hashFunction)
+    {
+        return hashFunction instanceof ResumableHashFunction
+            ? ((ResumableHashFunction)hashFunction).getAlgorithm()
+            : ((JavaMessageDigestHashFunction)hashFunction).getAlgorithm();
+    }
+
+    private static int getBlockLength(HashFunction hashFunction)
+    {
+        return hashFunction instanceof ResumableHashFunction
+            ? ((ResumableHashFunction)hashFunction).getBlockLength()
+            : ((JavaMessageDigestHashFunction)hashFunction).getBlockLength();
+    }
+
+    /**
+     * Add the provided padded key xor'ed with the provided pad to the provided hash function.
+     */
+    private static void addKeyBlock(HashFunction hashFunction, byte[] paddedKey, byte pad)
+    {
+        final byte[] keyBlock = new byte[paddedKey.length];
+        for (int i = 0; i < keyBlock.length; ++i)
+        {
+            keyBlock[i] = (byte)(paddedKey[i] ^ pad);
+        }
+
+        hashFunction.reset();
+        hashFunction.addBytes(keyBlock);
+        java.util.Arrays.fill(keyBlock, (byte)0);
+    }
+
+    /**
+     * Put the inner hash function back into the inner padded key state.
+     */
+    private void restoreInnerKeyState()
+    {
+        if (this.innerKeyState != null)
+        {
+            ((ResumableHashFunction)this.innerHashFunction).restoreState(this.innerKeyState);
+        }
+        else
+        {
+            ((JavaMessageDigestHashFunction)this.innerHashFunction).restoreMessageDigest(this.innerKeyMessageDigest);
+        }
+    }
+
+    /**
+     * Put the outer hash function back into the outer padded key state.
+     */
+    private void restoreOuterKeyState()
+    {
+        if (this.outerKeyState != null)
+        {
+            ((ResumableHashFunction)this.outerHashFunction).restoreState(this.outerKeyState);
+        }
+        else
+        {
+            ((JavaMessageDigestHashFunction)this.outerHashFunction).restoreMessageDigest(this.outerKeyMessageDigest);
+        }
+    }
+
+    /**
+     * Get the name of the algorithm that this {@link HmacHashFunction} implements, in the same
+     * form as the {@link javax.crypto.Mac} algorithm names (such as "HmacSHA256").
+     */
+    public String getAlgorithm()
+    {
+        return "Hmac" + HmacHashFunction.getAlgorithm(this.innerHashFunction).replace("SHA-", "SHA");
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.innerHashFunction.addByte(value);
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.innerHashFunction.addBytes(values, startIndex, length);
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return this.outerHashFunction.getDigestLength();
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] digest = new byte[this.getDigestLength()];
+        this.takeDigest(digest, 0);
+        final BitArray result = BitArray.createFromBytes(digest);
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.innerHashFunction.takeDigest(this.innerDigest, 0);
+        this.restoreInnerKeyState();
+
+        return this.finish(this.innerDigest, output, outputStartIndex);
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] innerDigest = this.innerHashFunction.peekDigest().toByteArray();
+        final byte[] digest = new byte[this.getDigestLength()];
+        this.finish(innerDigest, digest, 0);
+        return BitArray.createFromBytes(digest);
+    }
+
+    /**
+     * Hash the provided inner digest with the outer padded key state and write the result to the
+     * provided output array. The outer hash function is left in the outer padded key state.
+     */
+    private int finish(byte[] innerDigest, byte[] output, int outputStartIndex)
+    {
+        this.outerHashFunction.addBytes(innerDigest);
+        final int result = this.outerHashFunction.takeDigest(output, outputStartIndex);
+        this.restoreOuterKeyState();
+        return result;
+    }
+
+    @Override
+    public void reset()
+    {
+        if (!this.disposed)
+        {
+            this.restoreInnerKeyState();
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                if (this.innerKeyState != null)
+                {
+                    java.util.Arrays.fill(this.innerKeyState, (byte)0);
+                    java.util.Arrays.fill(this.outerKeyState, (byte)0);
+                }
+                else
+                {
+                    this.innerKeyMessageDigest.reset();
+                    this.outerKeyMessageDigest.reset();
+                }
+                java.util.Arrays.fill(this.innerDigest, (byte)0);
+                this.innerHashFunction.dispose().await();
+                this.outerHashFunction.dispose().await();
+            }
+            return result;
+        });
+    }
+}
@@ -0,0 +1,564 @@
+package qub;
+
+/**
+ * A HyperLogLog++ sketch that estimates the number of distinct keys that have been added to it,
+ * using a fixed amount of memory no matter how many keys are added. Each key is hashed with the
+ * 64-bit XXH3 hash. The relative standard error of the estimate is about 1.04 / sqrt(2^precision),
+ * so the default precision of 14 gives about 0.8% with 16 KB of registers.
+ * <p>
+ * A new sketch starts out sparse: it keeps a sorted int[] of the (index, rank) pairs that it has
+ * seen at a precision of 25 bits, which is both smaller and more accurate than the dense registers
+ * while few keys have been added. Once the sparse list would take more memory than the dense
+ * registers, it is converted to one byte per register. Dense estimates use Ertl's improved raw
+ * estimator, which needs no empirical bias-correction tables.
+ * <p>
+ * A {@link HyperLogLog} isn't thread-safe. To count keys from many threads, give each thread its
+ * own sketch and {@link #merge(HyperLogLog)} them afterwards; merging two dense sketches is a
+ * single pass of byte-wise maximums.
+ * <p>
+ * The serialized form is the magic number "QHLL", a format version byte, the precision byte, a
+ * byte that is 0 for a sparse sketch and 1 for a dense sketch, and then either the big-endian
+ * count and values of the sparse list or the dense registers.
+ */
+public class HyperLogLog
+{
+    /**
+     * The smallest supported precision.
+     */
+    public static final int minimumPrecision = 4;
+
+    /**
+     * The largest supported precision.
+     */
+    public static final int maximumPrecision = 18;
+
+    /**
+     * The precision that {@link #create()} uses.
+     */
+    public static final int defaultPrecision = 14;
+
+    /**
+     * The number of index bits that the sparse representation uses.
+     */
+    static final int sparsePrecision = 25;
+
+    private static final int magicNumber = 0x51484C4C;
+    private static final byte formatVersion = 1;
+    private static final int rankBits = 6;
+    private static final int rankMask = (1 << HyperLogLog.rankBits) - 1;
+    private static final int sparseBufferLength = 256;
+
+    private final int precision;
+    private byte[] registers;
+    private int[] sparseList;
+    private int sparseListCount;
+    private int[] sparseBuffer;
+    private int sparseBufferCount;
+
+    private HyperLogLog(int precision)
+    {
+        PreCondition.assertBetween(HyperLogLog.minimumPrecision, precision, HyperLogLog.maximumPrecision, "precision");
+
+        this.precision = precision;
+        this.sparseList = new int[0];
+        this.sparseBuffer = new int[HyperLogLog.sparseBufferLength];
+    }
+
+    /**
+     * Create a new empty {@link HyperLogLog} with the default precision.
+     */
+    public static HyperLogLog create()
+    {
+        return HyperLogLog.create(HyperLogLog.defaultPrecision);
+    }
+
+    /**
+     * Create a new empty {@link HyperLogLog}.
+     * @param precision The number of hash bits that pick a register. A dense sketch has
+     * 2^precision one-byte registers.
+     */
+    public static HyperLogLog create(int precision)
+    {
+        return new HyperLogLog(precision);
+    }
+
+    /**
+     * Read a {@link HyperLogLog} from the bytes that were returned by {@link #toBytes()}.
+     * @param bytes The serialized {@link HyperLogLog}.
+     */
+    public static Result<HyperLogLog> parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(bytes);
+                if (bytes.length < Integer.BYTES + 3 || buffer.getInt() != HyperLogLog.magicNumber)
+                {
+                    throw new java.io.IOException("The bytes are not a serialized HyperLogLog.");
+                }
+
+                final byte formatVersion = buffer.get();
+                if (formatVersion != HyperLogLog.formatVersion)
+                {
+                    throw new java.io.IOException("Unsupported HyperLogLog format version: " + formatVersion);
+                }
+
+                final int precision = buffer.get();
+                final byte representation = buffer.get();
+                if (precision < HyperLogLog.minimumPrecision || HyperLogLog.maximumPrecision < precision)
+                {
+                    throw new java.io.IOException("The serialized HyperLogLog is corrupt.");
+                }
+
+                final HyperLogLog result = new HyperLogLog(precision);
+                if (representation == 0 && buffer.remaining() >= Integer.BYTES)
+                {
+                    final int sparseListCount = buffer.getInt();
+                    if (sparseListCount < 0 || buffer.remaining() != (long)sparseListCount * Integer.BYTES)
+                    {
+                        throw new java.io.IOException("The serialized HyperLogLog is corrupt.");
+                    }
+                    result.sparseList = new int[sparseListCount];
+                    buffer.asIntBuffer().get(result.sparseList);
+                    result.sparseListCount = sparseListCount;
+
+                    // The sparse list must be strictly sorted by index, since merging and
+                    // estimating both assume that each index appears at most once.
+                    int previousSparseIndex = -1;
+                    for (final int entry : result.sparseList)
+                    {
+                        final int sparseIndex = entry >>> HyperLogLog.rankBits;
+                        final int sparseRank = entry & HyperLogLog.rankMask;
+                        if (sparseIndex >= (1 << HyperLogLog.sparsePrecision) || sparseIndex <= previousSparseIndex || sparseRank < 1 || HyperLogLog.getMaximumRank(HyperLogLog.sparsePrecision) < sparseRank)
+                        {
+                            throw new java.io.IOException("The serialized HyperLogLog is corrupt.");
+                        }
+                        previousSparseIndex = sparseIndex;
+                    }
+                }
+                else if (representation == 1 && buffer.remaining() == (1 << precision))
+                {
+                    result.sparseList = null;
+                    result.sparseBuffer = null;
+                    result.registers = new byte[1 << precision];
+                    buffer.get(result.registers);
+
+                    final int maximumRank = HyperLogLog.getMaximumRank(precision);
+                    for (final byte register : result.registers)
+                    {
+                        if (register < 0 || maximumRank < register)
+                        {
+                            throw new java.io.IOException("The serialized HyperLogLog is corrupt.");
+                        }
+                    }
+                }
+                else
+                {
+                    throw new java.io.IOException("The serialized HyperLogLog is corrupt.");
+                }
+                return result;
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * Get the number of hash bits that pick a register in this {@link HyperLogLog}.
+     */
+    public int getPrecision()
+    {
+        return this.precision;
+    }
+
+    /**
+     * Get whether this {@link HyperLogLog} is still using its sparse representation.
+     */
+    public boolean isSparse()
+    {
+        return this.registers == null;
+    }
+
+    /**
+     * Add the provided key to this {@link HyperLogLog}.
+     * @param key The bytes of the key.
+     */
+    public void addBytes(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        this.addBytes(key, 0, key.length);
+    }
+
+    /**
+     * Add the provided key to this {@link HyperLogLog}.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     */
+    public void addBytes(byte[] key, int startIndex, int length)
+    {
+        this.addHash(XXH3HashFunction.hash(key, startIndex, length, 0));
+    }
+
+    /**
+     * Add a key with the provided 64-bit hash to this {@link HyperLogLog}. The hash must be well
+     * mixed, such as an XXH3 or XXH64 hash. Keys that are added with
+     * {@link #addBytes(byte[], int, int)} are hashed with 64-bit XXH3 and a seed of 0.
+     * @param hash The 64-bit hash of the key.
+     */
+    public void addHash(long hash)
+    {
+        if (this.registers != null)
+        {
+            final int index = (int)(hash >>> (Long.SIZE - this.precision));
+            final byte rank = (byte)HyperLogLog.getRank(hash << this.precision, Long.SIZE - this.precision);
+            if (this.registers[index] < rank)
+            {
+                this.registers[index] = rank;
+            }
+        }
+        else
+        {
+            final int sparseIndex = (int)(hash >>> (Long.SIZE - HyperLogLog.sparsePrecision));
+            final int sparseRank = HyperLogLog.getRank(hash << HyperLogLog.sparsePrecision, Long.SIZE - HyperLogLog.sparsePrecision);
+            this.sparseBuffer[this.sparseBufferCount++] = (sparseIndex << HyperLogLog.rankBits) | sparseRank;
+            if (this.sparseBufferCount == this.sparseBuffer.length)
+            {
+                this.flushSparseBuffer();
+            }
+        }
+    }
+
+    /**
+     * Get the largest rank that a register can hold when the provided number of hash bits picks
+     * the register. The other 64 - indexBitCount hash bits have at most that many leading zeros,
+     * and a rank is one more than the number of leading zeros.
+     */
+    private static int getMaximumRank(int indexBitCount)
+    {
+        return Long.SIZE - indexBitCount + 1;
+    }
+
+    /**
+     * Get the rank (the position of the first set bit, starting at 1) of the provided bits, which
+     * have been shifted so that they start at the top bit. The rank is at most bitCount + 1.
+     */
+    private static int getRank(long shiftedBits, int bitCount)
+    {
+        return Math.minimum(Long.numberOfLeadingZeros(shiftedBits), bitCount) + 1;
+    }
+
+    /**
+     * Merge the unsorted sparse buffer into the sorted sparse list, and switch to the dense
+     * registers if the sparse list has grown too large.
+     */
+    private void flushSparseBuffer()
+    {
+        if (this.sparseBufferCount > 0)
+        {
+            java.util.Arrays.sort(this.sparseBuffer, 0, this.sparseBufferCount);
+            this.sparseList = HyperLogLog.mergeSparseLists(this.sparseList, this.sparseListCount, this.sparseBuffer, this.sparseBufferCount);
+            this.sparseListCount = this.sparseList.length;
+            this.sparseBufferCount = 0;
+
+            // Each sparse entry takes four bytes and each dense register takes one.
+            if (this.sparseListCount > (1 << this.precision) / Integer.BYTES)
+            {
+                this.convertToDense();
+            }
+        }
+    }
+
+    /**
+     * Merge two sorted lists of sparse entries. When both lists have an entry for the same index,
+     * only the entry with the highest rank is kept.
+     */
+    private static int[] mergeSparseLists(int[] left, int leftCount, int[] right, int rightCount)
+    {
+        final int[] result = new int[leftCount + rightCount];
+        int resultCount = 0;
+        int leftIndex = 0;
+        int rightIndex = 0;
+        while (leftIndex < leftCount || rightIndex < rightCount)
+        {
+            final int entry;
+            if (rightIndex == rightCount || (leftIndex < leftCount && left[leftIndex] <= right[rightIndex]))
+            {
+                entry = left[leftIndex++];
+            }
+            else
+            {
+                entry = right[rightIndex++];
+            }
+
+            // The entries are sorted by index and then by rank, so a later entry with the same
+            // index always has a rank that is at least as high.
+            if (resultCount > 0 && (result[resultCount - 1] >>> HyperLogLog.rankBits) == (entry >>> HyperLogLog.rankBits))
+            {
+                result[resultCount - 1] = entry;
+            }
+            else
+            {
+                result[resultCount++] = entry;
+            }
+        }
+        return resultCount == result.length ? result : java.util.Arrays.copyOf(result, resultCount);
+    }
+
+    /**
+     * Switch this {@link HyperLogLog} from the sparse list to the dense registers.
+     */
+    private void convertToDense()
+    {
+        final byte[] registers = new byte[1 << this.precision];
+        for (int i = 0; i < this.sparseListCount; ++i)
+        {
+            HyperLogLog.addSparseEntry(registers, this.precision, this.sparseList[i]);
+        }
+        for (int i = 0; i < this.sparseBufferCount; ++i)
+        {
+            HyperLogLog.addSparseEntry(registers, this.precision, this.sparseBuffer[i]);
+        }
+
+        this.registers = registers;
+        this.sparseList = null;
+        this.sparseListCount = 0;
+        this.sparseBuffer = null;
+        this.sparseBufferCount = 0;
+    }
+
+    /**
+     * Add the provided sparse entry to the provided dense registers.
+     */
+    private static void addSparseEntry(byte[] registers, int precision, int entry)
+    {
+        final int sparseIndex = entry >>> HyperLogLog.rankBits;
+        final int extraBitCount = HyperLogLog.sparsePrecision - precision;
+        final int index = sparseIndex >>> extraBitCount;
+        final int extraBits = sparseIndex & ((1 << extraBitCount) - 1);
+
+        // The index bits below the dense precision are the first bits that the dense rank counts.
+        final int rank;
+        if (extraBits != 0)
+        {
+            rank = Integer.numberOfLeadingZeros(extraBits) - (Integer.SIZE - extraBitCount) + 1;
+        }
+        else
+        {
+            rank = (entry & HyperLogLog.rankMask) + extraBitCount;
+        }
+
+        if (registers[index] < rank)
+        {
+            registers[index] = (byte)rank;
+        }
+    }
+
+    /**
+     * Add all of the keys that were added to the provided {@link HyperLogLog} to this
+     * {@link HyperLogLog}. The provided {@link HyperLogLog} must have the same precision as this
+     * one, and it isn't changed.
+     * @param other The {@link HyperLogLog} to merge into this one.
+     */
+    public void merge(HyperLogLog other)
+    {
+        PreCondition.assertNotNull(other, "other");
+        PreCondition.assertEqual(this.precision, other.precision, "other.getPrecision()");
+
+        if (other.registers == null)
+        {
+            other.flushSparseBuffer();
+        }
+
+        if (other.registers != null)
+        {
+            if (this.registers == null)
+            {
+                this.convertToDense();
+            }
+
+            final byte[] registers = this.registers;
+            final byte[] otherRegisters = other.registers;
+            for (int i = 0; i < registers.length; ++i)
+            {
+                registers[i] = (byte)Math.maximum(registers[i], otherRegisters[i]);
+            }
+        }
+        else if (this.registers != null)
+        {
+            for (int i = 0; i < other.sparseListCount; ++i)
+            {
+                HyperLogLog.addSparseEntry(this.registers, this.precision, other.sparseList[i]);
+            }
+        }
+        else
+        {
+            this.flushSparseBuffer();
+            if (this.registers == null)
+            {
+                this.sparseList = HyperLogLog.mergeSparseLists(this.sparseList, this.sparseListCount, other.sparseList, other.sparseListCount);
+                this.sparseListCount = this.sparseList.length;
+                if (this.sparseListCount > (1 << this.precision) / Integer.BYTES)
+                {
+                    this.convertToDense();
+                }
+            }
+            else
+            {
+                for (int i = 0; i < other.sparseListCount; ++i)
+                {
+                    HyperLogLog.addSparseEntry(this.registers, this.precision, other.sparseList[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the estimated number of distinct keys that have been added to this
+     * {@link HyperLogLog}.
+     */
+    public long getEstimate()
+    {
+        final double result;
+        if (this.registers == null)
+        {
+            this.flushSparseBuffer();
+        }
+
+        if (this.registers == null)
+        {
+            // Linear counting over the 2^25 sparse registers.
+            final double sparseRegisterCount = 1 << HyperLogLog.sparsePrecision;
+            result = sparseRegisterCount * java.lang.Math.log(sparseRegisterCount / (sparseRegisterCount - this.sparseListCount));
+        }
+        else
+        {
+            result = HyperLogLog.getErtlEstimate(this.registers, Long.SIZE - this.precision);
+        }
+        return java.lang.Math.round(result);
+    }
+
+    /**
+     * Get Ertl's improved raw estimate ("New cardinality estimation algorithms for HyperLogLog
+     * sketches", 2017) for the provided registers.
+     * @param registers The registers.
+     * @param q The number of hash bits that contribute to each register's rank.
+     */
+    private static double getErtlEstimate(byte[] registers, int q)
+    {
+        final int[] rankCounts = new int[q + 2];
+        for (final byte rank : registers)
+        {
+            ++rankCounts[rank];
+        }
+
+        final double m = registers.length;
+        double z = m * HyperLogLog.tau(1 - rankCounts[q + 1] / m);
+        for (int k = q; k >= 1; --k)
+        {
+            z = 0.5 * (z + rankCounts[k]);
+        }
+        z += m * HyperLogLog.sigma(rankCounts[0] / m);
+        return m * m / (2 * java.lang.Math.log(2) * z);
+    }
+
+    private static double sigma(double x)
+    {
+        double result;
+        if (x == 1)
+        {
+            result = Double.POSITIVE_INFINITY;
+        }
+        else
+        {
+            double y = 1;
+            result = x;
+            double previousResult;
+            do
+            {
+                x *= x;
+                previousResult = result;
+                result += x * y;
+                y += y;
+            }
+            while (previousResult != result);
+        }
+        return result;
+    }
+
+    private static double tau(double x)
+    {
+        double result = 0;
+        if (x != 0 && x != 1)
+        {
+            double y = 1;
+            result = 1 - x;
+            double previousResult;
+            do
+            {
+                x = java.lang.Math.sqrt(x);
+                previousResult = result;
+                y *= 0.5;
+                result -= (1 - x) * (1 - x) * y;
+            }
+            while (previousResult != result);
+            result /= 3;
+        }
+        return result;
+    }
+
+    /**
+     * Remove all of the keys from this {@link HyperLogLog} and switch it back to its sparse
+     * representation.
+     */
+    public void clear()
+    {
+        this.registers = null;
+        this.sparseList = new int[0];
+        this.sparseListCount = 0;
+        this.sparseBuffer = new int[HyperLogLog.sparseBufferLength];
+        this.sparseBufferCount = 0;
+    }
+
+    /**
+     * Serialize this {@link HyperLogLog} so that it can be read back with
+     * {@link #parse(byte[])}.
+     */
+    public byte[] toBytes()
+    {
+        if (this.registers == null)
+        {
+            this.flushSparseBuffer();
+        }
+
+        final java.nio.ByteBuffer result;
+        if (this.registers == null)
+        {
+            result = java.nio.ByteBuffer.allocate(Integer.BYTES + 3 + Integer.BYTES + this.sparseListCount * Integer.BYTES);
+            HyperLogLog.writeHeader(result, this.precision, (byte)0);
+            result.putInt(this.sparseListCount);
+            result.asIntBuffer().put(this.sparseList, 0, this.sparseListCount);
+        }
+        else
+        {
+            result = java.nio.ByteBuffer.allocate(Integer.BYTES + 3 + this.registers.length);
+            HyperLogLog.writeHeader(result, this.precision, (byte)1);
+            result.put(this.registers);
+        }
+        return result.array();
+    }
+
+    private static void writeHeader(java.nio.ByteBuffer buffer, int precision, byte representation)
+    {
+        buffer.putInt(HyperLogLog.magicNumber);
+        buffer.put(HyperLogLog.formatVersion);
+        buffer.put((byte)precision);
+        buffer.put(representation);
+    }
+}
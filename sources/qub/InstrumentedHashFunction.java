@@ -0,0 +1,159 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that passes everything through to an inner {@link HashFunction} and
+ * records what it did in a {@link HashFunctionMetrics}. The bytes that are added, the number and
+ * sizes of the addBytes() calls, the time spent in addBytes() calls, and the number of digests and
+ * the time spent producing them are all recorded.
+ * <p>
+ * Recording is a handful of uncontended {@link java.util.concurrent.atomic.LongAdder} updates
+ * (plus two {@link System#nanoTime()} calls for the timed methods), so it is cheap enough to leave
+ * on in production. Single-byte additions are counted but not timed.
+ */
+public class InstrumentedHashFunction implements HashFunction
+{
+    private final HashFunction innerHashFunction;
+    private final String algorithm;
+    private final HashFunctionMetrics metrics;
+    private final java.util.concurrent.atomic.LongAdder digestCounter;
+
+    private InstrumentedHashFunction(HashFunction innerHashFunction, String algorithm, HashFunctionMetrics metrics)
+    {
+        PreCondition.assertNotNull(innerHashFunction, "innerHashFunction");
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        this.innerHashFunction = innerHashFunction;
+        this.algorithm = algorithm;
+        this.metrics = metrics;
+        this.digestCounter = metrics.getDigestCounter(algorithm);
+    }
+
+    /**
+     * Create a new {@link InstrumentedHashFunction}.
+     * @param innerHashFunction The {@link HashFunction} that will do the hashing.
+     * @param algorithm The name of the algorithm that the inner {@link HashFunction} implements.
+     * The digests that are produced are counted under this name.
+     * @param metrics The {@link HashFunctionMetrics} to record activity in.
+     */
+    public static InstrumentedHashFunction create(HashFunction innerHashFunction, String algorithm, HashFunctionMetrics metrics)
+    {
+        return new InstrumentedHashFunction(innerHashFunction, algorithm, metrics);
+    }
+
+    /**
+     * Create a new {@link InstrumentedHashFunction} around a {@link HashFunction} that is created
+     * by the provided function.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction} that will do
+     * the hashing.
+     * @param algorithm The name of the algorithm that the created {@link HashFunction} implements.
+     * The digests that are produced are counted under this name.
+     * @param metrics The {@link HashFunctionMetrics} to record activity in.
+     */
+    public static Result<InstrumentedHashFunction> create(Function0<Result<? extends HashFunction>> hashFunctionCreator, String algorithm, HashFunctionMetrics metrics)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+        PreCondition.assertNotNull(metrics, "metrics");
+
+        return Result.create(() ->
+        {
+            return InstrumentedHashFunction.create(hashFunctionCreator.run().await(), algorithm, metrics);
+        });
+    }
+
+    /**
+     * Get the name of the algorithm that the digests of this {@link InstrumentedHashFunction} are
+     * counted under.
+     */
+    public String getAlgorithm()
+    {
+        return this.algorithm;
+    }
+
+    /**
+     * Get the {@link HashFunctionMetrics} that this {@link InstrumentedHashFunction} records its
+     * activity in.
+     */
+    public HashFunctionMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        this.innerHashFunction.addByte(value);
+        this.metrics.recordAddByte();
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        final long startNanoseconds = System.nanoTime();
+        this.innerHashFunction.addBytes(values, startIndex, length);
+        this.metrics.recordAddBytes(length, System.nanoTime() - startNanoseconds);
+    }
+
+    @Override
+    public void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        final int length = values.remaining();
+        final long startNanoseconds = System.nanoTime();
+        this.innerHashFunction.addBytes(values);
+        this.metrics.recordAddBytes(length, System.nanoTime() - startNanoseconds);
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return this.innerHashFunction.getDigestLength();
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        final long startNanoseconds = System.nanoTime();
+        final BitArray result = this.innerHashFunction.takeDigest();
+        this.metrics.recordDigest(this.digestCounter, System.nanoTime() - startNanoseconds);
+        return result;
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        final long startNanoseconds = System.nanoTime();
+        final BitArray result = this.innerHashFunction.peekDigest();
+        this.metrics.recordDigest(this.digestCounter, System.nanoTime() - startNanoseconds);
+        return result;
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        final long startNanoseconds = System.nanoTime();
+        final int result = this.innerHashFunction.takeDigest(output, outputStartIndex);
+        this.metrics.recordDigest(this.digestCounter, System.nanoTime() - startNanoseconds);
+        return result;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.innerHashFunction.reset();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.innerHashFunction.isDisposed();
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return this.innerHashFunction.dispose();
+    }
+}
@@ -2,21 +2,29 @@ package qub;
 
 public class JavaMessageDigestHashFunction implements HashFunction
 {
-    private final java.security.MessageDigest messageDigest;
+    /**
+     * Looking up a {@link java.security.MessageDigest} through its provider is much more expensive
+     * than cloning an existing one, so the first {@link java.security.MessageDigest} that is
+     * created for each algorithm name is kept as a prototype that later instances are cloned
+     * from. Prototypes are never updated, so they can be cloned from any thread.
+     */
+    private static final java.util.concurrent.ConcurrentHashMap<String,java.security.MessageDigest> prototypes = new java.util.concurrent.ConcurrentHashMap<>();
+
+    /**
+     * The algorithm names whose {@link java.security.MessageDigest}s turned out not to support
+     * cloning. These are always looked up through their provider, without trying (and failing) to
+     * clone a prototype first.
+     */
+    private static final java.util.Set<String> uncloneableAlgorithms = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+    private java.security.MessageDigest messageDigest;
     private boolean disposed;
 
     private JavaMessageDigestHashFunction(String algorithm)
     {
         PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
 
-        try
-        {
-            this.messageDigest = java.security.MessageDigest.getInstance(algorithm);
-        }
-        catch (java.security.NoSuchAlgorithmException e)
-        {
-            throw Exceptions.asRuntime(e);
-        }
+        this.messageDigest = JavaMessageDigestHashFunction.createMessageDigest(algorithm);
     }
 
     public static Result<JavaMessageDigestHashFunction> create(String algorithm)
@@ -29,6 +37,41 @@ public class JavaMessageDigestHashFunction implements HashFunction
         });
     }
 
+    static java.security.MessageDigest createMessageDigest(String algorithm)
+    {
+        java.security.MessageDigest result;
+        try
+        {
+            final java.security.MessageDigest prototype = JavaMessageDigestHashFunction.prototypes.get(algorithm);
+            if (prototype != null)
+            {
+                result = (java.security.MessageDigest)prototype.clone();
+            }
+            else
+            {
+                result = java.security.MessageDigest.getInstance(algorithm);
+                if (!JavaMessageDigestHashFunction.uncloneableAlgorithms.contains(algorithm))
+                {
+                    try
+                    {
+                        JavaMessageDigestHashFunction.prototypes.putIfAbsent(algorithm, (java.security.MessageDigest)result.clone());
+                    }
+                    catch (CloneNotSupportedException e)
+                    {
+                        // This provider's MessageDigests can't be cloned, so every instance for
+                        // this algorithm will have to be looked up through the provider.
+                        JavaMessageDigestHashFunction.uncloneableAlgorithms.add(algorithm);
+                    }
+                }
+            }
+        }
+        catch (java.security.NoSuchAlgorithmException | CloneNotSupportedException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+        return result;
+    }
+
     /**
      * Get the name of the algorithm that this {@link JavaMessageDigestHashFunction} is using.
      */
@@ -37,6 +80,79 @@ public class JavaMessageDigestHashFunction implements HashFunction
         return this.messageDigest.getAlgorithm();
     }
 
+    /**
+     * Get the number of bytes that this {@link JavaMessageDigestHashFunction}'s algorithm
+     * compresses at a time, or 0 if the algorithm isn't a known MD5, SHA-1, SHA-2, or SHA-3
+     * algorithm. {@link java.security.MessageDigest} doesn't expose its block length.
+     */
+    int getBlockLength()
+    {
+        switch (this.getAlgorithm().toUpperCase().replace("-", ""))
+        {
+            case "MD5":
+            case "SHA1":
+            case "SHA224":
+            case "SHA256":
+                return 64;
+
+            case "SHA384":
+            case "SHA512":
+            case "SHA512/224":
+            case "SHA512/256":
+                return 128;
+
+            case "SHA3224":
+                return 144;
+
+            case "SHA3256":
+                return 136;
+
+            case "SHA3384":
+                return 104;
+
+            case "SHA3512":
+                return 72;
+
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get a copy of this {@link JavaMessageDigestHashFunction}'s current
+     * {@link java.security.MessageDigest} that can later be passed to
+     * {@link #restoreMessageDigest(java.security.MessageDigest)}.
+     */
+    java.security.MessageDigest exportMessageDigest()
+    {
+        return JavaMessageDigestHashFunction.cloneMessageDigest(this.messageDigest);
+    }
+
+    /**
+     * Continue hashing from a copy of the provided {@link java.security.MessageDigest} that was
+     * returned from {@link #exportMessageDigest()}. The provided
+     * {@link java.security.MessageDigest} isn't modified, so it can be restored again.
+     */
+    void restoreMessageDigest(java.security.MessageDigest messageDigest)
+    {
+        PreCondition.assertNotNull(messageDigest, "messageDigest");
+        PreCondition.assertEqual(this.getAlgorithm(), messageDigest.getAlgorithm(), "messageDigest.getAlgorithm()");
+
+        this.messageDigest = JavaMessageDigestHashFunction.cloneMessageDigest(messageDigest);
+    }
+
+    private static java.security.MessageDigest cloneMessageDigest(java.security.MessageDigest messageDigest)
+    {
+        try
+        {
+            return (java.security.MessageDigest)messageDigest.clone();
+        }
+        catch (CloneNotSupportedException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+
     @Override
     public void addByte(byte value)
     {
@@ -56,6 +172,21 @@ public class JavaMessageDigestHashFunction implements HashFunction
         this.messageDigest.update(values, startIndex, length);
     }
 
+    @Override
+    public void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.messageDigest.update(values);
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return this.messageDigest.getDigestLength();
+    }
+
     @Override
     public BitArray takeDigest()
     {
@@ -69,6 +200,36 @@ public class JavaMessageDigestHashFunction implements HashFunction
         return result;
     }
 
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final java.security.MessageDigest messageDigestCopy = JavaMessageDigestHashFunction.cloneMessageDigest(this.messageDigest);
+        final BitArray result = BitArray.createFromBytes(messageDigestCopy.digest());
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        try
+        {
+            return this.messageDigest.digest(output, outputStartIndex, this.getDigestLength());
+        }
+        catch (java.security.DigestException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+
     @Override
     public void reset()
     {
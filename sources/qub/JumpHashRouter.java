@@ -0,0 +1,121 @@
+package qub;
+
+/**
+ * A {@link ShardRouter} that uses jump consistent hashing (Lamping and Veach, 2014) to pick one of
+ * its nodes for each key. Jump hashing needs no memory beyond the list of nodes, spreads the keys
+ * almost perfectly evenly, and only moves 1/n of the keys when an nth node is added.
+ * <p>
+ * Jump hashing maps keys to bucket numbers rather than to named nodes, so it fits best when nodes
+ * are only ever added to and removed from the end of the list, such as numbered shards. Removing
+ * a node from the middle of the list renumbers every node after it, which moves many more keys
+ * than removing the last node does. Use a {@link ConsistentHashRing} or a
+ * {@link RendezvousHashRouter} when arbitrary nodes can leave.
+ * @param <T> The type of the nodes.
+ */
+public class JumpHashRouter<T> implements ShardRouter<T>
+{
+    private volatile Object[] nodes;
+
+    private JumpHashRouter()
+    {
+        this.nodes = new Object[0];
+    }
+
+    /**
+     * Create a new empty {@link JumpHashRouter}.
+     */
+    public static <T> JumpHashRouter<T> create()
+    {
+        return new JumpHashRouter<>();
+    }
+
+    /**
+     * Get the bucket that the key with the provided hash belongs to.
+     * @param keyHash The hash of the key.
+     * @param bucketCount The number of buckets.
+     * @return The bucket number, from 0 to bucketCount - 1.
+     */
+    public static int getBucket(long keyHash, int bucketCount)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(bucketCount, 1, "bucketCount");
+
+        long bucket = -1;
+        long nextBucket = 0;
+        while (nextBucket < bucketCount)
+        {
+            bucket = nextBucket;
+            keyHash = keyHash * 2862933555777941757L + 1;
+            nextBucket = (long)((bucket + 1) * ((double)(1L << 31) / (double)((keyHash >>> 33) + 1)));
+        }
+        return (int)bucket;
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return this.nodes.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public java.util.List<T> getNodes()
+    {
+        return (java.util.List<T>)java.util.List.of(this.nodes);
+    }
+
+    @Override
+    public synchronized boolean addNode(T node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        final Object[] nodes = this.nodes;
+        final boolean result = JumpHashRouter.indexOf(nodes, node) == -1;
+        if (result)
+        {
+            final Object[] newNodes = java.util.Arrays.copyOf(nodes, nodes.length + 1);
+            newNodes[nodes.length] = node;
+            this.nodes = newNodes;
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean removeNode(T node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        final Object[] nodes = this.nodes;
+        final int nodeIndex = JumpHashRouter.indexOf(nodes, node);
+        final boolean result = nodeIndex != -1;
+        if (result)
+        {
+            final Object[] newNodes = new Object[nodes.length - 1];
+            System.arraycopy(nodes, 0, newNodes, 0, nodeIndex);
+            System.arraycopy(nodes, nodeIndex + 1, newNodes, nodeIndex, newNodes.length - nodeIndex);
+            this.nodes = newNodes;
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getNode(long keyHash)
+    {
+        final Object[] nodes = this.nodes;
+        return nodes.length == 0 ? null : (T)nodes[JumpHashRouter.getBucket(keyHash, nodes.length)];
+    }
+
+    private static int indexOf(Object[] nodes, Object node)
+    {
+        int result = -1;
+        for (int i = 0; i < nodes.length; ++i)
+        {
+            if (nodes[i].equals(node))
+            {
+                result = i;
+                break;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package qub;
+
+/**
+ * Functions that read and write little-endian values in byte arrays.
+ */
+interface LittleEndian
+{
+    java.lang.invoke.VarHandle longView = java.lang.invoke.MethodHandles.byteArrayViewVarHandle(long[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+    java.lang.invoke.VarHandle intView = java.lang.invoke.MethodHandles.byteArrayViewVarHandle(int[].class, java.nio.ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Read the little-endian {@link long} that starts at the provided index.
+     */
+    static long readLong(byte[] bytes, int index)
+    {
+        return (long)LittleEndian.longView.get(bytes, index);
+    }
+
+    /**
+     * Read the little-endian {@link int} that starts at the provided index.
+     */
+    static int readInt(byte[] bytes, int index)
+    {
+        return (int)LittleEndian.intView.get(bytes, index);
+    }
+
+    /**
+     * Read the little-endian unsigned {@link int} that starts at the provided index.
+     */
+    static long readUnsignedInt(byte[] bytes, int index)
+    {
+        return ((int)LittleEndian.intView.get(bytes, index)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Write the provided {@link long} in little-endian order starting at the provided index.
+     */
+    static void writeLong(byte[] bytes, int index, long value)
+    {
+        LittleEndian.longView.set(bytes, index, value);
+    }
+}
@@ -0,0 +1,89 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that produces digests/hashes of up to 64 bits. The digest can be taken as
+ * a {@link long} so that it never has to be converted to a {@link BitArray}. The {@link BitArray}
+ * and byte[] forms of the digest are the big-endian bytes of the {@link long}.
+ */
+public interface LongHashFunction extends HashFunction
+{
+    /**
+     * Complete the {@link LongHashFunction} and return the resulting digest/hash. This will reset
+     * the {@link LongHashFunction} so that no trace of the operation remains.
+     * @return The resulting digest/hash.
+     */
+    public long takeLongDigest();
+
+    /**
+     * Get the digest/hash of the bytes that have been added to this {@link LongHashFunction} so
+     * far without completing or resetting it.
+     * @return The digest/hash of the bytes that have been added so far.
+     */
+    public long peekLongDigest();
+
+    /**
+     * Add the provided bytes to this {@link LongHashFunction}, complete this
+     * {@link LongHashFunction}, and then return the resulting digest/hash. This will reset the
+     * {@link LongHashFunction} so that no trace of the operation remains.
+     * @param values The {@link byte}s to add.
+     * @param startIndex The index into the values that the bytes should be added from.
+     * @param length The number of byte values that should be added.
+     * @return The resulting digest/hash.
+     */
+    public default long takeLongDigest(byte[] values, int startIndex, int length)
+    {
+        this.addBytes(values, startIndex, length);
+        return this.takeLongDigest();
+    }
+
+    @Override
+    public default int getDigestLength()
+    {
+        return Long.BYTES;
+    }
+
+    @Override
+    public default BitArray takeDigest()
+    {
+        final byte[] digest = new byte[this.getDigestLength()];
+        this.takeDigest(digest, 0);
+        return BitArray.createFromBytes(digest);
+    }
+
+    @Override
+    public default BitArray peekDigest()
+    {
+        final long digest = this.peekLongDigest();
+        final byte[] result = new byte[this.getDigestLength()];
+        for (int i = result.length - 1; i >= 0; --i)
+        {
+            result[i] = (byte)(digest >>> (8 * (result.length - 1 - i)));
+        }
+        return BitArray.createFromBytes(result);
+    }
+
+    @Override
+    public default int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - Long.BYTES, "outputStartIndex");
+
+        LongHashFunction.writeBigEndian(this.takeLongDigest(), output, outputStartIndex);
+        return Long.BYTES;
+    }
+
+    /**
+     * Write the big-endian bytes of the provided {@link long} into the provided output array.
+     * @param value The value to write.
+     * @param output The array to write to.
+     * @param outputStartIndex The index to start writing at.
+     */
+    static void writeBigEndian(long value, byte[] output, int outputStartIndex)
+    {
+        for (int i = Long.BYTES - 1; i >= 0; --i)
+        {
+            output[outputStartIndex + i] = (byte)value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package qub;
+
+/**
+ * A pure-Java {@link ResumableHashFunction} that implements the MD5 algorithm.
+ */
+public class MD5HashFunction extends BlockHashFunctionBase
+{
+    private static final byte stateId = 1;
+
+    private static final int[] initialState = new int[]
+    {
+        0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476,
+    };
+
+    private static final int[] shifts = new int[]
+    {
+        7, 12, 17, 22,
+        5, 9, 14, 20,
+        4, 11, 16, 23,
+        6, 10, 15, 21,
+    };
+
+    /**
+     * floor(abs(sin(i + 1)) * 2^32).
+     */
+    private static final int[] roundConstants = new int[]
+    {
+        0xD76AA478, 0xE8C7B756, 0x242070DB, 0xC1BDCEEE, 0xF57C0FAF, 0x4787C62A, 0xA8304613, 0xFD469501,
+        0x698098D8, 0x8B44F7AF, 0xFFFF5BB1, 0x895CD7BE, 0x6B901122, 0xFD987193, 0xA679438E, 0x49B40821,
+        0xF61E2562, 0xC040B340, 0x265E5A51, 0xE9B6C7AA, 0xD62F105D, 0x02441453, 0xD8A1E681, 0xE7D3FBC8,
+        0x21E1CDE6, 0xC33707D6, 0xF4D50D87, 0x455A14ED, 0xA9E3E905, 0xFCEFA3F8, 0x676F02D9, 0x8D2A4C8A,
+        0xFFFA3942, 0x8771F681, 0x6D9D6122, 0xFDE5380C, 0xA4BEEA44, 0x4BDECFA9, 0xF6BB4B60, 0xBEBFBC70,
+        0x289B7EC6, 0xEAA127FA, 0xD4EF3085, 0x04881D05, 0xD9D4D039, 0xE6DB99E5, 0x1FA27CF8, 0xC4AC5665,
+        0xF4292244, 0x432AFF97, 0xAB9423A7, 0xFC93A039, 0x655B59C3, 0x8F0CCC92, 0xFFEFF47D, 0x85845DD1,
+        0x6FA87E4F, 0xFE2CE6E0, 0xA3014314, 0x4E0811A1, 0xF7537E82, 0xBD3AF235, 0x2AD7D2BB, 0xEB86D391,
+    };
+
+    private final int[] words;
+
+    private MD5HashFunction()
+    {
+        super(MD5HashFunction.stateId, MD5HashFunction.initialState, true);
+
+        this.words = new int[16];
+    }
+
+    /**
+     * Create a new {@link MD5HashFunction}.
+     */
+    public static MD5HashFunction create()
+    {
+        return new MD5HashFunction();
+    }
+
+    @Override
+    public String getAlgorithm()
+    {
+        return "MD5";
+    }
+
+    @Override
+    void consumeBlock(byte[] values, int startIndex)
+    {
+        final int[] m = this.words;
+        for (int i = 0; i < 16; ++i)
+        {
+            m[i] = LittleEndian.readInt(values, startIndex + (i * 4));
+        }
+
+        final int[] state = this.state;
+        int a = state[0];
+        int b = state[1];
+        int c = state[2];
+        int d = state[3];
+        for (int i = 0; i < 64; ++i)
+        {
+            final int f;
+            final int g;
+            if (i < 16)
+            {
+                f = (b & c) | (~b & d);
+                g = i;
+            }
+            else if (i < 32)
+            {
+                f = (d & b) | (~d & c);
+                g = (5 * i + 1) & 15;
+            }
+            else if (i < 48)
+            {
+                f = b ^ c ^ d;
+                g = (3 * i + 5) & 15;
+            }
+            else
+            {
+                f = c ^ (b | ~d);
+                g = (7 * i) & 15;
+            }
+
+            final int temp = d;
+            d = c;
+            c = b;
+            b = b + Integer.rotateLeft(a + f + MD5HashFunction.roundConstants[i] + m[g], MD5HashFunction.shifts[((i >>> 4) << 2) | (i & 3)]);
+            a = temp;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+    }
+}
@@ -0,0 +1,243 @@
+package qub;
+
+/**
+ * A proof that a leaf is included in a {@link MerkleTree} with a known root digest. The proof is
+ * the digest of the sibling of each node on the path from the leaf to the root, skipping the
+ * levels where the node on the path has no sibling and is promoted unchanged. Whether each sibling
+ * is on the left or the right follows from the leaf index and the number of leaves, so they don't
+ * need to be stored.
+ * <p>
+ * The serialized form of a {@link MerkleProof} is the magic number "QMKP" and the big-endian leaf
+ * index, leaf count, sibling count and digest length, followed by the sibling digests.
+ */
+public class MerkleProof
+{
+    private static final int magicNumber = 0x514D4B50;
+    private static final int headerLength = 5 * Integer.BYTES;
+
+    private final int leafIndex;
+    private final int leafCount;
+    private final byte[][] siblingDigests;
+
+    private MerkleProof(int leafIndex, int leafCount, byte[][] siblingDigests)
+    {
+        PreCondition.assertGreaterThanOrEqualTo(leafCount, 1, "leafCount");
+        PreCondition.assertIndexAccess(leafIndex, leafCount, "leafIndex");
+        PreCondition.assertNotNull(siblingDigests, "siblingDigests");
+        PreCondition.assertEqual(MerkleProof.getSiblingCount(leafIndex, leafCount), siblingDigests.length, "siblingDigests.length");
+
+        this.leafIndex = leafIndex;
+        this.leafCount = leafCount;
+        this.siblingDigests = siblingDigests;
+    }
+
+    /**
+     * Create a new {@link MerkleProof}.
+     * @param leafIndex The index of the leaf that this proof is for.
+     * @param leafCount The number of leaves in the tree.
+     * @param siblingDigests The digests of the siblings on the path from the leaf to the root,
+     * starting with the leaf's sibling.
+     */
+    public static MerkleProof create(int leafIndex, int leafCount, byte[][] siblingDigests)
+    {
+        return new MerkleProof(leafIndex, leafCount, siblingDigests);
+    }
+
+    /**
+     * Read a {@link MerkleProof} from the bytes that were returned by {@link #toBytes()}.
+     * @param bytes The serialized {@link MerkleProof}.
+     */
+    public static Result<MerkleProof> parse(byte[] bytes)
+    {
+        PreCondition.assertNotNull(bytes, "bytes");
+
+        return Result.create(() ->
+        {
+            try
+            {
+                final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(bytes);
+                if (buffer.remaining() < MerkleProof.headerLength)
+                {
+                    throw new java.io.IOException("The serialized Merkle proof is too short.");
+                }
+                if (buffer.getInt() != MerkleProof.magicNumber)
+                {
+                    throw new java.io.IOException("The bytes are not a serialized Merkle proof.");
+                }
+
+                final int leafIndex = buffer.getInt();
+                final int leafCount = buffer.getInt();
+                final int siblingCount = buffer.getInt();
+                final int digestLength = buffer.getInt();
+                if (leafCount < 1 || leafIndex < 0 || leafCount <= leafIndex || siblingCount != MerkleProof.getSiblingCount(leafIndex, leafCount) || digestLength < 1 || buffer.remaining() != (long)siblingCount * digestLength)
+                {
+                    throw new java.io.IOException("The serialized Merkle proof is corrupt.");
+                }
+
+                final byte[][] siblingDigests = new byte[siblingCount][digestLength];
+                for (final byte[] siblingDigest : siblingDigests)
+                {
+                    buffer.get(siblingDigest);
+                }
+                return new MerkleProof(leafIndex, leafCount, siblingDigests);
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * Get the number of sibling digests in a proof for the provided leaf.
+     */
+    static int getSiblingCount(int leafIndex, int leafCount)
+    {
+        int result = 0;
+        int nodeIndex = leafIndex;
+        for (long nodeCount = leafCount; nodeCount > 1; nodeCount = (nodeCount + 1) / 2)
+        {
+            if ((nodeIndex ^ 1) < nodeCount)
+            {
+                ++result;
+            }
+            nodeIndex /= 2;
+        }
+        return result;
+    }
+
+    /**
+     * Get the index of the leaf that this {@link MerkleProof} is for.
+     */
+    public int getLeafIndex()
+    {
+        return this.leafIndex;
+    }
+
+    /**
+     * Get the number of leaves in the tree that this {@link MerkleProof} is for.
+     */
+    public int getLeafCount()
+    {
+        return this.leafCount;
+    }
+
+    /**
+     * Get the number of sibling digests in this {@link MerkleProof}.
+     */
+    public int getSiblingCount()
+    {
+        return this.siblingDigests.length;
+    }
+
+    /**
+     * Get the sibling digest at the provided index. The sibling at index 0 is the leaf's sibling.
+     * @param index The index of the sibling digest.
+     */
+    public BitArray getSiblingDigest(int index)
+    {
+        PreCondition.assertIndexAccess(index, this.siblingDigests.length, "index");
+
+        return BitArray.createFromBytes(this.siblingDigests[index].clone());
+    }
+
+    /**
+     * Get whether this {@link MerkleProof} proves that the provided leaf is the leaf at the
+     * provided index of the tree with the provided number of leaves and root digest.
+     * @param hashFunction The {@link HashFunction} that the tree was built with.
+     * @param leafIndex The index that the leaf is expected to have in the tree.
+     * @param leafCount The number of leaves that the tree is expected to have.
+     * @param leaf The contents of the leaf.
+     * @param rootDigest The trusted root digest of the tree.
+     */
+    public boolean verify(HashFunction hashFunction, int leafIndex, int leafCount, byte[] leaf, BitArray rootDigest)
+    {
+        PreCondition.assertNotNull(leaf, "leaf");
+
+        return this.verify(hashFunction, leafIndex, leafCount, leaf, 0, leaf.length, rootDigest);
+    }
+
+    /**
+     * Get whether this {@link MerkleProof} proves that the provided leaf is the leaf at the
+     * provided index of the tree with the provided number of leaves and root digest. The leaf
+     * index and leaf count come from the caller rather than from the proof, since the sibling
+     * digests of a proof for one position can also hash up to the root from a different position
+     * in a tree of a different size.
+     * @param hashFunction The {@link HashFunction} that the tree was built with.
+     * @param leafIndex The index that the leaf is expected to have in the tree.
+     * @param leafCount The number of leaves that the tree is expected to have.
+     * @param leaf The contents of the leaf.
+     * @param startIndex The index of the first byte of the leaf.
+     * @param length The number of bytes in the leaf.
+     * @param rootDigest The trusted root digest of the tree.
+     */
+    public boolean verify(HashFunction hashFunction, int leafIndex, int leafCount, byte[] leaf, int startIndex, int length, BitArray rootDigest)
+    {
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertGreaterThanOrEqualTo(leafCount, 1, "leafCount");
+        PreCondition.assertIndexAccess(leafIndex, leafCount, "leafIndex");
+        PreCondition.assertNotNull(leaf, "leaf");
+        PreCondition.assertStartIndex(startIndex, leaf.length);
+        PreCondition.assertLength(length, startIndex, leaf.length);
+        PreCondition.assertNotNull(rootDigest, "rootDigest");
+
+        final int digestLength = hashFunction.getDigestLength();
+        boolean result = (leafIndex == this.leafIndex && leafCount == this.leafCount);
+        for (int i = 0; result && i < this.siblingDigests.length; ++i)
+        {
+            result = (this.siblingDigests[i].length == digestLength);
+        }
+
+        if (result)
+        {
+            byte[] digest = new byte[digestLength];
+            byte[] nextDigest = new byte[digestLength];
+            MerkleTree.hashLeaf(hashFunction, leaf, startIndex, length, digest, 0);
+
+            int siblingIndex = 0;
+            int nodeIndex = this.leafIndex;
+            for (long nodeCount = this.leafCount; nodeCount > 1; nodeCount = (nodeCount + 1) / 2)
+            {
+                if ((nodeIndex ^ 1) < nodeCount)
+                {
+                    final byte[] siblingDigest = this.siblingDigests[siblingIndex++];
+                    if (nodeIndex % 2 == 0)
+                    {
+                        MerkleTree.hashNode(hashFunction, digest, 0, siblingDigest, 0, digestLength, nextDigest, 0);
+                    }
+                    else
+                    {
+                        MerkleTree.hashNode(hashFunction, siblingDigest, 0, digest, 0, digestLength, nextDigest, 0);
+                    }
+
+                    final byte[] previousDigest = digest;
+                    digest = nextDigest;
+                    nextDigest = previousDigest;
+                }
+                nodeIndex /= 2;
+            }
+
+            result = BitArray.createFromBytes(digest).equals(rootDigest);
+        }
+        return result;
+    }
+
+    /**
+     * Serialize this {@link MerkleProof} so that it can be read back with {@link #parse(byte[])}.
+     */
+    public byte[] toBytes()
+    {
+        final int digestLength = this.siblingDigests.length == 0 ? 1 : this.siblingDigests[0].length;
+        final java.nio.ByteBuffer result = java.nio.ByteBuffer.allocate(MerkleProof.headerLength + this.siblingDigests.length * digestLength);
+        result.putInt(MerkleProof.magicNumber);
+        result.putInt(this.leafIndex);
+        result.putInt(this.leafCount);
+        result.putInt(this.siblingDigests.length);
+        result.putInt(digestLength);
+        for (final byte[] siblingDigest : this.siblingDigests)
+        {
+            result.put(siblingDigest);
+        }
+        return result.array();
+    }
+}
@@ -0,0 +1,481 @@
+package qub;
+
+/**
+ * A Merkle tree over a fixed number of leaves that keeps the digest of every node, so that a
+ * single leaf can be changed and the root digest recomputed with only O(log n) hashes, and so
+ * that inclusion proofs for individual leaves can be produced without rehashing anything.
+ * <p>
+ * Leaves and nodes are hashed the same way that {@link TreeHashFunction} hashes them: a leaf's
+ * digest is H(0x00 || leaf), an interior node's digest is H(0x01 || left || right), and the last
+ * node of a level with an odd number of nodes is promoted to the next level unchanged. The root
+ * digest of a {@link MerkleTree} that is built from some data is the same as the
+ * {@link TreeHashFunction} digest of that data with the same leaf size.
+ * <p>
+ * The node digests are stored level by level in a single flat byte[], starting with the leaves,
+ * so the tree costs one array no matter how many leaves it has. The initial build hashes leaves
+ * (and then each level of nodes) in parallel on a {@link java.util.concurrent.ForkJoinPool}. A
+ * {@link MerkleTree} isn't thread-safe once it has been built.
+ */
+public class MerkleTree implements Disposable
+{
+    private static final byte leafPrefix = 0x00;
+    private static final byte nodePrefix = 0x01;
+
+    /**
+     * Levels with fewer nodes than this are hashed on the calling thread, since splitting them
+     * across threads would cost more than it saves.
+     */
+    private static final int minimumParallelNodeCount = 64;
+
+    /**
+     * The largest byte[] that the JVM can reliably allocate. Every node digest is stored in one
+     * byte[], so this limits how many leaves a {@link MerkleTree} can have.
+     */
+    private static final int maximumDigestsLength = Integer.MAX_VALUE - 8;
+
+    private final HashFunction hashFunction;
+    private final int digestLength;
+    private final int leafCount;
+    private final int[] levelOffsets;
+    private final byte[] digests;
+    private boolean disposed;
+
+    private MerkleTree(HashFunction hashFunction, long leafCount)
+    {
+        PreCondition.assertNotNull(hashFunction, "hashFunction");
+        PreCondition.assertGreaterThanOrEqualTo(leafCount, 1, "leafCount");
+        PreCondition.assertLessThanOrEqualTo(MerkleTree.getNodeCount(leafCount) * hashFunction.getDigestLength(), MerkleTree.maximumDigestsLength, "nodeCount * digestLength");
+
+        this.hashFunction = hashFunction;
+        this.digestLength = hashFunction.getDigestLength();
+        this.leafCount = (int)leafCount;
+        this.levelOffsets = MerkleTree.getLevelOffsets(this.leafCount);
+        this.digests = new byte[this.levelOffsets[this.levelOffsets.length - 1] * this.digestLength];
+    }
+
+    /**
+     * Create a new {@link MerkleTree} with the provided number of empty leaves.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction} that will hash
+     * the leaves and nodes of the tree.
+     * @param leafCount The number of leaves in the tree.
+     */
+    public static Result<MerkleTree> create(Function0<Result<? extends HashFunction>> hashFunctionCreator, int leafCount)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertGreaterThanOrEqualTo(leafCount, 1, "leafCount");
+
+        return Result.create(() ->
+        {
+            final MerkleTree result = new MerkleTree(hashFunctionCreator.run().await(), leafCount);
+            MerkleTree.hashLeaf(result.hashFunction, new byte[0], 0, 0, result.digests, 0);
+            for (int i = 1; i < leafCount; ++i)
+            {
+                System.arraycopy(result.digests, 0, result.digests, i * result.digestLength, result.digestLength);
+            }
+            result.buildLevels(hashFunctionCreator, null);
+            return result;
+        });
+    }
+
+    /**
+     * Create a new {@link MerkleTree} that uses SHA-256 over the provided data, with the leaves
+     * hashed on the common {@link java.util.concurrent.ForkJoinPool}.
+     * @param data The data to split into leaves.
+     * @param leafSize The number of bytes in each leaf. The last leaf may be shorter.
+     */
+    public static Result<MerkleTree> createSHA256(byte[] data, int leafSize)
+    {
+        return MerkleTree.create(HashFunction::createSHA256, data, leafSize, java.util.concurrent.ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new {@link MerkleTree} over the provided data.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will
+     * hash the leaves and nodes of the tree.
+     * @param data The data to split into leaves. Empty data has a single empty leaf.
+     * @param leafSize The number of bytes in each leaf. The last leaf may be shorter.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that the leaves and nodes will be
+     * hashed on.
+     */
+    public static Result<MerkleTree> create(Function0<Result<? extends HashFunction>> hashFunctionCreator, byte[] data, int leafSize, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(data, "data");
+        PreCondition.assertGreaterThanOrEqualTo(leafSize, 1, "leafSize");
+        PreCondition.assertNotNull(pool, "pool");
+
+        return Result.create(() ->
+        {
+            final MerkleTree result = new MerkleTree(hashFunctionCreator.run().await(), MerkleTree.getLeafCount(data.length, leafSize));
+            result.hashInParallel(hashFunctionCreator, pool, result.leafCount, () -> null, (HashFunction hashFunction, byte[] buffer, Integer leafIndex) ->
+            {
+                final int leafStartIndex = (int)((long)leafIndex * leafSize);
+                final int leafLength = Math.minimum(leafSize, data.length - leafStartIndex);
+                MerkleTree.hashLeaf(hashFunction, data, leafStartIndex, leafLength, result.digests, leafIndex * result.digestLength);
+            });
+            result.buildLevels(hashFunctionCreator, pool);
+            return result;
+        });
+    }
+
+    /**
+     * Create a new {@link MerkleTree} over the contents of the provided file. Leaves are read with
+     * positional reads from many threads at once.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will
+     * hash the leaves and nodes of the tree.
+     * @param filePath The path to the file to split into leaves.
+     * @param leafSize The number of bytes in each leaf. The last leaf may be shorter.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that the leaves and nodes will be
+     * hashed on.
+     */
+    public static Result<MerkleTree> create(Function0<Result<? extends HashFunction>> hashFunctionCreator, java.nio.file.Path filePath, int leafSize, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(filePath, "filePath");
+        PreCondition.assertGreaterThanOrEqualTo(leafSize, 1, "leafSize");
+        PreCondition.assertNotNull(pool, "pool");
+
+        return Result.create(() ->
+        {
+            try (final java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(filePath, java.nio.file.StandardOpenOption.READ))
+            {
+                final long fileSize = channel.size();
+                final MerkleTree result = new MerkleTree(hashFunctionCreator.run().await(), MerkleTree.getLeafCount(fileSize, leafSize));
+                result.hashInParallel(hashFunctionCreator, pool, result.leafCount, () -> new byte[leafSize], (HashFunction hashFunction, byte[] buffer, Integer leafIndex) ->
+                {
+                    final long leafStartIndex = (long)leafIndex * leafSize;
+                    final int leafLength = (int)Math.minimum(leafSize, fileSize - leafStartIndex);
+                    final java.nio.ByteBuffer leafBuffer = java.nio.ByteBuffer.wrap(buffer, 0, leafLength);
+                    try
+                    {
+                        while (leafBuffer.hasRemaining())
+                        {
+                            if (channel.read(leafBuffer, leafStartIndex + leafBuffer.position()) < 0)
+                            {
+                                throw new java.io.EOFException(filePath + " was truncated while it was being read.");
+                            }
+                        }
+                    }
+                    catch (java.io.IOException e)
+                    {
+                        throw Exceptions.asRuntime(e);
+                    }
+                    MerkleTree.hashLeaf(hashFunction, buffer, 0, leafLength, result.digests, leafIndex * result.digestLength);
+                });
+                result.buildLevels(hashFunctionCreator, pool);
+                return result;
+            }
+            catch (java.io.IOException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        });
+    }
+
+    /**
+     * Get the number of leaves that data with the provided length is split into.
+     */
+    private static long getLeafCount(long dataLength, int leafSize)
+    {
+        return java.lang.Math.max(1, (dataLength + leafSize - 1) / leafSize);
+    }
+
+    /**
+     * Get the total number of nodes, including the leaves, in a tree with the provided number of
+     * leaves.
+     */
+    static long getNodeCount(long leafCount)
+    {
+        long result = leafCount;
+        for (long nodeCount = leafCount; nodeCount > 1; nodeCount = (nodeCount + 1) / 2)
+        {
+            result += (nodeCount + 1) / 2;
+        }
+        return result;
+    }
+
+    /**
+     * Get the index of the first node of each level in the flat node array, followed by the total
+     * number of nodes. The total number of nodes must fit in an int.
+     */
+    static int[] getLevelOffsets(int leafCount)
+    {
+        PreCondition.assertLessThanOrEqualTo(MerkleTree.getNodeCount(leafCount), Integer.MAX_VALUE, "MerkleTree.getNodeCount(leafCount)");
+
+        int levelCount = 1;
+        for (long nodeCount = leafCount; nodeCount > 1; nodeCount = (nodeCount + 1) / 2)
+        {
+            ++levelCount;
+        }
+
+        final int[] result = new int[levelCount + 1];
+        long nodeCount = leafCount;
+        for (int level = 0; level < levelCount; ++level)
+        {
+            result[level + 1] = (int)(result[level] + nodeCount);
+            nodeCount = (nodeCount + 1) / 2;
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of leaves in this {@link MerkleTree}.
+     */
+    public int getLeafCount()
+    {
+        return this.leafCount;
+    }
+
+    /**
+     * Get the number of bytes in each of this {@link MerkleTree}'s digests.
+     */
+    public int getDigestLength()
+    {
+        return this.digestLength;
+    }
+
+    /**
+     * Get the number of levels in this {@link MerkleTree}, including the leaves and the root.
+     */
+    public int getLevelCount()
+    {
+        return this.levelOffsets.length - 1;
+    }
+
+    /**
+     * Get the root digest of this {@link MerkleTree}.
+     */
+    public BitArray getRootDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        return this.getNodeDigest(this.getLevelCount() - 1, 0);
+    }
+
+    /**
+     * Get the digest of the leaf at the provided index.
+     * @param leafIndex The index of the leaf.
+     */
+    public BitArray getLeafDigest(int leafIndex)
+    {
+        PreCondition.assertIndexAccess(leafIndex, this.leafCount, "leafIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        return this.getNodeDigest(0, leafIndex);
+    }
+
+    private BitArray getNodeDigest(int level, int nodeIndex)
+    {
+        final int digestStartIndex = this.getDigestStartIndex(level, nodeIndex);
+        return BitArray.createFromBytes(java.util.Arrays.copyOfRange(this.digests, digestStartIndex, digestStartIndex + this.digestLength));
+    }
+
+    private int getDigestStartIndex(int level, int nodeIndex)
+    {
+        return (this.levelOffsets[level] + nodeIndex) * this.digestLength;
+    }
+
+    private int getLevelNodeCount(int level)
+    {
+        return this.levelOffsets[level + 1] - this.levelOffsets[level];
+    }
+
+    /**
+     * Replace the contents of the leaf at the provided index and recompute the digests on the path
+     * from that leaf to the root.
+     * @param leafIndex The index of the leaf to replace.
+     * @param values The new contents of the leaf.
+     * @param startIndex The index of the first byte of the leaf in values.
+     * @param length The number of bytes in the leaf.
+     */
+    public void setLeaf(int leafIndex, byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertIndexAccess(leafIndex, this.leafCount, "leafIndex");
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        MerkleTree.hashLeaf(this.hashFunction, values, startIndex, length, this.digests, this.getDigestStartIndex(0, leafIndex));
+
+        int nodeIndex = leafIndex;
+        for (int level = 0; level < this.getLevelCount() - 1; ++level)
+        {
+            nodeIndex /= 2;
+            this.hashNode(this.hashFunction, level + 1, nodeIndex);
+        }
+    }
+
+    /**
+     * Replace the contents of the leaf at the provided index and recompute the digests on the path
+     * from that leaf to the root.
+     * @param leafIndex The index of the leaf to replace.
+     * @param values The new contents of the leaf.
+     */
+    public void setLeaf(int leafIndex, byte[] values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        this.setLeaf(leafIndex, values, 0, values.length);
+    }
+
+    /**
+     * Get the proof that the leaf at the provided index is included in this {@link MerkleTree}.
+     * @param leafIndex The index of the leaf.
+     */
+    public MerkleProof getProof(int leafIndex)
+    {
+        PreCondition.assertIndexAccess(leafIndex, this.leafCount, "leafIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        final java.util.List<byte[]> siblingDigests = new java.util.ArrayList<>();
+        int nodeIndex = leafIndex;
+        for (int level = 0; level < this.getLevelCount() - 1; ++level)
+        {
+            final int siblingIndex = nodeIndex ^ 1;
+            if (siblingIndex < this.getLevelNodeCount(level))
+            {
+                final int digestStartIndex = this.getDigestStartIndex(level, siblingIndex);
+                siblingDigests.add(java.util.Arrays.copyOfRange(this.digests, digestStartIndex, digestStartIndex + this.digestLength));
+            }
+            nodeIndex /= 2;
+        }
+        return MerkleProof.create(leafIndex, this.leafCount, siblingDigests.toArray(new byte[0][]));
+    }
+
+    /**
+     * Write H(0x00 || leaf) to the provided output array.
+     */
+    static void hashLeaf(HashFunction hashFunction, byte[] values, int startIndex, int length, byte[] output, int outputStartIndex)
+    {
+        hashFunction.addByte(MerkleTree.leafPrefix);
+        if (length > 0)
+        {
+            hashFunction.addBytes(values, startIndex, length);
+        }
+        hashFunction.takeDigest(output, outputStartIndex);
+    }
+
+    /**
+     * Write H(0x01 || left || right) to the provided output array.
+     */
+    static void hashNode(HashFunction hashFunction, byte[] left, int leftStartIndex, byte[] right, int rightStartIndex, int digestLength, byte[] output, int outputStartIndex)
+    {
+        hashFunction.addByte(MerkleTree.nodePrefix);
+        hashFunction.addBytes(left, leftStartIndex, digestLength);
+        hashFunction.addBytes(right, rightStartIndex, digestLength);
+        hashFunction.takeDigest(output, outputStartIndex);
+    }
+
+    /**
+     * Recompute the digest of the node at the provided level and index from its children.
+     */
+    private void hashNode(HashFunction hashFunction, int level, int nodeIndex)
+    {
+        final int leftIndex = nodeIndex * 2;
+        final int leftStartIndex = this.getDigestStartIndex(level - 1, leftIndex);
+        final int outputStartIndex = this.getDigestStartIndex(level, nodeIndex);
+        if (leftIndex + 1 == this.getLevelNodeCount(level - 1))
+        {
+            System.arraycopy(this.digests, leftStartIndex, this.digests, outputStartIndex, this.digestLength);
+        }
+        else
+        {
+            MerkleTree.hashNode(hashFunction, this.digests, leftStartIndex, this.digests, leftStartIndex + this.digestLength, this.digestLength, this.digests, outputStartIndex);
+        }
+    }
+
+    /**
+     * Compute every level above the leaves. If a pool is provided, then large levels are hashed
+     * in parallel.
+     */
+    private void buildLevels(Function0<Result<? extends HashFunction>> hashFunctionCreator, java.util.concurrent.ForkJoinPool pool)
+    {
+        for (int level = 1; level < this.getLevelCount(); ++level)
+        {
+            final int nodeLevel = level;
+            final int nodeCount = this.getLevelNodeCount(level);
+            if (pool == null || nodeCount < MerkleTree.minimumParallelNodeCount)
+            {
+                for (int nodeIndex = 0; nodeIndex < nodeCount; ++nodeIndex)
+                {
+                    this.hashNode(this.hashFunction, nodeLevel, nodeIndex);
+                }
+            }
+            else
+            {
+                this.hashInParallel(hashFunctionCreator, pool, nodeCount, () -> null, (HashFunction hashFunction, byte[] buffer, Integer nodeIndex) ->
+                {
+                    this.hashNode(hashFunction, nodeLevel, nodeIndex);
+                });
+            }
+        }
+    }
+
+    /**
+     * Split the provided number of items into one contiguous range per thread of the provided
+     * pool and hash each range on its own thread with its own {@link HashFunction} and buffer.
+     */
+    private void hashInParallel(Function0<Result<? extends HashFunction>> hashFunctionCreator, java.util.concurrent.ForkJoinPool pool, int itemCount, Function0<byte[]> bufferCreator, Action3<HashFunction,byte[],Integer> hashItem)
+    {
+        if (itemCount < MerkleTree.minimumParallelNodeCount)
+        {
+            final byte[] buffer = bufferCreator.run();
+            for (int i = 0; i < itemCount; ++i)
+            {
+                hashItem.run(this.hashFunction, buffer, i);
+            }
+        }
+        else
+        {
+            final int rangeCount = Math.minimum(itemCount / (MerkleTree.minimumParallelNodeCount / 2), pool.getParallelism() * 4);
+            final java.util.List<java.util.concurrent.ForkJoinTask<?>> tasks = new java.util.ArrayList<>(rangeCount);
+            for (int range = 0; range < rangeCount; ++range)
+            {
+                final int rangeStartIndex = (int)((long)itemCount * range / rangeCount);
+                final int rangeEndIndex = (int)((long)itemCount * (range + 1) / rangeCount);
+                tasks.add(pool.submit(() ->
+                {
+                    final HashFunction hashFunction = hashFunctionCreator.run().await();
+                    try
+                    {
+                        final byte[] buffer = bufferCreator.run();
+                        for (int i = rangeStartIndex; i < rangeEndIndex; ++i)
+                        {
+                            hashItem.run(hashFunction, buffer, i);
+                        }
+                    }
+                    finally
+                    {
+                        hashFunction.dispose().await();
+                    }
+                }));
+            }
+            for (final java.util.concurrent.ForkJoinTask<?> task : tasks)
+            {
+                task.join();
+            }
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.hashFunction.dispose().await();
+            }
+            return result;
+        });
+    }
+}
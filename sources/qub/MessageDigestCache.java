@@ -0,0 +1,142 @@
+package qub;
+
+/**
+ * A lock-free cache of idle {@link java.security.MessageDigest}s for one algorithm that backs the
+ * one-shot hashing functions on {@link HashFunction}.
+ * <p>
+ * The idle {@link java.security.MessageDigest}s are kept in a small array of slots. A thread
+ * starts looking for one at a slot that is picked from its thread id, so threads running on
+ * different processors usually use different slots. Unlike a {@link ThreadLocal}, the number of
+ * cached {@link java.security.MessageDigest}s doesn't grow with the number of threads, which
+ * matters when there are millions of short-lived virtual threads. A new
+ * {@link java.security.MessageDigest} is only created when every probed slot is in use.
+ */
+class MessageDigestCache
+{
+    /**
+     * The number of slots that are probed when acquiring or releasing a
+     * {@link java.security.MessageDigest}.
+     */
+    private static final int probeCount = 4;
+
+    static final MessageDigestCache md5 = MessageDigestCache.create("MD5");
+    static final MessageDigestCache sha1 = MessageDigestCache.create("SHA-1");
+    static final MessageDigestCache sha256 = MessageDigestCache.create("SHA-256");
+
+    private final String algorithm;
+    private final int digestLength;
+    private final java.util.concurrent.atomic.AtomicReferenceArray<java.security.MessageDigest> slots;
+    private final int slotMask;
+
+    private MessageDigestCache(String algorithm, int slotCount)
+    {
+        PreCondition.assertNotNullAndNotEmpty(algorithm, "algorithm");
+        PreCondition.assertGreaterThanOrEqualTo(slotCount, 1, "slotCount");
+        PreCondition.assertEqual(0, slotCount & (slotCount - 1), "slotCount & (slotCount - 1)");
+
+        this.algorithm = algorithm;
+        this.slots = new java.util.concurrent.atomic.AtomicReferenceArray<>(slotCount);
+        this.slotMask = slotCount - 1;
+
+        final java.security.MessageDigest messageDigest = JavaMessageDigestHashFunction.createMessageDigest(algorithm);
+        this.digestLength = messageDigest.getDigestLength();
+        this.slots.set(0, messageDigest);
+    }
+
+    /**
+     * Create a new {@link MessageDigestCache} with two slots per available processor.
+     * @param algorithm The name of the algorithm.
+     */
+    static MessageDigestCache create(String algorithm)
+    {
+        final int slotCount = Integer.highestOneBit(Math.maximum(1, 2 * Runtime.getRuntime().availableProcessors() - 1) << 1);
+        return new MessageDigestCache(algorithm, slotCount);
+    }
+
+    /**
+     * Get the name of the algorithm of the {@link java.security.MessageDigest}s in this cache.
+     */
+    String getAlgorithm()
+    {
+        return this.algorithm;
+    }
+
+    /**
+     * Get the number of bytes in the digests of this cache's algorithm.
+     */
+    int getDigestLength()
+    {
+        return this.digestLength;
+    }
+
+    /**
+     * Get the number of slots in this cache.
+     */
+    int getSlotCount()
+    {
+        return this.slots.length();
+    }
+
+    private int getFirstSlot()
+    {
+        final long threadId = Thread.currentThread().getId();
+        return (int)((threadId * 0x9E3779B97F4A7C15L) >>> 32) & this.slotMask;
+    }
+
+    /**
+     * Take an idle {@link java.security.MessageDigest} out of this cache, or create a new one if
+     * no idle {@link java.security.MessageDigest} is found.
+     */
+    java.security.MessageDigest acquire()
+    {
+        final int firstSlot = this.getFirstSlot();
+        for (int i = 0; i < MessageDigestCache.probeCount; ++i)
+        {
+            final java.security.MessageDigest result = this.slots.getAndSet((firstSlot + i) & this.slotMask, null);
+            if (result != null)
+            {
+                return result;
+            }
+        }
+        return JavaMessageDigestHashFunction.createMessageDigest(this.algorithm);
+    }
+
+    /**
+     * Return a reset {@link java.security.MessageDigest} to this cache. If every probed slot is
+     * already full, then the {@link java.security.MessageDigest} is dropped.
+     */
+    void release(java.security.MessageDigest messageDigest)
+    {
+        final int firstSlot = this.getFirstSlot();
+        for (int i = 0; i < MessageDigestCache.probeCount; ++i)
+        {
+            if (this.slots.compareAndSet((firstSlot + i) & this.slotMask, null, messageDigest))
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write the digest of the provided bytes into the provided output array.
+     * @return The number of bytes that were written to the output array.
+     */
+    int digest(byte[] values, int startIndex, int length, byte[] output, int outputStartIndex)
+    {
+        final java.security.MessageDigest messageDigest = this.acquire();
+        try
+        {
+            messageDigest.update(values, startIndex, length);
+            return messageDigest.digest(output, outputStartIndex, this.digestLength);
+        }
+        catch (java.security.DigestException e)
+        {
+            messageDigest.reset();
+            throw Exceptions.asRuntime(e);
+        }
+        finally
+        {
+            this.release(messageDigest);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that adds the same bytes to several inner {@link HashFunction}s, so that
+ * the digests of several algorithms can be computed in a single pass over the input. The digest
+ * of a {@link MultiHashFunction} is the concatenation of the digests of its inner
+ * {@link HashFunction}s in the order that they were provided. The individual digests can be taken
+ * with {@link #takeDigests()}.
+ * <p>
+ * A parallel {@link MultiHashFunction} gives each inner {@link HashFunction} its own worker
+ * thread. Each block of input is handed to every worker thread at the same time and the calling
+ * thread waits for all of them to finish before it returns, so adding a block takes about as long
+ * as the slowest inner {@link HashFunction} instead of the sum of all of them. Small writes are
+ * collected into a block before they are handed to the worker threads.
+ * <p>
+ * A {@link MultiHashFunction} takes ownership of its inner {@link HashFunction}s and disposes
+ * them when it is disposed.
+ */
+public class MultiHashFunction implements HashFunction
+{
+    /**
+     * The default number of bytes that a parallel {@link MultiHashFunction} will collect from
+     * small writes before the bytes are handed to the worker threads.
+     */
+    public static final int defaultBlockSize = 64 * 1024;
+
+    private final HashFunction[] hashFunctions;
+    private final java.util.concurrent.ExecutorService[] workers;
+    private final java.util.concurrent.Future<?>[] workerResults;
+    private final byte[] block;
+    private int blockLength;
+    private boolean disposed;
+
+    private MultiHashFunction(HashFunction[] hashFunctions, boolean parallel, int blockSize)
+    {
+        PreCondition.assertNotNullAndNotEmpty(hashFunctions, "hashFunctions");
+        PreCondition.assertGreaterThanOrEqualTo(blockSize, 1, "blockSize");
+
+        this.hashFunctions = hashFunctions.clone();
+        for (int i = 0; i < this.hashFunctions.length; ++i)
+        {
+            PreCondition.assertNotNull(this.hashFunctions[i], "hashFunctions[" + i + "]");
+        }
+
+        if (!parallel)
+        {
+            this.workers = null;
+            this.workerResults = null;
+            this.block = null;
+        }
+        else
+        {
+            this.workers = new java.util.concurrent.ExecutorService[this.hashFunctions.length];
+            for (int i = 0; i < this.workers.length; ++i)
+            {
+                this.workers[i] = java.util.concurrent.Executors.newSingleThreadExecutor((Runnable runnable) ->
+                {
+                    final Thread result = new Thread(runnable, "MultiHashFunction worker");
+                    result.setDaemon(true);
+                    return result;
+                });
+            }
+            this.workerResults = new java.util.concurrent.Future<?>[this.hashFunctions.length];
+            this.block = new byte[blockSize];
+        }
+    }
+
+    /**
+     * Create a new {@link MultiHashFunction} that adds bytes to each of the provided
+     * {@link HashFunction}s in turn on the calling thread.
+     * @param hashFunctions The {@link HashFunction}s to add bytes to.
+     */
+    public static MultiHashFunction create(HashFunction... hashFunctions)
+    {
+        return new MultiHashFunction(hashFunctions, false, MultiHashFunction.defaultBlockSize);
+    }
+
+    /**
+     * Create a new {@link MultiHashFunction} that adds bytes to each of the provided
+     * {@link HashFunction}s on its own worker thread.
+     * @param hashFunctions The {@link HashFunction}s to add bytes to.
+     */
+    public static MultiHashFunction createParallel(HashFunction... hashFunctions)
+    {
+        return MultiHashFunction.createParallel(MultiHashFunction.defaultBlockSize, hashFunctions);
+    }
+
+    /**
+     * Create a new {@link MultiHashFunction} that adds bytes to each of the provided
+     * {@link HashFunction}s on its own worker thread.
+     * @param blockSize The number of bytes to collect from small writes before the bytes are
+     *                  handed to the worker threads.
+     * @param hashFunctions The {@link HashFunction}s to add bytes to.
+     */
+    public static MultiHashFunction createParallel(int blockSize, HashFunction... hashFunctions)
+    {
+        return new MultiHashFunction(hashFunctions, true, blockSize);
+    }
+
+    /**
+     * Create a new {@link MultiHashFunction} that computes MD5, SHA-1, and SHA-256 digests.
+     * @param parallel Whether each digest should be computed on its own worker thread.
+     */
+    public static Result<MultiHashFunction> createMD5SHA1SHA256(boolean parallel)
+    {
+        return Result.create(() ->
+        {
+            final HashFunction[] hashFunctions = new HashFunction[]
+            {
+                HashFunction.createMD5().await(),
+                HashFunction.createSHA1().await(),
+                HashFunction.createSHA256().await(),
+            };
+            return parallel
+                ? MultiHashFunction.createParallel(hashFunctions)
+                : MultiHashFunction.create(hashFunctions);
+        });
+    }
+
+    /**
+     * Get the number of inner {@link HashFunction}s that this {@link MultiHashFunction} adds bytes
+     * to.
+     */
+    public int getHashFunctionCount()
+    {
+        return this.hashFunctions.length;
+    }
+
+    /**
+     * Get whether this {@link MultiHashFunction} adds bytes to its inner {@link HashFunction}s on
+     * worker threads.
+     */
+    public boolean isParallel()
+    {
+        return this.workers != null;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        if (!this.isParallel())
+        {
+            for (final HashFunction hashFunction : this.hashFunctions)
+            {
+                hashFunction.addByte(value);
+            }
+        }
+        else
+        {
+            this.block[this.blockLength++] = value;
+            if (this.blockLength == this.block.length)
+            {
+                this.flushBlock();
+            }
+        }
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        if (!this.isParallel())
+        {
+            for (final HashFunction hashFunction : this.hashFunctions)
+            {
+                hashFunction.addBytes(values, startIndex, length);
+            }
+        }
+        else if (this.blockLength + length <= this.block.length)
+        {
+            System.arraycopy(values, startIndex, this.block, this.blockLength, length);
+            this.blockLength += length;
+            if (this.blockLength == this.block.length)
+            {
+                this.flushBlock();
+            }
+        }
+        else
+        {
+            this.flushBlock();
+            if (length < this.block.length)
+            {
+                System.arraycopy(values, startIndex, this.block, 0, length);
+                this.blockLength = length;
+            }
+            else
+            {
+                this.runOnWorkers((HashFunction hashFunction) -> hashFunction.addBytes(values, startIndex, length));
+            }
+        }
+    }
+
+    @Override
+    public void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertNotDisposed(this, "this");
+
+        if (values.hasArray())
+        {
+            final int length = values.remaining();
+            if (length > 0)
+            {
+                this.addBytes(values.array(), values.arrayOffset() + values.position(), length);
+                values.position(values.limit());
+            }
+        }
+        else if (!this.isParallel())
+        {
+            for (final HashFunction hashFunction : this.hashFunctions)
+            {
+                hashFunction.addBytes(values.duplicate());
+            }
+            values.position(values.limit());
+        }
+        else if (this.blockLength + values.remaining() <= this.block.length)
+        {
+            final int length = values.remaining();
+            values.get(this.block, this.blockLength, length);
+            this.blockLength += length;
+            if (this.blockLength == this.block.length)
+            {
+                this.flushBlock();
+            }
+        }
+        else
+        {
+            this.flushBlock();
+            this.runOnWorkers((HashFunction hashFunction) -> hashFunction.addBytes(values.duplicate()));
+            values.position(values.limit());
+        }
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        int result = 0;
+        for (final HashFunction hashFunction : this.hashFunctions)
+        {
+            result += hashFunction.getDigestLength();
+        }
+        return result;
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] digest = new byte[this.getDigestLength()];
+        this.takeDigest(digest, 0);
+        final BitArray result = BitArray.createFromBytes(digest);
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.flushBlock();
+
+        final byte[] digest = new byte[this.getDigestLength()];
+        int digestIndex = 0;
+        for (final HashFunction hashFunction : this.hashFunctions)
+        {
+            final byte[] innerDigest = hashFunction.peekDigest().toByteArray();
+            System.arraycopy(innerDigest, 0, digest, digestIndex, innerDigest.length);
+            digestIndex += innerDigest.length;
+        }
+        return BitArray.createFromBytes(digest);
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.flushBlock();
+
+        int outputIndex = outputStartIndex;
+        for (final HashFunction hashFunction : this.hashFunctions)
+        {
+            outputIndex += hashFunction.takeDigest(output, outputIndex);
+        }
+        return outputIndex - outputStartIndex;
+    }
+
+    /**
+     * Complete this {@link MultiHashFunction} and return the digests of each of its inner
+     * {@link HashFunction}s in the order that they were provided. This will reset this
+     * {@link MultiHashFunction} so that no trace of the operation remains.
+     * @return The digests of the inner {@link HashFunction}s.
+     */
+    public BitArray[] takeDigests()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.flushBlock();
+
+        final BitArray[] result = new BitArray[this.hashFunctions.length];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = this.hashFunctions[i].takeDigest();
+        }
+        return result;
+    }
+
+    @Override
+    public void reset()
+    {
+        this.blockLength = 0;
+        for (final HashFunction hashFunction : this.hashFunctions)
+        {
+            hashFunction.reset();
+        }
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.blockLength = 0;
+                if (this.workers != null)
+                {
+                    for (final java.util.concurrent.ExecutorService worker : this.workers)
+                    {
+                        worker.shutdown();
+                    }
+                }
+                for (final HashFunction hashFunction : this.hashFunctions)
+                {
+                    hashFunction.dispose().await();
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Hand the collected bytes in the block to the worker threads.
+     */
+    private void flushBlock()
+    {
+        if (this.blockLength > 0)
+        {
+            final int length = this.blockLength;
+            this.blockLength = 0;
+            this.runOnWorkers((HashFunction hashFunction) -> hashFunction.addBytes(this.block, 0, length));
+        }
+    }
+
+    /**
+     * Run the provided action against each inner {@link HashFunction} on its worker thread and
+     * wait for all of them to finish.
+     */
+    private void runOnWorkers(Action1<HashFunction> action)
+    {
+        for (int i = 0; i < this.workers.length; ++i)
+        {
+            final HashFunction hashFunction = this.hashFunctions[i];
+            this.workerResults[i] = this.workers[i].submit(() -> action.run(hashFunction));
+        }
+
+        // Always wait for every worker thread, even when interrupted, so that no worker thread is
+        // still reading the caller's bytes when this method returns.
+        Throwable error = null;
+        boolean interrupted = false;
+        for (int i = 0; i < this.workerResults.length; ++i)
+        {
+            boolean finished = false;
+            while (!finished)
+            {
+                try
+                {
+                    this.workerResults[i].get();
+                    finished = true;
+                }
+                catch (java.util.concurrent.ExecutionException e)
+                {
+                    if (error == null)
+                    {
+                        error = e.getCause();
+                    }
+                    finished = true;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            this.workerResults[i] = null;
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (error != null)
+        {
+            throw Exceptions.asRuntime(error);
+        }
+    }
+}
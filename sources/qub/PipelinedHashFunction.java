@@ -0,0 +1,396 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that hashes the bytes that are added to it on a dedicated thread. The
+ * added bytes are copied into a bounded ring of blocks, and the calling thread returns as soon as
+ * the bytes have been copied. The dedicated thread adds each full block to the inner
+ * {@link HashFunction}. If the dedicated thread falls behind and every block in the ring is
+ * waiting to be hashed, the calling thread waits until a block is free.
+ * <p>
+ * Taking the digest waits until every block that has been added has been hashed. If the inner
+ * {@link HashFunction} throws an exception on the dedicated thread, the exception is thrown from
+ * every following call on the calling thread until the {@link PipelinedHashFunction} is reset.
+ * <p>
+ * A {@link PipelinedHashFunction} takes ownership of its inner {@link HashFunction} and disposes
+ * it when it is disposed.
+ */
+public class PipelinedHashFunction implements HashFunction
+{
+    /**
+     * The default number of bytes in each block of the ring.
+     */
+    public static final int defaultBlockSize = 64 * 1024;
+
+    /**
+     * The default number of blocks in the ring.
+     */
+    public static final int defaultBlockCount = 4;
+
+    private final HashFunction innerHashFunction;
+    private final byte[][] blocks;
+    private final int[] blockLengths;
+    private final java.util.concurrent.locks.ReentrantLock lock;
+    private final java.util.concurrent.locks.Condition blockPublished;
+    private final java.util.concurrent.locks.Condition blockHashed;
+    private final Thread hashingThread;
+
+    /**
+     * The index of the next block that the hashing thread will hash.
+     */
+    private int headIndex;
+    /**
+     * The index of the block that the calling thread is currently filling.
+     */
+    private int tailIndex;
+    /**
+     * The number of blocks that have been published and not yet hashed.
+     */
+    private int publishedBlockCount;
+    /**
+     * The number of bytes in the block at tailIndex that haven't been published yet.
+     */
+    private int fillLength;
+    private Throwable hashingError;
+    private boolean disposed;
+
+    private PipelinedHashFunction(HashFunction innerHashFunction, int blockSize, int blockCount)
+    {
+        PreCondition.assertNotNull(innerHashFunction, "innerHashFunction");
+        PreCondition.assertGreaterThanOrEqualTo(blockSize, 1, "blockSize");
+        PreCondition.assertGreaterThanOrEqualTo(blockCount, 1, "blockCount");
+
+        this.innerHashFunction = innerHashFunction;
+        this.blocks = new byte[blockCount][];
+        for (int i = 0; i < blockCount; ++i)
+        {
+            this.blocks[i] = new byte[blockSize];
+        }
+        this.blockLengths = new int[blockCount];
+        this.lock = new java.util.concurrent.locks.ReentrantLock();
+        this.blockPublished = this.lock.newCondition();
+        this.blockHashed = this.lock.newCondition();
+
+        this.hashingThread = new Thread(this::hashBlocks, "PipelinedHashFunction");
+        this.hashingThread.setDaemon(true);
+        this.hashingThread.start();
+    }
+
+    /**
+     * Create a new {@link PipelinedHashFunction} with the default block size and block count.
+     * @param innerHashFunction The {@link HashFunction} that will hash the added bytes on the
+     *                          dedicated thread.
+     */
+    public static PipelinedHashFunction create(HashFunction innerHashFunction)
+    {
+        return PipelinedHashFunction.create(innerHashFunction, PipelinedHashFunction.defaultBlockSize, PipelinedHashFunction.defaultBlockCount);
+    }
+
+    /**
+     * Create a new {@link PipelinedHashFunction}.
+     * @param innerHashFunction The {@link HashFunction} that will hash the added bytes on the
+     *                          dedicated thread.
+     * @param blockSize The number of bytes in each block of the ring.
+     * @param blockCount The number of blocks in the ring. This bounds how far the dedicated thread
+     *                   can fall behind before the calling thread has to wait.
+     */
+    public static PipelinedHashFunction create(HashFunction innerHashFunction, int blockSize, int blockCount)
+    {
+        return new PipelinedHashFunction(innerHashFunction, blockSize, blockCount);
+    }
+
+    /**
+     * Get the number of bytes in each block of the ring.
+     */
+    public int getBlockSize()
+    {
+        return this.blocks[0].length;
+    }
+
+    /**
+     * Get the number of blocks in the ring.
+     */
+    public int getBlockCount()
+    {
+        return this.blocks.length;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] block = this.acquireTailBlock();
+        block[this.fillLength++] = value;
+        if (this.fillLength == block.length)
+        {
+            this.publishTailBlock();
+        }
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        while (length > 0)
+        {
+            final byte[] block = this.acquireTailBlock();
+            final int bytesToCopy = Math.minimum(length, block.length - this.fillLength);
+            System.arraycopy(values, startIndex, block, this.fillLength, bytesToCopy);
+            this.fillLength += bytesToCopy;
+            startIndex += bytesToCopy;
+            length -= bytesToCopy;
+            if (this.fillLength == block.length)
+            {
+                this.publishTailBlock();
+            }
+        }
+    }
+
+    @Override
+    public void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertNotDisposed(this, "this");
+
+        while (values.hasRemaining())
+        {
+            final byte[] block = this.acquireTailBlock();
+            final int bytesToCopy = Math.minimum(values.remaining(), block.length - this.fillLength);
+            values.get(block, this.fillLength, bytesToCopy);
+            this.fillLength += bytesToCopy;
+            if (this.fillLength == block.length)
+            {
+                this.publishTailBlock();
+            }
+        }
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return this.innerHashFunction.getDigestLength();
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.drain(true);
+        return this.innerHashFunction.takeDigest();
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.drain(true);
+        return this.innerHashFunction.peekDigest();
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.drain(true);
+        return this.innerHashFunction.takeDigest(output, outputStartIndex);
+    }
+
+    @Override
+    public void reset()
+    {
+        this.fillLength = 0;
+        this.drain(false);
+        this.innerHashFunction.reset();
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.disposed;
+            if (result)
+            {
+                this.fillLength = 0;
+                this.drain(false);
+
+                this.lock.lock();
+                try
+                {
+                    this.disposed = true;
+                    this.blockPublished.signalAll();
+                }
+                finally
+                {
+                    this.lock.unlock();
+                }
+
+                this.innerHashFunction.dispose().await();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Get the block at the tail of the ring that the calling thread can copy bytes into, waiting
+     * for the hashing thread to free a block if every block is waiting to be hashed.
+     */
+    private byte[] acquireTailBlock()
+    {
+        if (this.fillLength == 0)
+        {
+            this.lock.lock();
+            try
+            {
+                this.throwHashingError();
+                while (this.publishedBlockCount == this.blocks.length)
+                {
+                    this.blockHashed.awaitUninterruptibly();
+                    this.throwHashingError();
+                }
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+        }
+        return this.blocks[this.tailIndex];
+    }
+
+    /**
+     * Hand the block at the tail of the ring to the hashing thread.
+     */
+    private void publishTailBlock()
+    {
+        this.lock.lock();
+        try
+        {
+            this.blockLengths[this.tailIndex] = this.fillLength;
+            this.tailIndex = (this.tailIndex + 1) % this.blocks.length;
+            this.fillLength = 0;
+            ++this.publishedBlockCount;
+            this.blockPublished.signal();
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Publish any partially filled block and wait until the hashing thread has hashed every block.
+     * @param throwHashingError Whether an exception that was thrown on the hashing thread should be
+     *                          thrown from this method. If it isn't thrown, it is cleared.
+     */
+    private void drain(boolean throwHashingError)
+    {
+        if (this.fillLength > 0)
+        {
+            this.publishTailBlock();
+        }
+
+        this.lock.lock();
+        try
+        {
+            while (this.publishedBlockCount > 0)
+            {
+                this.blockHashed.awaitUninterruptibly();
+            }
+
+            if (throwHashingError)
+            {
+                this.throwHashingError();
+            }
+            else
+            {
+                this.hashingError = null;
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    private void throwHashingError()
+    {
+        if (this.hashingError != null)
+        {
+            throw Exceptions.asRuntime(this.hashingError);
+        }
+    }
+
+    /**
+     * The loop that runs on the dedicated hashing thread.
+     */
+    private void hashBlocks()
+    {
+        while (true)
+        {
+            final int blockIndex;
+            final boolean skipBlock;
+            this.lock.lock();
+            try
+            {
+                while (this.publishedBlockCount == 0 && !this.disposed)
+                {
+                    this.blockPublished.awaitUninterruptibly();
+                }
+                if (this.publishedBlockCount == 0)
+                {
+                    break;
+                }
+                blockIndex = this.headIndex;
+                skipBlock = (this.hashingError != null);
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+
+            Throwable error = null;
+            if (!skipBlock)
+            {
+                try
+                {
+                    this.innerHashFunction.addBytes(this.blocks[blockIndex], 0, this.blockLengths[blockIndex]);
+                }
+                catch (Throwable e)
+                {
+                    error = e;
+                }
+            }
+
+            this.lock.lock();
+            try
+            {
+                if (error != null && this.hashingError == null)
+                {
+                    this.hashingError = error;
+                }
+                this.headIndex = (this.headIndex + 1) % this.blocks.length;
+                --this.publishedBlockCount;
+                this.blockHashed.signalAll();
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+        }
+    }
+}
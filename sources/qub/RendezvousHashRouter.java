@@ -0,0 +1,149 @@
+package qub;
+
+/**
+ * A {@link ShardRouter} that uses rendezvous (highest random weight) hashing. Every node gets a
+ * score for each key, and the key is owned by the node with the highest score. Adding a node only
+ * moves the keys that the new node scores highest for, and removing a node only moves the keys
+ * that it owned, no matter where the node is in the list.
+ * <p>
+ * Each node's name is hashed once when it is added, so scoring a node for a key is a single
+ * 64-bit mix of the two hashes. A lookup checks every node, which makes rendezvous hashing a good
+ * fit for up to a few hundred nodes; a {@link ConsistentHashRing} scales better past that.
+ * @param <T> The type of the nodes.
+ */
+public class RendezvousHashRouter<T> implements ShardRouter<T>
+{
+    private volatile Nodes nodes;
+
+    private RendezvousHashRouter()
+    {
+        this.nodes = new Nodes(new Object[0], new long[0]);
+    }
+
+    /**
+     * Create a new empty {@link RendezvousHashRouter}.
+     */
+    public static <T> RendezvousHashRouter<T> create()
+    {
+        return new RendezvousHashRouter<>();
+    }
+
+    /**
+     * Get the score of the node with the provided name hash for the key with the provided hash.
+     */
+    static long getScore(long keyHash, long nodeNameHash)
+    {
+        return XXH64HashFunction.avalanche(keyHash ^ nodeNameHash);
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return this.nodes.nodes.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public java.util.List<T> getNodes()
+    {
+        return (java.util.List<T>)java.util.List.of(this.nodes.nodes);
+    }
+
+    @Override
+    public synchronized boolean addNode(T node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        final Nodes nodes = this.nodes;
+        final boolean result = nodes.indexOf(node) == -1;
+        if (result)
+        {
+            final byte[] nodeNameBytes = ShardRouter.getNodeNameBytes(node);
+            final int nodeCount = nodes.nodes.length;
+
+            final Object[] newNodes = java.util.Arrays.copyOf(nodes.nodes, nodeCount + 1);
+            newNodes[nodeCount] = node;
+            final long[] newNodeNameHashes = java.util.Arrays.copyOf(nodes.nodeNameHashes, nodeCount + 1);
+            newNodeNameHashes[nodeCount] = XXH3HashFunction.hash(nodeNameBytes);
+            this.nodes = new Nodes(newNodes, newNodeNameHashes);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean removeNode(T node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        final Nodes nodes = this.nodes;
+        final int nodeIndex = nodes.indexOf(node);
+        final boolean result = nodeIndex != -1;
+        if (result)
+        {
+            final int newNodeCount = nodes.nodes.length - 1;
+            final Object[] newNodes = new Object[newNodeCount];
+            final long[] newNodeNameHashes = new long[newNodeCount];
+            System.arraycopy(nodes.nodes, 0, newNodes, 0, nodeIndex);
+            System.arraycopy(nodes.nodes, nodeIndex + 1, newNodes, nodeIndex, newNodeCount - nodeIndex);
+            System.arraycopy(nodes.nodeNameHashes, 0, newNodeNameHashes, 0, nodeIndex);
+            System.arraycopy(nodes.nodeNameHashes, nodeIndex + 1, newNodeNameHashes, nodeIndex, newNodeCount - nodeIndex);
+            this.nodes = new Nodes(newNodes, newNodeNameHashes);
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getNode(long keyHash)
+    {
+        final Nodes nodes = this.nodes;
+        final long[] nodeNameHashes = nodes.nodeNameHashes;
+
+        T result = null;
+        if (nodeNameHashes.length > 0)
+        {
+            int bestNodeIndex = 0;
+            long bestScore = RendezvousHashRouter.getScore(keyHash, nodeNameHashes[0]);
+            for (int i = 1; i < nodeNameHashes.length; ++i)
+            {
+                final long score = RendezvousHashRouter.getScore(keyHash, nodeNameHashes[i]);
+                if (Long.compareUnsigned(score, bestScore) > 0)
+                {
+                    bestNodeIndex = i;
+                    bestScore = score;
+                }
+            }
+            result = (T)nodes.nodes[bestNodeIndex];
+        }
+        return result;
+    }
+
+    /**
+     * An immutable snapshot of the nodes and the hashes of their names.
+     */
+    private static class Nodes
+    {
+        final Object[] nodes;
+        final long[] nodeNameHashes;
+
+        Nodes(Object[] nodes, long[] nodeNameHashes)
+        {
+            this.nodes = nodes;
+            this.nodeNameHashes = nodeNameHashes;
+        }
+
+        int indexOf(Object node)
+        {
+            int result = -1;
+            for (int i = 0; i < this.nodes.length; ++i)
+            {
+                if (this.nodes[i].equals(node))
+                {
+                    result = i;
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+}
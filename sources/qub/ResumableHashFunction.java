@@ -0,0 +1,41 @@
+package qub;
+
+/**
+ * A {@link HashFunction} whose intermediate state can be exported to a compact byte[] and
+ * restored later, possibly in a different process. This allows hashing a large input to be
+ * resumed after an interruption without rehashing the bytes that were already added.
+ */
+public interface ResumableHashFunction extends HashFunction
+{
+    /**
+     * Get the name of the algorithm that this {@link ResumableHashFunction} implements.
+     */
+    public String getAlgorithm();
+
+    /**
+     * Get the number of bytes in each block that this {@link ResumableHashFunction} consumes its
+     * input in.
+     */
+    public int getBlockLength();
+
+    /**
+     * Get the number of bytes that have been added to this {@link ResumableHashFunction} since it
+     * was created or last reset.
+     */
+    public long getByteCount();
+
+    /**
+     * Get the intermediate state of this {@link ResumableHashFunction}. This doesn't change the
+     * state of this {@link ResumableHashFunction}.
+     * @return The intermediate state in a form that can be passed to
+     * {@link #restoreState(byte[])}.
+     */
+    public byte[] exportState();
+
+    /**
+     * Replace the state of this {@link ResumableHashFunction} with the provided state that was
+     * exported from a {@link ResumableHashFunction} of the same algorithm.
+     * @param state The state to restore.
+     */
+    public void restoreState(byte[] state);
+}
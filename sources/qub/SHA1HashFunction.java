@@ -0,0 +1,95 @@
+package qub;
+
+/**
+ * A pure-Java {@link ResumableHashFunction} that implements the SHA-1 algorithm.
+ */
+public class SHA1HashFunction extends BlockHashFunctionBase
+{
+    private static final byte stateId = 2;
+
+    private static final int[] initialState = new int[]
+    {
+        0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0,
+    };
+
+    private final int[] messageSchedule;
+
+    private SHA1HashFunction()
+    {
+        super(SHA1HashFunction.stateId, SHA1HashFunction.initialState, false);
+
+        this.messageSchedule = new int[80];
+    }
+
+    /**
+     * Create a new {@link SHA1HashFunction}.
+     */
+    public static SHA1HashFunction create()
+    {
+        return new SHA1HashFunction();
+    }
+
+    @Override
+    public String getAlgorithm()
+    {
+        return "SHA-1";
+    }
+
+    @Override
+    void consumeBlock(byte[] values, int startIndex)
+    {
+        final int[] w = this.messageSchedule;
+        for (int i = 0; i < 16; ++i)
+        {
+            w[i] = BigEndian.readInt(values, startIndex + (i * 4));
+        }
+        for (int i = 16; i < 80; ++i)
+        {
+            w[i] = Integer.rotateLeft(w[i - 3] ^ w[i - 8] ^ w[i - 14] ^ w[i - 16], 1);
+        }
+
+        final int[] state = this.state;
+        int a = state[0];
+        int b = state[1];
+        int c = state[2];
+        int d = state[3];
+        int e = state[4];
+        for (int i = 0; i < 80; ++i)
+        {
+            final int f;
+            final int k;
+            if (i < 20)
+            {
+                f = (b & c) | (~b & d);
+                k = 0x5A827999;
+            }
+            else if (i < 40)
+            {
+                f = b ^ c ^ d;
+                k = 0x6ED9EBA1;
+            }
+            else if (i < 60)
+            {
+                f = (b & c) | (b & d) | (c & d);
+                k = 0x8F1BBCDC;
+            }
+            else
+            {
+                f = b ^ c ^ d;
+                k = 0xCA62C1D6;
+            }
+
+            final int temp = Integer.rotateLeft(a, 5) + f + e + k + w[i];
+            e = d;
+            d = c;
+            c = Integer.rotateLeft(b, 30);
+            b = a;
+            a = temp;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+    }
+}
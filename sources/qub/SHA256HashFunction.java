@@ -0,0 +1,103 @@
+package qub;
+
+/**
+ * A pure-Java {@link ResumableHashFunction} that implements the SHA-256 algorithm.
+ */
+public class SHA256HashFunction extends BlockHashFunctionBase
+{
+    private static final byte stateId = 3;
+
+    private static final int[] initialState = new int[]
+    {
+        0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19,
+    };
+
+    private static final int[] roundConstants = new int[]
+    {
+        0x428A2F98, 0x71374491, 0xB5C0FBCF, 0xE9B5DBA5, 0x3956C25B, 0x59F111F1, 0x923F82A4, 0xAB1C5ED5,
+        0xD807AA98, 0x12835B01, 0x243185BE, 0x550C7DC3, 0x72BE5D74, 0x80DEB1FE, 0x9BDC06A7, 0xC19BF174,
+        0xE49B69C1, 0xEFBE4786, 0x0FC19DC6, 0x240CA1CC, 0x2DE92C6F, 0x4A7484AA, 0x5CB0A9DC, 0x76F988DA,
+        0x983E5152, 0xA831C66D, 0xB00327C8, 0xBF597FC7, 0xC6E00BF3, 0xD5A79147, 0x06CA6351, 0x14292967,
+        0x27B70A85, 0x2E1B2138, 0x4D2C6DFC, 0x53380D13, 0x650A7354, 0x766A0ABB, 0x81C2C92E, 0x92722C85,
+        0xA2BFE8A1, 0xA81A664B, 0xC24B8B70, 0xC76C51A3, 0xD192E819, 0xD6990624, 0xF40E3585, 0x106AA070,
+        0x19A4C116, 0x1E376C08, 0x2748774C, 0x34B0BCB5, 0x391C0CB3, 0x4ED8AA4A, 0x5B9CCA4F, 0x682E6FF3,
+        0x748F82EE, 0x78A5636F, 0x84C87814, 0x8CC70208, 0x90BEFFFA, 0xA4506CEB, 0xBEF9A3F7, 0xC67178F2,
+    };
+
+    private final int[] messageSchedule;
+
+    private SHA256HashFunction()
+    {
+        super(SHA256HashFunction.stateId, SHA256HashFunction.initialState, false);
+
+        this.messageSchedule = new int[64];
+    }
+
+    /**
+     * Create a new {@link SHA256HashFunction}.
+     */
+    public static SHA256HashFunction create()
+    {
+        return new SHA256HashFunction();
+    }
+
+    @Override
+    public String getAlgorithm()
+    {
+        return "SHA-256";
+    }
+
+    @Override
+    void consumeBlock(byte[] values, int startIndex)
+    {
+        final int[] w = this.messageSchedule;
+        for (int i = 0; i < 16; ++i)
+        {
+            w[i] = BigEndian.readInt(values, startIndex + (i * 4));
+        }
+        for (int i = 16; i < 64; ++i)
+        {
+            final int w15 = w[i - 15];
+            final int w2 = w[i - 2];
+            final int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+            final int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+
+        final int[] state = this.state;
+        int a = state[0];
+        int b = state[1];
+        int c = state[2];
+        int d = state[3];
+        int e = state[4];
+        int f = state[5];
+        int g = state[6];
+        int h = state[7];
+        for (int i = 0; i < 64; ++i)
+        {
+            final int s1 = Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25);
+            final int choose = (e & f) ^ (~e & g);
+            final int temp1 = h + s1 + choose + SHA256HashFunction.roundConstants[i] + w[i];
+            final int s0 = Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22);
+            final int majority = (a & b) ^ (a & c) ^ (b & c);
+            final int temp2 = s0 + majority;
+
+            h = g;
+            g = f;
+            f = e;
+            e = d + temp1;
+            d = c;
+            c = b;
+            b = a;
+            a = temp1 + temp2;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+}
@@ -0,0 +1,93 @@
+package qub;
+
+/**
+ * A router that maps keys to the nodes (shards, cache servers, storage nodes, ...) that own them.
+ * Keys are hashed with the 64-bit XXH3 hash, and looking up the node for a key never allocates.
+ * <p>
+ * Unlike taking the hash of a key modulo the number of nodes, the {@link ShardRouter}
+ * implementations only move a small fraction of the keys when a node is added or removed.
+ * Nodes are identified by their {@link Object#toString()} value, so a node is routed the same
+ * keys in every process that uses the same node names.
+ * @param <T> The type of the nodes.
+ */
+public interface ShardRouter<T>
+{
+    /**
+     * Get the 64-bit hash that the {@link ShardRouter}s use for the provided key.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     */
+    public static long hashKey(byte[] key, int startIndex, int length)
+    {
+        return XXH3HashFunction.hash(key, startIndex, length, 0);
+    }
+
+    /**
+     * Get the bytes that identify the provided node.
+     * @param node The node.
+     */
+    static byte[] getNodeNameBytes(Object node)
+    {
+        PreCondition.assertNotNull(node, "node");
+
+        return node.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of nodes in this {@link ShardRouter}.
+     */
+    public int getNodeCount();
+
+    /**
+     * Get a copy of the nodes in this {@link ShardRouter}.
+     */
+    public java.util.List<T> getNodes();
+
+    /**
+     * Add the provided node to this {@link ShardRouter}.
+     * @param node The node to add.
+     * @return Whether the node was added. A node that is already in this {@link ShardRouter} isn't
+     * added again.
+     */
+    public boolean addNode(T node);
+
+    /**
+     * Remove the provided node from this {@link ShardRouter}.
+     * @param node The node to remove.
+     * @return Whether the node was found and removed.
+     */
+    public boolean removeNode(T node);
+
+    /**
+     * Get the node that owns the key with the provided hash.
+     * @param keyHash The hash of the key, as returned by
+     * {@link #hashKey(byte[], int, int)}.
+     * @return The node that owns the key, or null if this {@link ShardRouter} has no nodes.
+     */
+    public T getNode(long keyHash);
+
+    /**
+     * Get the node that owns the provided key.
+     * @param key The bytes of the key.
+     * @return The node that owns the key, or null if this {@link ShardRouter} has no nodes.
+     */
+    public default T getNode(byte[] key)
+    {
+        PreCondition.assertNotNull(key, "key");
+
+        return this.getNode(key, 0, key.length);
+    }
+
+    /**
+     * Get the node that owns the provided key.
+     * @param key The bytes of the key.
+     * @param startIndex The index of the first byte of the key.
+     * @param length The number of bytes in the key.
+     * @return The node that owns the key, or null if this {@link ShardRouter} has no nodes.
+     */
+    public default T getNode(byte[] key, int startIndex, int length)
+    {
+        return this.getNode(ShardRouter.hashKey(key, startIndex, length));
+    }
+}
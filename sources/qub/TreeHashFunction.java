@@ -0,0 +1,494 @@
+package qub;
+
+/**
+ * A {@link HashFunction} that splits its input into fixed-size leaves, hashes the leaves in
+ * parallel on a {@link java.util.concurrent.ForkJoinPool}, and then combines the leaf digests into
+ * a single root digest.
+ * <p>
+ * The digest that this function produces is defined as follows, where H is the leaf
+ * {@link HashFunction} and || is concatenation:
+ * <ul>
+ *     <li>The input is split into leaves of leafSize bytes. The last leaf may be shorter than
+ *     leafSize. An empty input consists of a single empty leaf.</li>
+ *     <li>The digest of a leaf is H(0x00 || leaf).</li>
+ *     <li>The digest of an interior node is H(0x01 || left || right), where left and right are
+ *     the digests of adjacent nodes on the level below, paired from the start of the level.</li>
+ *     <li>If a level has an odd number of nodes, then its last node is promoted to the next level
+ *     unchanged.</li>
+ *     <li>The digest of the tree is the digest of the single node on the top level.</li>
+ * </ul>
+ * The digest only depends on the leaf {@link HashFunction}, the leaf size, and the bytes that are
+ * added, so it is the same no matter how the bytes are split across calls or how many threads
+ * are used to compute it.
+ * <p>
+ * Only a bounded number of leaves are hashed at a time. As the leaves finish in order, their
+ * digests are folded into a stack of the digests of complete subtrees, so the memory that this
+ * function uses grows with the logarithm of the number of leaves instead of with the number of
+ * bytes that are added.
+ */
+public class TreeHashFunction implements HashFunction
+{
+    /**
+     * The default number of bytes in each leaf.
+     */
+    public static final int defaultLeafSize = 1024 * 1024;
+
+    private static final byte leafPrefix = 0x00;
+    private static final byte nodePrefix = 0x01;
+
+    private final Function0<Result<? extends HashFunction>> leafHashFunctionCreator;
+    private final int leafSize;
+    private final java.util.concurrent.ForkJoinPool pool;
+    private final java.util.concurrent.ConcurrentLinkedQueue<HashFunction> idleHashFunctions;
+    private final java.util.concurrent.ConcurrentLinkedQueue<byte[]> idleLeafBuffers;
+    private final java.util.ArrayDeque<java.util.concurrent.ForkJoinTask<byte[]>> unfinishedLeaves;
+    private final java.util.ArrayList<byte[]> subtreeDigests;
+    private final int digestLength;
+    private long finishedLeafCount;
+    private byte[] leafBuffer;
+    private int leafBufferLength;
+    private boolean disposed;
+
+    private TreeHashFunction(Function0<Result<? extends HashFunction>> leafHashFunctionCreator, int leafSize, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(leafHashFunctionCreator, "leafHashFunctionCreator");
+        PreCondition.assertGreaterThanOrEqualTo(leafSize, 1, "leafSize");
+        PreCondition.assertNotNull(pool, "pool");
+
+        this.leafHashFunctionCreator = leafHashFunctionCreator;
+        this.leafSize = leafSize;
+        this.pool = pool;
+        this.idleHashFunctions = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.idleLeafBuffers = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.unfinishedLeaves = new java.util.ArrayDeque<>();
+        this.subtreeDigests = new java.util.ArrayList<>();
+
+        final HashFunction firstHashFunction = this.createLeafHashFunction();
+        this.digestLength = firstHashFunction.getDigestLength();
+        this.idleHashFunctions.add(firstHashFunction);
+    }
+
+    /**
+     * Create a new {@link TreeHashFunction} that uses SHA-256 to hash its leaves and nodes.
+     */
+    public static Result<TreeHashFunction> createSHA256()
+    {
+        return TreeHashFunction.create(HashFunction::createSHA256);
+    }
+
+    /**
+     * Create a new {@link TreeHashFunction} that uses the default leaf size and the common
+     * {@link java.util.concurrent.ForkJoinPool}.
+     * @param leafHashFunctionCreator The function that creates the {@link HashFunction}s that
+     *                                will hash the leaves and nodes of the tree.
+     */
+    public static Result<TreeHashFunction> create(Function0<Result<? extends HashFunction>> leafHashFunctionCreator)
+    {
+        return TreeHashFunction.create(leafHashFunctionCreator, TreeHashFunction.defaultLeafSize);
+    }
+
+    /**
+     * Create a new {@link TreeHashFunction} that uses the common
+     * {@link java.util.concurrent.ForkJoinPool}.
+     * @param leafHashFunctionCreator The function that creates the {@link HashFunction}s that
+     *                                will hash the leaves and nodes of the tree.
+     * @param leafSize The number of bytes in each leaf.
+     */
+    public static Result<TreeHashFunction> create(Function0<Result<? extends HashFunction>> leafHashFunctionCreator, int leafSize)
+    {
+        return TreeHashFunction.create(leafHashFunctionCreator, leafSize, java.util.concurrent.ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new {@link TreeHashFunction}.
+     * @param leafHashFunctionCreator The function that creates the {@link HashFunction}s that
+     *                                will hash the leaves and nodes of the tree.
+     * @param leafSize The number of bytes in each leaf.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that leaves will be hashed on.
+     */
+    public static Result<TreeHashFunction> create(Function0<Result<? extends HashFunction>> leafHashFunctionCreator, int leafSize, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(leafHashFunctionCreator, "leafHashFunctionCreator");
+        PreCondition.assertGreaterThanOrEqualTo(leafSize, 1, "leafSize");
+        PreCondition.assertNotNull(pool, "pool");
+
+        return Result.create(() ->
+        {
+            return new TreeHashFunction(leafHashFunctionCreator, leafSize, pool);
+        });
+    }
+
+    /**
+     * Get the number of bytes in each leaf of this {@link TreeHashFunction}.
+     */
+    public int getLeafSize()
+    {
+        return this.leafSize;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.ensureLeafBuffer();
+        this.leafBuffer[this.leafBufferLength++] = value;
+        this.submitFullLeafBuffer();
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        if (this.leafBufferLength > 0)
+        {
+            final int bytesToCopy = Math.minimum(length, this.leafSize - this.leafBufferLength);
+            System.arraycopy(values, startIndex, this.leafBuffer, this.leafBufferLength, bytesToCopy);
+            this.leafBufferLength += bytesToCopy;
+            startIndex += bytesToCopy;
+            length -= bytesToCopy;
+            this.submitFullLeafBuffer();
+        }
+
+        if (length >= this.leafSize)
+        {
+            // The caller owns values, so the full leaves are hashed in place and must be finished
+            // before this method returns.
+            while (length >= this.leafSize)
+            {
+                final int leafStartIndex = startIndex;
+                this.submitLeaf(() -> this.hashLeaf(values, leafStartIndex, this.leafSize));
+                startIndex += this.leafSize;
+                length -= this.leafSize;
+            }
+            this.joinUnfinishedLeaves();
+        }
+
+        if (length > 0)
+        {
+            this.ensureLeafBuffer();
+            System.arraycopy(values, startIndex, this.leafBuffer, 0, length);
+            this.leafBufferLength = length;
+        }
+    }
+
+    @Override
+    public void addBytes(java.nio.ByteBuffer values)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertNotDisposed(this, "this");
+
+        if (this.leafBufferLength > 0)
+        {
+            final int bytesToCopy = Math.minimum(values.remaining(), this.leafSize - this.leafBufferLength);
+            values.get(this.leafBuffer, this.leafBufferLength, bytesToCopy);
+            this.leafBufferLength += bytesToCopy;
+            this.submitFullLeafBuffer();
+        }
+
+        if (values.remaining() >= this.leafSize)
+        {
+            // The caller owns values, so the full leaves are hashed in place and must be finished
+            // before this method returns.
+            while (values.remaining() >= this.leafSize)
+            {
+                final java.nio.ByteBuffer leaf = values.slice();
+                leaf.limit(this.leafSize);
+                this.submitLeaf(() -> this.hashLeaf(leaf));
+                values.position(values.position() + this.leafSize);
+            }
+            this.joinUnfinishedLeaves();
+        }
+
+        if (values.hasRemaining())
+        {
+            this.ensureLeafBuffer();
+            this.leafBufferLength = values.remaining();
+            values.get(this.leafBuffer, 0, this.leafBufferLength);
+        }
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return this.digestLength;
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final BitArray result = BitArray.createFromBytes(this.takeRootDigest());
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - this.getDigestLength(), "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] rootDigest = this.takeRootDigest();
+        System.arraycopy(rootDigest, 0, output, outputStartIndex, rootDigest.length);
+        return rootDigest.length;
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final BitArray result = BitArray.createFromBytes(this.getRootDigest());
+
+        PostCondition.assertNotNullAndNotEmpty(result, "result");
+
+        return result;
+    }
+
+    /**
+     * Finish hashing the leaves, combine them into the root digest, and reset this
+     * {@link TreeHashFunction}.
+     */
+    private byte[] takeRootDigest()
+    {
+        final byte[] result = this.getRootDigest();
+
+        this.subtreeDigests.clear();
+        this.finishedLeafCount = 0;
+        this.leafBufferLength = 0;
+
+        return result;
+    }
+
+    /**
+     * Wait for the leaves to finish hashing and combine them into the root digest without
+     * changing the digest that this {@link TreeHashFunction} will produce.
+     */
+    private byte[] getRootDigest()
+    {
+        this.joinUnfinishedLeaves();
+
+        int subtreeIndex = this.subtreeDigests.size() - 1;
+        byte[] result;
+        if (this.leafBufferLength > 0 || this.finishedLeafCount == 0)
+        {
+            result = this.hashLeaf(this.leafBuffer == null ? new byte[0] : this.leafBuffer, 0, this.leafBufferLength);
+        }
+        else
+        {
+            result = this.subtreeDigests.get(subtreeIndex--);
+        }
+
+        if (subtreeIndex >= 0)
+        {
+            // Promoting the last node of each odd level is the same as combining the complete
+            // subtrees from the right.
+            final HashFunction nodeHashFunction = this.acquireLeafHashFunction();
+            try
+            {
+                for (; subtreeIndex >= 0; subtreeIndex--)
+                {
+                    result = this.hashNode(nodeHashFunction, this.subtreeDigests.get(subtreeIndex), result);
+                }
+            }
+            finally
+            {
+                this.idleHashFunctions.add(nodeHashFunction);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void reset()
+    {
+        for (final java.util.concurrent.ForkJoinTask<byte[]> unfinishedLeaf : this.unfinishedLeaves)
+        {
+            unfinishedLeaf.quietlyJoin();
+        }
+        this.unfinishedLeaves.clear();
+        this.subtreeDigests.clear();
+        this.finishedLeafCount = 0;
+        this.leafBufferLength = 0;
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.reset();
+
+                HashFunction hashFunction = this.idleHashFunctions.poll();
+                while (hashFunction != null)
+                {
+                    hashFunction.dispose().await();
+                    hashFunction = this.idleHashFunctions.poll();
+                }
+            }
+            return result;
+        });
+    }
+
+    private HashFunction createLeafHashFunction()
+    {
+        final HashFunction result = this.leafHashFunctionCreator.run().await();
+
+        PostCondition.assertNotNull(result, "result");
+
+        return result;
+    }
+
+    private HashFunction acquireLeafHashFunction()
+    {
+        final HashFunction result = this.idleHashFunctions.poll();
+        return result != null ? result : this.createLeafHashFunction();
+    }
+
+    private byte[] hashLeaf(byte[] values, int startIndex, int length)
+    {
+        final HashFunction hashFunction = this.acquireLeafHashFunction();
+        try
+        {
+            hashFunction.addByte(TreeHashFunction.leafPrefix);
+            hashFunction.addBytes(values, startIndex, length);
+            final byte[] result = new byte[this.digestLength];
+            hashFunction.takeDigest(result, 0);
+            return result;
+        }
+        finally
+        {
+            this.idleHashFunctions.add(hashFunction);
+        }
+    }
+
+    private byte[] hashLeaf(java.nio.ByteBuffer values)
+    {
+        final HashFunction hashFunction = this.acquireLeafHashFunction();
+        try
+        {
+            hashFunction.addByte(TreeHashFunction.leafPrefix);
+            hashFunction.addBytes(values);
+            final byte[] result = new byte[this.digestLength];
+            hashFunction.takeDigest(result, 0);
+            return result;
+        }
+        finally
+        {
+            this.idleHashFunctions.add(hashFunction);
+        }
+    }
+
+    private byte[] hashNode(HashFunction nodeHashFunction, byte[] left, byte[] right)
+    {
+        nodeHashFunction.addByte(TreeHashFunction.nodePrefix);
+        nodeHashFunction.addBytes(left);
+        nodeHashFunction.addBytes(right);
+        final byte[] result = new byte[this.digestLength];
+        nodeHashFunction.takeDigest(result, 0);
+        return result;
+    }
+
+    private void ensureLeafBuffer()
+    {
+        if (this.leafBuffer == null)
+        {
+            final byte[] idleLeafBuffer = this.idleLeafBuffers.poll();
+            this.leafBuffer = idleLeafBuffer != null ? idleLeafBuffer : new byte[this.leafSize];
+        }
+    }
+
+    /**
+     * If the leaf buffer is full, then hand it off to be hashed in the background and start a new
+     * leaf buffer. The full leaf buffer is reused once its digest has been computed.
+     */
+    private void submitFullLeafBuffer()
+    {
+        if (this.leafBufferLength == this.leafSize)
+        {
+            final byte[] leaf = this.leafBuffer;
+            this.leafBuffer = null;
+            this.leafBufferLength = 0;
+            this.submitLeaf(() ->
+            {
+                final byte[] result = this.hashLeaf(leaf, 0, leaf.length);
+                this.idleLeafBuffers.add(leaf);
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Start hashing a leaf in the background. Don't let an unbounded number of leaves queue up if
+     * the input is arriving faster than the pool can hash it.
+     * @param hashLeaf The function that will return the digest of the leaf.
+     */
+    private void submitLeaf(java.util.concurrent.Callable<byte[]> hashLeaf)
+    {
+        this.unfinishedLeaves.add(this.pool.submit(hashLeaf));
+
+        final int maximumUnfinishedLeaves = this.pool.getParallelism() * 2;
+        while (this.unfinishedLeaves.size() > maximumUnfinishedLeaves)
+        {
+            this.joinFirstUnfinishedLeaf();
+        }
+    }
+
+    private void joinUnfinishedLeaves()
+    {
+        while (!this.unfinishedLeaves.isEmpty())
+        {
+            this.joinFirstUnfinishedLeaf();
+        }
+    }
+
+    /**
+     * Wait for the oldest unfinished leaf to finish hashing, and then fold its digest into the
+     * stack of complete subtree digests. The task is dropped so that it doesn't keep the leaf's
+     * bytes alive.
+     */
+    private void joinFirstUnfinishedLeaf()
+    {
+        byte[] digest = this.unfinishedLeaves.poll().join();
+        this.finishedLeafCount++;
+
+        // The k-th leaf completes one subtree for each trailing zero bit of k.
+        final int mergeCount = Long.numberOfTrailingZeros(this.finishedLeafCount);
+        if (mergeCount > 0)
+        {
+            final HashFunction nodeHashFunction = this.acquireLeafHashFunction();
+            try
+            {
+                for (int i = 0; i < mergeCount; i++)
+                {
+                    digest = this.hashNode(nodeHashFunction, this.subtreeDigests.remove(this.subtreeDigests.size() - 1), digest);
+                }
+            }
+            finally
+            {
+                this.idleHashFunctions.add(nodeHashFunction);
+            }
+        }
+        this.subtreeDigests.add(digest);
+    }
+}
@@ -0,0 +1,424 @@
+package qub;
+
+/**
+ * A {@link ByteReadStream} that verifies the bytes that are read against the expected chunk
+ * digests in a {@link DigestManifest}. Unlike a {@link HashFunctionByteReadStream}, which can only
+ * be checked after the whole stream has been read, each chunk is verified as soon as all of its
+ * bytes have arrived, and chunks are hashed in parallel on a
+ * {@link java.util.concurrent.ForkJoinPool} while the next chunks are being read.
+ * <p>
+ * Verification fails fast: once any chunk is found not to match, the next read fails with a
+ * {@link ChunkDigestMismatchException} that gives the offset of the earliest mismatched chunk
+ * that has been found. Because chunks are verified in the background, bytes from a mismatched
+ * chunk (and a few chunks after it) may already have been returned by earlier reads. Reaching the
+ * end of the inner stream waits for every chunk to be verified, so a stream that is read to the
+ * end without errors matches the manifest exactly. If the inner stream ends early, the chunks that
+ * weren't read count as mismatched.
+ * <p>
+ * At most maximumInFlightChunks chunks are waiting to be verified at once, so a slow
+ * {@link HashFunction} slows down reading instead of letting chunk buffers pile up. Chunk buffers
+ * and {@link HashFunction}s are reused from one chunk to the next.
+ */
+public class VerifyingByteReadStream implements ByteReadStream
+{
+    private final ByteReadStream innerStream;
+    private final DigestManifest manifest;
+    private final Function0<Result<? extends HashFunction>> hashFunctionCreator;
+    private final java.util.concurrent.ForkJoinPool pool;
+    private final int maximumInFlightChunks;
+    private final java.util.concurrent.Semaphore inFlightPermits;
+    private final java.util.concurrent.ConcurrentLinkedQueue<HashFunction> idleHashFunctions;
+    private final java.util.concurrent.ConcurrentLinkedQueue<byte[]> idleChunkBuffers;
+    private final java.util.BitSet mismatchedChunks;
+    private final byte[] singleByte;
+    private volatile boolean hasMismatch;
+    private volatile Throwable verificationError;
+    private byte[] chunkBuffer;
+    private int chunkBufferLength;
+    private int chunkIndex;
+    private long bytesRead;
+    private boolean isDisposed;
+
+    private VerifyingByteReadStream(ByteReadStream innerStream, DigestManifest manifest, Function0<Result<? extends HashFunction>> hashFunctionCreator, java.util.concurrent.ForkJoinPool pool, int maximumInFlightChunks)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(manifest, "manifest");
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(pool, "pool");
+        PreCondition.assertGreaterThanOrEqualTo(maximumInFlightChunks, 1, "maximumInFlightChunks");
+
+        this.innerStream = innerStream;
+        this.manifest = manifest;
+        this.hashFunctionCreator = hashFunctionCreator;
+        this.pool = pool;
+        this.maximumInFlightChunks = maximumInFlightChunks;
+        this.inFlightPermits = new java.util.concurrent.Semaphore(maximumInFlightChunks);
+        this.idleHashFunctions = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.idleChunkBuffers = new java.util.concurrent.ConcurrentLinkedQueue<>();
+        this.mismatchedChunks = new java.util.BitSet(manifest.getChunkCount());
+        this.singleByte = new byte[1];
+    }
+
+    /**
+     * Create a new {@link VerifyingByteReadStream} that allows two chunks per thread of the
+     * provided pool to wait for verification at once.
+     * @param innerStream The stream that bytes will be read from.
+     * @param manifest The expected digests of the chunks of the inner stream.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will
+     * hash the chunks. They must produce digests with the manifest's digest length.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that the chunks will be hashed on.
+     */
+    public static Result<VerifyingByteReadStream> create(ByteReadStream innerStream, DigestManifest manifest, Function0<Result<? extends HashFunction>> hashFunctionCreator, java.util.concurrent.ForkJoinPool pool)
+    {
+        PreCondition.assertNotNull(pool, "pool");
+
+        return VerifyingByteReadStream.create(innerStream, manifest, hashFunctionCreator, pool, pool.getParallelism() * 2);
+    }
+
+    /**
+     * Create a new {@link VerifyingByteReadStream}.
+     * @param innerStream The stream that bytes will be read from.
+     * @param manifest The expected digests of the chunks of the inner stream.
+     * @param hashFunctionCreator The function that creates the {@link HashFunction}s that will
+     * hash the chunks. They must produce digests with the manifest's digest length.
+     * @param pool The {@link java.util.concurrent.ForkJoinPool} that the chunks will be hashed on.
+     * @param maximumInFlightChunks The maximum number of chunks that can be waiting to be verified
+     * at the same time.
+     */
+    public static Result<VerifyingByteReadStream> create(ByteReadStream innerStream, DigestManifest manifest, Function0<Result<? extends HashFunction>> hashFunctionCreator, java.util.concurrent.ForkJoinPool pool, int maximumInFlightChunks)
+    {
+        PreCondition.assertNotNull(innerStream, "innerStream");
+        PreCondition.assertNotNull(manifest, "manifest");
+        PreCondition.assertNotNull(hashFunctionCreator, "hashFunctionCreator");
+        PreCondition.assertNotNull(pool, "pool");
+        PreCondition.assertGreaterThanOrEqualTo(maximumInFlightChunks, 1, "maximumInFlightChunks");
+
+        return Result.create(() ->
+        {
+            final HashFunction hashFunction = hashFunctionCreator.run().await();
+            if (hashFunction.getDigestLength() != manifest.getDigestLength())
+            {
+                hashFunction.dispose().await();
+                PreCondition.assertEqual(manifest.getDigestLength(), hashFunction.getDigestLength(), "hashFunction.getDigestLength()");
+            }
+
+            final VerifyingByteReadStream result = new VerifyingByteReadStream(innerStream, manifest, hashFunctionCreator, pool, maximumInFlightChunks);
+            result.idleHashFunctions.add(hashFunction);
+            return result;
+        });
+    }
+
+    /**
+     * Create a new {@link VerifyingByteReadStream} that verifies SHA-256 chunk digests on the
+     * common {@link java.util.concurrent.ForkJoinPool}.
+     * @param innerStream The stream that bytes will be read from.
+     * @param manifest The expected SHA-256 digests of the chunks of the inner stream.
+     */
+    public static Result<VerifyingByteReadStream> createSHA256(ByteReadStream innerStream, DigestManifest manifest)
+    {
+        return VerifyingByteReadStream.create(innerStream, manifest, HashFunction::createSHA256, java.util.concurrent.ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Get the {@link DigestManifest} that this stream is verified against.
+     */
+    public DigestManifest getManifest()
+    {
+        return this.manifest;
+    }
+
+    /**
+     * Get the maximum number of chunks that can be waiting to be verified at the same time.
+     */
+    public int getMaximumInFlightChunks()
+    {
+        return this.maximumInFlightChunks;
+    }
+
+    /**
+     * Get the number of bytes that have been read from this stream.
+     */
+    public long getBytesRead()
+    {
+        return this.bytesRead;
+    }
+
+    @Override
+    public Result<Byte> readByte()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        return Result.create(() ->
+        {
+            this.throwIfMismatched();
+
+            final byte value;
+            try
+            {
+                value = this.innerStream.readByte().await();
+            }
+            catch (EmptyException e)
+            {
+                this.finishStream();
+                throw e;
+            }
+
+            this.singleByte[0] = value;
+            this.addToChunks(this.singleByte, 0, 1);
+            return value;
+        });
+    }
+
+    @Override
+    public Result<Integer> readBytes(byte[] outputBytes, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(outputBytes, "outputBytes");
+        PreCondition.assertStartIndex(startIndex, outputBytes.length);
+        PreCondition.assertLength(length, startIndex, outputBytes.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        return Result.create(() ->
+        {
+            this.throwIfMismatched();
+
+            final int bytesRead;
+            try
+            {
+                bytesRead = this.innerStream.readBytes(outputBytes, startIndex, length).await();
+            }
+            catch (EmptyException e)
+            {
+                this.finishStream();
+                throw e;
+            }
+
+            this.addToChunks(outputBytes, startIndex, bytesRead);
+            return bytesRead;
+        });
+    }
+
+    /**
+     * Copy the provided bytes into the current chunk buffer, and start verifying each chunk that
+     * they complete.
+     */
+    private void addToChunks(byte[] values, int startIndex, int length)
+    {
+        if (this.manifest.getDataLength() - this.bytesRead < length)
+        {
+            throw Exceptions.asRuntime(new java.io.IOException("The stream is longer than the " + this.manifest.getDataLength() + " bytes in the digest manifest."));
+        }
+        this.bytesRead += length;
+
+        int index = startIndex;
+        final int endIndex = startIndex + length;
+        while (index < endIndex)
+        {
+            if (this.chunkBuffer == null)
+            {
+                this.chunkBuffer = this.idleChunkBuffers.poll();
+                if (this.chunkBuffer == null)
+                {
+                    this.chunkBuffer = new byte[this.manifest.getChunkSize()];
+                }
+            }
+
+            final int chunkLength = this.manifest.getChunkLength(this.chunkIndex);
+            final int copyLength = Math.minimum(chunkLength - this.chunkBufferLength, endIndex - index);
+            System.arraycopy(values, index, this.chunkBuffer, this.chunkBufferLength, copyLength);
+            this.chunkBufferLength += copyLength;
+            index += copyLength;
+
+            if (this.chunkBufferLength == chunkLength)
+            {
+                this.verifyChunk();
+            }
+        }
+    }
+
+    /**
+     * Start verifying the current chunk buffer on the pool, waiting first if too many chunks are
+     * already waiting to be verified.
+     */
+    private void verifyChunk()
+    {
+        try
+        {
+            this.inFlightPermits.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw Exceptions.asRuntime(e);
+        }
+
+        final byte[] chunk = this.chunkBuffer;
+        final int chunkIndex = this.chunkIndex;
+        final int chunkLength = this.chunkBufferLength;
+        this.chunkBuffer = null;
+        this.chunkBufferLength = 0;
+        ++this.chunkIndex;
+
+        try
+        {
+            this.pool.execute(() ->
+            {
+                try
+                {
+                    HashFunction hashFunction = this.idleHashFunctions.poll();
+                    if (hashFunction == null)
+                    {
+                        hashFunction = this.hashFunctionCreator.run().await();
+                    }
+
+                    final byte[] digest = new byte[this.manifest.getDigestLength()];
+                    DigestManifest.hashChunk(hashFunction, chunk, chunkLength, digest);
+                    this.idleHashFunctions.add(hashFunction);
+                    if (!this.manifest.matches(chunkIndex, digest))
+                    {
+                        this.setMismatched(chunkIndex, chunkIndex + 1);
+                    }
+                }
+                catch (Throwable e)
+                {
+                    this.verificationError = e;
+                }
+                finally
+                {
+                    this.idleChunkBuffers.add(chunk);
+                    this.inFlightPermits.release();
+                }
+            });
+        }
+        catch (Throwable e)
+        {
+            this.inFlightPermits.release();
+            throw e;
+        }
+    }
+
+    private void setMismatched(int startChunkIndex, int endChunkIndex)
+    {
+        synchronized (this.mismatchedChunks)
+        {
+            this.mismatchedChunks.set(startChunkIndex, endChunkIndex);
+        }
+        this.hasMismatch = true;
+    }
+
+    /**
+     * Called when the inner stream has no more bytes. Every chunk that wasn't read is marked as
+     * mismatched, and then this waits for the chunks that have been read to be verified.
+     */
+    private void finishStream()
+    {
+        if (this.bytesRead < this.manifest.getDataLength())
+        {
+            this.setMismatched(this.chunkIndex, this.manifest.getChunkCount());
+        }
+        this.awaitInFlightChunks();
+        this.throwIfMismatched();
+    }
+
+    /**
+     * Wait for every chunk that has been read to be verified.
+     */
+    private void awaitInFlightChunks()
+    {
+        try
+        {
+            this.inFlightPermits.acquire(this.maximumInFlightChunks);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw Exceptions.asRuntime(e);
+        }
+        this.inFlightPermits.release(this.maximumInFlightChunks);
+    }
+
+    /**
+     * Throw the error for the earliest chunk that is known not to match, if there is one.
+     */
+    private void throwIfMismatched()
+    {
+        if (this.verificationError != null)
+        {
+            throw Exceptions.asRuntime(this.verificationError);
+        }
+
+        if (this.hasMismatch)
+        {
+            final int mismatchedChunkIndex;
+            synchronized (this.mismatchedChunks)
+            {
+                mismatchedChunkIndex = this.mismatchedChunks.nextSetBit(0);
+            }
+            throw Exceptions.asRuntime(this.manifest.createMismatchException(mismatchedChunkIndex));
+        }
+    }
+
+    /**
+     * Wait for every chunk that has been read so far to be verified.
+     * @return A {@link Result} that fails with a {@link ChunkDigestMismatchException} for the
+     * earliest chunk that doesn't match, if any chunk doesn't match.
+     */
+    public Result<Void> awaitVerification()
+    {
+        return Result.create(() ->
+        {
+            this.awaitInFlightChunks();
+            this.throwIfMismatched();
+        });
+    }
+
+    /**
+     * Wait for every chunk that has been read so far to be verified, and then get the ranges of
+     * bytes that need to be fetched again. If the inner stream has ended early, then this includes
+     * the chunks that weren't read.
+     * @return The mismatched ranges, in order, with adjacent chunks joined.
+     */
+    public java.util.List<ChunkRange> getMismatchedRanges()
+    {
+        this.awaitInFlightChunks();
+
+        final java.util.BitSet mismatchedChunks;
+        synchronized (this.mismatchedChunks)
+        {
+            mismatchedChunks = (java.util.BitSet)this.mismatchedChunks.clone();
+        }
+        return this.manifest.getChunkRanges(mismatchedChunks);
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.isDisposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            final boolean result = !this.isDisposed;
+            if (result)
+            {
+                this.isDisposed = true;
+                this.chunkBuffer = null;
+                this.chunkBufferLength = 0;
+
+                this.awaitInFlightChunks();
+                HashFunction hashFunction = this.idleHashFunctions.poll();
+                while (hashFunction != null)
+                {
+                    hashFunction.dispose().await();
+                    hashFunction = this.idleHashFunctions.poll();
+                }
+                this.idleChunkBuffers.clear();
+
+                this.innerStream.dispose().await();
+            }
+            return result;
+        });
+    }
+}
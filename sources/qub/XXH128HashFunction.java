@@ -0,0 +1,142 @@
+package qub;
+
+/**
+ * A non-cryptographic {@link HashFunction} that implements the 128-bit variant of the XXH3 hash
+ * algorithm (XXH128). The digest is the big-endian form of the high 64 bits followed by the
+ * big-endian form of the low 64 bits, which matches the canonical form that the reference
+ * implementation produces.
+ */
+public class XXH128HashFunction extends XXH3HashFunctionBase
+{
+    private static final int digestLength = 2 * Long.BYTES;
+
+    private final long[] digest;
+
+    private XXH128HashFunction(long seed)
+    {
+        super(seed);
+
+        this.digest = new long[2];
+    }
+
+    /**
+     * Create a new {@link XXH128HashFunction} with a seed of 0.
+     */
+    public static XXH128HashFunction create()
+    {
+        return XXH128HashFunction.create(0);
+    }
+
+    /**
+     * Create a new {@link XXH128HashFunction} with the provided seed.
+     * @param seed The seed that the hash will be computed with.
+     */
+    public static XXH128HashFunction create(long seed)
+    {
+        return new XXH128HashFunction(seed);
+    }
+
+    /**
+     * Get the 128-bit XXH3 hash of the provided bytes. This doesn't allocate anything for inputs of
+     * up to 240 bytes. Longer inputs allocate a 64-byte array of accumulators, plus a secret if
+     * the seed isn't 0.
+     * @param values The bytes to hash.
+     * @param startIndex The index of the first byte to hash.
+     * @param length The number of bytes to hash.
+     * @param seed The seed that the hash will be computed with.
+     * @param output The array that the hash will be written to. The low 64 bits are written to
+     *               output[outputStartIndex] and the high 64 bits are written to
+     *               output[outputStartIndex + 1].
+     * @param outputStartIndex The index in output to write the hash to.
+     */
+    public static void hash(byte[] values, int startIndex, int length, long seed, long[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - 2, "outputStartIndex");
+
+        XXH3HashFunctionBase.hash128(values, startIndex, length, seed, output, outputStartIndex);
+    }
+
+    /**
+     * Complete this {@link XXH128HashFunction} and write the resulting hash into the provided
+     * output array. This will reset the {@link XXH128HashFunction} so that no trace of the
+     * operation remains.
+     * @param output The array that the hash will be written to. The low 64 bits are written to
+     *               output[outputStartIndex] and the high 64 bits are written to
+     *               output[outputStartIndex + 1].
+     * @param outputStartIndex The index in output to write the hash to.
+     */
+    public void takeLongDigest(long[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - 2, "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.digest128(output, outputStartIndex);
+        this.reset();
+    }
+
+    /**
+     * Write the hash of the bytes that have been added to this {@link XXH128HashFunction} so far
+     * into the provided output array without completing or resetting it.
+     * @param output The array that the hash will be written to. The low 64 bits are written to
+     *               output[outputStartIndex] and the high 64 bits are written to
+     *               output[outputStartIndex + 1].
+     * @param outputStartIndex The index in output to write the hash to.
+     */
+    public void peekLongDigest(long[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - 2, "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.digest128(output, outputStartIndex);
+    }
+
+    @Override
+    public int getDigestLength()
+    {
+        return XXH128HashFunction.digestLength;
+    }
+
+    @Override
+    public BitArray takeDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final byte[] digest = new byte[XXH128HashFunction.digestLength];
+        this.takeDigest(digest, 0);
+        return BitArray.createFromBytes(digest);
+    }
+
+    @Override
+    public BitArray peekDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.digest128(this.digest, 0);
+
+        final byte[] result = new byte[XXH128HashFunction.digestLength];
+        LongHashFunction.writeBigEndian(this.digest[1], result, 0);
+        LongHashFunction.writeBigEndian(this.digest[0], result, Long.BYTES);
+        return BitArray.createFromBytes(result);
+    }
+
+    @Override
+    public int takeDigest(byte[] output, int outputStartIndex)
+    {
+        PreCondition.assertNotNull(output, "output");
+        PreCondition.assertBetween(0, outputStartIndex, output.length - XXH128HashFunction.digestLength, "outputStartIndex");
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.digest128(this.digest, 0);
+        this.reset();
+
+        LongHashFunction.writeBigEndian(this.digest[1], output, outputStartIndex);
+        LongHashFunction.writeBigEndian(this.digest[0], output, outputStartIndex + Long.BYTES);
+        return XXH128HashFunction.digestLength;
+    }
+}
@@ -0,0 +1,78 @@
+package qub;
+
+/**
+ * A non-cryptographic {@link HashFunction} that implements the 64-bit variant of the XXH3 hash
+ * algorithm. The digest is the big-endian form of the 64-bit hash, which matches the canonical
+ * form that the reference implementation produces.
+ */
+public class XXH3HashFunction extends XXH3HashFunctionBase implements LongHashFunction
+{
+    private XXH3HashFunction(long seed)
+    {
+        super(seed);
+    }
+
+    /**
+     * Create a new {@link XXH3HashFunction} with a seed of 0.
+     */
+    public static XXH3HashFunction create()
+    {
+        return XXH3HashFunction.create(0);
+    }
+
+    /**
+     * Create a new {@link XXH3HashFunction} with the provided seed.
+     * @param seed The seed that the hash will be computed with.
+     */
+    public static XXH3HashFunction create(long seed)
+    {
+        return new XXH3HashFunction(seed);
+    }
+
+    /**
+     * Get the 64-bit XXH3 hash of the provided bytes with a seed of 0.
+     * @param values The bytes to hash.
+     */
+    public static long hash(byte[] values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        return XXH3HashFunction.hash(values, 0, values.length, 0);
+    }
+
+    /**
+     * Get the 64-bit XXH3 hash of the provided bytes. This doesn't allocate anything for inputs of
+     * up to 240 bytes. Longer inputs allocate a 64-byte array of accumulators, plus a secret if
+     * the seed isn't 0.
+     * @param values The bytes to hash.
+     * @param startIndex The index of the first byte to hash.
+     * @param length The number of bytes to hash.
+     * @param seed The seed that the hash will be computed with.
+     */
+    public static long hash(byte[] values, int startIndex, int length, long seed)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+
+        return XXH3HashFunctionBase.hash64(values, startIndex, length, seed);
+    }
+
+    @Override
+    public long takeLongDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final long result = this.digest64();
+        this.reset();
+        return result;
+    }
+
+    @Override
+    public long peekLongDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        return this.digest64();
+    }
+}
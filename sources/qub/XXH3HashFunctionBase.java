@@ -0,0 +1,646 @@
+package qub;
+
+/**
+ * The algorithm and streaming state that is shared by the 64-bit and 128-bit variants of the
+ * XXH3 hash algorithm.
+ */
+abstract class XXH3HashFunctionBase implements HashFunction
+{
+    static final long prime32_1 = 0x9E3779B1L;
+    static final long prime32_2 = 0x85EBCA77L;
+    static final long prime32_3 = 0xC2B2AE3DL;
+    static final long prime64_1 = XXH64HashFunction.prime1;
+    static final long prime64_2 = XXH64HashFunction.prime2;
+    static final long prime64_3 = XXH64HashFunction.prime3;
+    static final long prime64_4 = XXH64HashFunction.prime4;
+    static final long prime64_5 = XXH64HashFunction.prime5;
+    static final long primeMx1 = 0x165667919E3779F9L;
+    static final long primeMx2 = 0x9FB21C651E98DF25L;
+
+    static final int secretSize = 192;
+    static final int secretSizeMinimum = 136;
+    static final int stripeLength = 64;
+    static final int secretConsumeRate = 8;
+    static final int accumulatorCount = 8;
+    static final int midSizeMaximum = 240;
+    static final int midSizeStartOffset = 3;
+    static final int midSizeLastOffset = 17;
+    static final int secretLastAccumulatorStart = 7;
+    static final int secretMergeAccumulatorsStart = 11;
+    static final int stripesPerBlock = (XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength) / XXH3HashFunctionBase.secretConsumeRate;
+    static final int blockLength = XXH3HashFunctionBase.stripeLength * XXH3HashFunctionBase.stripesPerBlock;
+    static final int internalBufferSize = 256;
+    static final int internalBufferStripes = XXH3HashFunctionBase.internalBufferSize / XXH3HashFunctionBase.stripeLength;
+
+    /**
+     * The default secret from the reference implementation.
+     */
+    static final byte[] defaultSecret = XXH3HashFunctionBase.toBytes(new int[]
+    {
+        0xb8, 0xfe, 0x6c, 0x39, 0x23, 0xa4, 0x4b, 0xbe, 0x7c, 0x01, 0x81, 0x2c, 0xf7, 0x21, 0xad, 0x1c,
+        0xde, 0xd4, 0x6d, 0xe9, 0x83, 0x90, 0x97, 0xdb, 0x72, 0x40, 0xa4, 0xa4, 0xb7, 0xb3, 0x67, 0x1f,
+        0xcb, 0x79, 0xe6, 0x4e, 0xcc, 0xc0, 0xe5, 0x78, 0x82, 0x5a, 0xd0, 0x7d, 0xcc, 0xff, 0x72, 0x21,
+        0xb8, 0x08, 0x46, 0x74, 0xf7, 0x43, 0x24, 0x8e, 0xe0, 0x35, 0x90, 0xe6, 0x81, 0x3a, 0x26, 0x4c,
+        0x3c, 0x28, 0x52, 0xbb, 0x91, 0xc3, 0x00, 0xcb, 0x88, 0xd0, 0x65, 0x8b, 0x1b, 0x53, 0x2e, 0xa3,
+        0x71, 0x64, 0x48, 0x97, 0xa2, 0x0d, 0xf9, 0x4e, 0x38, 0x19, 0xef, 0x46, 0xa9, 0xde, 0xac, 0xd8,
+        0xa8, 0xfa, 0x76, 0x3f, 0xe3, 0x9c, 0x34, 0x3f, 0xf9, 0xdc, 0xbb, 0xc7, 0xc7, 0x0b, 0x4f, 0x1d,
+        0x8a, 0x51, 0xe0, 0x4b, 0xcd, 0xb4, 0x59, 0x31, 0xc8, 0x9f, 0x7e, 0xc9, 0xd9, 0x78, 0x73, 0x64,
+        0xea, 0xc5, 0xac, 0x83, 0x34, 0xd3, 0xeb, 0xc3, 0xc5, 0x81, 0xa0, 0xff, 0xfa, 0x13, 0x63, 0xeb,
+        0x17, 0x0d, 0xdd, 0x51, 0xb7, 0xf0, 0xda, 0x49, 0xd3, 0x16, 0x55, 0x26, 0x29, 0xd4, 0x68, 0x9e,
+        0x2b, 0x16, 0xbe, 0x58, 0x7d, 0x47, 0xa1, 0xfc, 0x8f, 0xf8, 0xb8, 0xd1, 0x7a, 0xd0, 0x31, 0xce,
+        0x45, 0xcb, 0x3a, 0x8f, 0x95, 0x16, 0x04, 0x28, 0xaf, 0xd7, 0xfb, 0xca, 0xbb, 0x4b, 0x40, 0x7e,
+    });
+
+    private final long seed;
+    private final byte[] secret;
+    private final long[] accumulators;
+    private final byte[] buffer;
+    private int bufferLength;
+    private long totalLength;
+    private int stripesSoFar;
+    private boolean disposed;
+
+    XXH3HashFunctionBase(long seed)
+    {
+        this.seed = seed;
+        this.secret = XXH3HashFunctionBase.createSecret(seed);
+        this.accumulators = new long[XXH3HashFunctionBase.accumulatorCount];
+        this.buffer = new byte[XXH3HashFunctionBase.internalBufferSize];
+        this.reset();
+    }
+
+    /**
+     * Get the seed that this hash function computes its hash with.
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        if (this.bufferLength == XXH3HashFunctionBase.internalBufferSize)
+        {
+            this.consumeBuffer();
+        }
+        this.buffer[this.bufferLength++] = value;
+        ++this.totalLength;
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.totalLength += length;
+
+        // The buffer is only consumed once more bytes arrive after it is full, so that it always
+        // contains the last bytes that were added when the digest is taken.
+        if (this.bufferLength + length <= XXH3HashFunctionBase.internalBufferSize)
+        {
+            System.arraycopy(values, startIndex, this.buffer, this.bufferLength, length);
+            this.bufferLength += length;
+        }
+        else
+        {
+            final int endIndex = startIndex + length;
+            if (this.bufferLength > 0)
+            {
+                final int bytesToCopy = XXH3HashFunctionBase.internalBufferSize - this.bufferLength;
+                System.arraycopy(values, startIndex, this.buffer, this.bufferLength, bytesToCopy);
+                startIndex += bytesToCopy;
+                this.consumeBuffer();
+            }
+
+            if (endIndex - startIndex > XXH3HashFunctionBase.internalBufferSize)
+            {
+                do
+                {
+                    this.stripesSoFar = XXH3HashFunctionBase.consumeStripes(this.accumulators, this.stripesSoFar, values, startIndex, XXH3HashFunctionBase.internalBufferStripes, this.secret);
+                    startIndex += XXH3HashFunctionBase.internalBufferSize;
+                }
+                while (endIndex - startIndex > XXH3HashFunctionBase.internalBufferSize);
+
+                // Keep the last stripe that was consumed in case it's needed for the digest.
+                System.arraycopy(values, startIndex - XXH3HashFunctionBase.stripeLength, this.buffer, XXH3HashFunctionBase.internalBufferSize - XXH3HashFunctionBase.stripeLength, XXH3HashFunctionBase.stripeLength);
+            }
+
+            System.arraycopy(values, startIndex, this.buffer, 0, endIndex - startIndex);
+            this.bufferLength = endIndex - startIndex;
+        }
+    }
+
+    /**
+     * Get the 64-bit hash of the bytes that have been added without resetting this hash function.
+     */
+    long digest64()
+    {
+        long result;
+        if (this.totalLength > XXH3HashFunctionBase.midSizeMaximum)
+        {
+            final long[] accumulators = this.digestLongAccumulators();
+            result = XXH3HashFunctionBase.mergeAccumulators(accumulators, this.secret, XXH3HashFunctionBase.secretMergeAccumulatorsStart, this.totalLength * XXH3HashFunctionBase.prime64_1);
+        }
+        else
+        {
+            result = XXH3HashFunctionBase.hash64(this.buffer, 0, (int)this.totalLength, this.seed);
+        }
+        return result;
+    }
+
+    /**
+     * Get the 128-bit hash of the bytes that have been added without resetting this hash function.
+     * The low 64 bits are written to output[outputStartIndex] and the high 64 bits are written to
+     * output[outputStartIndex + 1].
+     */
+    void digest128(long[] output, int outputStartIndex)
+    {
+        if (this.totalLength > XXH3HashFunctionBase.midSizeMaximum)
+        {
+            final long[] accumulators = this.digestLongAccumulators();
+            output[outputStartIndex] = XXH3HashFunctionBase.mergeAccumulators(accumulators, this.secret, XXH3HashFunctionBase.secretMergeAccumulatorsStart, this.totalLength * XXH3HashFunctionBase.prime64_1);
+            output[outputStartIndex + 1] = XXH3HashFunctionBase.mergeAccumulators(accumulators, this.secret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength - XXH3HashFunctionBase.secretMergeAccumulatorsStart, ~(this.totalLength * XXH3HashFunctionBase.prime64_2));
+        }
+        else
+        {
+            XXH3HashFunctionBase.hash128(this.buffer, 0, (int)this.totalLength, this.seed, output, outputStartIndex);
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        XXH3HashFunctionBase.initializeAccumulators(this.accumulators);
+        this.bufferLength = 0;
+        this.totalLength = 0;
+        this.stripesSoFar = 0;
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.reset();
+            }
+            return result;
+        });
+    }
+
+    private void consumeBuffer()
+    {
+        this.stripesSoFar = XXH3HashFunctionBase.consumeStripes(this.accumulators, this.stripesSoFar, this.buffer, 0, XXH3HashFunctionBase.internalBufferStripes, this.secret);
+        this.bufferLength = 0;
+    }
+
+    /**
+     * Get a copy of the accumulators with the bytes that are still in the buffer mixed in.
+     */
+    private long[] digestLongAccumulators()
+    {
+        final long[] result = this.accumulators.clone();
+        if (this.bufferLength >= XXH3HashFunctionBase.stripeLength)
+        {
+            final int stripeCount = (this.bufferLength - 1) / XXH3HashFunctionBase.stripeLength;
+            XXH3HashFunctionBase.consumeStripes(result, this.stripesSoFar, this.buffer, 0, stripeCount, this.secret);
+            XXH3HashFunctionBase.accumulate512(result, this.buffer, this.bufferLength - XXH3HashFunctionBase.stripeLength, this.secret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength - XXH3HashFunctionBase.secretLastAccumulatorStart);
+        }
+        else
+        {
+            // The last stripe is the end of the previously consumed stripe followed by the
+            // buffered bytes.
+            final byte[] lastStripe = new byte[XXH3HashFunctionBase.stripeLength];
+            final int catchUpLength = XXH3HashFunctionBase.stripeLength - this.bufferLength;
+            System.arraycopy(this.buffer, XXH3HashFunctionBase.internalBufferSize - catchUpLength, lastStripe, 0, catchUpLength);
+            System.arraycopy(this.buffer, 0, lastStripe, catchUpLength, this.bufferLength);
+            XXH3HashFunctionBase.accumulate512(result, lastStripe, 0, this.secret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength - XXH3HashFunctionBase.secretLastAccumulatorStart);
+        }
+        return result;
+    }
+
+    /**
+     * Get the 64-bit XXH3 hash of the provided bytes. Inputs of up to 240 bytes don't allocate
+     * anything. Longer inputs allocate the eight accumulators, plus a secret if the seed isn't 0.
+     */
+    static long hash64(byte[] values, int startIndex, int length, long seed)
+    {
+        return XXH3HashFunctionBase.hash64(values, startIndex, length, seed, null);
+    }
+
+    /**
+     * Get the 64-bit XXH3 hash of the provided bytes.
+     * @param accumulators The scratch array of {@link #accumulatorCount} accumulators that inputs
+     * longer than 240 bytes are hashed with, or null to allocate one when it's needed.
+     */
+    static long hash64(byte[] values, int startIndex, int length, long seed, long[] accumulators)
+    {
+        long result;
+        final byte[] secret = XXH3HashFunctionBase.defaultSecret;
+        if (length <= 16)
+        {
+            if (length > 8)
+            {
+                final long bitFlip1 = (LittleEndian.readLong(secret, 24) ^ LittleEndian.readLong(secret, 32)) + seed;
+                final long bitFlip2 = (LittleEndian.readLong(secret, 40) ^ LittleEndian.readLong(secret, 48)) - seed;
+                final long inputLow = LittleEndian.readLong(values, startIndex) ^ bitFlip1;
+                final long inputHigh = LittleEndian.readLong(values, startIndex + length - 8) ^ bitFlip2;
+                final long accumulator = length + Long.reverseBytes(inputLow) + inputHigh + XXH3HashFunctionBase.multiplyFold64(inputLow, inputHigh);
+                result = XXH3HashFunctionBase.avalanche(accumulator);
+            }
+            else if (length >= 4)
+            {
+                seed ^= (Integer.reverseBytes((int)seed) & 0xFFFFFFFFL) << 32;
+                final long input1 = LittleEndian.readUnsignedInt(values, startIndex);
+                final long input2 = LittleEndian.readUnsignedInt(values, startIndex + length - 4);
+                final long bitFlip = (LittleEndian.readLong(secret, 8) ^ LittleEndian.readLong(secret, 16)) - seed;
+                final long input64 = input2 + (input1 << 32);
+                result = XXH3HashFunctionBase.rrmxmx(input64 ^ bitFlip, length);
+            }
+            else if (length > 0)
+            {
+                final long combined = XXH3HashFunctionBase.combineSmallInput(values, startIndex, length);
+                final long bitFlip = (LittleEndian.readUnsignedInt(secret, 0) ^ LittleEndian.readUnsignedInt(secret, 4)) + seed;
+                result = XXH64HashFunction.avalanche(combined ^ bitFlip);
+            }
+            else
+            {
+                result = XXH64HashFunction.avalanche(seed ^ (LittleEndian.readLong(secret, 56) ^ LittleEndian.readLong(secret, 64)));
+            }
+        }
+        else if (length <= 128)
+        {
+            long accumulator = length * XXH3HashFunctionBase.prime64_1;
+            if (length > 32)
+            {
+                if (length > 64)
+                {
+                    if (length > 96)
+                    {
+                        accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + 48, secret, 96, seed);
+                        accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + length - 64, secret, 112, seed);
+                    }
+                    accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + 32, secret, 64, seed);
+                    accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + length - 48, secret, 80, seed);
+                }
+                accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + 16, secret, 32, seed);
+                accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + length - 32, secret, 48, seed);
+            }
+            accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex, secret, 0, seed);
+            accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + length - 16, secret, 16, seed);
+            result = XXH3HashFunctionBase.avalanche(accumulator);
+        }
+        else if (length <= XXH3HashFunctionBase.midSizeMaximum)
+        {
+            final int roundCount = length / 16;
+            long accumulator = length * XXH3HashFunctionBase.prime64_1;
+            for (int i = 0; i < 8; ++i)
+            {
+                accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + 16 * i, secret, 16 * i, seed);
+            }
+            accumulator = XXH3HashFunctionBase.avalanche(accumulator);
+            for (int i = 8; i < roundCount; ++i)
+            {
+                accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + 16 * i, secret, 16 * (i - 8) + XXH3HashFunctionBase.midSizeStartOffset, seed);
+            }
+            accumulator += XXH3HashFunctionBase.mix16Bytes(values, startIndex + length - 16, secret, XXH3HashFunctionBase.secretSizeMinimum - XXH3HashFunctionBase.midSizeLastOffset, seed);
+            result = XXH3HashFunctionBase.avalanche(accumulator);
+        }
+        else
+        {
+            final byte[] longSecret = XXH3HashFunctionBase.createSecret(seed);
+            final long[] longAccumulators = accumulators != null ? accumulators : new long[XXH3HashFunctionBase.accumulatorCount];
+            XXH3HashFunctionBase.hashLongAccumulators(values, startIndex, length, longSecret, longAccumulators);
+            result = XXH3HashFunctionBase.mergeAccumulators(longAccumulators, longSecret, XXH3HashFunctionBase.secretMergeAccumulatorsStart, length * XXH3HashFunctionBase.prime64_1);
+        }
+        return result;
+    }
+
+    /**
+     * Get the 128-bit XXH3 hash of the provided bytes. The low 64 bits are written to
+     * output[outputStartIndex] and the high 64 bits are written to output[outputStartIndex + 1].
+     */
+    static void hash128(byte[] values, int startIndex, int length, long seed, long[] output, int outputStartIndex)
+    {
+        long low;
+        long high;
+        final byte[] secret = XXH3HashFunctionBase.defaultSecret;
+        if (length <= 16)
+        {
+            if (length > 8)
+            {
+                final long bitFlipLow = (LittleEndian.readLong(secret, 32) ^ LittleEndian.readLong(secret, 40)) - seed;
+                final long bitFlipHigh = (LittleEndian.readLong(secret, 48) ^ LittleEndian.readLong(secret, 56)) + seed;
+                final long inputLow = LittleEndian.readLong(values, startIndex);
+                long inputHigh = LittleEndian.readLong(values, startIndex + length - 8);
+
+                final long mixed = inputLow ^ inputHigh ^ bitFlipLow;
+                long mLow = mixed * XXH3HashFunctionBase.prime64_1;
+                long mHigh = XXH3HashFunctionBase.unsignedMultiplyHigh(mixed, XXH3HashFunctionBase.prime64_1);
+                mLow += (long)(length - 1) << 54;
+                inputHigh ^= bitFlipHigh;
+                mHigh += inputHigh + (inputHigh & 0xFFFFFFFFL) * (XXH3HashFunctionBase.prime32_2 - 1);
+                mLow ^= Long.reverseBytes(mHigh);
+
+                low = mLow * XXH3HashFunctionBase.prime64_2;
+                high = XXH3HashFunctionBase.unsignedMultiplyHigh(mLow, XXH3HashFunctionBase.prime64_2) + mHigh * XXH3HashFunctionBase.prime64_2;
+                low = XXH3HashFunctionBase.avalanche(low);
+                high = XXH3HashFunctionBase.avalanche(high);
+            }
+            else if (length >= 4)
+            {
+                seed ^= (Integer.reverseBytes((int)seed) & 0xFFFFFFFFL) << 32;
+                final long inputLow = LittleEndian.readUnsignedInt(values, startIndex);
+                final long inputHigh = LittleEndian.readUnsignedInt(values, startIndex + length - 4);
+                final long input64 = inputLow + (inputHigh << 32);
+                final long bitFlip = (LittleEndian.readLong(secret, 16) ^ LittleEndian.readLong(secret, 24)) + seed;
+                final long keyed = input64 ^ bitFlip;
+
+                final long multiplier = XXH3HashFunctionBase.prime64_1 + ((long)length << 2);
+                low = keyed * multiplier;
+                high = XXH3HashFunctionBase.unsignedMultiplyHigh(keyed, multiplier);
+                high += low << 1;
+                low ^= high >>> 3;
+                low = XXH3HashFunctionBase.xorShift(low, 35);
+                low *= XXH3HashFunctionBase.primeMx2;
+                low = XXH3HashFunctionBase.xorShift(low, 28);
+                high = XXH3HashFunctionBase.avalanche(high);
+            }
+            else if (length > 0)
+            {
+                final long combinedLow = XXH3HashFunctionBase.combineSmallInput(values, startIndex, length);
+                final long combinedHigh = Integer.rotateLeft(Integer.reverseBytes((int)combinedLow), 13) & 0xFFFFFFFFL;
+                final long bitFlipLow = (LittleEndian.readUnsignedInt(secret, 0) ^ LittleEndian.readUnsignedInt(secret, 4)) + seed;
+                final long bitFlipHigh = (LittleEndian.readUnsignedInt(secret, 8) ^ LittleEndian.readUnsignedInt(secret, 12)) - seed;
+                low = XXH64HashFunction.avalanche(combinedLow ^ bitFlipLow);
+                high = XXH64HashFunction.avalanche(combinedHigh ^ bitFlipHigh);
+            }
+            else
+            {
+                low = XXH64HashFunction.avalanche(seed ^ LittleEndian.readLong(secret, 64) ^ LittleEndian.readLong(secret, 72));
+                high = XXH64HashFunction.avalanche(seed ^ LittleEndian.readLong(secret, 80) ^ LittleEndian.readLong(secret, 88));
+            }
+        }
+        else if (length <= XXH3HashFunctionBase.midSizeMaximum)
+        {
+            long accumulatorLow = length * XXH3HashFunctionBase.prime64_1;
+            long accumulatorHigh = 0;
+            if (length <= 128)
+            {
+                int i = (length - 1) / 32;
+                do
+                {
+                    final int index1 = startIndex + 16 * i;
+                    final int index2 = startIndex + length - 16 * (i + 1);
+                    accumulatorLow += XXH3HashFunctionBase.mix16Bytes(values, index1, secret, 32 * i, seed);
+                    accumulatorLow ^= LittleEndian.readLong(values, index2) + LittleEndian.readLong(values, index2 + 8);
+                    accumulatorHigh += XXH3HashFunctionBase.mix16Bytes(values, index2, secret, 32 * i + 16, seed);
+                    accumulatorHigh ^= LittleEndian.readLong(values, index1) + LittleEndian.readLong(values, index1 + 8);
+                }
+                while (i-- > 0);
+            }
+            else
+            {
+                final int roundCount = length / 32;
+                for (int i = 0; i < roundCount; ++i)
+                {
+                    final int index1 = startIndex + 32 * i;
+                    final int index2 = index1 + 16;
+                    final int secretIndex;
+                    if (i < 4)
+                    {
+                        secretIndex = 32 * i;
+                    }
+                    else
+                    {
+                        if (i == 4)
+                        {
+                            accumulatorLow = XXH3HashFunctionBase.avalanche(accumulatorLow);
+                            accumulatorHigh = XXH3HashFunctionBase.avalanche(accumulatorHigh);
+                        }
+                        secretIndex = XXH3HashFunctionBase.midSizeStartOffset + 32 * (i - 4);
+                    }
+                    accumulatorLow += XXH3HashFunctionBase.mix16Bytes(values, index1, secret, secretIndex, seed);
+                    accumulatorLow ^= LittleEndian.readLong(values, index2) + LittleEndian.readLong(values, index2 + 8);
+                    accumulatorHigh += XXH3HashFunctionBase.mix16Bytes(values, index2, secret, secretIndex + 16, seed);
+                    accumulatorHigh ^= LittleEndian.readLong(values, index1) + LittleEndian.readLong(values, index1 + 8);
+                }
+                if (roundCount == 4)
+                {
+                    accumulatorLow = XXH3HashFunctionBase.avalanche(accumulatorLow);
+                    accumulatorHigh = XXH3HashFunctionBase.avalanche(accumulatorHigh);
+                }
+
+                final int index1 = startIndex + length - 16;
+                final int index2 = startIndex + length - 32;
+                final int secretIndex = XXH3HashFunctionBase.secretSizeMinimum - XXH3HashFunctionBase.midSizeLastOffset - 16;
+                accumulatorLow += XXH3HashFunctionBase.mix16Bytes(values, index1, secret, secretIndex, -seed);
+                accumulatorLow ^= LittleEndian.readLong(values, index2) + LittleEndian.readLong(values, index2 + 8);
+                accumulatorHigh += XXH3HashFunctionBase.mix16Bytes(values, index2, secret, secretIndex + 16, -seed);
+                accumulatorHigh ^= LittleEndian.readLong(values, index1) + LittleEndian.readLong(values, index1 + 8);
+            }
+
+            low = accumulatorLow + accumulatorHigh;
+            high = accumulatorLow * XXH3HashFunctionBase.prime64_1 + accumulatorHigh * XXH3HashFunctionBase.prime64_4 + (length - seed) * XXH3HashFunctionBase.prime64_2;
+            low = XXH3HashFunctionBase.avalanche(low);
+            high = -XXH3HashFunctionBase.avalanche(high);
+        }
+        else
+        {
+            final byte[] longSecret = XXH3HashFunctionBase.createSecret(seed);
+            final long[] accumulators = new long[XXH3HashFunctionBase.accumulatorCount];
+            XXH3HashFunctionBase.hashLongAccumulators(values, startIndex, length, longSecret, accumulators);
+            low = XXH3HashFunctionBase.mergeAccumulators(accumulators, longSecret, XXH3HashFunctionBase.secretMergeAccumulatorsStart, length * XXH3HashFunctionBase.prime64_1);
+            high = XXH3HashFunctionBase.mergeAccumulators(accumulators, longSecret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength - XXH3HashFunctionBase.secretMergeAccumulatorsStart, ~(length * XXH3HashFunctionBase.prime64_2));
+        }
+
+        output[outputStartIndex] = low;
+        output[outputStartIndex + 1] = high;
+    }
+
+    private static void hashLongAccumulators(byte[] values, int startIndex, int length, byte[] secret, long[] result)
+    {
+        XXH3HashFunctionBase.initializeAccumulators(result);
+
+        final int blockCount = (length - 1) / XXH3HashFunctionBase.blockLength;
+        for (int block = 0; block < blockCount; ++block)
+        {
+            XXH3HashFunctionBase.accumulate(result, values, startIndex + block * XXH3HashFunctionBase.blockLength, secret, 0, XXH3HashFunctionBase.stripesPerBlock);
+            XXH3HashFunctionBase.scrambleAccumulators(result, secret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength);
+        }
+
+        final int stripeCount = ((length - 1) - (XXH3HashFunctionBase.blockLength * blockCount)) / XXH3HashFunctionBase.stripeLength;
+        XXH3HashFunctionBase.accumulate(result, values, startIndex + blockCount * XXH3HashFunctionBase.blockLength, secret, 0, stripeCount);
+        XXH3HashFunctionBase.accumulate512(result, values, startIndex + length - XXH3HashFunctionBase.stripeLength, secret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength - XXH3HashFunctionBase.secretLastAccumulatorStart);
+
+    }
+
+    private static int consumeStripes(long[] accumulators, int stripesSoFar, byte[] values, int startIndex, int stripeCount, byte[] secret)
+    {
+        final int stripesToEndOfBlock = XXH3HashFunctionBase.stripesPerBlock - stripesSoFar;
+        if (stripesToEndOfBlock <= stripeCount)
+        {
+            final int stripesAfterBlock = stripeCount - stripesToEndOfBlock;
+            XXH3HashFunctionBase.accumulate(accumulators, values, startIndex, secret, stripesSoFar * XXH3HashFunctionBase.secretConsumeRate, stripesToEndOfBlock);
+            XXH3HashFunctionBase.scrambleAccumulators(accumulators, secret, XXH3HashFunctionBase.secretSize - XXH3HashFunctionBase.stripeLength);
+            XXH3HashFunctionBase.accumulate(accumulators, values, startIndex + stripesToEndOfBlock * XXH3HashFunctionBase.stripeLength, secret, 0, stripesAfterBlock);
+            stripesSoFar = stripesAfterBlock;
+        }
+        else
+        {
+            XXH3HashFunctionBase.accumulate(accumulators, values, startIndex, secret, stripesSoFar * XXH3HashFunctionBase.secretConsumeRate, stripeCount);
+            stripesSoFar += stripeCount;
+        }
+        return stripesSoFar;
+    }
+
+    private static void accumulate(long[] accumulators, byte[] values, int startIndex, byte[] secret, int secretIndex, int stripeCount)
+    {
+        for (int stripe = 0; stripe < stripeCount; ++stripe)
+        {
+            XXH3HashFunctionBase.accumulate512(accumulators, values, startIndex + stripe * XXH3HashFunctionBase.stripeLength, secret, secretIndex + stripe * XXH3HashFunctionBase.secretConsumeRate);
+        }
+    }
+
+    private static void accumulate512(long[] accumulators, byte[] values, int startIndex, byte[] secret, int secretIndex)
+    {
+        for (int i = 0; i < XXH3HashFunctionBase.accumulatorCount; ++i)
+        {
+            final long dataValue = LittleEndian.readLong(values, startIndex + 8 * i);
+            final long dataKey = dataValue ^ LittleEndian.readLong(secret, secretIndex + 8 * i);
+            accumulators[i ^ 1] += dataValue;
+            accumulators[i] += (dataKey & 0xFFFFFFFFL) * (dataKey >>> 32);
+        }
+    }
+
+    private static void scrambleAccumulators(long[] accumulators, byte[] secret, int secretIndex)
+    {
+        for (int i = 0; i < XXH3HashFunctionBase.accumulatorCount; ++i)
+        {
+            long accumulator = accumulators[i];
+            accumulator ^= accumulator >>> 47;
+            accumulator ^= LittleEndian.readLong(secret, secretIndex + 8 * i);
+            accumulator *= XXH3HashFunctionBase.prime32_1;
+            accumulators[i] = accumulator;
+        }
+    }
+
+    private static long mergeAccumulators(long[] accumulators, byte[] secret, int secretIndex, long start)
+    {
+        long result = start;
+        for (int i = 0; i < 4; ++i)
+        {
+            result += XXH3HashFunctionBase.multiplyFold64(
+                accumulators[2 * i] ^ LittleEndian.readLong(secret, secretIndex + 16 * i),
+                accumulators[2 * i + 1] ^ LittleEndian.readLong(secret, secretIndex + 16 * i + 8));
+        }
+        return XXH3HashFunctionBase.avalanche(result);
+    }
+
+    private static void initializeAccumulators(long[] accumulators)
+    {
+        accumulators[0] = XXH3HashFunctionBase.prime32_3;
+        accumulators[1] = XXH3HashFunctionBase.prime64_1;
+        accumulators[2] = XXH3HashFunctionBase.prime64_2;
+        accumulators[3] = XXH3HashFunctionBase.prime64_3;
+        accumulators[4] = XXH3HashFunctionBase.prime64_4;
+        accumulators[5] = XXH3HashFunctionBase.prime32_2;
+        accumulators[6] = XXH3HashFunctionBase.prime64_5;
+        accumulators[7] = XXH3HashFunctionBase.prime32_1;
+    }
+
+    /**
+     * Get the secret that inputs longer than 240 bytes are hashed with for the provided seed.
+     */
+    private static byte[] createSecret(long seed)
+    {
+        byte[] result;
+        if (seed == 0)
+        {
+            result = XXH3HashFunctionBase.defaultSecret;
+        }
+        else
+        {
+            result = new byte[XXH3HashFunctionBase.secretSize];
+            for (int i = 0; i < XXH3HashFunctionBase.secretSize; i += 16)
+            {
+                LittleEndian.writeLong(result, i, LittleEndian.readLong(XXH3HashFunctionBase.defaultSecret, i) + seed);
+                LittleEndian.writeLong(result, i + 8, LittleEndian.readLong(XXH3HashFunctionBase.defaultSecret, i + 8) - seed);
+            }
+        }
+        return result;
+    }
+
+    private static long combineSmallInput(byte[] values, int startIndex, int length)
+    {
+        final long c1 = values[startIndex] & 0xFFL;
+        final long c2 = values[startIndex + (length >> 1)] & 0xFFL;
+        final long c3 = values[startIndex + length - 1] & 0xFFL;
+        return (c1 << 16) | (c2 << 24) | c3 | ((long)length << 8);
+    }
+
+    private static long mix16Bytes(byte[] values, int startIndex, byte[] secret, int secretIndex, long seed)
+    {
+        final long inputLow = LittleEndian.readLong(values, startIndex);
+        final long inputHigh = LittleEndian.readLong(values, startIndex + 8);
+        return XXH3HashFunctionBase.multiplyFold64(
+            inputLow ^ (LittleEndian.readLong(secret, secretIndex) + seed),
+            inputHigh ^ (LittleEndian.readLong(secret, secretIndex + 8) - seed));
+    }
+
+    private static long multiplyFold64(long left, long right)
+    {
+        return (left * right) ^ XXH3HashFunctionBase.unsignedMultiplyHigh(left, right);
+    }
+
+    private static long unsignedMultiplyHigh(long left, long right)
+    {
+        return java.lang.Math.multiplyHigh(left, right) + ((left >> 63) & right) + ((right >> 63) & left);
+    }
+
+    private static long xorShift(long value, int shift)
+    {
+        return value ^ (value >>> shift);
+    }
+
+    private static long avalanche(long hash)
+    {
+        hash = XXH3HashFunctionBase.xorShift(hash, 37);
+        hash *= XXH3HashFunctionBase.primeMx1;
+        return XXH3HashFunctionBase.xorShift(hash, 32);
+    }
+
+    private static long rrmxmx(long hash, int length)
+    {
+        hash ^= Long.rotateLeft(hash, 49) ^ Long.rotateLeft(hash, 24);
+        hash *= XXH3HashFunctionBase.primeMx2;
+        hash ^= (hash >>> 35) + length;
+        hash *= XXH3HashFunctionBase.primeMx2;
+        return XXH3HashFunctionBase.xorShift(hash, 28);
+    }
+
+    private static byte[] toBytes(int[] values)
+    {
+        final byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; ++i)
+        {
+            result[i] = (byte)values[i];
+        }
+        return result;
+    }
+}
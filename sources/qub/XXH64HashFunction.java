@@ -0,0 +1,294 @@
+package qub;
+
+/**
+ * A non-cryptographic {@link HashFunction} that implements the 64-bit xxHash algorithm (XXH64).
+ * The digest is the big-endian form of the 64-bit hash, which matches the canonical form that
+ * the reference implementation produces.
+ */
+public class XXH64HashFunction implements LongHashFunction
+{
+    static final long prime1 = 0x9E3779B185EBCA87L;
+    static final long prime2 = 0xC2B2AE3D27D4EB4FL;
+    static final long prime3 = 0x165667B19E3779F9L;
+    static final long prime4 = 0x85EBCA77C2B2AE63L;
+    static final long prime5 = 0x27D4EB2F165667C5L;
+
+    private static final int stripeLength = 32;
+
+    private final long seed;
+    private final byte[] buffer;
+    private int bufferLength;
+    private long totalLength;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private boolean disposed;
+
+    private XXH64HashFunction(long seed)
+    {
+        this.seed = seed;
+        this.buffer = new byte[XXH64HashFunction.stripeLength];
+        this.reset();
+    }
+
+    /**
+     * Create a new {@link XXH64HashFunction} with a seed of 0.
+     */
+    public static XXH64HashFunction create()
+    {
+        return XXH64HashFunction.create(0);
+    }
+
+    /**
+     * Create a new {@link XXH64HashFunction} with the provided seed.
+     * @param seed The seed that the hash will be computed with.
+     */
+    public static XXH64HashFunction create(long seed)
+    {
+        return new XXH64HashFunction(seed);
+    }
+
+    /**
+     * Get the XXH64 hash of the provided bytes with a seed of 0.
+     * @param values The bytes to hash.
+     */
+    public static long hash(byte[] values)
+    {
+        PreCondition.assertNotNull(values, "values");
+
+        return XXH64HashFunction.hash(values, 0, values.length, 0);
+    }
+
+    /**
+     * Get the XXH64 hash of the provided bytes. This doesn't allocate anything.
+     * @param values The bytes to hash.
+     * @param startIndex The index of the first byte to hash.
+     * @param length The number of bytes to hash.
+     * @param seed The seed that the hash will be computed with.
+     */
+    public static long hash(byte[] values, int startIndex, int length, long seed)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+
+        final int endIndex = startIndex + length;
+        long result;
+        if (length >= XXH64HashFunction.stripeLength)
+        {
+            long v1 = seed + XXH64HashFunction.prime1 + XXH64HashFunction.prime2;
+            long v2 = seed + XXH64HashFunction.prime2;
+            long v3 = seed;
+            long v4 = seed - XXH64HashFunction.prime1;
+            final int lastStripeIndex = endIndex - XXH64HashFunction.stripeLength;
+            while (startIndex <= lastStripeIndex)
+            {
+                v1 = XXH64HashFunction.round(v1, LittleEndian.readLong(values, startIndex));
+                v2 = XXH64HashFunction.round(v2, LittleEndian.readLong(values, startIndex + 8));
+                v3 = XXH64HashFunction.round(v3, LittleEndian.readLong(values, startIndex + 16));
+                v4 = XXH64HashFunction.round(v4, LittleEndian.readLong(values, startIndex + 24));
+                startIndex += XXH64HashFunction.stripeLength;
+            }
+            result = XXH64HashFunction.mergeAccumulators(v1, v2, v3, v4);
+        }
+        else
+        {
+            result = seed + XXH64HashFunction.prime5;
+        }
+        result += length;
+
+        return XXH64HashFunction.finish(result, values, startIndex, endIndex - startIndex);
+    }
+
+    /**
+     * Get the seed that this {@link XXH64HashFunction} computes its hash with.
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+
+    @Override
+    public void addByte(byte value)
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.buffer[this.bufferLength++] = value;
+        ++this.totalLength;
+        if (this.bufferLength == XXH64HashFunction.stripeLength)
+        {
+            this.consumeStripe(this.buffer, 0);
+            this.bufferLength = 0;
+        }
+    }
+
+    @Override
+    public void addBytes(byte[] values, int startIndex, int length)
+    {
+        PreCondition.assertNotNull(values, "values");
+        PreCondition.assertStartIndex(startIndex, values.length);
+        PreCondition.assertLength(length, startIndex, values.length);
+        PreCondition.assertNotDisposed(this, "this");
+
+        this.totalLength += length;
+
+        if (this.bufferLength > 0)
+        {
+            final int bytesToCopy = Math.minimum(length, XXH64HashFunction.stripeLength - this.bufferLength);
+            System.arraycopy(values, startIndex, this.buffer, this.bufferLength, bytesToCopy);
+            this.bufferLength += bytesToCopy;
+            startIndex += bytesToCopy;
+            length -= bytesToCopy;
+
+            if (this.bufferLength < XXH64HashFunction.stripeLength)
+            {
+                return;
+            }
+            this.consumeStripe(this.buffer, 0);
+            this.bufferLength = 0;
+        }
+
+        while (length >= XXH64HashFunction.stripeLength)
+        {
+            this.consumeStripe(values, startIndex);
+            startIndex += XXH64HashFunction.stripeLength;
+            length -= XXH64HashFunction.stripeLength;
+        }
+
+        if (length > 0)
+        {
+            System.arraycopy(values, startIndex, this.buffer, 0, length);
+            this.bufferLength = length;
+        }
+    }
+
+    @Override
+    public long takeLongDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        final long result = this.peekLongDigest();
+        this.reset();
+        return result;
+    }
+
+    @Override
+    public long peekLongDigest()
+    {
+        PreCondition.assertNotDisposed(this, "this");
+
+        long result;
+        if (this.totalLength >= XXH64HashFunction.stripeLength)
+        {
+            result = XXH64HashFunction.mergeAccumulators(this.v1, this.v2, this.v3, this.v4);
+        }
+        else
+        {
+            result = this.seed + XXH64HashFunction.prime5;
+        }
+        result += this.totalLength;
+        return XXH64HashFunction.finish(result, this.buffer, 0, this.bufferLength);
+    }
+
+    @Override
+    public void reset()
+    {
+        this.v1 = this.seed + XXH64HashFunction.prime1 + XXH64HashFunction.prime2;
+        this.v2 = this.seed + XXH64HashFunction.prime2;
+        this.v3 = this.seed;
+        this.v4 = this.seed - XXH64HashFunction.prime1;
+        this.totalLength = 0;
+        this.bufferLength = 0;
+    }
+
+    @Override
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+
+    @Override
+    public Result<Boolean> dispose()
+    {
+        return Result.create(() ->
+        {
+            boolean result = !this.disposed;
+            if (result)
+            {
+                this.disposed = true;
+                this.reset();
+            }
+            return result;
+        });
+    }
+
+    private void consumeStripe(byte[] values, int startIndex)
+    {
+        this.v1 = XXH64HashFunction.round(this.v1, LittleEndian.readLong(values, startIndex));
+        this.v2 = XXH64HashFunction.round(this.v2, LittleEndian.readLong(values, startIndex + 8));
+        this.v3 = XXH64HashFunction.round(this.v3, LittleEndian.readLong(values, startIndex + 16));
+        this.v4 = XXH64HashFunction.round(this.v4, LittleEndian.readLong(values, startIndex + 24));
+    }
+
+    private static long round(long accumulator, long input)
+    {
+        accumulator += input * XXH64HashFunction.prime2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * XXH64HashFunction.prime1;
+    }
+
+    private static long mergeRound(long accumulator, long value)
+    {
+        accumulator ^= XXH64HashFunction.round(0, value);
+        return accumulator * XXH64HashFunction.prime1 + XXH64HashFunction.prime4;
+    }
+
+    private static long mergeAccumulators(long v1, long v2, long v3, long v4)
+    {
+        long result = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        result = XXH64HashFunction.mergeRound(result, v1);
+        result = XXH64HashFunction.mergeRound(result, v2);
+        result = XXH64HashFunction.mergeRound(result, v3);
+        return XXH64HashFunction.mergeRound(result, v4);
+    }
+
+    /**
+     * Mix the remaining (less than a stripe of) bytes into the hash and avalanche the result.
+     */
+    private static long finish(long hash, byte[] values, int startIndex, int length)
+    {
+        while (length >= 8)
+        {
+            hash ^= XXH64HashFunction.round(0, LittleEndian.readLong(values, startIndex));
+            hash = Long.rotateLeft(hash, 27) * XXH64HashFunction.prime1 + XXH64HashFunction.prime4;
+            startIndex += 8;
+            length -= 8;
+        }
+        if (length >= 4)
+        {
+            hash ^= LittleEndian.readUnsignedInt(values, startIndex) * XXH64HashFunction.prime1;
+            hash = Long.rotateLeft(hash, 23) * XXH64HashFunction.prime2 + XXH64HashFunction.prime3;
+            startIndex += 4;
+            length -= 4;
+        }
+        while (length > 0)
+        {
+            hash ^= (values[startIndex] & 0xFFL) * XXH64HashFunction.prime5;
+            hash = Long.rotateLeft(hash, 11) * XXH64HashFunction.prime1;
+            ++startIndex;
+            --length;
+        }
+        return XXH64HashFunction.avalanche(hash);
+    }
+
+    static long avalanche(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= XXH64HashFunction.prime2;
+        hash ^= hash >>> 29;
+        hash *= XXH64HashFunction.prime3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
@@ -0,0 +1,156 @@
+package qub;
+
+public interface BatchHasherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BatchHasher.class, () ->
+        {
+            runner.testGroup("hashSHA256(byte[][])", () ->
+            {
+                runner.test("with null messages", (Test test) ->
+                {
+                    test.assertThrows(() -> BatchHasher.hashSHA256(null),
+                        new PreConditionFailure("messages cannot be null."));
+                });
+
+                runner.test("with null message", (Test test) ->
+                {
+                    test.assertThrows(() -> BatchHasher.hashSHA256(new byte[][] { new byte[0], null }),
+                        new PreConditionFailure("messages[1] cannot be null."));
+                });
+
+                runner.test("with no messages", (Test test) ->
+                {
+                    test.assertEqual(0, BatchHasher.hashSHA256(new byte[0][]).length);
+                });
+
+                runner.test("with one empty message", (Test test) ->
+                {
+                    final BitArray[] digests = BatchHasher.hashSHA256(new byte[][] { new byte[0] });
+                    test.assertEqual(1, digests.length);
+                    test.assertEqual("E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855", digests[0].toHexString());
+                });
+
+                final Action2<Integer,Integer> hashSHA256Test = (Integer messageCount, Integer maximumMessageLength) ->
+                {
+                    runner.test("with " + messageCount + " messages of up to " + maximumMessageLength + " bytes", (Test test) ->
+                    {
+                        final byte[][] messages = BatchHasherTests.createMessages(messageCount, maximumMessageLength);
+                        final BitArray[] digests = BatchHasher.hashSHA256(messages);
+                        test.assertEqual(messageCount, digests.length);
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            for (int i = 0; i < messageCount; ++i)
+                            {
+                                test.assertEqual(sha256.takeDigest(messages[i]), digests[i]);
+                            }
+                        }
+                    });
+                };
+
+                hashSHA256Test.run(1, 3);
+                hashSHA256Test.run(7, 64);
+                hashSHA256Test.run(8, 55);
+                hashSHA256Test.run(9, 56);
+                hashSHA256Test.run(100, 256);
+                hashSHA256Test.run(300, 1000);
+            });
+
+            runner.testGroup("hashSHA256(byte[][],byte[],int)", () ->
+            {
+                runner.test("with null output", (Test test) ->
+                {
+                    test.assertThrows(() -> BatchHasher.hashSHA256(new byte[0][], null, 0),
+                        new PreConditionFailure("output cannot be null."));
+                });
+
+                runner.test("with output that is too small", (Test test) ->
+                {
+                    test.assertThrows(() -> BatchHasher.hashSHA256(new byte[2][0], new byte[64], 1),
+                        new PreConditionFailure("outputStartIndex (1) must be between 0 and 0."));
+                });
+
+                runner.test("with outputStartIndex", (Test test) ->
+                {
+                    final byte[][] messages = BatchHasherTests.createMessages(3, 100);
+                    final byte[] output = new byte[5 + 3 * 32];
+                    BatchHasher.hashSHA256(messages, output, 5);
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        for (int i = 0; i < messages.length; ++i)
+                        {
+                            test.assertEqual(
+                                sha256.takeDigest(messages[i]),
+                                BitArray.createFromBytes(java.util.Arrays.copyOfRange(output, 5 + i * 32, 5 + (i + 1) * 32)));
+                        }
+                    }
+                });
+            });
+
+            runner.testGroup("hashXXH3(byte[][])", () ->
+            {
+                runner.test("with null messages", (Test test) ->
+                {
+                    test.assertThrows(() -> BatchHasher.hashXXH3(null),
+                        new PreConditionFailure("messages cannot be null."));
+                });
+
+                runner.test("with 100 messages of up to 300 bytes", (Test test) ->
+                {
+                    final byte[][] messages = BatchHasherTests.createMessages(100, 300);
+                    final long[] hashes = BatchHasher.hashXXH3(messages);
+                    test.assertEqual(100, hashes.length);
+                    for (int i = 0; i < messages.length; ++i)
+                    {
+                        test.assertEqual(XXH3HashFunction.hash(messages[i]), hashes[i]);
+                    }
+                });
+
+                runner.test("with 20 messages of up to 5000 bytes", (Test test) ->
+                {
+                    final byte[][] messages = BatchHasherTests.createMessages(20, 5000);
+                    final long[] hashes = BatchHasher.hashXXH3(messages);
+                    for (int i = 0; i < messages.length; ++i)
+                    {
+                        test.assertEqual(XXH3HashFunction.hash(messages[i]), hashes[i]);
+                    }
+                });
+            });
+
+            runner.testGroup("hashXXH3(byte[][],long[],int)", () ->
+            {
+                runner.test("with output that is too small", (Test test) ->
+                {
+                    test.assertThrows(() -> BatchHasher.hashXXH3(new byte[3][0], new long[2], 0),
+                        new PreConditionFailure("outputStartIndex (0) must be between 0 and -1."));
+                });
+
+                runner.test("with outputStartIndex", (Test test) ->
+                {
+                    final byte[][] messages = BatchHasherTests.createMessages(3, 20);
+                    final long[] output = new long[5];
+                    BatchHasher.hashXXH3(messages, output, 2);
+                    test.assertEqual(0L, output[0]);
+                    test.assertEqual(0L, output[1]);
+                    for (int i = 0; i < messages.length; ++i)
+                    {
+                        test.assertEqual(XXH3HashFunction.hash(messages[i]), output[2 + i]);
+                    }
+                });
+            });
+        });
+    }
+
+    static byte[][] createMessages(int messageCount, int maximumMessageLength)
+    {
+        final java.util.Random random = new java.util.Random(messageCount);
+        final byte[][] result = new byte[messageCount][];
+        for (int i = 0; i < messageCount; ++i)
+        {
+            result[i] = new byte[random.nextInt(maximumMessageLength + 1)];
+            random.nextBytes(result[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,267 @@
+package qub;
+
+public interface BloomFilterTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BloomFilter.class, () ->
+        {
+            runner.testGroup("create(long,double)", () ->
+            {
+                runner.test("with 0 expectedKeyCount", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.create(0, 0.01),
+                        new PreConditionFailure("expectedKeyCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with 1 falsePositiveProbability", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.create(100, 1),
+                        new PreConditionFailure("0 < falsePositiveProbability && falsePositiveProbability < 1 cannot be false."));
+                });
+
+                runner.test("with 1000 keys and 1% false positives", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(1000, 0.01);
+                    test.assertEqual(9586L, filter.getBitCount());
+                    test.assertEqual(7, filter.getHashCount());
+                    test.assertEqual(0L, filter.getSetBitCount());
+                    test.assertEqual(0.0, filter.getFalsePositiveProbability());
+                });
+            });
+
+            runner.testGroup("createWithSize(long,int)", () ->
+            {
+                runner.test("with 0 bitCount", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.createWithSize(0, 3),
+                        new PreConditionFailure("bitCount (0) must be between 1 and 137438953408."));
+                });
+
+                runner.test("with 0 hashCount", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.createWithSize(64, 0),
+                        new PreConditionFailure("hashCount (0) must be greater than or equal to 1."));
+                });
+            });
+
+            runner.testGroup("add(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10, 0.01);
+                    test.assertThrows(() -> filter.add(null),
+                        new PreConditionFailure("key cannot be null."));
+                });
+
+                runner.test("with the same key twice", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10, 0.01);
+                    test.assertTrue(filter.add(new byte[] { 1, 2, 3 }));
+                    test.assertFalse(filter.add(new byte[] { 1, 2, 3 }));
+                    test.assertTrue(filter.getSetBitCount() > 0);
+                    test.assertTrue(filter.getSetBitCount() <= filter.getHashCount());
+                });
+            });
+
+            runner.testGroup("contains(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10, 0.01);
+                    test.assertThrows(() -> filter.contains(null),
+                        new PreConditionFailure("key cannot be null."));
+                });
+
+                runner.test("with empty filter", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10, 0.01);
+                    test.assertFalse(filter.contains(new byte[0]));
+                    test.assertFalse(filter.contains(new byte[] { 1, 2, 3 }));
+                });
+
+                runner.test("with added keys and other keys", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10000, 0.01);
+                    for (int i = 0; i < 10000; ++i)
+                    {
+                        filter.add(BloomFilterTests.getKey(i));
+                    }
+                    for (int i = 0; i < 10000; ++i)
+                    {
+                        test.assertTrue(filter.contains(BloomFilterTests.getKey(i)));
+                    }
+
+                    int falsePositiveCount = 0;
+                    for (int i = 10000; i < 110000; ++i)
+                    {
+                        if (filter.contains(BloomFilterTests.getKey(i)))
+                        {
+                            ++falsePositiveCount;
+                        }
+                    }
+                    test.assertTrue(falsePositiveCount < 1500);
+                    test.assertTrue(filter.getFalsePositiveProbability() < 0.015);
+                });
+
+                runner.test("with keys at an offset", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10, 0.01);
+                    filter.add(new byte[] { 9, 1, 2, 3, 9 }, 1, 3);
+                    test.assertTrue(filter.contains(new byte[] { 1, 2, 3 }));
+                    test.assertTrue(filter.contains(new byte[] { 0, 1, 2, 3 }, 1, 3));
+                });
+            });
+
+            runner.test("add(byte[]) from many threads at once", (Test test) ->
+            {
+                final BloomFilter filter = BloomFilter.create(80000, 0.01);
+                final java.util.List<Thread> threads = new java.util.ArrayList<>();
+                for (int t = 0; t < 8; ++t)
+                {
+                    final int threadIndex = t;
+                    threads.add(new Thread(() ->
+                    {
+                        for (int i = threadIndex; i < 80000; i += 8)
+                        {
+                            filter.add(BloomFilterTests.getKey(i));
+                        }
+                    }));
+                }
+                BloomFilterTests.runThreads(threads);
+
+                for (int i = 0; i < 80000; ++i)
+                {
+                    test.assertTrue(filter.contains(BloomFilterTests.getKey(i)));
+                }
+            });
+
+            runner.testGroup("merge(BloomFilter)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(10, 0.01);
+                    test.assertThrows(() -> filter.merge(null),
+                        new PreConditionFailure("other cannot be null."));
+                });
+
+                runner.test("with different bit count", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.createWithSize(128, 3);
+                    test.assertThrows(() -> filter.merge(BloomFilter.createWithSize(256, 3)),
+                        new PreConditionFailure("other.getBitCount() (256) must be 128."));
+                });
+
+                runner.test("with different hash count", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.createWithSize(128, 3);
+                    test.assertThrows(() -> filter.merge(BloomFilter.createWithSize(128, 4)),
+                        new PreConditionFailure("other.getHashCount() (4) must be 3."));
+                });
+
+                runner.test("with matching filter", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(1000, 0.01);
+                    final BloomFilter other = BloomFilter.create(1000, 0.01);
+                    for (int i = 0; i < 500; ++i)
+                    {
+                        filter.add(BloomFilterTests.getKey(i));
+                        other.add(BloomFilterTests.getKey(i + 500));
+                    }
+
+                    filter.merge(other);
+                    for (int i = 0; i < 1000; ++i)
+                    {
+                        test.assertTrue(filter.contains(BloomFilterTests.getKey(i)));
+                    }
+                });
+            });
+
+            runner.test("clear()", (Test test) ->
+            {
+                final BloomFilter filter = BloomFilter.create(10, 0.01);
+                filter.add(new byte[] { 1 });
+                filter.clear();
+                test.assertEqual(0L, filter.getSetBitCount());
+                test.assertFalse(filter.contains(new byte[] { 1 }));
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.parse(null),
+                        new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with too few bytes", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.parse(new byte[5]).await(),
+                        new java.io.IOException("The serialized Bloom filter is too short."));
+                });
+
+                runner.test("with wrong magic number", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.parse(new byte[100]).await(),
+                        new java.io.IOException("The bytes are not a serialized Bloom filter."));
+                });
+
+                runner.test("with serialized counting Bloom filter", (Test test) ->
+                {
+                    test.assertThrows(() -> BloomFilter.parse(CountingBloomFilter.create(10, 0.01).toBytes()).await(),
+                        new java.io.IOException("The bytes are not a serialized Bloom filter."));
+                });
+
+                runner.test("with truncated bytes", (Test test) ->
+                {
+                    final byte[] bytes = BloomFilter.create(10, 0.01).toBytes();
+                    test.assertThrows(() -> BloomFilter.parse(java.util.Arrays.copyOf(bytes, bytes.length - 1)).await(),
+                        new java.io.IOException("The serialized Bloom filter is corrupt."));
+                });
+
+                runner.test("with bytes from toBytes()", (Test test) ->
+                {
+                    final BloomFilter filter = BloomFilter.create(1000, 0.001);
+                    for (int i = 0; i < 1000; ++i)
+                    {
+                        filter.add(BloomFilterTests.getKey(i));
+                    }
+
+                    final BloomFilter parsedFilter = BloomFilter.parse(filter.toBytes()).await();
+                    test.assertEqual(filter.getBitCount(), parsedFilter.getBitCount());
+                    test.assertEqual(filter.getHashCount(), parsedFilter.getHashCount());
+                    test.assertEqual(filter.getSetBitCount(), parsedFilter.getSetBitCount());
+                    for (int i = 0; i < 1000; ++i)
+                    {
+                        test.assertTrue(parsedFilter.contains(BloomFilterTests.getKey(i)));
+                    }
+                    test.assertEqual(BitArray.createFromBytes(filter.toBytes()), BitArray.createFromBytes(parsedFilter.toBytes()));
+                });
+            });
+        });
+    }
+
+    static byte[] getKey(int index)
+    {
+        return ("key" + index).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    static void runThreads(java.util.List<Thread> threads)
+    {
+        for (final Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (final Thread thread : threads)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                throw Exceptions.asRuntime(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package qub;
+
+public interface BulkFileHasherTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(BulkFileHasher.class, () ->
+        {
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,int)", () ->
+            {
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> BulkFileHasher.create(null, 4),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with zero maximumInFlight", (Test test) ->
+                {
+                    test.assertThrows(() -> BulkFileHasher.create(HashFunction::createMD5, 0),
+                        new PreConditionFailure("maximumInFlight (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createMD5, 4))
+                    {
+                        test.assertEqual(4, hasher.getMaximumInFlight());
+                        test.assertFalse(hasher.isDisposed());
+                        test.assertEqual(Runtime.version().feature() >= 21, hasher.usesVirtualThreads());
+                    }
+                });
+            });
+
+            runner.test("createSHA256()", (Test test) ->
+            {
+                try (final BulkFileHasher hasher = BulkFileHasher.createSHA256())
+                {
+                    test.assertEqual(BulkFileHasher.defaultMaximumInFlight, hasher.getMaximumInFlight());
+                }
+            });
+
+            runner.testGroup("hashFiles(java.util.stream.Stream<java.nio.file.Path>)", () ->
+            {
+                runner.test("with null filePaths", (Test test) ->
+                {
+                    try (final BulkFileHasher hasher = BulkFileHasher.createSHA256())
+                    {
+                        test.assertThrows(() -> hasher.hashFiles(null),
+                            new PreConditionFailure("filePaths cannot be null."));
+                    }
+                });
+
+                runner.test("when disposed", (Test test) ->
+                {
+                    final BulkFileHasher hasher = BulkFileHasher.createSHA256();
+                    hasher.dispose().await();
+                    test.assertThrows(() -> hasher.hashFiles(java.util.stream.Stream.empty()),
+                        new PreConditionFailure("this.isDisposed() cannot be true."));
+                });
+
+                runner.test("with no files", (Test test) ->
+                {
+                    try (final BulkFileHasher hasher = BulkFileHasher.createSHA256())
+                    {
+                        test.assertEqual(0L, hasher.hashFiles(java.util.stream.Stream.empty()).count());
+                    }
+                });
+
+                runner.test("with many files", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(100);
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createSHA256, 8))
+                    {
+                        final java.util.List<FileHashResult> results = new java.util.ArrayList<>();
+                        hasher.hashFiles(filePaths.stream()).forEach(results::add);
+
+                        test.assertEqual(filePaths.size(), results.size());
+                        final java.util.Set<Long> indexes = new java.util.HashSet<>();
+                        for (final FileHashResult result : results)
+                        {
+                            test.assertTrue(result.isSuccess());
+                            test.assertNull(result.getError());
+                            test.assertEqual(filePaths.get((int)result.getIndex()), result.getFilePath());
+                            test.assertEqual(HashFunction.hashFile(result.getFilePath(), HashFunction::createSHA256).await(), result.getDigest());
+                            indexes.add(result.getIndex());
+                        }
+                        test.assertEqual(filePaths.size(), indexes.size());
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+
+                runner.test("with file that doesn't exist", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(3);
+                    TestFiles.delete(filePaths.get(1));
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createMD5, 2))
+                    {
+                        int errorCount = 0;
+                        for (final FileHashResult result : (Iterable<FileHashResult>)hasher.hashFiles(filePaths.stream())::iterator)
+                        {
+                            if (!result.isSuccess())
+                            {
+                                ++errorCount;
+                                test.assertEqual(filePaths.get(1), result.getFilePath());
+                                test.assertNull(result.getDigest());
+                                test.assertNotNull(result.getError());
+                                test.assertThrows(() -> result.toResult().await(),
+                                    new java.nio.file.NoSuchFileException(filePaths.get(1).toString()));
+                            }
+                        }
+                        test.assertEqual(1, errorCount);
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+
+                runner.test("reuses HashFunctions", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(50);
+                    final java.util.concurrent.atomic.AtomicInteger createdCount = new java.util.concurrent.atomic.AtomicInteger();
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(() ->
+                        {
+                            createdCount.incrementAndGet();
+                            return HashFunction.createMD5();
+                        },
+                        3))
+                    {
+                        test.assertEqual(50L, hasher.hashFiles(filePaths.stream()).count());
+                        test.assertTrue(createdCount.get() <= 3);
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+
+                runner.test("shares maximumInFlight between concurrent calls", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(50);
+                    final java.util.concurrent.atomic.AtomicInteger createdCount = new java.util.concurrent.atomic.AtomicInteger();
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(() ->
+                        {
+                            createdCount.incrementAndGet();
+                            return HashFunction.createMD5();
+                        },
+                        3))
+                    {
+                        final java.util.Iterator<FileHashResult> first = hasher.hashFiles(filePaths.stream()).iterator();
+                        final java.util.Iterator<FileHashResult> second = hasher.hashFiles(filePaths.stream()).iterator();
+                        final java.util.Iterator<FileHashResult> third = hasher.hashFilesInOrder(filePaths.stream()).iterator();
+                        int resultCount = 0;
+                        while (first.hasNext() || second.hasNext() || third.hasNext())
+                        {
+                            for (final java.util.Iterator<FileHashResult> results : java.util.List.of(first, second, third))
+                            {
+                                if (results.hasNext())
+                                {
+                                    test.assertTrue(results.next().isSuccess());
+                                    ++resultCount;
+                                }
+                            }
+                        }
+                        test.assertEqual(150, resultCount);
+                        test.assertTrue(createdCount.get() <= 3);
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+
+                runner.test("with error from the input stream", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(2);
+                    final java.util.stream.Stream<java.nio.file.Path> input = java.util.stream.Stream.of(0, 1, 2)
+                        .map((Integer index) ->
+                        {
+                            if (index == 2)
+                            {
+                                throw new java.io.UncheckedIOException(new java.io.IOException("oops"));
+                            }
+                            return filePaths.get(index);
+                        });
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createMD5, 4))
+                    {
+                        final java.util.Iterator<FileHashResult> results = hasher.hashFilesInOrder(input).iterator();
+                        test.assertEqual(filePaths.get(0), results.next().getFilePath());
+                        test.assertEqual(filePaths.get(1), results.next().getFilePath());
+                        test.assertThrows(() -> results.hasNext(),
+                            new java.io.UncheckedIOException(new java.io.IOException("oops")));
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+
+                runner.test("closing the results closes the input", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(2);
+                    final java.util.concurrent.atomic.AtomicBoolean inputClosed = new java.util.concurrent.atomic.AtomicBoolean();
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createMD5, 1))
+                    {
+                        final java.util.stream.Stream<FileHashResult> results = hasher.hashFiles(filePaths.stream().onClose(() -> inputClosed.set(true)));
+                        test.assertTrue(results.iterator().hasNext());
+                        results.close();
+                        test.assertTrue(inputClosed.get());
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+            });
+
+            runner.testGroup("hashFilesInOrder(java.util.stream.Stream<java.nio.file.Path>)", () ->
+            {
+                runner.test("with null filePaths", (Test test) ->
+                {
+                    try (final BulkFileHasher hasher = BulkFileHasher.createSHA256())
+                    {
+                        test.assertThrows(() -> hasher.hashFilesInOrder(null),
+                            new PreConditionFailure("filePaths cannot be null."));
+                    }
+                });
+
+                runner.test("with many files", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(100);
+                    try (final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createXXH64, 8))
+                    {
+                        final java.util.List<FileHashResult> results = new java.util.ArrayList<>();
+                        hasher.hashFilesInOrder(filePaths.stream()).forEach(results::add);
+
+                        test.assertEqual(filePaths.size(), results.size());
+                        for (int i = 0; i < results.size(); ++i)
+                        {
+                            final FileHashResult result = results.get(i);
+                            test.assertEqual((long)i, result.getIndex());
+                            test.assertEqual(filePaths.get(i), result.getFilePath());
+                            test.assertEqual(HashFunction.hashFile(filePaths.get(i), HashFunction::createXXH64).await(), result.getDigest());
+                        }
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+            });
+
+            runner.testGroup("dispose()", () ->
+            {
+                runner.test("with no streams", (Test test) ->
+                {
+                    final BulkFileHasher hasher = BulkFileHasher.createSHA256();
+                    test.assertTrue(hasher.dispose().await());
+                    test.assertTrue(hasher.isDisposed());
+                    test.assertFalse(hasher.dispose().await());
+                });
+
+                runner.test("with a stream that stopped being consumed", (Test test) ->
+                {
+                    final java.util.List<java.nio.file.Path> filePaths = BulkFileHasherTests.createFiles(10);
+                    try
+                    {
+                        final BulkFileHasher hasher = BulkFileHasher.create(HashFunction::createSHA256, 2);
+                        final java.util.Iterator<FileHashResult> results = hasher.hashFiles(filePaths.stream()).iterator();
+                        test.assertTrue(results.next().isSuccess());
+
+                        // The dispatcher is stopped, so the stream ends after the files that were
+                        // already started instead of failing to start the rest.
+                        test.assertTrue(hasher.dispose().await());
+                        int remainingCount = 0;
+                        while (results.hasNext())
+                        {
+                            test.assertTrue(results.next().isSuccess());
+                            ++remainingCount;
+                        }
+                        test.assertTrue(remainingCount <= 2);
+                    }
+                    finally
+                    {
+                        BulkFileHasherTests.deleteFiles(filePaths);
+                    }
+                });
+            });
+        });
+    }
+
+    static java.util.List<java.nio.file.Path> createFiles(int count)
+    {
+        final java.util.List<java.nio.file.Path> result = new java.util.ArrayList<>();
+        for (int i = 0; i < count; ++i)
+        {
+            final byte[] contents = new byte[i * 37];
+            for (int j = 0; j < contents.length; ++j)
+            {
+                contents[j] = (byte)(i + j);
+            }
+            result.add(TestFiles.create(contents));
+        }
+        return result;
+    }
+
+    static void deleteFiles(java.util.List<java.nio.file.Path> filePaths)
+    {
+        for (final java.nio.file.Path filePath : filePaths)
+        {
+            TestFiles.delete(filePath);
+        }
+    }
+}
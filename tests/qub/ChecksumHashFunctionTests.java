@@ -0,0 +1,86 @@
+package qub;
+
+public interface ChecksumHashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ChecksumHashFunction.class, () ->
+        {
+            final byte[] checkBytes = CharacterEncoding.US_ASCII.encodeCharacters("123456789").await();
+
+            runner.testGroup("takeDigest(byte[])", () ->
+            {
+                final Action4<String,Function0<ChecksumHashFunction>,String,String> takeDigestTest = (String algorithm, Function0<ChecksumHashFunction> creator, String expectedEmpty, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(algorithm), (Test test) ->
+                    {
+                        try (final ChecksumHashFunction hashFunction = creator.run())
+                        {
+                            test.assertEqual(algorithm, hashFunction.getAlgorithm());
+                            test.assertEqual(4, hashFunction.getDigestLength());
+                            test.assertEqual(expectedEmpty, hashFunction.takeDigest().toHexString());
+                            test.assertEqual(expected, hashFunction.takeDigest(checkBytes).toHexString());
+
+                            final java.nio.ByteBuffer directBuffer = java.nio.ByteBuffer.allocateDirect(checkBytes.length);
+                            directBuffer.put(checkBytes).flip();
+                            hashFunction.addBytes(directBuffer);
+                            test.assertEqual(Long.parseLong(expected, 16), hashFunction.takeLongDigest());
+                        }
+                    });
+                };
+
+                takeDigestTest.run("CRC32C", ChecksumHashFunction::createCRC32C, "00000000", "E3069283");
+                takeDigestTest.run("CRC32", ChecksumHashFunction::createCRC32, "00000000", "CBF43926");
+                takeDigestTest.run("Adler32", ChecksumHashFunction::createAdler32, "00000001", "091E01DE");
+            });
+
+            runner.testGroup("combine(long,long,long)", () ->
+            {
+                final Action2<Function0<ChecksumHashFunction>,Integer> combineTest = (Function0<ChecksumHashFunction> creator, Integer byteCount) ->
+                {
+                    final ChecksumHashFunction hashFunction = creator.run();
+                    runner.test("with " + English.andList(hashFunction.getAlgorithm(), byteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; ++i)
+                        {
+                            bytes[i] = (byte)(i * 31 + 7);
+                        }
+                        final long expected = hashFunction.takeLongDigest(bytes, 0, bytes.length);
+                        final long emptyChecksum = hashFunction.takeLongDigest();
+                        test.assertEqual(expected, hashFunction.combine(expected, emptyChecksum, 0));
+                        test.assertEqual(expected, hashFunction.combine(emptyChecksum, expected, bytes.length));
+
+                        for (int splitIndex = 1; splitIndex < bytes.length; splitIndex += Math.maximum(1, bytes.length / 7))
+                        {
+                            final long firstChecksum = hashFunction.takeLongDigest(bytes, 0, splitIndex);
+                            final long secondChecksum = hashFunction.takeLongDigest(bytes, splitIndex, bytes.length - splitIndex);
+                            test.assertEqual(expected, hashFunction.combine(firstChecksum, secondChecksum, bytes.length - splitIndex));
+                        }
+                    });
+                };
+
+                combineTest.run(ChecksumHashFunction::createCRC32C, 0);
+                combineTest.run(ChecksumHashFunction::createCRC32C, 1);
+                combineTest.run(ChecksumHashFunction::createCRC32C, 1000);
+                combineTest.run(ChecksumHashFunction::createCRC32C, 100_000);
+                combineTest.run(ChecksumHashFunction::createCRC32, 0);
+                combineTest.run(ChecksumHashFunction::createCRC32, 1);
+                combineTest.run(ChecksumHashFunction::createCRC32, 1000);
+                combineTest.run(ChecksumHashFunction::createCRC32, 100_000);
+                combineTest.run(ChecksumHashFunction::createAdler32, 0);
+                combineTest.run(ChecksumHashFunction::createAdler32, 1);
+                combineTest.run(ChecksumHashFunction::createAdler32, 1000);
+                combineTest.run(ChecksumHashFunction::createAdler32, 100_000);
+
+                runner.test("with negative secondLength", (Test test) ->
+                {
+                    test.assertThrows(() -> ChecksumHashFunction.combineCRC32C(0, 0, -1),
+                        new PreConditionFailure("secondLength (-1) must be greater than or equal to 0."));
+                });
+            });
+
+            HashFunctionTests.test(runner, ChecksumHashFunction::createCRC32C);
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package qub;
+
+public interface ConsistentHashRingTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ConsistentHashRing.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final ConsistentHashRing<String> ring = ConsistentHashRing.create();
+                test.assertEqual(ConsistentHashRing.defaultVirtualNodeCount, ring.getVirtualNodeCount());
+                test.assertEqual(0, ring.getNodeCount());
+            });
+
+            runner.testGroup("create(int)", () ->
+            {
+                runner.test("with 0", (Test test) ->
+                {
+                    test.assertThrows(() -> ConsistentHashRing.create(0),
+                        new PreConditionFailure("virtualNodeCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with 1", (Test test) ->
+                {
+                    final ConsistentHashRing<String> ring = ConsistentHashRing.create(1);
+                    test.assertEqual(1, ring.getVirtualNodeCount());
+                    ring.addNode("a");
+                    ring.addNode("b");
+
+                    // With one point per node, a key belongs to the node whose point comes first
+                    // at or after the key's hash.
+                    final long aPoint = ConsistentHashRing.getRingPoint(ShardRouter.getNodeNameBytes("a"), 0);
+                    final long bPoint = ConsistentHashRing.getRingPoint(ShardRouter.getNodeNameBytes("b"), 0);
+                    test.assertEqual("a", ring.getNode(aPoint));
+                    test.assertEqual("b", ring.getNode(bPoint));
+                    test.assertEqual(aPoint < bPoint ? "b" : "a", ring.getNode(java.lang.Math.max(aPoint, bPoint) - 1));
+                    test.assertEqual(aPoint < bPoint ? "a" : "b", ring.getNode(java.lang.Math.max(aPoint, bPoint) + 1));
+                });
+            });
+
+            runner.test("removeNode(T) with a middle node only moves that node's keys", (Test test) ->
+            {
+                final ShardRouter<String> ring = ShardRouterTests.createRouter(ConsistentHashRing::create, 10);
+                final String[] before = ShardRouterTests.route(ring);
+
+                test.assertTrue(ring.removeNode("node4"));
+                final String[] after = ShardRouterTests.route(ring);
+
+                for (int i = 0; i < ShardRouterTests.keyCount; ++i)
+                {
+                    if (!before[i].equals("node4"))
+                    {
+                        test.assertEqual(before[i], after[i]);
+                    }
+                    test.assertNotEqual("node4", after[i]);
+                }
+            });
+
+            runner.test("getNode(byte[]) doesn't depend on the order that nodes were added in", (Test test) ->
+            {
+                final ShardRouter<String> ring = ShardRouterTests.createRouter(ConsistentHashRing::create, 5);
+                final ConsistentHashRing<String> otherRing = ConsistentHashRing.create();
+                for (int i = 4; i >= 0; --i)
+                {
+                    otherRing.addNode("node" + i);
+                }
+                test.assertEqual(java.util.Arrays.asList(ShardRouterTests.route(ring)), java.util.Arrays.asList(ShardRouterTests.route(otherRing)));
+            });
+
+            ShardRouterTests.test(runner, ConsistentHashRing::create);
+        });
+    }
+}
@@ -0,0 +1,344 @@
+package qub;
+
+public interface ContentDefinedChunkingByteReadStreamTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(ContentDefinedChunkingByteReadStream.class, () ->
+        {
+            runner.testGroup("create(ByteReadStream,HashFunction,Action1<ContentDefinedChunk>)", () ->
+            {
+                runner.test("with null innerStream", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(null, sha256, (ContentDefinedChunk chunk) -> {}),
+                            new PreConditionFailure("innerStream cannot be null."));
+                    }
+                });
+
+                runner.test("with null hashFunction", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(innerStream, null, (ContentDefinedChunk chunk) -> {}),
+                        new PreConditionFailure("hashFunction cannot be null."));
+                });
+
+                runner.test("with null chunkListener", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(innerStream, sha256, null),
+                            new PreConditionFailure("chunkListener cannot be null."));
+                    }
+                });
+
+                runner.test("with non-null arguments", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.create(innerStream, sha256, (ContentDefinedChunk chunk) -> {});
+                        test.assertNotNull(stream);
+                        test.assertFalse(stream.isDisposed());
+                        test.assertEqual(ContentDefinedChunkingByteReadStream.defaultMinimumChunkSize, stream.getMinimumChunkSize());
+                        test.assertEqual(ContentDefinedChunkingByteReadStream.defaultAverageChunkSize, stream.getAverageChunkSize());
+                        test.assertEqual(ContentDefinedChunkingByteReadStream.defaultMaximumChunkSize, stream.getMaximumChunkSize());
+                    }
+                });
+            });
+
+            runner.testGroup("create(ByteReadStream,HashFunction,Action1<ContentDefinedChunk>,int,int,int)", () ->
+            {
+                final Action1<ContentDefinedChunk> ignoreChunk = (ContentDefinedChunk chunk) -> {};
+
+                runner.test("with zero minimumChunkSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(innerStream, sha256, ignoreChunk, 0, 64, 128),
+                            new PreConditionFailure("minimumChunkSize (0) must be greater than or equal to 1."));
+                    }
+                });
+
+                runner.test("with averageChunkSize less than 16", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(innerStream, sha256, ignoreChunk, 1, 8, 128),
+                            new PreConditionFailure("averageChunkSize (8) must be greater than or equal to 16."));
+                    }
+                });
+
+                runner.test("with averageChunkSize less than minimumChunkSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(innerStream, sha256, ignoreChunk, 100, 64, 128),
+                            new PreConditionFailure("averageChunkSize (64) must be between 100 and 128."));
+                    }
+                });
+
+                runner.test("with averageChunkSize greater than maximumChunkSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        test.assertThrows(() -> ContentDefinedChunkingByteReadStream.create(innerStream, sha256, ignoreChunk, 16, 64, 32),
+                            new PreConditionFailure("averageChunkSize (64) must be between 16 and 32."));
+                    }
+                });
+
+                runner.test("with valid chunk sizes", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.create(innerStream, sha256, ignoreChunk, 32, 64, 256);
+                        test.assertEqual(32, stream.getMinimumChunkSize());
+                        test.assertEqual(64, stream.getAverageChunkSize());
+                        test.assertEqual(256, stream.getMaximumChunkSize());
+                    }
+                });
+            });
+
+            runner.testGroup("createSHA256(ByteReadStream,Action1<ContentDefinedChunk>)", () ->
+            {
+                runner.test("with non-null arguments", (Test test) ->
+                {
+                    final java.util.List<ContentDefinedChunk> chunks = new java.util.ArrayList<>();
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create(new byte[] { 1, 2, 3 }).endOfStream();
+                    try (final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.createSHA256(innerStream, chunks::add).await())
+                    {
+                        test.assertEqual(3, stream.readBytes(new byte[10], 0, 10).await());
+                        test.assertThrows(() -> stream.readByte().await(), new EmptyException());
+                        test.assertEqual(1, chunks.size());
+                        test.assertEqual(0L, chunks.get(0).getOffset());
+                        test.assertEqual(3, chunks.get(0).getLength());
+                        test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", chunks.get(0).getDigest().toHexString());
+                    }
+                });
+            });
+
+            runner.testGroup("readByte()", () ->
+            {
+                runner.test("with empty stream", (Test test) ->
+                {
+                    final java.util.List<ContentDefinedChunk> chunks = new java.util.ArrayList<>();
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.createSHA256(innerStream, chunks::add).await())
+                    {
+                        test.assertThrows(() -> stream.readByte().await(), new EmptyException());
+                        test.assertEqual(0, chunks.size());
+                    }
+                });
+
+                runner.test("finds the same chunks as readBytes()", (Test test) ->
+                {
+                    final byte[] data = ContentDefinedChunkingByteReadStreamTests.createRandomBytes(20000, 1);
+                    final java.util.List<ContentDefinedChunk> expected = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 1000, 64, 256, 1024);
+
+                    final java.util.List<ContentDefinedChunk> chunks = new java.util.ArrayList<>();
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await();
+                         final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.create(InMemoryByteStream.create(data).endOfStream(), sha256, chunks::add, 64, 256, 1024))
+                    {
+                        for (int i = 0; i < data.length; ++i)
+                        {
+                            test.assertEqual(data[i], stream.readByte().await());
+                        }
+                        test.assertThrows(() -> stream.readByte().await(), new EmptyException());
+                    }
+                    test.assertEqual(expected, chunks);
+                });
+            });
+
+            runner.testGroup("readBytes(byte[],int,int)", () ->
+            {
+                runner.test("with null outputBytes", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.createSHA256(innerStream, (ContentDefinedChunk chunk) -> {}).await())
+                    {
+                        test.assertThrows(() -> stream.readBytes(null, 0, 1),
+                            new PreConditionFailure("outputBytes cannot be null."));
+                    }
+                });
+
+                runner.test("chunks cover the whole stream", (Test test) ->
+                {
+                    final byte[] data = ContentDefinedChunkingByteReadStreamTests.createRandomBytes(100000, 2);
+                    final java.util.List<ContentDefinedChunk> chunks = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 4096, 256, 1024, 4096);
+
+                    long expectedOffset = 0;
+                    for (final ContentDefinedChunk chunk : chunks)
+                    {
+                        test.assertEqual(expectedOffset, chunk.getOffset());
+                        expectedOffset += chunk.getLength();
+                    }
+                    test.assertEqual((long)data.length, expectedOffset);
+                });
+
+                runner.test("chunks are within the chunk size bounds", (Test test) ->
+                {
+                    final byte[] data = ContentDefinedChunkingByteReadStreamTests.createRandomBytes(100000, 3);
+                    final java.util.List<ContentDefinedChunk> chunks = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 4096, 256, 1024, 4096);
+
+                    test.assertTrue(chunks.size() > 1);
+                    for (int i = 0; i < chunks.size(); ++i)
+                    {
+                        final int length = chunks.get(i).getLength();
+                        test.assertTrue(length <= 4096);
+                        if (i < chunks.size() - 1)
+                        {
+                            test.assertTrue(length >= 256);
+                        }
+                    }
+                });
+
+                runner.test("chunks are cut at the maximum chunk size when the content never matches", (Test test) ->
+                {
+                    final byte[] data = new byte[1000];
+                    final java.util.List<ContentDefinedChunk> chunks = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 100, 16, 64, 300);
+
+                    test.assertEqual(4, chunks.size());
+                    test.assertEqual(300, chunks.get(0).getLength());
+                    test.assertEqual(300, chunks.get(1).getLength());
+                    test.assertEqual(300, chunks.get(2).getLength());
+                    test.assertEqual(100, chunks.get(3).getLength());
+                    test.assertEqual(chunks.get(0).getDigest(), chunks.get(1).getDigest());
+                });
+
+                runner.test("chunk digests match the digests of the chunk bytes", (Test test) ->
+                {
+                    final byte[] data = ContentDefinedChunkingByteReadStreamTests.createRandomBytes(50000, 4);
+                    final java.util.List<ContentDefinedChunk> chunks = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 777, 128, 512, 2048);
+
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        for (final ContentDefinedChunk chunk : chunks)
+                        {
+                            sha256.addBytes(data, (int)chunk.getOffset(), chunk.getLength());
+                            test.assertEqual(sha256.takeDigest(), chunk.getDigest());
+                        }
+                    }
+                });
+
+                runner.test("chunks don't depend on the read size", (Test test) ->
+                {
+                    final byte[] data = ContentDefinedChunkingByteReadStreamTests.createRandomBytes(50000, 5);
+                    final java.util.List<ContentDefinedChunk> expected = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 50000, 128, 512, 2048);
+                    for (final int bufferSize : new int[] { 1, 7, 512, 4093 })
+                    {
+                        test.assertEqual(expected, ContentDefinedChunkingByteReadStreamTests.readChunks(data, bufferSize, 128, 512, 2048));
+                    }
+                });
+
+                runner.test("inserting a byte only changes the nearby chunks", (Test test) ->
+                {
+                    final byte[] data = ContentDefinedChunkingByteReadStreamTests.createRandomBytes(200000, 6);
+                    final byte[] editedData = new byte[data.length + 1];
+                    System.arraycopy(data, 0, editedData, 0, 100000);
+                    editedData[100000] = 42;
+                    System.arraycopy(data, 100000, editedData, 100001, data.length - 100000);
+
+                    final java.util.List<ContentDefinedChunk> chunks = ContentDefinedChunkingByteReadStreamTests.readChunks(data, 4096, 256, 1024, 4096);
+                    final java.util.List<ContentDefinedChunk> editedChunks = ContentDefinedChunkingByteReadStreamTests.readChunks(editedData, 4096, 256, 1024, 4096);
+
+                    final java.util.Set<BitArray> digests = new java.util.HashSet<>();
+                    for (final ContentDefinedChunk chunk : chunks)
+                    {
+                        digests.add(chunk.getDigest());
+                    }
+                    int changedChunkCount = 0;
+                    for (final ContentDefinedChunk chunk : editedChunks)
+                    {
+                        if (!digests.contains(chunk.getDigest()))
+                        {
+                            ++changedChunkCount;
+                        }
+                    }
+                    test.assertTrue(changedChunkCount >= 1);
+                    test.assertTrue(changedChunkCount <= 3);
+                });
+            });
+
+            runner.testGroup("finishChunk()", () ->
+            {
+                runner.test("with no bytes read", (Test test) ->
+                {
+                    final java.util.List<ContentDefinedChunk> chunks = new java.util.ArrayList<>();
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create(new byte[] { 1, 2, 3 }).endOfStream();
+                    try (final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.createSHA256(innerStream, chunks::add).await())
+                    {
+                        stream.finishChunk();
+                        test.assertEqual(0, chunks.size());
+                    }
+                });
+
+                runner.test("with bytes read", (Test test) ->
+                {
+                    final java.util.List<ContentDefinedChunk> chunks = new java.util.ArrayList<>();
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create(new byte[] { 1, 2, 3 }).endOfStream();
+                    try (final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.createSHA256(innerStream, chunks::add).await())
+                    {
+                        test.assertEqual((byte)1, stream.readByte().await());
+                        stream.finishChunk();
+                        test.assertEqual(1, chunks.size());
+                        test.assertEqual(0L, chunks.get(0).getOffset());
+                        test.assertEqual(1, chunks.get(0).getLength());
+
+                        test.assertEqual(2, stream.readBytes(new byte[2], 0, 2).await());
+                        test.assertThrows(() -> stream.readByte().await(), new EmptyException());
+                        test.assertEqual(2, chunks.size());
+                        test.assertEqual(1L, chunks.get(1).getOffset());
+                        test.assertEqual(2, chunks.get(1).getLength());
+                    }
+                });
+            });
+
+            runner.testGroup("dispose()", () ->
+            {
+                runner.test("disposes the inner stream and hash function", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    final HashFunction sha256 = HashFunction.createSHA256().await();
+                    final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.create(innerStream, sha256, (ContentDefinedChunk chunk) -> {});
+                    test.assertTrue(stream.dispose().await());
+                    test.assertTrue(stream.isDisposed());
+                    test.assertTrue(innerStream.isDisposed());
+                    test.assertTrue(sha256.isDisposed());
+                    test.assertFalse(stream.dispose().await());
+                });
+            });
+        });
+    }
+
+    static byte[] createRandomBytes(int length, long seed)
+    {
+        final byte[] result = new byte[length];
+        new java.util.Random(seed).nextBytes(result);
+        return result;
+    }
+
+    static java.util.List<ContentDefinedChunk> readChunks(byte[] data, int bufferSize, int minimumChunkSize, int averageChunkSize, int maximumChunkSize)
+    {
+        final java.util.List<ContentDefinedChunk> result = new java.util.ArrayList<>();
+        try (final HashFunction sha256 = HashFunction.createSHA256().await();
+             final ContentDefinedChunkingByteReadStream stream = ContentDefinedChunkingByteReadStream.create(InMemoryByteStream.create(data).endOfStream(), sha256, result::add, minimumChunkSize, averageChunkSize, maximumChunkSize))
+        {
+            final byte[] buffer = new byte[bufferSize];
+            while (true)
+            {
+                stream.readBytes(buffer, 0, buffer.length).await();
+            }
+        }
+        catch (EmptyException e)
+        {
+        }
+        return result;
+    }
+}
@@ -0,0 +1,198 @@
+package qub;
+
+public interface CountingBloomFilterTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(CountingBloomFilter.class, () ->
+        {
+            runner.test("create(long,double)", (Test test) ->
+            {
+                final CountingBloomFilter filter = CountingBloomFilter.create(1000, 0.01);
+                test.assertEqual(9586L, filter.getCounterCount());
+                test.assertEqual(7, filter.getHashCount());
+            });
+
+            runner.test("createWithSize(long,int) with 0 counterCount", (Test test) ->
+            {
+                test.assertThrows(() -> CountingBloomFilter.createWithSize(0, 3),
+                    new PreConditionFailure("counterCount (0) must be between 1 and 34359738352."));
+            });
+
+            runner.testGroup("add(byte[]) and remove(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final CountingBloomFilter filter = CountingBloomFilter.create(10, 0.01);
+                    test.assertThrows(() -> filter.add(null),
+                        new PreConditionFailure("key cannot be null."));
+                    test.assertThrows(() -> filter.remove(null),
+                        new PreConditionFailure("key cannot be null."));
+                });
+
+                runner.test("with a key that was never added", (Test test) ->
+                {
+                    final CountingBloomFilter filter = CountingBloomFilter.create(10, 0.01);
+                    test.assertFalse(filter.remove(new byte[] { 1, 2, 3 }));
+                });
+
+                runner.test("with one key", (Test test) ->
+                {
+                    final CountingBloomFilter filter = CountingBloomFilter.create(10, 0.01);
+                    final byte[] key = new byte[] { 1, 2, 3 };
+                    filter.add(key);
+                    filter.add(key);
+                    test.assertTrue(filter.contains(key));
+
+                    test.assertTrue(filter.remove(key));
+                    test.assertTrue(filter.contains(key));
+
+                    test.assertTrue(filter.remove(key));
+                    test.assertFalse(filter.contains(key));
+                    test.assertFalse(filter.remove(key));
+                });
+
+                runner.test("with many keys", (Test test) ->
+                {
+                    final CountingBloomFilter filter = CountingBloomFilter.create(2000, 0.01);
+                    for (int i = 0; i < 2000; ++i)
+                    {
+                        filter.add(BloomFilterTests.getKey(i));
+                    }
+                    for (int i = 0; i < 2000; i += 2)
+                    {
+                        test.assertTrue(filter.remove(BloomFilterTests.getKey(i)));
+                    }
+                    for (int i = 1; i < 2000; i += 2)
+                    {
+                        test.assertTrue(filter.contains(BloomFilterTests.getKey(i)));
+                    }
+
+                    int falsePositiveCount = 0;
+                    for (int i = 0; i < 2000; i += 2)
+                    {
+                        if (filter.contains(BloomFilterTests.getKey(i)))
+                        {
+                            ++falsePositiveCount;
+                        }
+                    }
+                    test.assertTrue(falsePositiveCount < 20);
+                });
+
+                runner.test("with a saturated counter", (Test test) ->
+                {
+                    final CountingBloomFilter filter = CountingBloomFilter.createWithSize(1, 1);
+                    for (int i = 0; i < 20; ++i)
+                    {
+                        filter.add(new byte[] { 5 });
+                    }
+                    test.assertEqual(CountingBloomFilter.maximumCount, filter.getCount(0));
+
+                    for (int i = 0; i < 20; ++i)
+                    {
+                        test.assertTrue(filter.remove(new byte[] { 5 }));
+                    }
+                    test.assertEqual(CountingBloomFilter.maximumCount, filter.getCount(0));
+                });
+            });
+
+            runner.test("add(byte[]) and remove(byte[]) from many threads at once", (Test test) ->
+            {
+                final CountingBloomFilter filter = CountingBloomFilter.create(40000, 0.01);
+                for (int i = 0; i < 40000; ++i)
+                {
+                    filter.add(BloomFilterTests.getKey(i));
+                }
+
+                final java.util.List<Thread> threads = new java.util.ArrayList<>();
+                for (int t = 0; t < 8; ++t)
+                {
+                    final int threadIndex = t;
+                    threads.add(new Thread(() ->
+                    {
+                        for (int i = threadIndex; i < 40000; i += 8)
+                        {
+                            filter.add(BloomFilterTests.getKey(40000 + i));
+                            filter.remove(BloomFilterTests.getKey(i));
+                        }
+                    }));
+                }
+                BloomFilterTests.runThreads(threads);
+
+                for (int i = 40000; i < 80000; ++i)
+                {
+                    test.assertTrue(filter.contains(BloomFilterTests.getKey(i)));
+                }
+            });
+
+            runner.test("merge(CountingBloomFilter)", (Test test) ->
+            {
+                final CountingBloomFilter filter = CountingBloomFilter.create(1000, 0.01);
+                final CountingBloomFilter other = CountingBloomFilter.create(1000, 0.01);
+                filter.add(BloomFilterTests.getKey(1));
+                other.add(BloomFilterTests.getKey(1));
+                other.add(BloomFilterTests.getKey(2));
+
+                filter.merge(other);
+                test.assertTrue(filter.contains(BloomFilterTests.getKey(2)));
+                test.assertTrue(filter.remove(BloomFilterTests.getKey(1)));
+                test.assertTrue(filter.contains(BloomFilterTests.getKey(1)));
+
+                test.assertThrows(() -> filter.merge(CountingBloomFilter.createWithSize(10, 7)),
+                    new PreConditionFailure("other.getCounterCount() (10) must be 9586."));
+            });
+
+            runner.test("toBloomFilter()", (Test test) ->
+            {
+                final CountingBloomFilter filter = CountingBloomFilter.create(1000, 0.01);
+                final BloomFilter expected = BloomFilter.create(1000, 0.01);
+                for (int i = 0; i < 1000; ++i)
+                {
+                    filter.add(BloomFilterTests.getKey(i));
+                    expected.add(BloomFilterTests.getKey(i));
+                }
+
+                final BloomFilter bloomFilter = filter.toBloomFilter();
+                test.assertEqual(BitArray.createFromBytes(expected.toBytes()), BitArray.createFromBytes(bloomFilter.toBytes()));
+            });
+
+            runner.test("clear()", (Test test) ->
+            {
+                final CountingBloomFilter filter = CountingBloomFilter.create(10, 0.01);
+                filter.add(new byte[] { 1 });
+                filter.clear();
+                test.assertFalse(filter.contains(new byte[] { 1 }));
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with serialized Bloom filter", (Test test) ->
+                {
+                    test.assertThrows(() -> CountingBloomFilter.parse(BloomFilter.create(10, 0.01).toBytes()).await(),
+                        new java.io.IOException("The bytes are not a serialized counting Bloom filter."));
+                });
+
+                runner.test("with bytes from toBytes()", (Test test) ->
+                {
+                    final CountingBloomFilter filter = CountingBloomFilter.create(100, 0.01);
+                    for (int i = 0; i < 100; ++i)
+                    {
+                        filter.add(BloomFilterTests.getKey(i));
+                    }
+
+                    final CountingBloomFilter parsedFilter = CountingBloomFilter.parse(filter.toBytes()).await();
+                    test.assertEqual(filter.getCounterCount(), parsedFilter.getCounterCount());
+                    test.assertEqual(filter.getHashCount(), parsedFilter.getHashCount());
+                    for (int i = 0; i < 100; ++i)
+                    {
+                        test.assertTrue(parsedFilter.remove(BloomFilterTests.getKey(i)));
+                    }
+                    for (long position = 0; position < parsedFilter.getCounterCount(); ++position)
+                    {
+                        test.assertEqual(0, parsedFilter.getCount(position));
+                    }
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,266 @@
+package qub;
+
+public interface DigestManifestTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(DigestManifest.class, () ->
+        {
+            runner.testGroup("create(long,int,BitArray[])", () ->
+            {
+                runner.test("with negative dataLength", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.create(-1, 10, new BitArray[0]),
+                        new PreConditionFailure("dataLength (-1) must be greater than or equal to 0."));
+                });
+
+                runner.test("with 0 chunkSize", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.create(10, 0, new BitArray[0]),
+                        new PreConditionFailure("chunkSize (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with the wrong number of chunkDigests", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.create(25, 10, new BitArray[2]),
+                        new PreConditionFailure("chunkDigests.length (2) must be 3."));
+                });
+
+                runner.test("with chunkDigests of different lengths", (Test test) ->
+                {
+                    final BitArray[] chunkDigests = new BitArray[] { BitArray.createFromBytes(new byte[4]), BitArray.createFromBytes(new byte[3]) };
+                    test.assertThrows(() -> DigestManifest.create(20, 10, chunkDigests),
+                        new PreConditionFailure("chunkDigests[1] byte count (3) must be 4."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final BitArray[] chunkDigests = new BitArray[] { BitArray.createFromBytes(new byte[] { 1, 2 }), BitArray.createFromBytes(new byte[] { 3, 4 }) };
+                    final DigestManifest manifest = DigestManifest.create(15, 10, chunkDigests);
+                    test.assertEqual(15L, manifest.getDataLength());
+                    test.assertEqual(10, manifest.getChunkSize());
+                    test.assertEqual(2, manifest.getChunkCount());
+                    test.assertEqual(2, manifest.getDigestLength());
+                    test.assertEqual(10L, manifest.getChunkOffset(1));
+                    test.assertEqual(10, manifest.getChunkLength(0));
+                    test.assertEqual(5, manifest.getChunkLength(1));
+                    test.assertEqual(BitArray.createFromBytes(new byte[] { 3, 4 }), manifest.getChunkDigest(1));
+                });
+            });
+
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,byte[],int)", () ->
+            {
+                runner.test("with null data", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.create(HashFunction::createSHA256, null, 10),
+                        new PreConditionFailure("data cannot be null."));
+                });
+
+                runner.test("with a hashFunctionCreator that fails", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.create(() -> Result.error(new NotFoundException("blah")), new byte[10], 10).await(),
+                        new NotFoundException("blah"));
+                });
+
+                final Action2<Integer,Integer> createTest = (Integer chunkSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(chunkSize, byteCount), (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(byteCount);
+                        final DigestManifest manifest = DigestManifest.createSHA256(data, chunkSize).await();
+                        test.assertEqual((long)byteCount, manifest.getDataLength());
+                        test.assertEqual((byteCount + chunkSize - 1) / chunkSize, manifest.getChunkCount());
+                        test.assertEqual(32, manifest.getDigestLength());
+                        for (int chunkIndex = 0; chunkIndex < manifest.getChunkCount(); ++chunkIndex)
+                        {
+                            final int chunkOffset = (int)manifest.getChunkOffset(chunkIndex);
+                            final byte[] chunk = java.util.Arrays.copyOfRange(data, chunkOffset, chunkOffset + manifest.getChunkLength(chunkIndex));
+                            test.assertEqual(BitArray.createFromBytes(HashFunction.sha256(chunk)), manifest.getChunkDigest(chunkIndex));
+                        }
+                    });
+                };
+
+                createTest.run(10, 0);
+                createTest.run(10, 1);
+                createTest.run(10, 10);
+                createTest.run(10, 11);
+                createTest.run(1024, 10000);
+            });
+
+            runner.testGroup("getChunkLength(int)", () ->
+            {
+                runner.test("with an index past the end", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(new byte[25], 10).await();
+                    test.assertThrows(() -> manifest.getChunkLength(3),
+                        new PreConditionFailure("chunkIndex (3) must be between 0 and 2."));
+                });
+            });
+
+            runner.testGroup("verifyFile(Function0<Result<? extends HashFunction>>,Path,ForkJoinPool)", () ->
+            {
+                runner.test("with null filePath", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(new byte[25], 10).await();
+                    test.assertThrows(() -> manifest.verifyFile(HashFunction::createSHA256, null, java.util.concurrent.ForkJoinPool.commonPool()),
+                        new PreConditionFailure("filePath cannot be null."));
+                });
+
+                runner.test("with a hash function with the wrong digest length", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(25);
+                    final DigestManifest manifest = DigestManifest.createSHA256(data, 10).await();
+                    final java.nio.file.Path filePath = TestFiles.create(data);
+                    try
+                    {
+                        test.assertThrows(() -> manifest.verifyFile(HashFunction::createMD5, filePath, java.util.concurrent.ForkJoinPool.commonPool()).await(),
+                            new PreConditionFailure("hashFunction.getDigestLength() (16) must be 32."));
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+
+                final Action3<String,byte[],Throwable> verifyFileTest = (String testName, byte[] fileContents, Throwable expected) ->
+                {
+                    runner.test(testName, (Test test) ->
+                    {
+                        final DigestManifest manifest = DigestManifest.createSHA256(MerkleTreeTests.getData(100000), 1000).await();
+                        final java.nio.file.Path filePath = TestFiles.create(fileContents);
+                        try
+                        {
+                            final Result<Void> result = manifest.verifyFile(HashFunction::createSHA256, filePath, java.util.concurrent.ForkJoinPool.commonPool());
+                            if (expected == null)
+                            {
+                                result.await();
+                            }
+                            else
+                            {
+                                test.assertThrows(result::await, expected);
+                            }
+                        }
+                        finally
+                        {
+                            TestFiles.delete(filePath);
+                        }
+                    });
+                };
+
+                verifyFileTest.run("with a matching file", MerkleTreeTests.getData(100000), null);
+                verifyFileTest.run("with a changed byte", DigestManifestTests.changeByte(MerkleTreeTests.getData(100000), 54321), new ChunkDigestMismatchException(54, 54000, 1000));
+                verifyFileTest.run("with a truncated file", java.util.Arrays.copyOf(MerkleTreeTests.getData(100000), 99500), new ChunkDigestMismatchException(99, 99000, 1000));
+
+                runner.test("with a longer file", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(MerkleTreeTests.getData(100), 10).await();
+                    final java.nio.file.Path filePath = TestFiles.create(MerkleTreeTests.getData(101));
+                    try
+                    {
+                        test.assertThrows(() -> manifest.verifyFile(HashFunction::createSHA256, filePath, java.util.concurrent.ForkJoinPool.commonPool()).await(),
+                            new java.io.IOException(filePath + " is longer than the 100 bytes in the digest manifest."));
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+            });
+
+            runner.testGroup("getMismatchedRanges(Function0<Result<? extends HashFunction>>,Path,ForkJoinPool)", () ->
+            {
+                final Action3<String,byte[],Iterable<ChunkRange>> getMismatchedRangesTest = (String testName, byte[] fileContents, Iterable<ChunkRange> expected) ->
+                {
+                    runner.test(testName, (Test test) ->
+                    {
+                        final DigestManifest manifest = DigestManifest.createSHA256(MerkleTreeTests.getData(10000), 100).await();
+                        final java.nio.file.Path filePath = TestFiles.create(fileContents);
+                        try
+                        {
+                            test.assertEqual(expected, manifest.getMismatchedRanges(HashFunction::createSHA256, filePath, java.util.concurrent.ForkJoinPool.commonPool()).await());
+                        }
+                        finally
+                        {
+                            TestFiles.delete(filePath);
+                        }
+                    });
+                };
+
+                getMismatchedRangesTest.run("with a matching file",
+                    MerkleTreeTests.getData(10000),
+                    java.util.List.of());
+                getMismatchedRangesTest.run("with changed bytes",
+                    DigestManifestTests.changeByte(DigestManifestTests.changeByte(DigestManifestTests.changeByte(MerkleTreeTests.getData(10000), 50), 4150), 4250),
+                    java.util.List.of(ChunkRange.create(0, 100), ChunkRange.create(4100, 200)));
+                getMismatchedRangesTest.run("with a truncated file",
+                    java.util.Arrays.copyOf(MerkleTreeTests.getData(10000), 9950),
+                    java.util.List.of(ChunkRange.create(9900, 100)));
+                getMismatchedRangesTest.run("with an empty file",
+                    new byte[0],
+                    java.util.List.of(ChunkRange.create(0, 10000)));
+                getMismatchedRangesTest.run("with a longer file",
+                    java.util.Arrays.copyOf(MerkleTreeTests.getData(10000), 10100),
+                    java.util.List.of());
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.parse(null),
+                        new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with too few bytes", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.parse(new byte[4]).await(),
+                        new java.io.IOException("The serialized digest manifest is too short."));
+                });
+
+                runner.test("with wrong magic number", (Test test) ->
+                {
+                    test.assertThrows(() -> DigestManifest.parse(new byte[20]).await(),
+                        new java.io.IOException("The bytes are not a serialized digest manifest."));
+                });
+
+                runner.test("with truncated bytes", (Test test) ->
+                {
+                    final byte[] bytes = DigestManifest.createSHA256(new byte[25], 10).await().toBytes();
+                    test.assertThrows(() -> DigestManifest.parse(java.util.Arrays.copyOf(bytes, bytes.length - 1)).await(),
+                        new java.io.IOException("The serialized digest manifest is corrupt."));
+                });
+
+                final Action1<Integer> parseTest = (Integer byteCount) ->
+                {
+                    runner.test("with bytes from a manifest of " + byteCount + " bytes", (Test test) ->
+                    {
+                        final DigestManifest manifest = DigestManifest.createSHA256(MerkleTreeTests.getData(byteCount), 64).await();
+                        final DigestManifest parsedManifest = DigestManifest.parse(manifest.toBytes()).await();
+                        test.assertEqual(manifest.getDataLength(), parsedManifest.getDataLength());
+                        test.assertEqual(manifest.getChunkSize(), parsedManifest.getChunkSize());
+                        test.assertEqual(manifest.getChunkCount(), parsedManifest.getChunkCount());
+                        test.assertEqual(manifest.getDigestLength(), parsedManifest.getDigestLength());
+                        for (int chunkIndex = 0; chunkIndex < manifest.getChunkCount(); ++chunkIndex)
+                        {
+                            test.assertEqual(manifest.getChunkDigest(chunkIndex), parsedManifest.getChunkDigest(chunkIndex));
+                        }
+                    });
+                };
+
+                parseTest.run(0);
+                parseTest.run(1);
+                parseTest.run(1000);
+            });
+        });
+    }
+
+    /**
+     * Flip the lowest bit of the byte at the provided index.
+     * @return The provided bytes.
+     */
+    static byte[] changeByte(byte[] bytes, int index)
+    {
+        bytes[index] ^= 1;
+        return bytes;
+    }
+}
@@ -0,0 +1,394 @@
+package qub;
+
+public interface FileDigestCacheTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(FileDigestCache.class, () ->
+        {
+            runner.testGroup("create(String,Function0<Result<? extends HashFunction>>,int)", () ->
+            {
+                runner.test("with null algorithm", (Test test) ->
+                {
+                    test.assertThrows(() -> FileDigestCache.create(null, HashFunction::createSHA256, 10),
+                        new PreConditionFailure("algorithm cannot be null."));
+                });
+
+                runner.test("with empty algorithm", (Test test) ->
+                {
+                    test.assertThrows(() -> FileDigestCache.create("", HashFunction::createSHA256, 10),
+                        new PreConditionFailure("algorithm cannot be empty."));
+                });
+
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> FileDigestCache.create("SHA-256", null, 10),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with zero maximumEntryCount", (Test test) ->
+                {
+                    test.assertThrows(() -> FileDigestCache.create("SHA-256", HashFunction::createSHA256, 0),
+                        new PreConditionFailure("maximumEntryCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final FileDigestCache cache = FileDigestCache.create("MD5", HashFunction::createMD5, 10);
+                    test.assertEqual("MD5", cache.getAlgorithm());
+                    test.assertEqual(10, cache.getMaximumEntryCount());
+                    test.assertEqual(0, cache.getEntryCount());
+                });
+            });
+
+            runner.test("createSHA256()", (Test test) ->
+            {
+                final FileDigestCache cache = FileDigestCache.createSHA256();
+                test.assertEqual("SHA-256", cache.getAlgorithm());
+                test.assertEqual(FileDigestCache.defaultMaximumEntryCount, cache.getMaximumEntryCount());
+                test.assertEqual(0, cache.getEntryCount());
+            });
+
+            runner.testGroup("getDigest(java.nio.file.Path)", () ->
+            {
+                runner.test("with null filePath", (Test test) ->
+                {
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    test.assertThrows(() -> cache.getDigest(null),
+                        new PreConditionFailure("filePath cannot be null."));
+                });
+
+                runner.test("with file that doesn't exist", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = TestFiles.create(new byte[0]);
+                    TestFiles.delete(filePath);
+
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    test.assertThrows(() -> cache.getDigest(filePath).await(),
+                        new java.nio.file.NoSuchFileException(filePath.toString()));
+                    test.assertEqual(0, cache.getEntryCount());
+                });
+
+                runner.test("with file that isn't cached", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", cache.getDigest(filePath).await().toHexString());
+                        test.assertEqual(1, cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+
+                runner.test("with unchanged file metadata", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        final BitArray digest = cache.getDigest(filePath).await();
+
+                        // Change the contents without changing the size or last modified time, so
+                        // the cached digest is returned without rehashing the file.
+                        FileDigestCacheTests.overwrite(filePath, new byte[] { 4, 5, 6 }, true);
+                        test.assertEqual(digest, cache.getDigest(filePath).await());
+                        test.assertEqual(1, cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+
+                runner.test("with changed size", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        cache.getDigest(filePath).await();
+
+                        FileDigestCacheTests.overwrite(filePath, new byte[] { 1, 2, 3, 4 }, true);
+                        test.assertEqual("9F64A747E1B97F131FABB6B447296C9B6F0201E79FB3C5356E6C77E89B6A806A", cache.getDigest(filePath).await().toHexString());
+                        test.assertEqual(1, cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+
+                runner.test("with changed last modified time", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        cache.getDigest(filePath).await();
+
+                        FileDigestCacheTests.overwrite(filePath, new byte[] { 4, 5, 6 }, false);
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            test.assertEqual(sha256.takeDigest(new byte[] { 4, 5, 6 }), cache.getDigest(filePath).await());
+                        }
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+
+                runner.test("with a file that was just modified", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = TestFiles.create(new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", cache.getDigest(filePath).await().toHexString());
+                        test.assertEqual(0, cache.getEntryCount());
+
+                        // A second write within the same timestamp granule leaves the metadata
+                        // unchanged, so the racily clean file must be hashed again.
+                        FileDigestCacheTests.overwrite(filePath, new byte[] { 4, 5, 6 }, true);
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            test.assertEqual(sha256.takeDigest(new byte[] { 4, 5, 6 }), cache.getDigest(filePath).await());
+                        }
+                        test.assertEqual(0, cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+
+                runner.test("evicts the least recently used entry", (Test test) ->
+                {
+                    final java.nio.file.Path filePath1 = FileDigestCacheTests.createOldFile(new byte[] { 1 });
+                    final java.nio.file.Path filePath2 = FileDigestCacheTests.createOldFile(new byte[] { 2 });
+                    final java.nio.file.Path filePath3 = FileDigestCacheTests.createOldFile(new byte[] { 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.create("SHA-256", HashFunction::createSHA256, 2);
+                        final BitArray digest1 = cache.getDigest(filePath1).await();
+                        final BitArray digest2 = cache.getDigest(filePath2).await();
+                        test.assertEqual(digest1, cache.getDigest(filePath1).await());
+                        cache.getDigest(filePath3).await();
+                        test.assertEqual(2, cache.getEntryCount());
+
+                        // filePath2 was the least recently used, so it was evicted and is rehashed.
+                        FileDigestCacheTests.overwrite(filePath1, new byte[] { 11 }, true);
+                        FileDigestCacheTests.overwrite(filePath2, new byte[] { 22 }, true);
+                        test.assertEqual(digest1, cache.getDigest(filePath1).await());
+                        test.assertNotEqual(digest2, cache.getDigest(filePath2).await());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath1);
+                        TestFiles.delete(filePath2);
+                        TestFiles.delete(filePath3);
+                    }
+                });
+            });
+
+            runner.testGroup("remove(java.nio.file.Path)", () ->
+            {
+                runner.test("with null filePath", (Test test) ->
+                {
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    test.assertThrows(() -> cache.remove(null),
+                        new PreConditionFailure("filePath cannot be null."));
+                });
+
+                runner.test("with cached and not cached file", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        test.assertFalse(cache.remove(filePath));
+                        cache.getDigest(filePath).await();
+                        test.assertTrue(cache.remove(filePath));
+                        test.assertEqual(0, cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                    }
+                });
+            });
+
+            runner.test("clear()", (Test test) ->
+            {
+                final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                try
+                {
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    cache.getDigest(filePath).await();
+                    cache.clear();
+                    test.assertEqual(0, cache.getEntryCount());
+                }
+                finally
+                {
+                    TestFiles.delete(filePath);
+                }
+            });
+
+            runner.testGroup("load(java.nio.file.Path)", () ->
+            {
+                runner.test("with null indexFilePath", (Test test) ->
+                {
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    test.assertThrows(() -> cache.load(null),
+                        new PreConditionFailure("indexFilePath cannot be null."));
+                });
+
+                runner.test("with index file that doesn't exist", (Test test) ->
+                {
+                    final java.nio.file.Path indexFilePath = TestFiles.create(new byte[0]);
+                    TestFiles.delete(indexFilePath);
+
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    test.assertEqual(0, cache.load(indexFilePath).await());
+                    test.assertEqual(0, cache.getEntryCount());
+                });
+
+                runner.test("with corrupt index file", (Test test) ->
+                {
+                    final java.nio.file.Path indexFilePath = TestFiles.create(new byte[] { 0x51, 0x46, 0x44, 0x43, 1, 0 });
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        test.assertEqual(0, cache.load(indexFilePath).await());
+                        test.assertEqual(0, cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(indexFilePath);
+                    }
+                });
+
+                runner.test("with index file from a different algorithm", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    final java.nio.file.Path indexFilePath = TestFiles.create(new byte[0]);
+                    try
+                    {
+                        final FileDigestCache md5Cache = FileDigestCache.create("MD5", HashFunction::createMD5);
+                        md5Cache.getDigest(filePath).await();
+                        test.assertEqual(1, md5Cache.save(indexFilePath).await());
+
+                        final FileDigestCache sha256Cache = FileDigestCache.createSHA256();
+                        test.assertEqual(0, sha256Cache.load(indexFilePath).await());
+                        test.assertEqual(0, sha256Cache.getEntryCount());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath);
+                        TestFiles.delete(indexFilePath);
+                    }
+                });
+            });
+
+            runner.testGroup("save(java.nio.file.Path)", () ->
+            {
+                runner.test("with null indexFilePath", (Test test) ->
+                {
+                    final FileDigestCache cache = FileDigestCache.createSHA256();
+                    test.assertThrows(() -> cache.save(null),
+                        new PreConditionFailure("indexFilePath cannot be null."));
+                });
+
+                runner.test("with empty cache", (Test test) ->
+                {
+                    final java.nio.file.Path indexFilePath = TestFiles.create(new byte[0]);
+                    try
+                    {
+                        test.assertEqual(0, FileDigestCache.createSHA256().save(indexFilePath).await());
+                        test.assertEqual(0, FileDigestCache.createSHA256().load(indexFilePath).await());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(indexFilePath);
+                    }
+                });
+
+                runner.test("with entries that are loaded by another cache", (Test test) ->
+                {
+                    final java.nio.file.Path filePath1 = FileDigestCacheTests.createOldFile(new byte[] { 1, 2, 3 });
+                    final java.nio.file.Path filePath2 = FileDigestCacheTests.createOldFile(new byte[] { 4, 5, 6, 7 });
+                    final java.nio.file.Path indexFilePath = TestFiles.create(new byte[0]);
+                    try
+                    {
+                        final FileDigestCache cache = FileDigestCache.createSHA256();
+                        final BitArray digest1 = cache.getDigest(filePath1).await();
+                        final BitArray digest2 = cache.getDigest(filePath2).await();
+                        test.assertEqual(2, cache.save(indexFilePath).await());
+
+                        final FileDigestCache loadedCache = FileDigestCache.createSHA256();
+                        test.assertEqual(2, loadedCache.load(indexFilePath).await());
+                        test.assertEqual(2, loadedCache.getEntryCount());
+
+                        // The loaded entries are used without rehashing the unchanged files.
+                        FileDigestCacheTests.overwrite(filePath1, new byte[] { 9, 9, 9 }, true);
+                        FileDigestCacheTests.overwrite(filePath2, new byte[] { 9, 9, 9, 9 }, true);
+                        test.assertEqual(digest1, loadedCache.getDigest(filePath1).await());
+                        test.assertEqual(digest2, loadedCache.getDigest(filePath2).await());
+                    }
+                    finally
+                    {
+                        TestFiles.delete(filePath1);
+                        TestFiles.delete(filePath2);
+                        TestFiles.delete(indexFilePath);
+                    }
+                });
+            });
+        });
+    }
+
+    /**
+     * Create a temporary file with the provided contents and a last modified time an hour in the
+     * past, so that {@link FileDigestCache} doesn't treat it as racily clean.
+     * @param contents The contents of the file.
+     */
+    static java.nio.file.Path createOldFile(byte[] contents)
+    {
+        final java.nio.file.Path result = TestFiles.create(contents);
+        try
+        {
+            java.nio.file.Files.setLastModifiedTime(result, java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() - 3600000));
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+        return result;
+    }
+
+    /**
+     * Replace the contents of the file at the provided path.
+     * @param filePath The path to the file.
+     * @param contents The new contents of the file.
+     * @param keepLastModifiedTime Whether the file's last modified time should be restored after
+     * its contents are replaced.
+     */
+    static void overwrite(java.nio.file.Path filePath, byte[] contents, boolean keepLastModifiedTime)
+    {
+        try
+        {
+            final java.nio.file.attribute.FileTime lastModifiedTime = java.nio.file.Files.getLastModifiedTime(filePath);
+            java.nio.file.Files.write(filePath, contents);
+            java.nio.file.Files.setLastModifiedTime(filePath, keepLastModifiedTime
+                ? lastModifiedTime
+                : java.nio.file.attribute.FileTime.fromMillis(lastModifiedTime.toMillis() + 10000));
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+}
@@ -37,6 +37,40 @@ public interface HashFunctionByteReadStreamTests
                 });
             });
 
+            runner.testGroup("create(ByteReadStream,HashFunction,int)", () ->
+            {
+                runner.test("with zero blockBufferSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> HashFunctionByteReadStream.create(innerStream, md5, 0),
+                            new PreConditionFailure("blockBufferSize (0) must be greater than or equal to 1."));
+                    }
+                });
+
+                runner.test("with non-null arguments", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        final HashFunctionByteReadStream stream = HashFunctionByteReadStream.create(innerStream, md5, 10);
+                        test.assertEqual(10, stream.getBlockBufferSize());
+                        test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", stream.takeDigest().toHexString());
+                    }
+                });
+
+                runner.test("with default blockBufferSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        final HashFunctionByteReadStream stream = HashFunctionByteReadStream.create(innerStream, md5);
+                        test.assertEqual(HashFunctionByteReadStream.defaultBlockBufferSize, stream.getBlockBufferSize());
+                    }
+                });
+            });
+
             runner.testGroup("create(ByteReadStream,Function0<Result<? extends HashFunction>>)", () ->
             {
                 runner.test("with null innerStream", (Test test) ->
@@ -206,6 +240,140 @@ public interface HashFunctionByteReadStreamTests
                 readBytesTest.run(new byte[1024], "0F343B0931126A20F133D67C2B018A3B");
             });
 
+            runner.testGroup("readBytes(java.nio.ByteBuffer)", () ->
+            {
+                runner.test("with null outputBuffer", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunctionByteReadStream stream = HashFunctionByteReadStream.createMD5(innerStream).await())
+                    {
+                        test.assertThrows(() -> stream.readBytes((java.nio.ByteBuffer)null),
+                            new PreConditionFailure("outputBuffer cannot be null."));
+                    }
+                });
+
+                runner.test("with full outputBuffer", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunctionByteReadStream stream = HashFunctionByteReadStream.createMD5(innerStream).await())
+                    {
+                        test.assertThrows(() -> stream.readBytes(java.nio.ByteBuffer.allocate(0)),
+                            new PreConditionFailure("outputBuffer.hasRemaining() cannot be false."));
+                    }
+                });
+
+                final Action3<byte[],Function1<Integer,java.nio.ByteBuffer>,String> readBytesTest = (byte[] bytes, Function1<Integer,java.nio.ByteBuffer> bufferCreator, String expected) ->
+                {
+                    final java.nio.ByteBuffer outputBuffer = bufferCreator.run(bytes.length + 10);
+                    runner.test("with " + Array.toString(bytes) + " and " + outputBuffer, (Test test) ->
+                    {
+                        final InMemoryByteStream innerStream = InMemoryByteStream.create(bytes).endOfStream();
+                        try (final HashFunctionByteReadStream stream = HashFunctionByteReadStream.createMD5(innerStream).await())
+                        {
+                            outputBuffer.position(5);
+                            Integer bytesRead = 0;
+                            while (bytesRead != null)
+                            {
+                                bytesRead = stream.readBytes(outputBuffer).catchError(EmptyException.class).await();
+                            }
+                            test.assertEqual(5 + bytes.length, outputBuffer.position());
+
+                            final byte[] actual = new byte[bytes.length];
+                            outputBuffer.position(5);
+                            outputBuffer.get(actual);
+                            test.assertEqual(bytes, actual);
+                            test.assertEqual(expected, stream.takeDigest().toHexString());
+                        }
+                    });
+                };
+
+                readBytesTest.run(new byte[0], java.nio.ByteBuffer::allocate, "D41D8CD98F00B204E9800998ECF8427E");
+                readBytesTest.run(new byte[] { 1, 2, 3 }, java.nio.ByteBuffer::allocate, "5289DF737DF57326FCDD22597AFB1FAC");
+                readBytesTest.run(new byte[] { 1, 2, 3 }, java.nio.ByteBuffer::allocateDirect, "5289DF737DF57326FCDD22597AFB1FAC");
+                readBytesTest.run(new byte[1024], java.nio.ByteBuffer::allocate, "0F343B0931126A20F133D67C2B018A3B");
+                readBytesTest.run(new byte[1024], java.nio.ByteBuffer::allocateDirect, "0F343B0931126A20F133D67C2B018A3B");
+            });
+
+            runner.testGroup("mixed readByte() and readBytes(byte[],int,int)", () ->
+            {
+                final Action2<Integer,Integer> blockBufferTest = (Integer blockBufferSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(blockBufferSize, byteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; i++)
+                        {
+                            bytes[i] = (byte)(i * 11 + 1);
+                        }
+
+                        final String expected;
+                        try (final HashFunction md5 = HashFunction.createMD5().await())
+                        {
+                            expected = md5.takeDigest(bytes).toHexString();
+                        }
+
+                        final InMemoryByteStream innerStream = InMemoryByteStream.create(bytes).endOfStream();
+                        try (final HashFunctionByteReadStream stream = HashFunctionByteReadStream.create(innerStream, HashFunction.createMD5().await(), blockBufferSize))
+                        {
+                            int index = 0;
+                            while (index < bytes.length)
+                            {
+                                if (index % 3 == 0)
+                                {
+                                    test.assertEqual(bytes[index], stream.readByte().await());
+                                    ++index;
+                                }
+                                else
+                                {
+                                    final byte[] output = new byte[Math.minimum(1 + index % 37, bytes.length - index)];
+                                    index += stream.readBytes(output, 0, output.length).await();
+                                }
+                            }
+
+                            test.assertEqual(expected, stream.takeDigest().toHexString());
+                            test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", stream.takeDigest().toHexString());
+                        }
+                    });
+                };
+
+                blockBufferTest.run(1, 100);
+                blockBufferTest.run(7, 100);
+                blockBufferTest.run(36, 1000);
+                blockBufferTest.run(37, 1000);
+                blockBufferTest.run(4096, 10_000);
+            });
+
+            runner.test("peekDigest()", (Test test) ->
+            {
+                final int checkpointCount = 5;
+                final byte[] bytes = new byte[checkpointCount * 100];
+                for (int i = 0; i < bytes.length; i++)
+                {
+                    bytes[i] = (byte)(i * 9 + 4);
+                }
+
+                final BitArray[] checkpointDigests = new BitArray[checkpointCount];
+                try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                {
+                    for (int i = 0; i < checkpointCount; ++i)
+                    {
+                        checkpointDigests[i] = sha256.takeDigest(bytes, 0, (i + 1) * 100);
+                    }
+                }
+
+                final InMemoryByteStream innerStream = InMemoryByteStream.create(bytes).endOfStream();
+                try (final HashFunctionByteReadStream stream = HashFunctionByteReadStream.createSHA256(innerStream).await())
+                {
+                    for (int i = 0; i < checkpointCount; ++i)
+                    {
+                        stream.readByte().await();
+                        stream.readBytes(new byte[99], 0, 99).await();
+                        test.assertEqual(checkpointDigests[i], stream.peekDigest());
+                    }
+                    test.assertEqual(checkpointDigests[checkpointCount - 1], stream.takeDigest());
+                }
+            });
+
             runner.test("dispose()", (Test test) ->
             {
                 final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
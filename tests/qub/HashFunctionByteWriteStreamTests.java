@@ -37,6 +37,40 @@ public interface HashFunctionByteWriteStreamTests
                 });
             });
 
+            runner.testGroup("create(ByteWriteStream,HashFunction,int)", () ->
+            {
+                runner.test("with zero blockBufferSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> HashFunctionByteWriteStream.create(innerStream, md5, 0),
+                            new PreConditionFailure("blockBufferSize (0) must be greater than or equal to 1."));
+                    }
+                });
+
+                runner.test("with non-null arguments", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.create(innerStream, md5, 10);
+                        test.assertEqual(10, stream.getBlockBufferSize());
+                        test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", stream.takeDigest().toHexString());
+                    }
+                });
+
+                runner.test("with default blockBufferSize", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.create(innerStream, md5);
+                        test.assertEqual(HashFunctionByteWriteStream.defaultBlockBufferSize, stream.getBlockBufferSize());
+                    }
+                });
+            });
+
             runner.testGroup("create(ByteWriteStream,Function0<Result<? extends HashFunction>>)", () ->
             {
                 runner.test("with null innerStream", (Test test) ->
@@ -78,6 +112,63 @@ public interface HashFunctionByteWriteStreamTests
                 });
             });
 
+            runner.testGroup("createPipelined(ByteWriteStream,HashFunction)", () ->
+            {
+                runner.test("with null innerStream", (Test test) ->
+                {
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> HashFunctionByteWriteStream.createPipelined(null, md5),
+                            new PreConditionFailure("innerStream cannot be null."));
+                    }
+                });
+
+                runner.test("with null hashFunction", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
+                    test.assertThrows(() -> HashFunctionByteWriteStream.createPipelined(innerStream, (HashFunction)null),
+                        new PreConditionFailure("hashFunction cannot be null."));
+                });
+
+                final Action1<Integer> createPipelinedTest = (Integer byteCount) ->
+                {
+                    runner.test("with " + byteCount + " bytes", (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; i++)
+                        {
+                            bytes[i] = (byte)(i * 3 + 1);
+                        }
+
+                        final String expected;
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            expected = sha256.takeDigest(bytes).toHexString();
+                        }
+
+                        final InMemoryByteStream innerStream = InMemoryByteStream.create();
+                        try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.createPipelined(innerStream, HashFunction::createSHA256).await())
+                        {
+                            for (int i = 0; i < bytes.length; i += 10_000)
+                            {
+                                stream.write(bytes[i]).await();
+                                if (i + 1 < bytes.length)
+                                {
+                                    stream.write(bytes, i + 1, Math.minimum(9_999, bytes.length - i - 1)).await();
+                                }
+                            }
+
+                            test.assertEqual(bytes, innerStream.getBytes());
+                            test.assertEqual(expected, stream.takeDigest().toHexString());
+                        }
+                    });
+                };
+
+                createPipelinedTest.run(0);
+                createPipelinedTest.run(1);
+                createPipelinedTest.run(1_000_000);
+            });
+
             runner.testGroup("createMD5(ByteWriteStream)", () ->
             {
                 runner.test("with null innerStream", (Test test) ->
@@ -196,6 +287,173 @@ public interface HashFunctionByteWriteStreamTests
                 writeBytesTest.run(new byte[1024], "0F343B0931126A20F133D67C2B018A3B");
             });
 
+            runner.testGroup("write(java.nio.ByteBuffer)", () ->
+            {
+                runner.test("with null toWrite", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create();
+                    try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.createMD5(innerStream).await())
+                    {
+                        test.assertThrows(() -> stream.write((java.nio.ByteBuffer)null),
+                            new PreConditionFailure("toWrite cannot be null."));
+                    }
+                });
+
+                final Action3<byte[],Function1<Integer,java.nio.ByteBuffer>,String> writeBytesTest = (byte[] bytes, Function1<Integer,java.nio.ByteBuffer> bufferCreator, String expected) ->
+                {
+                    final java.nio.ByteBuffer toWrite = bufferCreator.run(bytes.length);
+                    runner.test("with " + Array.toString(bytes) + " and " + toWrite, (Test test) ->
+                    {
+                        toWrite.put(bytes).flip();
+
+                        final InMemoryByteStream innerStream = InMemoryByteStream.create();
+                        try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.createMD5(innerStream).await())
+                        {
+                            while (toWrite.hasRemaining())
+                            {
+                                test.assertTrue(1 <= stream.write(toWrite).await());
+                            }
+                            test.assertEqual(0, stream.write(toWrite).await());
+
+                            test.assertEqual(bytes, innerStream.getBytes());
+                            test.assertEqual(expected, stream.takeDigest().toHexString());
+                        }
+                    });
+                };
+
+                writeBytesTest.run(new byte[0], java.nio.ByteBuffer::allocate, "D41D8CD98F00B204E9800998ECF8427E");
+                writeBytesTest.run(new byte[] { 1, 2, 3 }, java.nio.ByteBuffer::allocate, "5289DF737DF57326FCDD22597AFB1FAC");
+                writeBytesTest.run(new byte[] { 1, 2, 3 }, java.nio.ByteBuffer::allocateDirect, "5289DF737DF57326FCDD22597AFB1FAC");
+                writeBytesTest.run(new byte[1024], java.nio.ByteBuffer::allocate, "0F343B0931126A20F133D67C2B018A3B");
+                writeBytesTest.run(new byte[1024], java.nio.ByteBuffer::allocateDirect, "0F343B0931126A20F133D67C2B018A3B");
+            });
+
+            runner.testGroup("mixed write(byte) and write(byte[],int,int)", () ->
+            {
+                final Action2<Integer,Integer> blockBufferTest = (Integer blockBufferSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(blockBufferSize, byteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; i++)
+                        {
+                            bytes[i] = (byte)(i * 11 + 1);
+                        }
+
+                        final String expected;
+                        try (final HashFunction md5 = HashFunction.createMD5().await())
+                        {
+                            expected = md5.takeDigest(bytes).toHexString();
+                        }
+
+                        final InMemoryByteStream innerStream = InMemoryByteStream.create();
+                        try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.create(innerStream, HashFunction.createMD5().await(), blockBufferSize))
+                        {
+                            int index = 0;
+                            while (index < bytes.length)
+                            {
+                                if (index % 3 == 0)
+                                {
+                                    test.assertEqual(1, stream.write(bytes[index]).await());
+                                    ++index;
+                                }
+                                else
+                                {
+                                    index += stream.write(bytes, index, Math.minimum(1 + index % 37, bytes.length - index)).await();
+                                }
+                            }
+                            test.assertEqual(bytes, innerStream.getBytes());
+
+                            test.assertEqual(expected, stream.takeDigest().toHexString());
+                            test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", stream.takeDigest().toHexString());
+                        }
+                    });
+                };
+
+                blockBufferTest.run(1, 100);
+                blockBufferTest.run(7, 100);
+                blockBufferTest.run(36, 1000);
+                blockBufferTest.run(37, 1000);
+                blockBufferTest.run(4096, 10_000);
+            });
+
+            runner.testGroup("exportHashState()", () ->
+            {
+                runner.test("with non-resumable HashFunction", (Test test) ->
+                {
+                    final InMemoryByteStream innerStream = InMemoryByteStream.create();
+                    try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.createMD5(innerStream).await())
+                    {
+                        test.assertThrows(() -> stream.exportHashState(),
+                            new PreConditionFailure("this.hashFunction instanceof ResumableHashFunction cannot be false."));
+                    }
+                });
+
+                runner.test("with createResumed(ByteWriteStream,ResumableHashFunction,byte[])", (Test test) ->
+                {
+                    final byte[] bytes = new byte[10_000];
+                    for (int i = 0; i < bytes.length; i++)
+                    {
+                        bytes[i] = (byte)(i * 5 + 2);
+                    }
+
+                    final String expected;
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        expected = sha256.takeDigest(bytes).toHexString();
+                    }
+
+                    final byte[] hashState;
+                    final InMemoryByteStream firstInnerStream = InMemoryByteStream.create();
+                    try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.create(firstInnerStream, SHA256HashFunction.create()))
+                    {
+                        stream.write(bytes, 0, 4_321).await();
+                        stream.write(bytes[4_321]).await();
+                        test.assertEqual(4_322L, stream.getHashedByteCount());
+                        hashState = stream.exportHashState();
+                    }
+
+                    final InMemoryByteStream secondInnerStream = InMemoryByteStream.create();
+                    try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.createResumed(secondInnerStream, SHA256HashFunction.create(), hashState))
+                    {
+                        test.assertEqual(4_322L, stream.getHashedByteCount());
+                        stream.write(bytes, 4_322, bytes.length - 4_322).await();
+                        test.assertEqual(expected, stream.takeDigest().toHexString());
+                    }
+                });
+            });
+
+            runner.test("peekDigest()", (Test test) ->
+            {
+                final int checkpointCount = 5;
+                final byte[] bytes = new byte[checkpointCount * 100];
+                for (int i = 0; i < bytes.length; i++)
+                {
+                    bytes[i] = (byte)(i * 9 + 4);
+                }
+
+                final BitArray[] checkpointDigests = new BitArray[checkpointCount];
+                try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                {
+                    for (int i = 0; i < checkpointCount; ++i)
+                    {
+                        checkpointDigests[i] = sha256.takeDigest(bytes, 0, (i + 1) * 100);
+                    }
+                }
+
+                final InMemoryByteStream innerStream = InMemoryByteStream.create();
+                try (final HashFunctionByteWriteStream stream = HashFunctionByteWriteStream.createSHA256(innerStream).await())
+                {
+                    for (int i = 0; i < checkpointCount; ++i)
+                    {
+                        stream.write(bytes[i * 100]).await();
+                        stream.write(bytes, i * 100 + 1, 99).await();
+                        test.assertEqual(checkpointDigests[i], stream.peekDigest());
+                    }
+                    test.assertEqual(checkpointDigests[checkpointCount - 1], stream.takeDigest());
+                }
+            });
+
             runner.test("dispose()", (Test test) ->
             {
                 final InMemoryByteStream innerStream = InMemoryByteStream.create().endOfStream();
@@ -0,0 +1,69 @@
+package qub;
+
+public interface HashFunctionFilesTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(HashFunctionFiles.class, () ->
+        {
+            runner.testGroup("addFile(HashFunction,java.nio.file.Path,long,long)", () ->
+            {
+                runner.test("with null hashFunction", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunctionFiles.addFile(null, java.nio.file.Paths.get("file.txt"), 10, 0),
+                        new PreConditionFailure("hashFunction cannot be null."));
+                });
+
+                runner.test("with null filePath", (Test test) ->
+                {
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> HashFunctionFiles.addFile(md5, null, 10, 0),
+                            new PreConditionFailure("filePath cannot be null."));
+                    }
+                });
+
+                runner.test("with zero mappedWindowSize", (Test test) ->
+                {
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> HashFunctionFiles.addFile(md5, java.nio.file.Paths.get("file.txt"), 0, 0),
+                            new PreConditionFailure("mappedWindowSize (0) must be between 1 and 2147483647."));
+                    }
+                });
+
+                final Action3<Integer,Long,Long> addFileTest = (Integer fileSize, Long mappedWindowSize, Long minimumMappedFileSize) ->
+                {
+                    runner.test("with " + English.andList(fileSize, mappedWindowSize, minimumMappedFileSize), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[fileSize];
+                        for (int i = 0; i < bytes.length; i++)
+                        {
+                            bytes[i] = (byte)(i * 31);
+                        }
+
+                        final java.nio.file.Path filePath = TestFiles.create(bytes);
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            final BitArray expected = sha256.takeDigest(bytes);
+                            HashFunctionFiles.addFile(sha256, filePath, mappedWindowSize, minimumMappedFileSize);
+                            test.assertEqual(expected, sha256.takeDigest());
+                        }
+                        finally
+                        {
+                            TestFiles.delete(filePath);
+                        }
+                    });
+                };
+
+                addFileTest.run(0, 10L, 0L);
+                addFileTest.run(1, 10L, 0L);
+                addFileTest.run(10, 10L, 0L);
+                addFileTest.run(95, 10L, 0L);
+                addFileTest.run(95, 10L, 100L);
+                addFileTest.run(200_000, 65_536L, 0L);
+                addFileTest.run(200_000, 65_536L, 1_000_000L);
+            });
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package qub;
+
+public interface HashFunctionMetricsTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(HashFunctionMetrics.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                final HashFunctionMetricsSnapshot snapshot = metrics.getSnapshot();
+                test.assertEqual(0L, snapshot.getBytesHashed());
+                test.assertEqual(0L, snapshot.getAddByteCallCount());
+                test.assertEqual(0L, snapshot.getAddBytesCallCount());
+                test.assertEqual(0L, snapshot.getAddBytesNanoseconds());
+                test.assertEqual(HashFunctionMetrics.blockSizeBucketCount, snapshot.getBlockSizeHistogram().length);
+                test.assertEqual(0L, snapshot.getDigestNanoseconds());
+                test.assertEqual(0, snapshot.getDigestCounts().size());
+                test.assertEqual(0L, snapshot.getDigestCount());
+            });
+
+            runner.testGroup("getBlockSizeBucket(int)", () ->
+            {
+                runner.test("with negative length", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunctionMetrics.getBlockSizeBucket(-1),
+                        new PreConditionFailure("length (-1) must be greater than or equal to 0."));
+                });
+
+                final Action2<Integer,Integer> getBlockSizeBucketTest = (Integer length, Integer expected) ->
+                {
+                    runner.test("with " + length, (Test test) ->
+                    {
+                        test.assertEqual(expected, HashFunctionMetrics.getBlockSizeBucket(length));
+                    });
+                };
+
+                getBlockSizeBucketTest.run(0, 0);
+                getBlockSizeBucketTest.run(1, 1);
+                getBlockSizeBucketTest.run(2, 2);
+                getBlockSizeBucketTest.run(3, 2);
+                getBlockSizeBucketTest.run(4, 3);
+                getBlockSizeBucketTest.run(4095, 12);
+                getBlockSizeBucketTest.run(4096, 13);
+                getBlockSizeBucketTest.run(Integer.MAX_VALUE, 31);
+            });
+
+            runner.testGroup("addListener(Action1<HashFunctionMetricsSnapshot>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                    test.assertThrows(() -> metrics.addListener(null),
+                        new PreConditionFailure("listener cannot be null."));
+                });
+            });
+
+            runner.testGroup("removeListener(Action1<HashFunctionMetricsSnapshot>)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                    test.assertThrows(() -> metrics.removeListener(null),
+                        new PreConditionFailure("listener cannot be null."));
+                });
+
+                runner.test("with listener that wasn't added", (Test test) ->
+                {
+                    final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                    test.assertFalse(metrics.removeListener((HashFunctionMetricsSnapshot snapshot) -> {}));
+                });
+            });
+
+            runner.testGroup("publish()", () ->
+            {
+                runner.test("with no listeners", (Test test) ->
+                {
+                    final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                    test.assertEqual(0L, metrics.publish().getBytesHashed());
+                });
+
+                runner.test("with listeners", (Test test) ->
+                {
+                    final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                    final java.util.List<HashFunctionMetricsSnapshot> snapshots = new java.util.ArrayList<>();
+                    final Action1<HashFunctionMetricsSnapshot> listener = snapshots::add;
+                    metrics.addListener(listener);
+
+                    try (final InstrumentedHashFunction hashFunction = InstrumentedHashFunction.create(HashFunction.createSHA1().await(), "SHA-1", metrics))
+                    {
+                        hashFunction.takeDigest(new byte[] { 1, 2, 3, 4, 5 });
+                    }
+
+                    final HashFunctionMetricsSnapshot published = metrics.publish();
+                    test.assertEqual(1, snapshots.size());
+                    test.assertSame(published, snapshots.get(0));
+                    test.assertEqual(5L, published.getBytesHashed());
+                    test.assertEqual(1L, published.getDigestCount("SHA-1"));
+
+                    test.assertTrue(metrics.removeListener(listener));
+                    metrics.publish();
+                    test.assertEqual(1, snapshots.size());
+                });
+            });
+
+            runner.test("with concurrent updates", (Test test) ->
+            {
+                final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                final java.util.List<Thread> threads = new java.util.ArrayList<>();
+                for (int i = 0; i < 4; ++i)
+                {
+                    threads.add(new Thread(() ->
+                    {
+                        try (final InstrumentedHashFunction hashFunction = InstrumentedHashFunction.create(HashFunction.createMD5().await(), "MD5", metrics))
+                        {
+                            for (int j = 0; j < 1000; ++j)
+                            {
+                                hashFunction.addByte((byte)j);
+                                hashFunction.takeDigest(new byte[10]);
+                            }
+                        }
+                    }));
+                }
+                for (final Thread thread : threads)
+                {
+                    thread.start();
+                }
+                for (final Thread thread : threads)
+                {
+                    try
+                    {
+                        thread.join();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        throw Exceptions.asRuntime(e);
+                    }
+                }
+
+                final HashFunctionMetricsSnapshot snapshot = metrics.getSnapshot();
+                test.assertEqual(44000L, snapshot.getBytesHashed());
+                test.assertEqual(4000L, snapshot.getAddByteCallCount());
+                test.assertEqual(4000L, snapshot.getAddBytesCallCount());
+                test.assertEqual(4000L, snapshot.getBlockSizeCount(4));
+                test.assertEqual(4000L, snapshot.getDigestCount("MD5"));
+            });
+        });
+    }
+}
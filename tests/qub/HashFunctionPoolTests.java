@@ -0,0 +1,201 @@
+package qub;
+
+public interface HashFunctionPoolTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(HashFunctionPool.class, () ->
+        {
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,int)", () ->
+            {
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunctionPool.create(null, 1),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with negative maximumSize", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunctionPool.create(HashFunction::createMD5, -1),
+                        new PreConditionFailure("maximumSize (-1) must be greater than or equal to 0."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final HashFunctionPool pool = HashFunctionPool.create(HashFunction::createMD5, 3))
+                    {
+                        test.assertEqual(3, pool.getMaximumSize());
+                        test.assertFalse(pool.isDisposed());
+                    }
+                });
+            });
+
+            runner.test("createSHA256()", (Test test) ->
+            {
+                try (final HashFunctionPool pool = HashFunctionPool.createSHA256())
+                {
+                    test.assertEqual(HashFunctionPool.defaultMaximumSize, pool.getMaximumSize());
+                    try (final HashFunction sha256 = pool.acquire().await())
+                    {
+                        test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", sha256.takeDigest(new byte[] { 1, 2, 3 }).toHexString());
+                    }
+                }
+            });
+
+            runner.testGroup("acquire()", () ->
+            {
+                runner.test("when disposed", (Test test) ->
+                {
+                    final HashFunctionPool pool = HashFunctionPool.createMD5();
+                    pool.dispose().await();
+                    test.assertThrows(() -> pool.acquire(),
+                        new PreConditionFailure("this.isDisposed() cannot be true."));
+                });
+
+                runner.test("with hashFunctionCreator that throws an exception", (Test test) ->
+                {
+                    try (final HashFunctionPool pool = HashFunctionPool.create(() -> Result.error(new NotFoundException("blah"))))
+                    {
+                        test.assertThrows(() -> pool.acquire().await(),
+                            new NotFoundException("blah"));
+                    }
+                });
+
+                runner.test("reuses disposed hash functions on the same thread", (Test test) ->
+                {
+                    final java.util.concurrent.atomic.AtomicInteger createdCount = new java.util.concurrent.atomic.AtomicInteger();
+                    try (final HashFunctionPool pool = HashFunctionPool.create(() ->
+                        {
+                            createdCount.incrementAndGet();
+                            return HashFunction.createMD5();
+                        }))
+                    {
+                        final HashFunction first = pool.acquire().await();
+                        first.addBytes(new byte[] { 1, 2, 3 });
+                        test.assertTrue(first.dispose().await());
+                        test.assertTrue(first.isDisposed());
+                        test.assertThrows(() -> first.addByte((byte)1),
+                            new PreConditionFailure("this.isDisposed() cannot be true."));
+
+                        final HashFunction second = pool.acquire().await();
+                        test.assertEqual(1, createdCount.get());
+                        test.assertNotSame(first, second);
+                        test.assertTrue(first.isDisposed());
+                        test.assertFalse(second.isDisposed());
+                        test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", second.takeDigest().toHexString());
+                        second.dispose().await();
+                    }
+                });
+
+                runner.test("with a stale reference to a reused hash function", (Test test) ->
+                {
+                    try (final HashFunctionPool pool = HashFunctionPool.createMD5())
+                    {
+                        final HashFunction first = pool.acquire().await();
+                        first.dispose().await();
+
+                        final HashFunction second = pool.acquire().await();
+                        second.addBytes(new byte[] { 1, 2, 3 });
+
+                        // The stale reference can't reset or release the new owner's hash function.
+                        first.reset();
+                        test.assertFalse(first.dispose().await());
+                        test.assertThrows(() -> first.takeDigest(),
+                            new PreConditionFailure("this.isDisposed() cannot be true."));
+                        test.assertFalse(second.isDisposed());
+                        test.assertEqual("5289DF737DF57326FCDD22597AFB1FAC", second.takeDigest().toHexString());
+                        second.dispose().await();
+                    }
+                });
+
+                runner.test("with more hash functions than the maximum size", (Test test) ->
+                {
+                    final java.util.concurrent.atomic.AtomicInteger createdCount = new java.util.concurrent.atomic.AtomicInteger();
+                    try (final HashFunctionPool pool = HashFunctionPool.create(() ->
+                        {
+                            createdCount.incrementAndGet();
+                            return HashFunction.createMD5();
+                        },
+                        1))
+                    {
+                        final HashFunction first = pool.acquire().await();
+                        final HashFunction second = pool.acquire().await();
+                        final HashFunction third = pool.acquire().await();
+                        test.assertNotSame(first, second);
+                        test.assertNotSame(second, third);
+                        test.assertEqual(3, createdCount.get());
+
+                        // One hash function goes to the thread-local slot, one goes to the shared
+                        // queue, and the third is disposed because the shared queue is full.
+                        first.dispose().await();
+                        second.dispose().await();
+                        third.dispose().await();
+
+                        final HashFunction fourth = pool.acquire().await();
+                        final HashFunction fifth = pool.acquire().await();
+                        test.assertEqual(3, createdCount.get());
+                        final HashFunction sixth = pool.acquire().await();
+                        test.assertEqual(4, createdCount.get());
+
+                        fourth.dispose().await();
+                        fifth.dispose().await();
+                        sixth.dispose().await();
+                    }
+                });
+
+                runner.test("from multiple threads", (Test test) ->
+                {
+                    try (final HashFunctionPool pool = HashFunctionPool.create(HashFunction::createSHA256, 2))
+                    {
+                        final java.util.concurrent.atomic.AtomicInteger failures = new java.util.concurrent.atomic.AtomicInteger();
+                        final java.util.List<Thread> threads = new java.util.ArrayList<>();
+                        for (int i = 0; i < 8; i++)
+                        {
+                            final Thread thread = new Thread(() ->
+                            {
+                                for (int j = 0; j < 200; j++)
+                                {
+                                    try (final HashFunction sha256 = pool.acquire().await())
+                                    {
+                                        if (!"039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81".equals(sha256.takeDigest(new byte[] { 1, 2, 3 }).toHexString()))
+                                        {
+                                            failures.incrementAndGet();
+                                        }
+                                    }
+                                }
+                            });
+                            threads.add(thread);
+                            thread.start();
+                        }
+                        for (final Thread thread : threads)
+                        {
+                            try
+                            {
+                                thread.join();
+                            }
+                            catch (InterruptedException e)
+                            {
+                                throw Exceptions.asRuntime(e);
+                            }
+                        }
+                        test.assertEqual(0, failures.get());
+                    }
+                });
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final HashFunctionPool pool = HashFunctionPool.createMD5();
+                final HashFunction hashFunction = pool.acquire().await();
+                test.assertTrue(pool.dispose().await());
+                test.assertTrue(pool.isDisposed());
+                test.assertFalse(pool.dispose().await());
+
+                test.assertTrue(hashFunction.dispose().await());
+                test.assertTrue(hashFunction.isDisposed());
+            });
+
+            HashFunctionTests.test(runner, () -> HashFunctionPool.createMD5().acquire().await());
+        });
+    }
+}
@@ -50,6 +50,237 @@ public interface HashFunctionTests
                 test.assertEqual("BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD", sha256.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
                 test.assertEqual("F7846F55CF23E14EEBEAB5B4E1550CAD5B509E3348FBC4EFA3A1413D393CB650", sha256.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("message digest").await()).toHexString());
             });
+
+            runner.test("createXXH64()", (Test test) ->
+            {
+                final HashFunction xxh64 = HashFunction.createXXH64().await();
+                test.assertNotNull(xxh64);
+                test.assertEqual("EF46DB3751D8E999", xxh64.takeDigest().toHexString());
+                test.assertEqual("44BC2CF5AD770999", xxh64.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
+            });
+
+            runner.test("createXXH3()", (Test test) ->
+            {
+                final HashFunction xxh3 = HashFunction.createXXH3().await();
+                test.assertNotNull(xxh3);
+                test.assertEqual("2D06800538D394C2", xxh3.takeDigest().toHexString());
+                test.assertEqual("78AF5F94892F3950", xxh3.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
+            });
+
+            runner.test("createXXH128()", (Test test) ->
+            {
+                final HashFunction xxh128 = HashFunction.createXXH128().await();
+                test.assertNotNull(xxh128);
+                test.assertEqual("99AA06D3014798D86001C324468D497F", xxh128.takeDigest().toHexString());
+                test.assertEqual("06B05AB6733A618578AF5F94892F3950", xxh128.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
+            });
+
+            runner.test("createCRC32C()", (Test test) ->
+            {
+                final HashFunction crc32c = HashFunction.createCRC32C().await();
+                test.assertNotNull(crc32c);
+                test.assertEqual("00000000", crc32c.takeDigest().toHexString());
+                test.assertEqual("364B3FB7", crc32c.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
+            });
+
+            runner.test("createCRC32()", (Test test) ->
+            {
+                final HashFunction crc32 = HashFunction.createCRC32().await();
+                test.assertNotNull(crc32);
+                test.assertEqual("00000000", crc32.takeDigest().toHexString());
+                test.assertEqual("352441C2", crc32.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
+            });
+
+            runner.test("createAdler32()", (Test test) ->
+            {
+                final HashFunction adler32 = HashFunction.createAdler32().await();
+                test.assertNotNull(adler32);
+                test.assertEqual("00000001", adler32.takeDigest().toHexString());
+                test.assertEqual("024D0127", adler32.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters("abc").await()).toHexString());
+            });
+
+            runner.testGroup("hashFile(java.nio.file.Path,Function0<Result<? extends HashFunction>>)", () ->
+            {
+                runner.test("with null filePath", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.hashFile(null, HashFunction::createMD5),
+                        new PreConditionFailure("filePath cannot be null."));
+                });
+
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.hashFile(java.nio.file.Paths.get("file.txt"), (Function0<Result<? extends HashFunction>>)null),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with file that doesn't exist", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = TestFiles.create(new byte[0]);
+                    TestFiles.delete(filePath);
+
+                    test.assertThrows(() -> HashFunction.hashFile(filePath, HashFunction::createMD5).await(),
+                        new java.nio.file.NoSuchFileException(filePath.toString()));
+                });
+
+                final Action2<byte[],String> hashFileTest = (byte[] bytes, String expected) ->
+                {
+                    runner.test("with " + bytes.length + " byte file", (Test test) ->
+                    {
+                        final java.nio.file.Path filePath = TestFiles.create(bytes);
+                        try
+                        {
+                            test.assertEqual(expected, HashFunction.hashFile(filePath, HashFunction::createSHA256).await().toHexString());
+                        }
+                        finally
+                        {
+                            TestFiles.delete(filePath);
+                        }
+                    });
+                };
+
+                hashFileTest.run(new byte[0], "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855");
+                hashFileTest.run(new byte[] { 1, 2, 3 }, "039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81");
+                hashFileTest.run(new byte[1024], "5F70BF18A086007016E948B04AED3B82103A36BEA41755B6CDDFAF10ACE3C6EF");
+            });
+
+            runner.testGroup("md5(byte[],int,int,byte[],int)", () ->
+            {
+                runner.test("with null values", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.md5(null, 0, 0, new byte[16], 0),
+                        new PreConditionFailure("values cannot be null."));
+                });
+
+                runner.test("with null output", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.md5(new byte[0], 0, 0, null, 0),
+                        new PreConditionFailure("output cannot be null."));
+                });
+
+                runner.test("with output that is too small", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.md5(new byte[0], 0, 0, new byte[16], 1),
+                        new PreConditionFailure("outputStartIndex (1) must be between 0 and 0."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final byte[] output = new byte[18];
+                    test.assertEqual(16, HashFunction.md5(new byte[] { 0, 1, 2, 3, 4 }, 1, 3, output, 2));
+                    test.assertEqual("00005289DF737DF57326FCDD22597AFB1FAC", BitArray.createFromBytes(output).toHexString());
+                });
+            });
+
+            runner.test("md5(byte[])", (Test test) ->
+            {
+                test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", BitArray.createFromBytes(HashFunction.md5(new byte[0])).toHexString());
+                test.assertEqual("5289DF737DF57326FCDD22597AFB1FAC", BitArray.createFromBytes(HashFunction.md5(new byte[] { 1, 2, 3 })).toHexString());
+            });
+
+            runner.testGroup("sha1(byte[],int,int,byte[],int)", () ->
+            {
+                runner.test("with output that is too small", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.sha1(new byte[0], 0, 0, new byte[19], 0),
+                        new PreConditionFailure("outputStartIndex (0) must be between 0 and -1."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final byte[] output = new byte[20];
+                    test.assertEqual(20, HashFunction.sha1(new byte[] { 5 }, 0, 1, output, 0));
+                    test.assertEqual("8DC00598417D4EB788A77AC6CCEF3CB484905D8B", BitArray.createFromBytes(output).toHexString());
+                });
+            });
+
+            runner.test("sha1(byte[])", (Test test) ->
+            {
+                test.assertEqual("DA39A3EE5E6B4B0D3255BFEF95601890AFD80709", BitArray.createFromBytes(HashFunction.sha1(new byte[0])).toHexString());
+            });
+
+            runner.testGroup("sha256(byte[],int,int,byte[],int)", () ->
+            {
+                runner.test("with invalid length", (Test test) ->
+                {
+                    test.assertThrows(() -> HashFunction.sha256(new byte[3], 1, 3, new byte[32], 0),
+                        new PreConditionFailure("length (3) must be between 0 and 2."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final byte[] output = new byte[32];
+                    test.assertEqual(32, HashFunction.sha256(new byte[1024], 0, 1024, output, 0));
+                    test.assertEqual("5F70BF18A086007016E948B04AED3B82103A36BEA41755B6CDDFAF10ACE3C6EF", BitArray.createFromBytes(output).toHexString());
+                });
+
+                runner.test("from many threads at once", (Test test) ->
+                {
+                    final java.util.concurrent.atomic.AtomicInteger mismatchCount = new java.util.concurrent.atomic.AtomicInteger();
+                    final java.util.List<Thread> threads = new java.util.ArrayList<>();
+                    for (int i = 0; i < 16; ++i)
+                    {
+                        final byte threadValue = (byte)i;
+                        threads.add(new Thread(() ->
+                        {
+                            final byte[] values = new byte[100];
+                            java.util.Arrays.fill(values, threadValue);
+                            final byte[] expected = HashFunction.createSHA256().await().takeDigest(values).toByteArray();
+                            final byte[] output = new byte[32];
+                            for (int j = 0; j < 1000; ++j)
+                            {
+                                HashFunction.sha256(values, 0, values.length, output, 0);
+                                if (!java.util.Arrays.equals(expected, output))
+                                {
+                                    mismatchCount.incrementAndGet();
+                                }
+                            }
+                        }));
+                    }
+                    for (final Thread thread : threads)
+                    {
+                        thread.start();
+                    }
+                    for (final Thread thread : threads)
+                    {
+                        try
+                        {
+                            thread.join();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            throw Exceptions.asRuntime(e);
+                        }
+                    }
+                    test.assertEqual(0, mismatchCount.get());
+                });
+            });
+
+            runner.test("sha256(byte[])", (Test test) ->
+            {
+                test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", BitArray.createFromBytes(HashFunction.sha256(new byte[] { 1, 2, 3 })).toHexString());
+            });
+
+            runner.testGroup("takeDigest(java.nio.ByteBuffer)", () ->
+            {
+                final Action2<java.nio.ByteBuffer,String> takeDigestTest = (java.nio.ByteBuffer values, String expected) ->
+                {
+                    runner.test("with " + values, (Test test) ->
+                    {
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            test.assertEqual(expected, sha256.takeDigest(values).toHexString());
+                            test.assertFalse(values.hasRemaining());
+                        }
+                    });
+                };
+
+                takeDigestTest.run(java.nio.ByteBuffer.allocate(0), "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855");
+                takeDigestTest.run(java.nio.ByteBuffer.wrap(new byte[] { 1, 2, 3 }), "039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81");
+                takeDigestTest.run(java.nio.ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4 }, 1, 3), "039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81");
+                takeDigestTest.run(java.nio.ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4 }, 1, 3).slice(), "039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81");
+                takeDigestTest.run(java.nio.ByteBuffer.wrap(new byte[] { 1, 2, 3 }).asReadOnlyBuffer(), "039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81");
+                takeDigestTest.run(java.nio.ByteBuffer.allocateDirect(1024), "5F70BF18A086007016E948B04AED3B82103A36BEA41755B6CDDFAF10ACE3C6EF");
+            });
         });
     }
 
@@ -63,7 +294,7 @@ public interface HashFunctionTests
                 {
                     try (final HashFunction function = creator.run())
                     {
-                        test.assertThrows(() -> function.addBytes(null),
+                        test.assertThrows(() -> function.addBytes((byte[])null),
                             new PreConditionFailure("values cannot be null."));
                     }
                 });
@@ -80,6 +311,175 @@ public interface HashFunctionTests
                 });
             });
 
+            runner.testGroup("addBytes(java.nio.ByteBuffer)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        test.assertThrows(() -> function.addBytes((java.nio.ByteBuffer)null),
+                            new PreConditionFailure("values cannot be null."));
+                    }
+                });
+
+                runner.test("when disposed", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        function.dispose().await();
+
+                        test.assertThrows(() -> function.addBytes(java.nio.ByteBuffer.wrap(new byte[] { 1, 2, 3 })),
+                            new PreConditionFailure("this.isDisposed() cannot be true."));
+                    }
+                });
+
+                runner.test("with heap and direct buffers", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        final byte[] bytes = new byte[] { 1, 2, 3, 4, 5 };
+                        final BitArray expected = function.takeDigest(bytes);
+
+                        final java.nio.ByteBuffer heapBuffer = java.nio.ByteBuffer.wrap(bytes);
+                        function.addBytes(heapBuffer);
+                        test.assertEqual(heapBuffer.limit(), heapBuffer.position());
+                        test.assertEqual(expected, function.takeDigest());
+
+                        final java.nio.ByteBuffer directBuffer = java.nio.ByteBuffer.allocateDirect(bytes.length);
+                        directBuffer.put(bytes).flip();
+                        function.addBytes(directBuffer);
+                        test.assertEqual(directBuffer.limit(), directBuffer.position());
+                        test.assertEqual(expected, function.takeDigest());
+                    }
+                });
+            });
+
+            runner.test("getDigestLength()", (Test test) ->
+            {
+                try (final HashFunction function = creator.run())
+                {
+                    final int digestLength = function.getDigestLength();
+                    test.assertTrue(digestLength >= 1);
+                    test.assertEqual(digestLength * 8L, function.takeDigest().getCount());
+                }
+            });
+
+            runner.testGroup("takeDigest(byte[],int)", () ->
+            {
+                runner.test("with null output", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        test.assertThrows(() -> function.takeDigest(null, 0),
+                            new PreConditionFailure("output cannot be null."));
+                    }
+                });
+
+                runner.test("with negative outputStartIndex", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        final int digestLength = function.getDigestLength();
+                        test.assertThrows(() -> function.takeDigest(new byte[digestLength], -1),
+                            new PreConditionFailure("outputStartIndex (-1) must be between 0 and 0."));
+                    }
+                });
+
+                runner.test("with output that is too small", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        final int digestLength = function.getDigestLength();
+                        test.assertThrows(() -> function.takeDigest(new byte[digestLength + 1], 2),
+                            new PreConditionFailure("outputStartIndex (2) must be between 0 and 1."));
+                    }
+                });
+
+                runner.test("when disposed", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        final int digestLength = function.getDigestLength();
+                        function.dispose().await();
+
+                        test.assertThrows(() -> function.takeDigest(new byte[digestLength], 0),
+                            new PreConditionFailure("this.isDisposed() cannot be true."));
+                    }
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        final BitArray expected = function.takeDigest(new byte[] { 1, 2, 3 });
+
+                        final byte[] output = new byte[function.getDigestLength() + 3];
+                        function.addBytes(new byte[] { 1, 2, 3 });
+                        test.assertEqual(function.getDigestLength(), function.takeDigest(output, 2));
+                        test.assertEqual((byte)0, output[0]);
+                        test.assertEqual((byte)0, output[1]);
+                        test.assertEqual((byte)0, output[output.length - 1]);
+
+                        final byte[] expectedOutput = new byte[output.length];
+                        final byte[] expectedBytes = expected.toByteArray();
+                        System.arraycopy(expectedBytes, 0, expectedOutput, 2, expectedBytes.length);
+                        test.assertEqual(expectedOutput, output);
+
+                        test.assertEqual(function.takeDigest(), function.takeDigest(new byte[0]));
+                    }
+                });
+            });
+
+            runner.testGroup("peekDigest()", () ->
+            {
+                runner.test("when disposed", (Test test) ->
+                {
+                    try (final HashFunction function = creator.run())
+                    {
+                        function.dispose().await();
+
+                        test.assertThrows(() -> function.peekDigest(),
+                            new PreConditionFailure("this.isDisposed() cannot be true."));
+                    }
+                });
+
+                final Action2<Integer,Integer> peekDigestTest = (Integer firstByteCount, Integer secondByteCount) ->
+                {
+                    runner.test("with " + English.andList(firstByteCount, secondByteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[firstByteCount + secondByteCount];
+                        for (int i = 0; i < bytes.length; ++i)
+                        {
+                            bytes[i] = (byte)(i * 37 + 13);
+                        }
+
+                        try (final HashFunction function = creator.run())
+                        {
+                            function.addBytes(bytes, 0, firstByteCount);
+                            final BitArray expectedFirstDigest = function.takeDigest();
+                            final BitArray expectedDigest = function.takeDigest(bytes);
+
+                            test.assertEqual(function.takeDigest(), function.peekDigest());
+
+                            function.addBytes(bytes, 0, firstByteCount);
+                            test.assertEqual(expectedFirstDigest, function.peekDigest());
+                            test.assertEqual(expectedFirstDigest, function.peekDigest());
+                            function.addBytes(bytes, firstByteCount, secondByteCount);
+                            test.assertEqual(expectedDigest, function.peekDigest());
+                            test.assertEqual(expectedDigest, function.takeDigest());
+                        }
+                    });
+                };
+
+                peekDigestTest.run(0, 0);
+                peekDigestTest.run(1, 1);
+                peekDigestTest.run(3, 4);
+                peekDigestTest.run(55, 1);
+                peekDigestTest.run(64, 64);
+                peekDigestTest.run(100, 300);
+                peekDigestTest.run(1000, 2000);
+            });
+
             runner.testGroup("addBytes(byte[],int,int)", () ->
             {
                 final Action4<byte[],Integer,Integer,Throwable> addBytesErrorTest = (byte[] values, Integer startIndex, Integer length, Throwable expected) ->
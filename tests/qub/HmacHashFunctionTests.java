@@ -0,0 +1,164 @@
+package qub;
+
+public interface HmacHashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(HmacHashFunction.class, () ->
+        {
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,byte[])", () ->
+            {
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> HmacHashFunction.create(null, new byte[0]),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with null key", (Test test) ->
+                {
+                    test.assertThrows(() -> HmacHashFunction.create(HashFunction::createSHA256, null),
+                        new PreConditionFailure("key cannot be null."));
+                });
+
+                runner.test("with a creator that fails", (Test test) ->
+                {
+                    test.assertThrows(() -> HmacHashFunction.create(() -> Result.error(new NotFoundException("blah")), new byte[0]).await(),
+                        new NotFoundException("blah"));
+                });
+
+                runner.test("with a creator that returns the same hash function twice", (Test test) ->
+                {
+                    final SHA256HashFunction hashFunction = SHA256HashFunction.create();
+                    test.assertThrows(() -> HmacHashFunction.create(() -> Result.success(hashFunction), new byte[0]).await(),
+                        new PreConditionFailure("innerHashFunction == outerHashFunction cannot be true."));
+                });
+
+                runner.test("with a creator that returns a hash function that can't be resumed", (Test test) ->
+                {
+                    test.assertThrows(() -> HmacHashFunction.create(HashFunction::createCRC32, new byte[0]).await(),
+                        new PreConditionFailure("innerHashFunction instanceof ResumableHashFunction || innerHashFunction instanceof JavaMessageDigestHashFunction cannot be false."));
+                });
+
+                runner.test("with a ResumableHashFunction creator", (Test test) ->
+                {
+                    try (final HmacHashFunction hashFunction = HmacHashFunction.create(() -> Result.success(SHA1HashFunction.create()), new byte[] { 1, 2, 3 }).await())
+                    {
+                        test.assertEqual("HmacSHA1", hashFunction.getAlgorithm());
+                        test.assertEqual(20, hashFunction.getDigestLength());
+                        test.assertFalse(hashFunction.isDisposed());
+                    }
+                });
+
+                runner.test("with a JavaMessageDigestHashFunction creator", (Test test) ->
+                {
+                    try (final HmacHashFunction hashFunction = HmacHashFunction.create(() -> JavaMessageDigestHashFunction.create("SHA-512"), new byte[] { 1, 2, 3 }).await())
+                    {
+                        test.assertEqual("HmacSHA512", hashFunction.getAlgorithm());
+                        test.assertEqual(64, hashFunction.getDigestLength());
+                        test.assertFalse(hashFunction.isDisposed());
+                    }
+                });
+            });
+
+            runner.testGroup("takeDigest(byte[])", () ->
+            {
+                final Action3<String,String,String> takeDigestTest = (String key, String message, String expected) ->
+                {
+                    runner.test("with " + English.andList(Strings.escapeAndQuote(key), Strings.escapeAndQuote(message)), (Test test) ->
+                    {
+                        try (final HmacHashFunction hashFunction = HmacHashFunction.createSHA256(CharacterEncoding.US_ASCII.encodeCharacters(key).await()).await())
+                        {
+                            final byte[] messageBytes = CharacterEncoding.US_ASCII.encodeCharacters(message).await();
+                            test.assertEqual(expected, hashFunction.takeDigest(messageBytes).toHexString());
+                            test.assertEqual(expected, hashFunction.takeDigest(messageBytes).toHexString());
+                        }
+                    });
+                };
+
+                // RFC 4231, test case 2.
+                takeDigestTest.run("Jefe", "what do ya want for nothing?", "5BDCC146BF60754E6A042426089575C75A003F089D2739839DEC58B964EC3843");
+            });
+
+            runner.testGroup("compared with javax.crypto.Mac", () ->
+            {
+                final Action3<String,String,Function0<Result<? extends HashFunction>>> macTests = (String algorithm, String hashFunctionType, Function0<Result<? extends HashFunction>> hashFunctionCreator) ->
+                {
+                    for (final int[] lengths : new int[][] { { 0, 0 }, { 16, 1 }, { 64, 55 }, { 65, 64 }, { 131, 1000 } })
+                    {
+                        final int keyLength = lengths[0];
+                        final int messageLength = lengths[1];
+                        runner.test("with " + English.andList(algorithm, hashFunctionType, keyLength + " byte key", messageLength + " byte message"), (Test test) ->
+                        {
+                            final java.util.Random random = new java.util.Random(keyLength * 1000 + messageLength);
+                            final byte[] key = new byte[keyLength];
+                            random.nextBytes(key);
+                            final byte[] message = new byte[messageLength];
+                            random.nextBytes(message);
+
+                            final byte[] expected;
+                            try
+                            {
+                                // SecretKeySpec doesn't allow empty keys, but a single zero byte key is
+                                // padded to the same key block as an empty key.
+                                final byte[] macKey = keyLength == 0 ? new byte[1] : key;
+                                final javax.crypto.Mac mac = javax.crypto.Mac.getInstance(algorithm);
+                                mac.init(new javax.crypto.spec.SecretKeySpec(macKey, algorithm));
+                                expected = mac.doFinal(message);
+                            }
+                            catch (java.security.GeneralSecurityException e)
+                            {
+                                throw Exceptions.asRuntime(e);
+                            }
+
+                            final HmacHashFunction hashFunction = HmacHashFunction.create(hashFunctionCreator, key).await();
+
+                            try
+                            {
+                                test.assertEqual(algorithm, hashFunction.getAlgorithm());
+                                test.assertEqual(BitArray.createFromBytes(expected), hashFunction.takeDigest(message));
+
+                                for (int i = 0; i < message.length; i += 7)
+                                {
+                                    hashFunction.addBytes(message, i, Math.minimum(7, message.length - i));
+                                }
+                                test.assertEqual(BitArray.createFromBytes(expected), hashFunction.peekDigest());
+
+                                final byte[] output = new byte[3 + expected.length];
+                                test.assertEqual(expected.length, hashFunction.takeDigest(output, 3));
+                                test.assertEqual(BitArray.createFromBytes(expected), BitArray.createFromBytes(java.util.Arrays.copyOfRange(output, 3, output.length)));
+                            }
+                            finally
+                            {
+                                hashFunction.dispose().await();
+                            }
+                        });
+                    }
+                };
+
+                macTests.run("HmacMD5", "JavaMessageDigestHashFunction", HashFunction::createMD5);
+                macTests.run("HmacMD5", "MD5HashFunction", () -> Result.success(MD5HashFunction.create()));
+                macTests.run("HmacSHA1", "JavaMessageDigestHashFunction", HashFunction::createSHA1);
+                macTests.run("HmacSHA1", "SHA1HashFunction", () -> Result.success(SHA1HashFunction.create()));
+                macTests.run("HmacSHA256", "JavaMessageDigestHashFunction", HashFunction::createSHA256);
+                macTests.run("HmacSHA256", "SHA256HashFunction", () -> Result.success(SHA256HashFunction.create()));
+                macTests.run("HmacSHA512", "JavaMessageDigestHashFunction", () -> JavaMessageDigestHashFunction.create("SHA-512"));
+                macTests.run("HmacSHA3-256", "JavaMessageDigestHashFunction", () -> JavaMessageDigestHashFunction.create("SHA3-256"));
+            });
+
+            runner.test("reset()", (Test test) ->
+            {
+                try (final HmacHashFunction hashFunction = HmacHashFunction.createSHA256(new byte[] { 10, 20, 30 }).await())
+                {
+                    final BitArray expected = hashFunction.takeDigest(new byte[] { 4, 5, 6 });
+
+                    hashFunction.addBytes(new byte[] { 1, 2, 3 });
+                    hashFunction.reset();
+                    test.assertEqual(expected, hashFunction.takeDigest(new byte[] { 4, 5, 6 }));
+                }
+            });
+
+            HashFunctionTests.test(runner, () -> HmacHashFunction.createSHA256(new byte[] { 1, 2, 3, 4 }).await());
+            HashFunctionTests.test(runner, () -> HmacHashFunction.create(() -> Result.success(SHA256HashFunction.create()), new byte[] { 1, 2, 3, 4 }).await());
+        });
+    }
+}
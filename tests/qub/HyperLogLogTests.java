@@ -0,0 +1,310 @@
+package qub;
+
+public interface HyperLogLogTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(HyperLogLog.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                final HyperLogLog sketch = HyperLogLog.create();
+                test.assertEqual(HyperLogLog.defaultPrecision, sketch.getPrecision());
+                test.assertTrue(sketch.isSparse());
+                test.assertEqual(0L, sketch.getEstimate());
+            });
+
+            runner.testGroup("create(int)", () ->
+            {
+                runner.test("with 3", (Test test) ->
+                {
+                    test.assertThrows(() -> HyperLogLog.create(3),
+                        new PreConditionFailure("precision (3) must be between 4 and 18."));
+                });
+
+                runner.test("with 19", (Test test) ->
+                {
+                    test.assertThrows(() -> HyperLogLog.create(19),
+                        new PreConditionFailure("precision (19) must be between 4 and 18."));
+                });
+            });
+
+            runner.testGroup("addBytes(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final HyperLogLog sketch = HyperLogLog.create();
+                    test.assertThrows(() -> sketch.addBytes(null),
+                        new PreConditionFailure("key cannot be null."));
+                });
+
+                runner.test("with the same key many times", (Test test) ->
+                {
+                    final HyperLogLog sketch = HyperLogLog.create();
+                    for (int i = 0; i < 10000; ++i)
+                    {
+                        sketch.addBytes(new byte[] { 1, 2, 3 });
+                    }
+                    test.assertEqual(1L, sketch.getEstimate());
+                    test.assertTrue(sketch.isSparse());
+                });
+
+                runner.test("with a key at an offset", (Test test) ->
+                {
+                    final HyperLogLog sketch = HyperLogLog.create();
+                    sketch.addBytes(new byte[] { 1, 2, 3 });
+                    sketch.addBytes(new byte[] { 0, 1, 2, 3, 4 }, 1, 3);
+                    test.assertEqual(1L, sketch.getEstimate());
+                });
+            });
+
+            runner.testGroup("getEstimate()", () ->
+            {
+                final Action2<Integer,Integer> getEstimateTest = (Integer precision, Integer keyCount) ->
+                {
+                    runner.test("with precision " + precision + " and " + keyCount + " keys", (Test test) ->
+                    {
+                        final HyperLogLog sketch = HyperLogLog.create(precision);
+                        for (int i = 0; i < keyCount; ++i)
+                        {
+                            sketch.addBytes(HyperLogLogTests.getKey(i));
+                        }
+
+                        // Four times the relative standard error of a dense sketch.
+                        final double maximumError = 4 * 1.04 / java.lang.Math.sqrt(1 << precision);
+                        final long estimate = sketch.getEstimate();
+                        test.assertTrue(java.lang.Math.abs(estimate - keyCount) <= java.lang.Math.max(1, maximumError * keyCount));
+                    });
+                };
+
+                getEstimateTest.run(14, 1);
+                getEstimateTest.run(14, 100);
+                getEstimateTest.run(14, 3000);
+                getEstimateTest.run(14, 5000);
+                getEstimateTest.run(14, 200000);
+                getEstimateTest.run(4, 100000);
+                getEstimateTest.run(10, 1000000);
+                getEstimateTest.run(18, 50000);
+            });
+
+            runner.test("switches from sparse to dense", (Test test) ->
+            {
+                final HyperLogLog sketch = HyperLogLog.create(10);
+                for (int i = 0; i < 100; ++i)
+                {
+                    sketch.addBytes(HyperLogLogTests.getKey(i));
+                }
+                test.assertTrue(sketch.isSparse());
+                test.assertEqual(100L, sketch.getEstimate());
+
+                for (int i = 100; i < 2000; ++i)
+                {
+                    sketch.addBytes(HyperLogLogTests.getKey(i));
+                }
+                test.assertFalse(sketch.isSparse());
+            });
+
+            runner.testGroup("merge(HyperLogLog)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final HyperLogLog sketch = HyperLogLog.create();
+                    test.assertThrows(() -> sketch.merge(null),
+                        new PreConditionFailure("other cannot be null."));
+                });
+
+                runner.test("with different precision", (Test test) ->
+                {
+                    final HyperLogLog sketch = HyperLogLog.create(14);
+                    test.assertThrows(() -> sketch.merge(HyperLogLog.create(12)),
+                        new PreConditionFailure("other.getPrecision() (12) must be 14."));
+                });
+
+                final Action2<Integer,Integer> mergeTest = (Integer sketchCount, Integer keyCount) ->
+                {
+                    runner.test("with " + sketchCount + " sketches and " + keyCount + " keys", (Test test) ->
+                    {
+                        final HyperLogLog expected = HyperLogLog.create(12);
+                        final HyperLogLog[] sketches = new HyperLogLog[sketchCount];
+                        for (int i = 0; i < sketchCount; ++i)
+                        {
+                            sketches[i] = HyperLogLog.create(12);
+                        }
+                        for (int i = 0; i < keyCount; ++i)
+                        {
+                            final byte[] key = HyperLogLogTests.getKey(i);
+                            expected.addBytes(key);
+                            sketches[i % sketchCount].addBytes(key);
+
+                            // Some keys are seen by more than one sketch.
+                            if (i % 3 == 0)
+                            {
+                                sketches[(i + 1) % sketchCount].addBytes(key);
+                            }
+                        }
+
+                        final HyperLogLog merged = HyperLogLog.create(12);
+                        for (final HyperLogLog sketch : sketches)
+                        {
+                            merged.merge(sketch);
+                        }
+                        test.assertEqual(expected.isSparse(), merged.isSparse());
+                        test.assertEqual(expected.getEstimate(), merged.getEstimate());
+                        test.assertEqual(BitArray.createFromBytes(expected.toBytes()), BitArray.createFromBytes(merged.toBytes()));
+                    });
+                };
+
+                mergeTest.run(2, 10);
+                mergeTest.run(4, 500);
+                mergeTest.run(4, 3000);
+                mergeTest.run(8, 100000);
+            });
+
+            runner.test("merge(HyperLogLog) with a dense sketch into a sparse sketch", (Test test) ->
+            {
+                final HyperLogLog expected = HyperLogLog.create(8);
+                final HyperLogLog sparse = HyperLogLog.create(8);
+                final HyperLogLog dense = HyperLogLog.create(8);
+                for (int i = 0; i < 10; ++i)
+                {
+                    expected.addBytes(HyperLogLogTests.getKey(i));
+                    sparse.addBytes(HyperLogLogTests.getKey(i));
+                }
+                for (int i = 10; i < 1000; ++i)
+                {
+                    expected.addBytes(HyperLogLogTests.getKey(i));
+                    dense.addBytes(HyperLogLogTests.getKey(i));
+                }
+                test.assertTrue(sparse.isSparse());
+                test.assertFalse(dense.isSparse());
+
+                sparse.merge(dense);
+                test.assertFalse(sparse.isSparse());
+                test.assertEqual(BitArray.createFromBytes(expected.toBytes()), BitArray.createFromBytes(sparse.toBytes()));
+
+                final HyperLogLog otherSparse = HyperLogLog.create(8);
+                otherSparse.addBytes(HyperLogLogTests.getKey(5000));
+                expected.addBytes(HyperLogLogTests.getKey(5000));
+                dense.merge(otherSparse);
+                sparse.merge(otherSparse);
+                test.assertEqual(BitArray.createFromBytes(expected.toBytes()), BitArray.createFromBytes(sparse.toBytes()));
+            });
+
+            runner.test("clear()", (Test test) ->
+            {
+                final HyperLogLog sketch = HyperLogLog.create(8);
+                for (int i = 0; i < 1000; ++i)
+                {
+                    sketch.addBytes(HyperLogLogTests.getKey(i));
+                }
+                test.assertFalse(sketch.isSparse());
+
+                sketch.clear();
+                test.assertTrue(sketch.isSparse());
+                test.assertEqual(0L, sketch.getEstimate());
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> HyperLogLog.parse(null),
+                        new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with wrong magic number", (Test test) ->
+                {
+                    test.assertThrows(() -> HyperLogLog.parse(new byte[20]).await(),
+                        new java.io.IOException("The bytes are not a serialized HyperLogLog."));
+                });
+
+                runner.test("with truncated bytes", (Test test) ->
+                {
+                    final byte[] bytes = HyperLogLog.create(4).toBytes();
+                    test.assertThrows(() -> HyperLogLog.parse(java.util.Arrays.copyOf(bytes, bytes.length - 1)).await(),
+                        new java.io.IOException("The serialized HyperLogLog is corrupt."));
+                });
+
+                final Action2<String,byte[]> parseCorruptTest = (String testName, byte[] bytes) ->
+                {
+                    runner.test(testName, (Test test) ->
+                    {
+                        test.assertThrows(() -> HyperLogLog.parse(bytes).await(),
+                            new java.io.IOException("The serialized HyperLogLog is corrupt."));
+                    });
+                };
+
+                parseCorruptTest.run("with a sparse index that is too large", HyperLogLogTests.getSparseBytes(10, (1 << 25) << 6 | 1));
+                parseCorruptTest.run("with a sparse rank of 0", HyperLogLogTests.getSparseBytes(10, 5 << 6));
+                parseCorruptTest.run("with a sparse rank that is too large", HyperLogLogTests.getSparseBytes(10, 5 << 6 | 41));
+                parseCorruptTest.run("with unsorted sparse entries", HyperLogLogTests.getSparseBytes(10, 6 << 6 | 1, 5 << 6 | 1));
+                parseCorruptTest.run("with a repeated sparse index", HyperLogLogTests.getSparseBytes(10, 5 << 6 | 1, 5 << 6 | 2));
+                parseCorruptTest.run("with a dense register that is too large", HyperLogLogTests.getDenseBytes(10, 56));
+                parseCorruptTest.run("with a negative dense register", HyperLogLogTests.getDenseBytes(10, -1));
+
+                runner.test("with the largest valid ranks", (Test test) ->
+                {
+                    test.assertTrue(HyperLogLog.parse(HyperLogLogTests.getSparseBytes(10, 5 << 6 | 40, ((1 << 25) - 1) << 6 | 1)).await().isSparse());
+                    test.assertFalse(HyperLogLog.parse(HyperLogLogTests.getDenseBytes(10, 55)).await().isSparse());
+                });
+
+                final Action1<Integer> parseTest = (Integer keyCount) ->
+                {
+                    runner.test("with bytes from a sketch with " + keyCount + " keys", (Test test) ->
+                    {
+                        final HyperLogLog sketch = HyperLogLog.create(10);
+                        for (int i = 0; i < keyCount; ++i)
+                        {
+                            sketch.addBytes(HyperLogLogTests.getKey(i));
+                        }
+
+                        final HyperLogLog parsedSketch = HyperLogLog.parse(sketch.toBytes()).await();
+                        test.assertEqual(sketch.getPrecision(), parsedSketch.getPrecision());
+                        test.assertEqual(sketch.isSparse(), parsedSketch.isSparse());
+                        test.assertEqual(sketch.getEstimate(), parsedSketch.getEstimate());
+
+                        parsedSketch.addBytes(HyperLogLogTests.getKey(keyCount));
+                        sketch.addBytes(HyperLogLogTests.getKey(keyCount));
+                        test.assertEqual(sketch.getEstimate(), parsedSketch.getEstimate());
+                    });
+                };
+
+                parseTest.run(0);
+                parseTest.run(50);
+                parseTest.run(10000);
+            });
+        });
+    }
+
+    static byte[] getKey(int index)
+    {
+        return ("record-" + index).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the serialized form of a sparse {@link HyperLogLog} with the provided sparse entries.
+     */
+    static byte[] getSparseBytes(int precision, int... sparseEntries)
+    {
+        final java.nio.ByteBuffer result = java.nio.ByteBuffer.allocate(Integer.BYTES + 3 + Integer.BYTES + sparseEntries.length * Integer.BYTES);
+        result.putInt(0x51484C4C).put((byte)1).put((byte)precision).put((byte)0);
+        result.putInt(sparseEntries.length);
+        for (final int sparseEntry : sparseEntries)
+        {
+            result.putInt(sparseEntry);
+        }
+        return result.array();
+    }
+
+    /**
+     * Get the serialized form of a dense {@link HyperLogLog} whose last register has the provided
+     * value and whose other registers are 0.
+     */
+    static byte[] getDenseBytes(int precision, int lastRegister)
+    {
+        final java.nio.ByteBuffer result = java.nio.ByteBuffer.allocate(Integer.BYTES + 3 + (1 << precision));
+        result.putInt(0x51484C4C).put((byte)1).put((byte)precision).put((byte)1);
+        result.put(result.capacity() - 1, (byte)lastRegister);
+        return result.array();
+    }
+}
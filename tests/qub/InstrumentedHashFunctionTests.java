@@ -0,0 +1,120 @@
+package qub;
+
+public interface InstrumentedHashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(InstrumentedHashFunction.class, () ->
+        {
+            runner.testGroup("create(HashFunction,String,HashFunctionMetrics)", () ->
+            {
+                runner.test("with null innerHashFunction", (Test test) ->
+                {
+                    test.assertThrows(() -> InstrumentedHashFunction.create((HashFunction)null, "MD5", HashFunctionMetrics.create()),
+                        new PreConditionFailure("innerHashFunction cannot be null."));
+                });
+
+                runner.test("with null algorithm", (Test test) ->
+                {
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> InstrumentedHashFunction.create(md5, null, HashFunctionMetrics.create()),
+                            new PreConditionFailure("algorithm cannot be null."));
+                    }
+                });
+
+                runner.test("with empty algorithm", (Test test) ->
+                {
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> InstrumentedHashFunction.create(md5, "", HashFunctionMetrics.create()),
+                            new PreConditionFailure("algorithm cannot be empty."));
+                    }
+                });
+
+                runner.test("with null metrics", (Test test) ->
+                {
+                    try (final HashFunction md5 = HashFunction.createMD5().await())
+                    {
+                        test.assertThrows(() -> InstrumentedHashFunction.create(md5, "MD5", null),
+                            new PreConditionFailure("metrics cannot be null."));
+                    }
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                    try (final InstrumentedHashFunction hashFunction = InstrumentedHashFunction.create(HashFunction.createMD5().await(), "MD5", metrics))
+                    {
+                        test.assertEqual("MD5", hashFunction.getAlgorithm());
+                        test.assertSame(metrics, hashFunction.getMetrics());
+                        test.assertEqual(16, hashFunction.getDigestLength());
+                        test.assertFalse(hashFunction.isDisposed());
+                    }
+                });
+            });
+
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,String,HashFunctionMetrics)", () ->
+            {
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> InstrumentedHashFunction.create((Function0<Result<? extends HashFunction>>)null, "MD5", HashFunctionMetrics.create()),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final InstrumentedHashFunction hashFunction = InstrumentedHashFunction.create(HashFunction::createSHA256, "SHA-256", HashFunctionMetrics.create()).await())
+                    {
+                        test.assertEqual("SHA-256", hashFunction.getAlgorithm());
+                        test.assertEqual(32, hashFunction.getDigestLength());
+                    }
+                });
+            });
+
+            runner.test("records activity", (Test test) ->
+            {
+                final HashFunctionMetrics metrics = HashFunctionMetrics.create();
+                try (final InstrumentedHashFunction md5 = InstrumentedHashFunction.create(HashFunction.createMD5().await(), "MD5", metrics);
+                     final InstrumentedHashFunction sha256 = InstrumentedHashFunction.create(HashFunction.createSHA256().await(), "SHA-256", metrics))
+                {
+                    md5.addByte((byte)1);
+                    md5.addBytes(new byte[] { 2, 3 });
+                    test.assertEqual("5289DF737DF57326FCDD22597AFB1FAC", md5.peekDigest().toHexString());
+                    test.assertEqual("5289DF737DF57326FCDD22597AFB1FAC", md5.takeDigest().toHexString());
+
+                    sha256.addBytes(java.nio.ByteBuffer.wrap(new byte[1000]));
+                    sha256.addBytes(new byte[0]);
+                    final byte[] output = new byte[32];
+                    test.assertEqual(32, sha256.takeDigest(output, 0));
+
+                    final HashFunctionMetricsSnapshot snapshot = metrics.getSnapshot();
+                    test.assertEqual(1003L, snapshot.getBytesHashed());
+                    test.assertEqual(1L, snapshot.getAddByteCallCount());
+                    test.assertEqual(3L, snapshot.getAddBytesCallCount());
+                    test.assertTrue(snapshot.getAddBytesNanoseconds() >= 0);
+                    test.assertEqual(1L, snapshot.getBlockSizeCount(0));
+                    test.assertEqual(1L, snapshot.getBlockSizeCount(2));
+                    test.assertEqual(1L, snapshot.getBlockSizeCount(10));
+                    test.assertEqual(2L, snapshot.getDigestCount("MD5"));
+                    test.assertEqual(1L, snapshot.getDigestCount("SHA-256"));
+                    test.assertEqual(0L, snapshot.getDigestCount("SHA-1"));
+                    test.assertEqual(3L, snapshot.getDigestCount());
+                    test.assertTrue(snapshot.getDigestNanoseconds() >= 0);
+                }
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final HashFunction md5 = HashFunction.createMD5().await();
+                final InstrumentedHashFunction hashFunction = InstrumentedHashFunction.create(md5, "MD5", HashFunctionMetrics.create());
+                test.assertTrue(hashFunction.dispose().await());
+                test.assertTrue(hashFunction.isDisposed());
+                test.assertTrue(md5.isDisposed());
+                test.assertFalse(hashFunction.dispose().await());
+            });
+
+            HashFunctionTests.test(runner, () -> InstrumentedHashFunction.create(HashFunction.createMD5().await(), "MD5", HashFunctionMetrics.create()));
+        });
+    }
+}
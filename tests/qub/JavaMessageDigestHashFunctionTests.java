@@ -45,7 +45,155 @@ public interface JavaMessageDigestHashFunctionTests
                 createTest.run("sHa256");
             });
 
+            runner.testGroup("getDigestLength()", () ->
+            {
+                final Action2<String,Integer> getDigestLengthTest = (String algorithm, Integer expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(algorithm), (Test test) ->
+                    {
+                        try (final JavaMessageDigestHashFunction hashFunction = JavaMessageDigestHashFunction.create(algorithm).await())
+                        {
+                            test.assertEqual(expected, hashFunction.getDigestLength());
+                        }
+                    });
+                };
+
+                getDigestLengthTest.run("MD5", 16);
+                getDigestLengthTest.run("SHA-1", 20);
+                getDigestLengthTest.run("SHA-256", 32);
+            });
+
+            runner.testGroup("getBlockLength()", () ->
+            {
+                final Action2<String,Integer> getBlockLengthTest = (String algorithm, Integer expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(algorithm), (Test test) ->
+                    {
+                        try (final JavaMessageDigestHashFunction hashFunction = JavaMessageDigestHashFunction.create(algorithm).await())
+                        {
+                            test.assertEqual(expected, hashFunction.getBlockLength());
+                        }
+                    });
+                };
+
+                getBlockLengthTest.run("MD5", 64);
+                getBlockLengthTest.run("sha1", 64);
+                getBlockLengthTest.run("SHA-256", 64);
+                getBlockLengthTest.run("SHA-512", 128);
+                getBlockLengthTest.run("SHA-512/256", 128);
+                getBlockLengthTest.run("SHA3-256", 136);
+                getBlockLengthTest.run("MD2", 0);
+            });
+
+            runner.test("exportMessageDigest() and restoreMessageDigest(MessageDigest)", (Test test) ->
+            {
+                try (final JavaMessageDigestHashFunction hashFunction = JavaMessageDigestHashFunction.create("SHA-256").await())
+                {
+                    hashFunction.addBytes(new byte[] { 1, 2, 3 });
+                    final java.security.MessageDigest messageDigest = hashFunction.exportMessageDigest();
+                    test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", hashFunction.takeDigest().toHexString());
+
+                    hashFunction.restoreMessageDigest(messageDigest);
+                    test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", hashFunction.takeDigest().toHexString());
+
+                    hashFunction.restoreMessageDigest(messageDigest);
+                    test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.test("create(String) with an algorithm that can't be cloned", (Test test) ->
+            {
+                if (java.security.Security.getProvider(UncloneableProvider.providerName) == null)
+                {
+                    java.security.Security.addProvider(new UncloneableProvider());
+                }
+
+                for (int i = 0; i < 3; ++i)
+                {
+                    try (final JavaMessageDigestHashFunction hashFunction = JavaMessageDigestHashFunction.create(UncloneableProvider.algorithm).await())
+                    {
+                        hashFunction.addBytes(new byte[] { 1, 2, 3 });
+                        test.assertEqual("06", hashFunction.takeDigest().toHexString());
+                        test.assertThrows(() -> hashFunction.peekDigest(), new CloneNotSupportedException());
+                    }
+                }
+            });
+
+            runner.test("create(String) instances don't share state", (Test test) ->
+            {
+                try (final JavaMessageDigestHashFunction first = JavaMessageDigestHashFunction.create("SHA-256").await();
+                     final JavaMessageDigestHashFunction second = JavaMessageDigestHashFunction.create("SHA-256").await())
+                {
+                    first.addBytes(new byte[] { 1, 2, 3 });
+                    test.assertEqual("E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855", second.takeDigest().toHexString());
+                    test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", first.takeDigest().toHexString());
+                }
+            });
+
             HashFunctionTests.test(runner, () -> JavaMessageDigestHashFunction.create("MD5").await());
         });
     }
+
+    /**
+     * A {@link java.security.Provider} of a {@link java.security.MessageDigest} that can't be
+     * cloned.
+     */
+    public static class UncloneableProvider extends java.security.Provider
+    {
+        static final String providerName = "QubUncloneable";
+        static final String algorithm = "QUB-UNCLONEABLE-SUM";
+
+        private static final long serialVersionUID = 1L;
+
+        public UncloneableProvider()
+        {
+            super(UncloneableProvider.providerName, "1.0", "A provider of a MessageDigest that can't be cloned.");
+
+            this.put("MessageDigest." + UncloneableProvider.algorithm, SumMessageDigest.class.getName());
+        }
+    }
+
+    /**
+     * A one-byte digest of the sum of the bytes that were added to it, which doesn't implement
+     * {@link Cloneable}.
+     */
+    public static class SumMessageDigest extends java.security.MessageDigestSpi
+    {
+        private byte sum;
+
+        @Override
+        protected void engineUpdate(byte input)
+        {
+            this.sum += input;
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length)
+        {
+            for (int i = offset; i < offset + length; ++i)
+            {
+                this.sum += input[i];
+            }
+        }
+
+        @Override
+        protected int engineGetDigestLength()
+        {
+            return 1;
+        }
+
+        @Override
+        protected byte[] engineDigest()
+        {
+            final byte[] result = new byte[] { this.sum };
+            this.engineReset();
+            return result;
+        }
+
+        @Override
+        protected void engineReset()
+        {
+            this.sum = 0;
+        }
+    }
 }
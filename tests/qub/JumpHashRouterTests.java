@@ -0,0 +1,55 @@
+package qub;
+
+public interface JumpHashRouterTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(JumpHashRouter.class, () ->
+        {
+            runner.testGroup("getBucket(long,int)", () ->
+            {
+                runner.test("with 0 buckets", (Test test) ->
+                {
+                    test.assertThrows(() -> JumpHashRouter.getBucket(5, 0),
+                        new PreConditionFailure("bucketCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with 1 bucket", (Test test) ->
+                {
+                    for (long keyHash = -50; keyHash < 50; ++keyHash)
+                    {
+                        test.assertEqual(0, JumpHashRouter.getBucket(keyHash, 1));
+                    }
+                });
+
+                runner.test("with a growing number of buckets", (Test test) ->
+                {
+                    final java.util.Random random = new java.util.Random(11);
+                    for (int i = 0; i < 1000; ++i)
+                    {
+                        final long keyHash = random.nextLong();
+                        int previousBucket = 0;
+                        for (int bucketCount = 1; bucketCount <= 100; ++bucketCount)
+                        {
+                            // A key either stays where it is or moves to the new bucket.
+                            final int bucket = JumpHashRouter.getBucket(keyHash, bucketCount);
+                            test.assertTrue(bucket == previousBucket || bucket == bucketCount - 1);
+                            previousBucket = bucket;
+                        }
+                    }
+                });
+            });
+
+            runner.test("getNode(long)", (Test test) ->
+            {
+                final ShardRouter<String> router = ShardRouterTests.createRouter(JumpHashRouter::create, 6);
+                for (long keyHash = 0; keyHash < 100; ++keyHash)
+                {
+                    test.assertEqual("node" + JumpHashRouter.getBucket(keyHash, 6), router.getNode(keyHash));
+                }
+            });
+
+            ShardRouterTests.test(runner, JumpHashRouter::create);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package qub;
+
+public interface MD5HashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(MD5HashFunction.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                try (final MD5HashFunction hashFunction = MD5HashFunction.create())
+                {
+                    test.assertEqual("MD5", hashFunction.getAlgorithm());
+                    test.assertEqual(0L, hashFunction.getByteCount());
+                    test.assertEqual("D41D8CD98F00B204E9800998ECF8427E", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.testGroup("takeDigest(byte[])", () ->
+            {
+                final Action2<String,String> takeDigestTest = (String text, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        try (final MD5HashFunction hashFunction = MD5HashFunction.create())
+                        {
+                            test.assertEqual(expected, hashFunction.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters(text).await()).toHexString());
+                        }
+                    });
+                };
+
+                takeDigestTest.run("", "D41D8CD98F00B204E9800998ECF8427E");
+                takeDigestTest.run("abc", "900150983CD24FB0D6963F7D28E17F72");
+                takeDigestTest.run("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq", "8215EF0796A20BCAAAE116D3876C664A");
+            });
+
+            ResumableHashFunctionTests.test(runner, MD5HashFunction::create);
+            HashFunctionTests.test(runner, MD5HashFunction::create);
+        });
+    }
+}
@@ -0,0 +1,273 @@
+package qub;
+
+public interface MerkleProofTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(MerkleProof.class, () ->
+        {
+            runner.testGroup("create(int,int,byte[][])", () ->
+            {
+                runner.test("with 0 leafCount", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.create(0, 0, new byte[0][]),
+                        new PreConditionFailure("leafCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with leafIndex equal to leafCount", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.create(3, 3, new byte[0][]),
+                        new PreConditionFailure("leafIndex (3) must be between 0 and 2."));
+                });
+
+                runner.test("with null siblingDigests", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.create(0, 3, null),
+                        new PreConditionFailure("siblingDigests cannot be null."));
+                });
+
+                runner.test("with the wrong number of siblingDigests", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.create(0, 3, new byte[1][32]),
+                        new PreConditionFailure("siblingDigests.length (1) must be 2."));
+                });
+
+                runner.test("with the last leaf of an odd level", (Test test) ->
+                {
+                    // Leaf 2 of 3 is promoted past the first level, so it only has one sibling.
+                    final MerkleProof proof = MerkleProof.create(2, 3, new byte[1][32]);
+                    test.assertEqual(2, proof.getLeafIndex());
+                    test.assertEqual(3, proof.getLeafCount());
+                    test.assertEqual(1, proof.getSiblingCount());
+                });
+
+                runner.test("with a single leaf", (Test test) ->
+                {
+                    final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                    test.assertEqual(0, proof.getSiblingCount());
+                });
+            });
+
+            runner.testGroup("getSiblingDigest(int)", () ->
+            {
+                runner.test("with an index past the end", (Test test) ->
+                {
+                    final MerkleProof proof = MerkleProof.create(0, 2, new byte[1][32]);
+                    test.assertThrows(() -> proof.getSiblingDigest(1),
+                        new PreConditionFailure("index (1) must be between 0 and 0."));
+                });
+
+                runner.test("with a valid index", (Test test) ->
+                {
+                    final byte[] siblingDigest = new byte[] { 1, 2, 3, 4 };
+                    final MerkleProof proof = MerkleProof.create(1, 2, new byte[][] { siblingDigest });
+                    test.assertEqual(BitArray.createFromBytes(new byte[] { 1, 2, 3, 4 }), proof.getSiblingDigest(0));
+
+                    proof.getSiblingDigest(0).toByteArray()[0] = 100;
+                    test.assertEqual(BitArray.createFromBytes(new byte[] { 1, 2, 3, 4 }), proof.getSiblingDigest(0));
+                });
+            });
+
+            runner.testGroup("verify(HashFunction,int,int,byte[],BitArray)", () ->
+            {
+                runner.test("with null hashFunction", (Test test) ->
+                {
+                    final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                    test.assertThrows(() -> proof.verify(null, 0, 1, new byte[0], BitArray.createFromBytes(new byte[32])),
+                        new PreConditionFailure("hashFunction cannot be null."));
+                });
+
+                runner.test("with 0 leafCount", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                        test.assertThrows(() -> proof.verify(sha256, 0, 0, new byte[0], BitArray.createFromBytes(new byte[32])),
+                            new PreConditionFailure("leafCount (0) must be greater than or equal to 1."));
+                    }
+                });
+
+                runner.test("with leafIndex equal to leafCount", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                        test.assertThrows(() -> proof.verify(sha256, 1, 1, new byte[0], BitArray.createFromBytes(new byte[32])),
+                            new PreConditionFailure("leafIndex (1) must be between 0 and 0."));
+                    }
+                });
+
+                runner.test("with null leaf", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                        test.assertThrows(() -> proof.verify(sha256, 0, 1, null, BitArray.createFromBytes(new byte[32])),
+                            new PreConditionFailure("leaf cannot be null."));
+                    }
+                });
+
+                runner.test("with null rootDigest", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                        test.assertThrows(() -> proof.verify(sha256, 0, 1, new byte[0], null),
+                            new PreConditionFailure("rootDigest cannot be null."));
+                    }
+                });
+
+                runner.test("with a single leaf", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = MerkleProof.create(0, 1, new byte[0][]);
+                        final BitArray rootDigest = BitArray.createFromBytes(HashFunction.sha256(new byte[] { 0, 1, 2, 3 }));
+                        test.assertTrue(proof.verify(sha256, 0, 1, new byte[] { 1, 2, 3 }, rootDigest));
+                        test.assertFalse(proof.verify(sha256, 0, 1, new byte[] { 1, 2 }, rootDigest));
+                    }
+                });
+
+                runner.test("with two leaves", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final byte[] leftDigest = HashFunction.sha256(new byte[] { 0, 10 });
+                        final byte[] rightDigest = HashFunction.sha256(new byte[] { 0, 20 });
+                        final byte[] node = new byte[65];
+                        node[0] = 1;
+                        System.arraycopy(leftDigest, 0, node, 1, 32);
+                        System.arraycopy(rightDigest, 0, node, 33, 32);
+                        final BitArray rootDigest = BitArray.createFromBytes(HashFunction.sha256(node));
+
+                        test.assertTrue(MerkleProof.create(0, 2, new byte[][] { rightDigest }).verify(sha256, 0, 2, new byte[] { 10 }, rootDigest));
+                        test.assertTrue(MerkleProof.create(1, 2, new byte[][] { leftDigest }).verify(sha256, 1, 2, new byte[] { 20 }, rootDigest));
+
+                        // The sibling's side comes from the leaf index, so the wrong index fails.
+                        test.assertFalse(MerkleProof.create(1, 2, new byte[][] { rightDigest }).verify(sha256, 1, 2, new byte[] { 10 }, rootDigest));
+                    }
+                });
+
+                runner.test("with a leaf index or leaf count that doesn't match the proof", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(30);
+                    try (final MerkleTree tree = MerkleTree.createSHA256(data, 10).await();
+                         final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = tree.getProof(1);
+                        test.assertTrue(proof.verify(sha256, 1, 3, data, 10, 10, tree.getRootDigest()));
+                        test.assertFalse(proof.verify(sha256, 0, 3, data, 10, 10, tree.getRootDigest()));
+                        test.assertFalse(proof.verify(sha256, 1, 4, data, 10, 10, tree.getRootDigest()));
+                    }
+                });
+
+                runner.test("with a proof for a different position that hashes up to the same root", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(30);
+                    try (final MerkleTree tree = MerkleTree.createSHA256(data, 10).await();
+                         final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        // Leaf 2 of a 3-leaf tree is promoted to the second level unchanged, so
+                        // leaf 4 of a 5-leaf tree with leaf 2's sibling has the same path to the
+                        // root.
+                        final MerkleProof forgedProof = MerkleProof.create(4, 5, new byte[][] { tree.getProof(2).getSiblingDigest(0).toByteArray() });
+                        test.assertTrue(forgedProof.verify(sha256, 4, 5, data, 20, 10, tree.getRootDigest()));
+                        test.assertFalse(forgedProof.verify(sha256, 2, 3, data, 20, 10, tree.getRootDigest()));
+                        test.assertTrue(tree.getProof(2).verify(sha256, 2, 3, data, 20, 10, tree.getRootDigest()));
+                    }
+                });
+
+                runner.test("with a sibling digest of the wrong length", (Test test) ->
+                {
+                    try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = MerkleProof.create(0, 2, new byte[][] { new byte[16] });
+                        test.assertFalse(proof.verify(sha256, 0, 2, new byte[] { 10 }, BitArray.createFromBytes(new byte[32])));
+                    }
+                });
+
+                runner.test("with a tampered sibling digest", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(1000);
+                    try (final MerkleTree tree = MerkleTree.createSHA256(data, 10).await();
+                         final HashFunction sha256 = HashFunction.createSHA256().await())
+                    {
+                        final MerkleProof proof = tree.getProof(42);
+                        for (int i = 0; i < proof.getSiblingCount(); ++i)
+                        {
+                            final byte[][] siblingDigests = new byte[proof.getSiblingCount()][];
+                            for (int j = 0; j < siblingDigests.length; ++j)
+                            {
+                                siblingDigests[j] = proof.getSiblingDigest(j).toByteArray();
+                            }
+                            siblingDigests[i][0] ^= 1;
+
+                            final MerkleProof tamperedProof = MerkleProof.create(42, proof.getLeafCount(), siblingDigests);
+                            test.assertFalse(tamperedProof.verify(sha256, 42, 100, data, 420, 10, tree.getRootDigest()));
+                        }
+                        test.assertTrue(proof.verify(sha256, 42, 100, data, 420, 10, tree.getRootDigest()));
+                    }
+                });
+            });
+
+            runner.testGroup("parse(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.parse(null),
+                        new PreConditionFailure("bytes cannot be null."));
+                });
+
+                runner.test("with too few bytes", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.parse(new byte[4]).await(),
+                        new java.io.IOException("The serialized Merkle proof is too short."));
+                });
+
+                runner.test("with wrong magic number", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleProof.parse(new byte[20]).await(),
+                        new java.io.IOException("The bytes are not a serialized Merkle proof."));
+                });
+
+                runner.test("with truncated bytes", (Test test) ->
+                {
+                    final byte[] bytes = MerkleProof.create(0, 2, new byte[1][32]).toBytes();
+                    test.assertThrows(() -> MerkleProof.parse(java.util.Arrays.copyOf(bytes, bytes.length - 1)).await(),
+                        new java.io.IOException("The serialized Merkle proof is corrupt."));
+                });
+
+                runner.test("with the wrong sibling count", (Test test) ->
+                {
+                    final byte[] bytes = MerkleProof.create(0, 2, new byte[1][32]).toBytes();
+                    bytes[15] = 3;
+                    test.assertThrows(() -> MerkleProof.parse(bytes).await(),
+                        new java.io.IOException("The serialized Merkle proof is corrupt."));
+                });
+
+                final Action2<Integer,Integer> parseTest = (Integer leafIndex, Integer leafCount) ->
+                {
+                    runner.test("with bytes from a proof for leaf " + leafIndex + " of " + leafCount, (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(leafCount * 4);
+                        try (final MerkleTree tree = MerkleTree.createSHA256(data, 4).await();
+                             final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            final MerkleProof proof = tree.getProof(leafIndex);
+                            final MerkleProof parsedProof = MerkleProof.parse(proof.toBytes()).await();
+                            test.assertEqual(proof.getLeafIndex(), parsedProof.getLeafIndex());
+                            test.assertEqual(proof.getLeafCount(), parsedProof.getLeafCount());
+                            test.assertEqual(proof.getSiblingCount(), parsedProof.getSiblingCount());
+                            test.assertTrue(parsedProof.verify(sha256, leafIndex, leafCount, data, leafIndex * 4, 4, tree.getRootDigest()));
+                        }
+                    });
+                };
+
+                parseTest.run(0, 1);
+                parseTest.run(1, 2);
+                parseTest.run(4, 5);
+                parseTest.run(99, 100);
+            });
+        });
+    }
+}
@@ -0,0 +1,406 @@
+package qub;
+
+public interface MerkleTreeTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(MerkleTree.class, () ->
+        {
+            runner.testGroup("getNodeCount(long)", () ->
+            {
+                final Action2<Long,Long> getNodeCountTest = (Long leafCount, Long expected) ->
+                {
+                    runner.test("with " + leafCount, (Test test) ->
+                    {
+                        test.assertEqual(expected, MerkleTree.getNodeCount(leafCount));
+                        if (expected <= Integer.MAX_VALUE)
+                        {
+                            final int[] levelOffsets = MerkleTree.getLevelOffsets((int)(long)leafCount);
+                            test.assertEqual((int)(long)expected, levelOffsets[levelOffsets.length - 1]);
+                        }
+                    });
+                };
+
+                getNodeCountTest.run(1L, 1L);
+                getNodeCountTest.run(2L, 3L);
+                getNodeCountTest.run(5L, 11L);
+                getNodeCountTest.run(40000000L, 80000009L);
+                getNodeCountTest.run((long)Integer.MAX_VALUE, 4294967294L);
+            });
+
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,int)", () ->
+            {
+                runner.test("with null hashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(null, 1),
+                        new PreConditionFailure("hashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with 0 leafCount", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, 0),
+                        new PreConditionFailure("leafCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with a hashFunctionCreator that fails", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(() -> Result.error(new NotFoundException("blah")), 1).await(),
+                        new NotFoundException("blah"));
+                });
+
+                runner.test("with more leaves than fit in one array of node digests", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, 40000000).await(),
+                        new PreConditionFailure("nodeCount * digestLength (2560000288) must be less than or equal to 2147483639."));
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, Integer.MAX_VALUE).await(),
+                        new PreConditionFailure("nodeCount * digestLength (137438953408) must be less than or equal to 2147483639."));
+                });
+
+                final Action1<Integer> createTest = (Integer leafCount) ->
+                {
+                    runner.test("with " + leafCount + " leaves", (Test test) ->
+                    {
+                        try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, leafCount).await())
+                        {
+                            test.assertEqual(leafCount, tree.getLeafCount());
+                            test.assertEqual(32, tree.getDigestLength());
+                            test.assertEqual(MerkleTreeTests.treeHashDigestOfEmptyLeaves(leafCount), tree.getRootDigest());
+                        }
+                    });
+                };
+
+                createTest.run(1);
+                createTest.run(2);
+                createTest.run(5);
+                createTest.run(100);
+            });
+
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,byte[],int,ForkJoinPool)", () ->
+            {
+                runner.test("with null data", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, (byte[])null, 10, java.util.concurrent.ForkJoinPool.commonPool()),
+                        new PreConditionFailure("data cannot be null."));
+                });
+
+                runner.test("with 0 leafSize", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, new byte[10], 0, java.util.concurrent.ForkJoinPool.commonPool()),
+                        new PreConditionFailure("leafSize (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with null pool", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, new byte[10], 10, null),
+                        new PreConditionFailure("pool cannot be null."));
+                });
+
+                final Action2<Integer,Integer> createTest = (Integer leafSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(leafSize, byteCount), (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(byteCount);
+                        try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, data, leafSize, java.util.concurrent.ForkJoinPool.commonPool()).await())
+                        {
+                            test.assertEqual(java.lang.Math.max(1, (byteCount + leafSize - 1) / leafSize), tree.getLeafCount());
+                            test.assertEqual(TreeHashFunctionTests.referenceDigest(data, leafSize), tree.getRootDigest());
+                        }
+                    });
+                };
+
+                createTest.run(10, 0);
+                createTest.run(10, 1);
+                createTest.run(10, 10);
+                createTest.run(10, 11);
+                createTest.run(10, 95);
+                createTest.run(1, 1000);
+                createTest.run(7, 10000);
+                createTest.run(64, 100000);
+            });
+
+            runner.test("createSHA256(byte[],int)", (Test test) ->
+            {
+                final byte[] data = MerkleTreeTests.getData(5000);
+                try (final MerkleTree tree = MerkleTree.createSHA256(data, 16).await())
+                {
+                    test.assertEqual(313, tree.getLeafCount());
+                    test.assertEqual(TreeHashFunctionTests.referenceDigest(data, 16), tree.getRootDigest());
+                }
+            });
+
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,Path,int,ForkJoinPool)", () ->
+            {
+                runner.test("with null filePath", (Test test) ->
+                {
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, (java.nio.file.Path)null, 10, java.util.concurrent.ForkJoinPool.commonPool()),
+                        new PreConditionFailure("filePath cannot be null."));
+                });
+
+                runner.test("with a file that doesn't exist", (Test test) ->
+                {
+                    final java.nio.file.Path filePath = TestFiles.create(new byte[0]);
+                    TestFiles.delete(filePath);
+                    test.assertThrows(() -> MerkleTree.create(HashFunction::createSHA256, filePath, 10, java.util.concurrent.ForkJoinPool.commonPool()).await(),
+                        new java.nio.file.NoSuchFileException(filePath.toString()));
+                });
+
+                final Action2<Integer,Integer> createTest = (Integer leafSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(leafSize, byteCount), (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(byteCount);
+                        final java.nio.file.Path filePath = TestFiles.create(data);
+                        try (final MerkleTree fileTree = MerkleTree.create(HashFunction::createSHA256, filePath, leafSize, java.util.concurrent.ForkJoinPool.commonPool()).await();
+                             final MerkleTree dataTree = MerkleTree.create(HashFunction::createSHA256, data, leafSize, java.util.concurrent.ForkJoinPool.commonPool()).await())
+                        {
+                            test.assertEqual(dataTree.getLeafCount(), fileTree.getLeafCount());
+                            test.assertEqual(dataTree.getRootDigest(), fileTree.getRootDigest());
+                            test.assertEqual(dataTree.getLeafDigest(dataTree.getLeafCount() - 1), fileTree.getLeafDigest(fileTree.getLeafCount() - 1));
+                        }
+                        finally
+                        {
+                            TestFiles.delete(filePath);
+                        }
+                    });
+                };
+
+                createTest.run(10, 0);
+                createTest.run(10, 25);
+                createTest.run(13, 10000);
+                createTest.run(4096, 1000000);
+            });
+
+            runner.test("getLevelCount()", (Test test) ->
+            {
+                final Action2<Integer,Integer> getLevelCountTest = (Integer leafCount, Integer expected) ->
+                {
+                    try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, leafCount).await())
+                    {
+                        test.assertEqual(expected, tree.getLevelCount());
+                    }
+                };
+
+                getLevelCountTest.run(1, 1);
+                getLevelCountTest.run(2, 2);
+                getLevelCountTest.run(3, 3);
+                getLevelCountTest.run(4, 3);
+                getLevelCountTest.run(5, 4);
+                getLevelCountTest.run(1024, 11);
+                getLevelCountTest.run(1025, 12);
+            });
+
+            runner.testGroup("getLeafDigest(int)", () ->
+            {
+                runner.test("with -1", (Test test) ->
+                {
+                    try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await())
+                    {
+                        test.assertThrows(() -> tree.getLeafDigest(-1),
+                            new PreConditionFailure("leafIndex (-1) must be between 0 and 2."));
+                    }
+                });
+
+                runner.test("with a valid index", (Test test) ->
+                {
+                    try (final MerkleTree tree = MerkleTree.createSHA256(new byte[] { 1, 2, 3, 4, 5 }, 2).await())
+                    {
+                        test.assertEqual(BitArray.createFromBytes(HashFunction.sha256(new byte[] { 0, 3, 4 })), tree.getLeafDigest(1));
+                        test.assertEqual(BitArray.createFromBytes(HashFunction.sha256(new byte[] { 0, 5 })), tree.getLeafDigest(2));
+                    }
+                });
+            });
+
+            runner.testGroup("setLeaf(int,byte[])", () ->
+            {
+                runner.test("with null values", (Test test) ->
+                {
+                    try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await())
+                    {
+                        test.assertThrows(() -> tree.setLeaf(0, null),
+                            new PreConditionFailure("values cannot be null."));
+                    }
+                });
+
+                runner.test("with 3", (Test test) ->
+                {
+                    try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await())
+                    {
+                        test.assertThrows(() -> tree.setLeaf(3, new byte[0]),
+                            new PreConditionFailure("leafIndex (3) must be between 0 and 2."));
+                    }
+                });
+
+                runner.test("when disposed", (Test test) ->
+                {
+                    final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await();
+                    test.assertTrue(tree.dispose().await());
+                    test.assertThrows(() -> tree.setLeaf(0, new byte[0]),
+                        new PreConditionFailure("this.isDisposed() cannot be true."));
+                });
+
+                final Action2<Integer,Integer> setLeafTest = (Integer leafSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(leafSize, byteCount), (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(byteCount);
+                        try (final MerkleTree tree = MerkleTree.createSHA256(data, leafSize).await())
+                        {
+                            final java.util.Random random = new java.util.Random(tree.getLeafCount());
+                            for (int i = 0; i < 20; ++i)
+                            {
+                                final int leafIndex = random.nextInt(tree.getLeafCount());
+                                final int leafStartIndex = leafIndex * leafSize;
+                                final int leafLength = java.lang.Math.min(leafSize, data.length - leafStartIndex);
+                                final byte[] leaf = new byte[leafLength];
+                                random.nextBytes(leaf);
+                                System.arraycopy(leaf, 0, data, leafStartIndex, leafLength);
+
+                                tree.setLeaf(leafIndex, leaf);
+                                test.assertEqual(TreeHashFunctionTests.referenceDigest(data, leafSize), tree.getRootDigest());
+                            }
+                        }
+                    });
+                };
+
+                setLeafTest.run(10, 10);
+                setLeafTest.run(10, 35);
+                setLeafTest.run(8, 1000);
+                setLeafTest.run(3, 10000);
+            });
+
+            runner.test("setLeaf(int,byte[],int,int)", (Test test) ->
+            {
+                try (final MerkleTree expected = MerkleTree.createSHA256(new byte[] { 1, 2, 3, 4, 5, 6 }, 2).await();
+                     final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await())
+                {
+                    final byte[] values = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7 };
+                    tree.setLeaf(2, values, 5, 2);
+                    tree.setLeaf(0, values, 1, 2);
+                    tree.setLeaf(1, values, 3, 2);
+                    test.assertEqual(expected.getRootDigest(), tree.getRootDigest());
+                }
+            });
+
+            runner.testGroup("getProof(int)", () ->
+            {
+                runner.test("with -1", (Test test) ->
+                {
+                    try (final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await())
+                    {
+                        test.assertThrows(() -> tree.getProof(-1),
+                            new PreConditionFailure("leafIndex (-1) must be between 0 and 2."));
+                    }
+                });
+
+                final Action2<Integer,Integer> getProofTest = (Integer leafSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(leafSize, byteCount), (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(byteCount);
+                        try (final MerkleTree tree = MerkleTree.createSHA256(data, leafSize).await();
+                             final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            final BitArray rootDigest = tree.getRootDigest();
+                            for (int leafIndex = 0; leafIndex < tree.getLeafCount(); ++leafIndex)
+                            {
+                                final int leafStartIndex = leafIndex * leafSize;
+                                final int leafLength = java.lang.Math.min(leafSize, data.length - leafStartIndex);
+
+                                final MerkleProof proof = tree.getProof(leafIndex);
+                                test.assertEqual(leafIndex, proof.getLeafIndex());
+                                test.assertEqual(tree.getLeafCount(), proof.getLeafCount());
+                                test.assertTrue(proof.getSiblingCount() <= tree.getLevelCount() - 1);
+                                test.assertTrue(proof.verify(sha256, leafIndex, tree.getLeafCount(), data, leafStartIndex, leafLength, rootDigest));
+
+                                if (leafLength > 0)
+                                {
+                                    data[leafStartIndex] ^= 1;
+                                    test.assertFalse(proof.verify(sha256, leafIndex, tree.getLeafCount(), data, leafStartIndex, leafLength, rootDigest));
+                                    data[leafStartIndex] ^= 1;
+                                }
+                            }
+                        }
+                    });
+                };
+
+                getProofTest.run(10, 0);
+                getProofTest.run(10, 10);
+                getProofTest.run(10, 20);
+                getProofTest.run(10, 30);
+                getProofTest.run(1, 37);
+                getProofTest.run(5, 1000);
+            });
+
+            runner.test("getProof(int) after setLeaf(int,byte[])", (Test test) ->
+            {
+                try (final MerkleTree tree = MerkleTree.createSHA256(MerkleTreeTests.getData(100), 10).await();
+                     final HashFunction sha256 = HashFunction.createSHA256().await())
+                {
+                    final byte[] data = MerkleTreeTests.getData(100);
+                    final MerkleProof oldProof = tree.getProof(6);
+                    final byte[] leaf = new byte[] { 9, 8, 7 };
+                    tree.setLeaf(7, leaf);
+
+                    // Leaf 6's old proof holds leaf 7's old digest, so it no longer matches the root.
+                    final BitArray rootDigest = tree.getRootDigest();
+                    test.assertFalse(oldProof.verify(sha256, 6, 10, data, 60, 10, rootDigest));
+                    test.assertTrue(tree.getProof(6).verify(sha256, 6, 10, data, 60, 10, rootDigest));
+                    test.assertTrue(tree.getProof(7).verify(sha256, 7, 10, leaf, rootDigest));
+                    test.assertTrue(tree.getProof(2).verify(sha256, 2, 10, data, 20, 10, rootDigest));
+                }
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final MerkleTree tree = MerkleTree.create(HashFunction::createSHA256, 3).await();
+                test.assertFalse(tree.isDisposed());
+                test.assertTrue(tree.dispose().await());
+                test.assertTrue(tree.isDisposed());
+                test.assertFalse(tree.dispose().await());
+                test.assertThrows(() -> tree.getRootDigest(),
+                    new PreConditionFailure("this.isDisposed() cannot be true."));
+            });
+        });
+    }
+
+    static byte[] getData(int byteCount)
+    {
+        final byte[] result = new byte[byteCount];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = (byte)(i * 7 + 3);
+        }
+        return result;
+    }
+
+    /**
+     * Get the root digest of a tree with the provided number of empty leaves.
+     */
+    static BitArray treeHashDigestOfEmptyLeaves(int leafCount)
+    {
+        final byte[] emptyLeafDigest = HashFunction.sha256(new byte[] { 0 });
+        byte[][] level = new byte[leafCount][];
+        java.util.Arrays.fill(level, emptyLeafDigest);
+        while (level.length > 1)
+        {
+            final byte[][] nextLevel = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < nextLevel.length; ++i)
+            {
+                if (i * 2 + 1 == level.length)
+                {
+                    nextLevel[i] = level[i * 2];
+                }
+                else
+                {
+                    final byte[] node = new byte[1 + 2 * emptyLeafDigest.length];
+                    node[0] = 1;
+                    System.arraycopy(level[i * 2], 0, node, 1, emptyLeafDigest.length);
+                    System.arraycopy(level[i * 2 + 1], 0, node, 1 + emptyLeafDigest.length, emptyLeafDigest.length);
+                    nextLevel[i] = HashFunction.sha256(node);
+                }
+            }
+            level = nextLevel;
+        }
+        return BitArray.createFromBytes(level[0]);
+    }
+}
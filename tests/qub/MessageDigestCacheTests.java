@@ -0,0 +1,83 @@
+package qub;
+
+public interface MessageDigestCacheTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(MessageDigestCache.class, () ->
+        {
+            runner.testGroup("create(String)", () ->
+            {
+                runner.test("with null algorithm", (Test test) ->
+                {
+                    test.assertThrows(() -> MessageDigestCache.create(null),
+                        new PreConditionFailure("algorithm cannot be null."));
+                });
+
+                runner.test("with valid algorithm", (Test test) ->
+                {
+                    final MessageDigestCache cache = MessageDigestCache.create("SHA-256");
+                    test.assertEqual("SHA-256", cache.getAlgorithm());
+                    test.assertEqual(32, cache.getDigestLength());
+
+                    final int slotCount = cache.getSlotCount();
+                    test.assertTrue(slotCount >= 2 * Runtime.getRuntime().availableProcessors());
+                    test.assertEqual(0, slotCount & (slotCount - 1));
+                });
+            });
+
+            runner.test("acquire() and release()", (Test test) ->
+            {
+                final MessageDigestCache cache = MessageDigestCache.create("MD5");
+                final java.security.MessageDigest first = cache.acquire();
+                test.assertNotNull(first);
+                test.assertEqual("MD5", first.getAlgorithm());
+
+                final java.security.MessageDigest second = cache.acquire();
+                test.assertNotSame(first, second);
+
+                cache.release(first);
+                test.assertSame(first, cache.acquire());
+                cache.release(second);
+            });
+
+            runner.test("digest(byte[],int,int,byte[],int)", (Test test) ->
+            {
+                final MessageDigestCache cache = MessageDigestCache.create("SHA-1");
+                final byte[] output = new byte[20];
+                for (int i = 0; i < 3; ++i)
+                {
+                    test.assertEqual(20, cache.digest(new byte[] { 9, 5, 9 }, 1, 1, output, 0));
+                    test.assertEqual("8DC00598417D4EB788A77AC6CCEF3CB484905D8B", BitArray.createFromBytes(output).toHexString());
+                }
+            });
+
+            runner.test("digest(byte[],int,int,byte[],int) doesn't allocate once warmed up", (Test test) ->
+            {
+                final java.lang.management.ThreadMXBean threadBean = java.lang.management.ManagementFactory.getThreadMXBean();
+                if (threadBean instanceof com.sun.management.ThreadMXBean)
+                {
+                    final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+                    final MessageDigestCache cache = MessageDigestCache.create("SHA-256");
+                    final byte[] values = new byte[64];
+                    final byte[] output = new byte[32];
+                    for (int i = 0; i < 1000; ++i)
+                    {
+                        cache.digest(values, 0, values.length, output, 0);
+                    }
+
+                    final long threadId = Thread.currentThread().getId();
+                    final long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+                    for (int i = 0; i < 10000; ++i)
+                    {
+                        cache.digest(values, 0, values.length, output, 0);
+                    }
+                    final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+                    // A single allocation per call would add up to far more than this.
+                    test.assertTrue(allocated < 10000);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package qub;
+
+public interface MultiHashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(MultiHashFunction.class, () ->
+        {
+            runner.testGroup("create(HashFunction...)", () ->
+            {
+                runner.test("with null hashFunctions", (Test test) ->
+                {
+                    test.assertThrows(() -> MultiHashFunction.create((HashFunction[])null),
+                        new PreConditionFailure("hashFunctions cannot be null."));
+                });
+
+                runner.test("with no hashFunctions", (Test test) ->
+                {
+                    test.assertThrows(() -> MultiHashFunction.create(),
+                        new PreConditionFailure("hashFunctions cannot be empty."));
+                });
+
+                runner.test("with null hashFunction", (Test test) ->
+                {
+                    test.assertThrows(() -> MultiHashFunction.create(XXH64HashFunction.create(), null),
+                        new PreConditionFailure("hashFunctions[1] cannot be null."));
+                });
+
+                runner.test("with valid hashFunctions", (Test test) ->
+                {
+                    try (final MultiHashFunction hashFunction = MultiHashFunction.create(XXH64HashFunction.create(), ChecksumHashFunction.createCRC32()))
+                    {
+                        test.assertEqual(2, hashFunction.getHashFunctionCount());
+                        test.assertFalse(hashFunction.isParallel());
+                        test.assertEqual(12, hashFunction.getDigestLength());
+                        test.assertEqual("EF46DB3751D8E99900000000", hashFunction.takeDigest().toHexString());
+                    }
+                });
+            });
+
+            runner.testGroup("createParallel(int,HashFunction...)", () ->
+            {
+                runner.test("with zero blockSize", (Test test) ->
+                {
+                    test.assertThrows(() -> MultiHashFunction.createParallel(0, XXH64HashFunction.create()),
+                        new PreConditionFailure("blockSize (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final MultiHashFunction hashFunction = MultiHashFunction.createParallel(10, XXH64HashFunction.create(), ChecksumHashFunction.createCRC32()))
+                    {
+                        test.assertEqual(2, hashFunction.getHashFunctionCount());
+                        test.assertTrue(hashFunction.isParallel());
+                        test.assertEqual("EF46DB3751D8E99900000000", hashFunction.takeDigest().toHexString());
+                    }
+                });
+            });
+
+            runner.testGroup("takeDigests()", () ->
+            {
+                final Action2<Boolean,Integer> takeDigestsTest = (Boolean parallel, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(parallel ? "parallel" : "serial", byteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; ++i)
+                        {
+                            bytes[i] = (byte)(i * 13 + 5);
+                        }
+
+                        final String[] expected = new String[3];
+                        try (final HashFunction md5 = HashFunction.createMD5().await();
+                             final HashFunction sha1 = HashFunction.createSHA1().await();
+                             final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            expected[0] = md5.takeDigest(bytes).toHexString();
+                            expected[1] = sha1.takeDigest(bytes).toHexString();
+                            expected[2] = sha256.takeDigest(bytes).toHexString();
+                        }
+
+                        try (final MultiHashFunction hashFunction = MultiHashFunction.createMD5SHA1SHA256(parallel).await())
+                        {
+                            test.assertEqual(parallel, hashFunction.isParallel());
+
+                            hashFunction.addBytes(bytes);
+                            BitArray[] digests = hashFunction.takeDigests();
+                            test.assertEqual(3, digests.length);
+                            for (int i = 0; i < digests.length; ++i)
+                            {
+                                test.assertEqual(expected[i], digests[i].toHexString());
+                            }
+
+                            for (final byte value : bytes)
+                            {
+                                hashFunction.addByte(value);
+                            }
+                            test.assertEqual(expected[0] + expected[1] + expected[2], hashFunction.takeDigest().toHexString());
+
+                            for (int i = 0; i < bytes.length; i += 1000)
+                            {
+                                hashFunction.addBytes(bytes, i, Math.minimum(1000, bytes.length - i));
+                            }
+                            test.assertEqual(expected[0] + expected[1] + expected[2], hashFunction.takeDigest().toHexString());
+
+                            final java.nio.ByteBuffer directBuffer = java.nio.ByteBuffer.allocateDirect(bytes.length);
+                            directBuffer.put(bytes).flip();
+                            hashFunction.addBytes(directBuffer);
+                            test.assertFalse(directBuffer.hasRemaining());
+                            digests = hashFunction.takeDigests();
+                            for (int i = 0; i < digests.length; ++i)
+                            {
+                                test.assertEqual(expected[i], digests[i].toHexString());
+                            }
+                        }
+                    });
+                };
+
+                takeDigestsTest.run(false, 0);
+                takeDigestsTest.run(false, 100);
+                takeDigestsTest.run(false, 200_000);
+                takeDigestsTest.run(true, 0);
+                takeDigestsTest.run(true, 100);
+                takeDigestsTest.run(true, 200_000);
+            });
+
+            runner.test("with inner HashFunction that throws an exception", (Test test) ->
+            {
+                final HashFunction failingHashFunction = HashFunctionPool.create(HashFunction::createMD5).acquire().await();
+                failingHashFunction.dispose().await();
+                try (final MultiHashFunction hashFunction = MultiHashFunction.createParallel(4, XXH64HashFunction.create(), failingHashFunction))
+                {
+                    test.assertThrows(() -> hashFunction.addBytes(new byte[10]),
+                        new PreConditionFailure("this.isDisposed() cannot be true."));
+                }
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final XXH64HashFunction innerHashFunction = XXH64HashFunction.create();
+                final MultiHashFunction hashFunction = MultiHashFunction.createParallel(innerHashFunction);
+                test.assertTrue(hashFunction.dispose().await());
+                test.assertTrue(hashFunction.isDisposed());
+                test.assertTrue(innerHashFunction.isDisposed());
+                test.assertFalse(hashFunction.dispose().await());
+            });
+
+            HashFunctionTests.test(runner, () -> MultiHashFunction.create(XXH64HashFunction.create(), ChecksumHashFunction.createCRC32C()));
+            HashFunctionTests.test(runner, () -> MultiHashFunction.createParallel(16, XXH64HashFunction.create(), ChecksumHashFunction.createCRC32C()));
+        });
+    }
+}
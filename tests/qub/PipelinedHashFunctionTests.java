@@ -0,0 +1,140 @@
+package qub;
+
+public interface PipelinedHashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(PipelinedHashFunction.class, () ->
+        {
+            runner.testGroup("create(HashFunction,int,int)", () ->
+            {
+                runner.test("with null innerHashFunction", (Test test) ->
+                {
+                    test.assertThrows(() -> PipelinedHashFunction.create(null, 10, 2),
+                        new PreConditionFailure("innerHashFunction cannot be null."));
+                });
+
+                runner.test("with zero blockSize", (Test test) ->
+                {
+                    test.assertThrows(() -> PipelinedHashFunction.create(XXH64HashFunction.create(), 0, 2),
+                        new PreConditionFailure("blockSize (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with zero blockCount", (Test test) ->
+                {
+                    test.assertThrows(() -> PipelinedHashFunction.create(XXH64HashFunction.create(), 10, 0),
+                        new PreConditionFailure("blockCount (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final PipelinedHashFunction hashFunction = PipelinedHashFunction.create(XXH64HashFunction.create(), 10, 2))
+                    {
+                        test.assertEqual(10, hashFunction.getBlockSize());
+                        test.assertEqual(2, hashFunction.getBlockCount());
+                        test.assertEqual(8, hashFunction.getDigestLength());
+                        test.assertEqual("EF46DB3751D8E999", hashFunction.takeDigest().toHexString());
+                    }
+                });
+            });
+
+            runner.test("create(HashFunction)", (Test test) ->
+            {
+                try (final PipelinedHashFunction hashFunction = PipelinedHashFunction.create(HashFunction.createSHA256().await()))
+                {
+                    test.assertEqual(PipelinedHashFunction.defaultBlockSize, hashFunction.getBlockSize());
+                    test.assertEqual(PipelinedHashFunction.defaultBlockCount, hashFunction.getBlockCount());
+                    test.assertEqual("039058C6F2C0CB492C533B0A4D14EF77CC0F78ABCCCED5287D84A1A2011CFB81", hashFunction.takeDigest(new byte[] { 1, 2, 3 }).toHexString());
+                }
+            });
+
+            runner.testGroup("takeDigest()", () ->
+            {
+                final Action3<Integer,Integer,Integer> takeDigestTest = (Integer blockSize, Integer blockCount, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(blockSize, blockCount, byteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; ++i)
+                        {
+                            bytes[i] = (byte)(i * 17 + 3);
+                        }
+
+                        final BitArray expected;
+                        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+                        {
+                            expected = sha256.takeDigest(bytes);
+                        }
+
+                        try (final PipelinedHashFunction hashFunction = PipelinedHashFunction.create(HashFunction.createSHA256().await(), blockSize, blockCount))
+                        {
+                            test.assertEqual(expected, hashFunction.takeDigest(bytes));
+
+                            for (final byte value : bytes)
+                            {
+                                hashFunction.addByte(value);
+                            }
+                            test.assertEqual(expected, hashFunction.takeDigest());
+
+                            for (int i = 0; i < bytes.length; i += 23)
+                            {
+                                hashFunction.addBytes(bytes, i, Math.minimum(23, bytes.length - i));
+                            }
+                            test.assertEqual(expected, hashFunction.takeDigest());
+
+                            final java.nio.ByteBuffer directBuffer = java.nio.ByteBuffer.allocateDirect(bytes.length);
+                            directBuffer.put(bytes).flip();
+                            test.assertEqual(expected, hashFunction.takeDigest(directBuffer));
+                            test.assertFalse(directBuffer.hasRemaining());
+                        }
+                    });
+                };
+
+                takeDigestTest.run(1, 1, 0);
+                takeDigestTest.run(1, 1, 10);
+                takeDigestTest.run(10, 1, 100);
+                takeDigestTest.run(10, 3, 105);
+                takeDigestTest.run(4096, 4, 1_000_000);
+            });
+
+            runner.test("with inner HashFunction that throws an exception", (Test test) ->
+            {
+                final HashFunction innerHashFunction = HashFunctionPool.create(HashFunction::createMD5).acquire().await();
+                innerHashFunction.dispose().await();
+                try (final PipelinedHashFunction hashFunction = PipelinedHashFunction.create(innerHashFunction, 16, 2))
+                {
+                    hashFunction.addBytes(new byte[10]);
+                    test.assertThrows(() -> hashFunction.takeDigest(),
+                        new PreConditionFailure("this.isDisposed() cannot be true."));
+                    test.assertThrows(() -> hashFunction.addBytes(new byte[10]),
+                        new PreConditionFailure("this.isDisposed() cannot be true."));
+
+                    hashFunction.reset();
+                }
+            });
+
+            runner.test("reset()", (Test test) ->
+            {
+                try (final PipelinedHashFunction hashFunction = PipelinedHashFunction.create(XXH64HashFunction.create(), 4, 2))
+                {
+                    hashFunction.addBytes(new byte[25]);
+                    hashFunction.reset();
+                    test.assertEqual("EF46DB3751D8E999", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final XXH64HashFunction innerHashFunction = XXH64HashFunction.create();
+                final PipelinedHashFunction hashFunction = PipelinedHashFunction.create(innerHashFunction, 4, 2);
+                hashFunction.addBytes(new byte[25]);
+                test.assertTrue(hashFunction.dispose().await());
+                test.assertTrue(hashFunction.isDisposed());
+                test.assertTrue(innerHashFunction.isDisposed());
+                test.assertFalse(hashFunction.dispose().await());
+            });
+
+            HashFunctionTests.test(runner, () -> PipelinedHashFunction.create(HashFunction.createMD5().await(), 16, 2));
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package qub;
+
+public interface RendezvousHashRouterTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(RendezvousHashRouter.class, () ->
+        {
+            runner.test("removeNode(T) with a middle node only moves that node's keys", (Test test) ->
+            {
+                final ShardRouter<String> router = ShardRouterTests.createRouter(RendezvousHashRouter::create, 10);
+                final String[] before = ShardRouterTests.route(router);
+
+                test.assertTrue(router.removeNode("node4"));
+                final String[] after = ShardRouterTests.route(router);
+
+                for (int i = 0; i < ShardRouterTests.keyCount; ++i)
+                {
+                    if (!before[i].equals("node4"))
+                    {
+                        test.assertEqual(before[i], after[i]);
+                    }
+                    test.assertNotEqual("node4", after[i]);
+                }
+            });
+
+            runner.test("getNode(byte[]) doesn't depend on the order that nodes were added in", (Test test) ->
+            {
+                final ShardRouter<String> router = ShardRouterTests.createRouter(RendezvousHashRouter::create, 5);
+                final RendezvousHashRouter<String> otherRouter = RendezvousHashRouter.create();
+                for (int i = 4; i >= 0; --i)
+                {
+                    otherRouter.addNode("node" + i);
+                }
+                test.assertEqual(java.util.Arrays.asList(ShardRouterTests.route(router)), java.util.Arrays.asList(ShardRouterTests.route(otherRouter)));
+            });
+
+            ShardRouterTests.test(runner, RendezvousHashRouter::create);
+        });
+    }
+}
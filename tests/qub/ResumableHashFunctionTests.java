@@ -0,0 +1,128 @@
+package qub;
+
+public interface ResumableHashFunctionTests
+{
+    public static void test(TestRunner runner, Function0<? extends ResumableHashFunction> creator)
+    {
+        runner.testGroup(ResumableHashFunction.class, () ->
+        {
+            runner.testGroup("takeDigest(byte[])", () ->
+            {
+                final Action1<Integer> takeDigestTest = (Integer byteCount) ->
+                {
+                    runner.test("with " + byteCount + " bytes", (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; ++i)
+                        {
+                            bytes[i] = (byte)(i * 29 + 11);
+                        }
+
+                        try (final ResumableHashFunction hashFunction = creator.run();
+                             final JavaMessageDigestHashFunction expectedHashFunction = JavaMessageDigestHashFunction.create(hashFunction.getAlgorithm()).await())
+                        {
+                            final BitArray expected = expectedHashFunction.takeDigest(bytes);
+                            test.assertEqual(expected, hashFunction.takeDigest(bytes));
+
+                            for (final byte value : bytes)
+                            {
+                                hashFunction.addByte(value);
+                            }
+                            test.assertEqual((long)byteCount, hashFunction.getByteCount());
+                            test.assertEqual(expected, hashFunction.takeDigest());
+                            test.assertEqual(0L, hashFunction.getByteCount());
+
+                            for (int i = 0; i < bytes.length; i += 19)
+                            {
+                                hashFunction.addBytes(bytes, i, Math.minimum(19, bytes.length - i));
+                            }
+                            test.assertEqual(expected, hashFunction.takeDigest());
+                        }
+                    });
+                };
+
+                for (int byteCount = 0; byteCount <= 130; ++byteCount)
+                {
+                    takeDigestTest.run(byteCount);
+                }
+                takeDigestTest.run(1000);
+                takeDigestTest.run(100_000);
+            });
+
+            runner.testGroup("exportState()", () ->
+            {
+                final Action1<Integer> exportStateTest = (Integer byteCount) ->
+                {
+                    runner.test("with " + byteCount + " bytes", (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount * 2];
+                        for (int i = 0; i < bytes.length; ++i)
+                        {
+                            bytes[i] = (byte)(i * 7 + 1);
+                        }
+
+                        try (final ResumableHashFunction first = creator.run();
+                             final ResumableHashFunction second = creator.run())
+                        {
+                            final BitArray expected = first.takeDigest(bytes);
+
+                            first.addBytes(bytes, 0, byteCount);
+                            final byte[] state = first.exportState();
+                            test.assertEqual(1 + 8 + first.getDigestLength() + (byteCount % 64), state.length);
+                            test.assertEqual((long)byteCount, first.getByteCount());
+
+                            second.restoreState(state);
+                            test.assertEqual((long)byteCount, second.getByteCount());
+                            second.addBytes(bytes, byteCount, byteCount);
+                            test.assertEqual(expected, second.takeDigest());
+
+                            first.addBytes(bytes, byteCount, byteCount);
+                            test.assertEqual(expected, first.takeDigest());
+                        }
+                    });
+                };
+
+                exportStateTest.run(0);
+                exportStateTest.run(1);
+                exportStateTest.run(63);
+                exportStateTest.run(64);
+                exportStateTest.run(65);
+                exportStateTest.run(1000);
+            });
+
+            runner.testGroup("restoreState(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    try (final ResumableHashFunction hashFunction = creator.run())
+                    {
+                        test.assertThrows(() -> hashFunction.restoreState(null),
+                            new PreConditionFailure("state cannot be null."));
+                    }
+                });
+
+                runner.test("with state that is too short", (Test test) ->
+                {
+                    try (final ResumableHashFunction hashFunction = creator.run())
+                    {
+                        final int minimumLength = 1 + 8 + hashFunction.getDigestLength();
+                        test.assertThrows(() -> hashFunction.restoreState(new byte[3]),
+                            new PreConditionFailure("state.length (3) must be greater than or equal to " + minimumLength + "."));
+                    }
+                });
+
+                runner.test("with state from a different algorithm", (Test test) ->
+                {
+                    try (final ResumableHashFunction hashFunction = creator.run())
+                    {
+                        final byte[] state = hashFunction.exportState();
+                        final byte expectedStateId = state[0];
+                        state[0] = (byte)(expectedStateId + 10);
+                        test.assertThrows(() -> hashFunction.restoreState(state),
+                            new PreConditionFailure("state[0] (" + state[0] + ") must be " + expectedStateId + "."));
+                    }
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package qub;
+
+public interface SHA1HashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(SHA1HashFunction.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                try (final SHA1HashFunction hashFunction = SHA1HashFunction.create())
+                {
+                    test.assertEqual("SHA-1", hashFunction.getAlgorithm());
+                    test.assertEqual(0L, hashFunction.getByteCount());
+                    test.assertEqual("DA39A3EE5E6B4B0D3255BFEF95601890AFD80709", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.testGroup("takeDigest(byte[])", () ->
+            {
+                final Action2<String,String> takeDigestTest = (String text, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        try (final SHA1HashFunction hashFunction = SHA1HashFunction.create())
+                        {
+                            test.assertEqual(expected, hashFunction.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters(text).await()).toHexString());
+                        }
+                    });
+                };
+
+                takeDigestTest.run("", "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709");
+                takeDigestTest.run("abc", "A9993E364706816ABA3E25717850C26C9CD0D89D");
+                takeDigestTest.run("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq", "84983E441C3BD26EBAAE4AA1F95129E5E54670F1");
+            });
+
+            ResumableHashFunctionTests.test(runner, SHA1HashFunction::create);
+            HashFunctionTests.test(runner, SHA1HashFunction::create);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package qub;
+
+public interface SHA256HashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(SHA256HashFunction.class, () ->
+        {
+            runner.test("create()", (Test test) ->
+            {
+                try (final SHA256HashFunction hashFunction = SHA256HashFunction.create())
+                {
+                    test.assertEqual("SHA-256", hashFunction.getAlgorithm());
+                    test.assertEqual(0L, hashFunction.getByteCount());
+                    test.assertEqual("E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.testGroup("takeDigest(byte[])", () ->
+            {
+                final Action2<String,String> takeDigestTest = (String text, String expected) ->
+                {
+                    runner.test("with " + Strings.escapeAndQuote(text), (Test test) ->
+                    {
+                        try (final SHA256HashFunction hashFunction = SHA256HashFunction.create())
+                        {
+                            test.assertEqual(expected, hashFunction.takeDigest(CharacterEncoding.US_ASCII.encodeCharacters(text).await()).toHexString());
+                        }
+                    });
+                };
+
+                takeDigestTest.run("", "E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855");
+                takeDigestTest.run("abc", "BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD");
+                takeDigestTest.run("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq", "248D6A61D20638B8E5C026930C3E6039A33CE45964FF2167F6ECEDD419DB06C1");
+            });
+
+            ResumableHashFunctionTests.test(runner, SHA256HashFunction::create);
+            HashFunctionTests.test(runner, SHA256HashFunction::create);
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package qub;
+
+public interface ShardRouterTests
+{
+    public static void test(TestRunner runner, Function0<? extends ShardRouter<String>> creator)
+    {
+        runner.testGroup(ShardRouter.class, () ->
+        {
+            runner.test("with no nodes", (Test test) ->
+            {
+                final ShardRouter<String> router = creator.run();
+                test.assertEqual(0, router.getNodeCount());
+                test.assertEqual(java.util.List.of(), router.getNodes());
+                test.assertNull(router.getNode(new byte[] { 1, 2, 3 }));
+                test.assertNull(router.getNode(5L));
+            });
+
+            runner.testGroup("addNode(T)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final ShardRouter<String> router = creator.run();
+                    test.assertThrows(() -> router.addNode(null),
+                        new PreConditionFailure("node cannot be null."));
+                });
+
+                runner.test("with new and existing nodes", (Test test) ->
+                {
+                    final ShardRouter<String> router = creator.run();
+                    test.assertTrue(router.addNode("a"));
+                    test.assertTrue(router.addNode("b"));
+                    test.assertFalse(router.addNode("a"));
+                    test.assertEqual(2, router.getNodeCount());
+                    test.assertEqual(java.util.List.of("a", "b"), router.getNodes());
+                });
+
+                runner.test("with one node", (Test test) ->
+                {
+                    final ShardRouter<String> router = creator.run();
+                    router.addNode("only");
+                    for (int i = 0; i < 100; ++i)
+                    {
+                        test.assertEqual("only", router.getNode(ShardRouterTests.getKey(i)));
+                    }
+                });
+
+                runner.test("only moves keys to the new node", (Test test) ->
+                {
+                    final ShardRouter<String> router = ShardRouterTests.createRouter(creator, 10);
+                    final String[] before = ShardRouterTests.route(router);
+
+                    router.addNode("node10");
+                    final String[] after = ShardRouterTests.route(router);
+
+                    int movedKeyCount = 0;
+                    for (int i = 0; i < ShardRouterTests.keyCount; ++i)
+                    {
+                        if (!before[i].equals(after[i]))
+                        {
+                            test.assertEqual("node10", after[i]);
+                            ++movedKeyCount;
+                        }
+                    }
+                    test.assertTrue(movedKeyCount > 0);
+                    test.assertTrue(movedKeyCount < 2 * ShardRouterTests.keyCount / 11);
+                });
+            });
+
+            runner.testGroup("removeNode(T)", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final ShardRouter<String> router = creator.run();
+                    test.assertThrows(() -> router.removeNode(null),
+                        new PreConditionFailure("node cannot be null."));
+                });
+
+                runner.test("with unknown node", (Test test) ->
+                {
+                    final ShardRouter<String> router = ShardRouterTests.createRouter(creator, 2);
+                    test.assertFalse(router.removeNode("node2"));
+                    test.assertEqual(2, router.getNodeCount());
+                });
+
+                runner.test("with last node", (Test test) ->
+                {
+                    final ShardRouter<String> router = ShardRouterTests.createRouter(creator, 10);
+                    final String[] before = ShardRouterTests.route(router);
+
+                    test.assertTrue(router.removeNode("node9"));
+                    test.assertEqual(9, router.getNodeCount());
+                    final String[] after = ShardRouterTests.route(router);
+
+                    for (int i = 0; i < ShardRouterTests.keyCount; ++i)
+                    {
+                        if (!before[i].equals("node9"))
+                        {
+                            test.assertEqual(before[i], after[i]);
+                        }
+                        test.assertNotEqual("node9", after[i]);
+                    }
+                });
+
+                runner.test("with all nodes", (Test test) ->
+                {
+                    final ShardRouter<String> router = ShardRouterTests.createRouter(creator, 3);
+                    test.assertTrue(router.removeNode("node1"));
+                    test.assertTrue(router.removeNode("node0"));
+                    test.assertTrue(router.removeNode("node2"));
+                    test.assertEqual(0, router.getNodeCount());
+                    test.assertNull(router.getNode(new byte[] { 1 }));
+                });
+            });
+
+            runner.testGroup("getNode(byte[])", () ->
+            {
+                runner.test("with null", (Test test) ->
+                {
+                    final ShardRouter<String> router = creator.run();
+                    test.assertThrows(() -> router.getNode((byte[])null),
+                        new PreConditionFailure("key cannot be null."));
+                });
+
+                runner.test("spreads keys evenly", (Test test) ->
+                {
+                    final ShardRouter<String> router = ShardRouterTests.createRouter(creator, 10);
+                    final java.util.Map<String,Integer> keyCounts = new java.util.HashMap<>();
+                    for (final String node : ShardRouterTests.route(router))
+                    {
+                        keyCounts.merge(node, 1, Integer::sum);
+                    }
+
+                    test.assertEqual(10, keyCounts.size());
+                    final int expectedKeyCount = ShardRouterTests.keyCount / 10;
+                    for (final int keyCount : keyCounts.values())
+                    {
+                        test.assertTrue(keyCount > expectedKeyCount / 2);
+                        test.assertTrue(keyCount < expectedKeyCount * 3 / 2);
+                    }
+                });
+            });
+
+            runner.test("getNode(byte[],int,int)", (Test test) ->
+            {
+                final ShardRouter<String> router = ShardRouterTests.createRouter(creator, 7);
+                final byte[] key = ShardRouterTests.getKey(12345);
+                final byte[] paddedKey = new byte[key.length + 4];
+                System.arraycopy(key, 0, paddedKey, 2, key.length);
+                test.assertEqual(router.getNode(key), router.getNode(paddedKey, 2, key.length));
+                test.assertEqual(router.getNode(key), router.getNode(ShardRouter.hashKey(key, 0, key.length)));
+            });
+        });
+    }
+
+    static final int keyCount = 20000;
+
+    static byte[] getKey(int index)
+    {
+        return ("key" + index).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    static ShardRouter<String> createRouter(Function0<? extends ShardRouter<String>> creator, int nodeCount)
+    {
+        final ShardRouter<String> result = creator.run();
+        for (int i = 0; i < nodeCount; ++i)
+        {
+            result.addNode("node" + i);
+        }
+        return result;
+    }
+
+    static String[] route(ShardRouter<String> router)
+    {
+        final String[] result = new String[ShardRouterTests.keyCount];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = router.getNode(ShardRouterTests.getKey(i));
+        }
+        return result;
+    }
+}
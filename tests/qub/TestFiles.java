@@ -0,0 +1,46 @@
+package qub;
+
+/**
+ * Helper functions for tests that need real files on disk.
+ */
+public interface TestFiles
+{
+    /**
+     * Create a new temporary file that contains the provided bytes.
+     * @param contents The contents of the new file.
+     * @return The path to the new file.
+     */
+    public static java.nio.file.Path create(byte[] contents)
+    {
+        PreCondition.assertNotNull(contents, "contents");
+
+        try
+        {
+            final java.nio.file.Path result = java.nio.file.Files.createTempFile("hash-java", ".bin");
+            java.nio.file.Files.write(result, contents);
+            return result;
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+
+    /**
+     * Delete the file at the provided path if it exists.
+     * @param filePath The path to the file to delete.
+     */
+    public static void delete(java.nio.file.Path filePath)
+    {
+        PreCondition.assertNotNull(filePath, "filePath");
+
+        try
+        {
+            java.nio.file.Files.deleteIfExists(filePath);
+        }
+        catch (java.io.IOException e)
+        {
+            throw Exceptions.asRuntime(e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package qub;
+
+public interface TreeHashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(TreeHashFunction.class, () ->
+        {
+            runner.testGroup("create(Function0<Result<? extends HashFunction>>,int,java.util.concurrent.ForkJoinPool)", () ->
+            {
+                runner.test("with null leafHashFunctionCreator", (Test test) ->
+                {
+                    test.assertThrows(() -> TreeHashFunction.create(null, 10, java.util.concurrent.ForkJoinPool.commonPool()),
+                        new PreConditionFailure("leafHashFunctionCreator cannot be null."));
+                });
+
+                runner.test("with zero leafSize", (Test test) ->
+                {
+                    test.assertThrows(() -> TreeHashFunction.create(HashFunction::createSHA256, 0, java.util.concurrent.ForkJoinPool.commonPool()),
+                        new PreConditionFailure("leafSize (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with null pool", (Test test) ->
+                {
+                    test.assertThrows(() -> TreeHashFunction.create(HashFunction::createSHA256, 10, null),
+                        new PreConditionFailure("pool cannot be null."));
+                });
+
+                runner.test("with leafHashFunctionCreator that throws an exception", (Test test) ->
+                {
+                    test.assertThrows(() -> TreeHashFunction.create(() -> Result.error(new NotFoundException("blah")), 10, java.util.concurrent.ForkJoinPool.commonPool()).await(),
+                        new NotFoundException("blah"));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    try (final TreeHashFunction hashFunction = TreeHashFunction.create(HashFunction::createSHA256, 10, java.util.concurrent.ForkJoinPool.commonPool()).await())
+                    {
+                        test.assertNotNull(hashFunction);
+                        test.assertEqual(10, hashFunction.getLeafSize());
+                        test.assertFalse(hashFunction.isDisposed());
+                    }
+                });
+            });
+
+            runner.test("createSHA256()", (Test test) ->
+            {
+                try (final TreeHashFunction hashFunction = TreeHashFunction.createSHA256().await())
+                {
+                    test.assertEqual(TreeHashFunction.defaultLeafSize, hashFunction.getLeafSize());
+                    test.assertEqual("6E340B9CFFB37A989CA544E6BB780A2C78901D3FB33738768511A30617AFA01D", hashFunction.takeDigest().toHexString());
+                    test.assertEqual("054EDEC1D0211F624FED0CBCA9D4F9400B0E491C43742AF2C5B0ABEBF0C990D8", hashFunction.takeDigest(new byte[] { 1, 2, 3 }).toHexString());
+                }
+            });
+
+            runner.testGroup("takeDigest()", () ->
+            {
+                final Action2<Integer,Integer> takeDigestTest = (Integer leafSize, Integer byteCount) ->
+                {
+                    runner.test("with " + English.andList(leafSize, byteCount), (Test test) ->
+                    {
+                        final byte[] bytes = new byte[byteCount];
+                        for (int i = 0; i < bytes.length; i++)
+                        {
+                            bytes[i] = (byte)(i * 7 + 3);
+                        }
+                        final BitArray expected = TreeHashFunctionTests.referenceDigest(bytes, leafSize);
+
+                        try (final TreeHashFunction hashFunction = TreeHashFunction.create(HashFunction::createSHA256, leafSize).await())
+                        {
+                            test.assertEqual(expected, hashFunction.takeDigest(bytes));
+
+                            for (final byte value : bytes)
+                            {
+                                hashFunction.addByte(value);
+                            }
+                            test.assertEqual(expected, hashFunction.takeDigest());
+
+                            for (int i = 0; i < bytes.length; i += 7)
+                            {
+                                hashFunction.addBytes(bytes, i, Math.minimum(7, bytes.length - i));
+                            }
+                            test.assertEqual(expected, hashFunction.takeDigest());
+
+                            final java.nio.ByteBuffer directBuffer = java.nio.ByteBuffer.allocateDirect(bytes.length);
+                            directBuffer.put(bytes).flip();
+                            test.assertEqual(expected, hashFunction.takeDigest(directBuffer));
+
+                            final java.nio.file.Path filePath = TestFiles.create(bytes);
+                            try
+                            {
+                                test.assertEqual(expected, HashFunction.hashFile(filePath, hashFunction).await());
+                            }
+                            finally
+                            {
+                                TestFiles.delete(filePath);
+                            }
+                        }
+                    });
+                };
+
+                takeDigestTest.run(10, 0);
+                takeDigestTest.run(10, 1);
+                takeDigestTest.run(10, 10);
+                takeDigestTest.run(10, 11);
+                takeDigestTest.run(10, 20);
+                takeDigestTest.run(10, 35);
+                takeDigestTest.run(64, 1000);
+                takeDigestTest.run(4096, 300_000);
+            });
+
+            runner.test("addBytes(byte[]) with many leaves from a reused array", (Test test) ->
+            {
+                final int leafSize = 64;
+                final byte[] values = new byte[100];
+                final byte[] bytes = new byte[values.length * 3000];
+                try (final TreeHashFunction hashFunction = TreeHashFunction.create(HashFunction::createSHA256, leafSize).await())
+                {
+                    for (int i = 0; i < bytes.length; i += values.length)
+                    {
+                        for (int j = 0; j < values.length; j++)
+                        {
+                            values[j] = (byte)((i + j) * 7 + 3);
+                        }
+                        System.arraycopy(values, 0, bytes, i, values.length);
+                        hashFunction.addBytes(values);
+                    }
+                    final BitArray expected = TreeHashFunctionTests.referenceDigest(bytes, leafSize);
+                    test.assertEqual(expected, hashFunction.peekDigest());
+                    test.assertEqual(expected, hashFunction.takeDigest());
+
+                    hashFunction.addBytes(values);
+                    test.assertEqual(TreeHashFunctionTests.referenceDigest(values, leafSize), hashFunction.takeDigest());
+                }
+            });
+
+            runner.test("reset()", (Test test) ->
+            {
+                try (final TreeHashFunction hashFunction = TreeHashFunction.create(HashFunction::createSHA256, 10).await())
+                {
+                    hashFunction.addBytes(new byte[25]);
+                    hashFunction.reset();
+                    test.assertEqual(TreeHashFunctionTests.referenceDigest(new byte[0], 10), hashFunction.takeDigest());
+                }
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final TreeHashFunction hashFunction = TreeHashFunction.create(HashFunction::createSHA256, 10).await();
+                test.assertTrue(hashFunction.dispose().await());
+                test.assertTrue(hashFunction.isDisposed());
+                test.assertFalse(hashFunction.dispose().await());
+                test.assertTrue(hashFunction.isDisposed());
+            });
+
+            HashFunctionTests.test(runner, () -> TreeHashFunction.create(HashFunction::createSHA256, 10).await());
+        });
+    }
+
+    /**
+     * Compute the expected digest of a {@link TreeHashFunction} by hashing each level of the tree
+     * sequentially.
+     */
+    static BitArray referenceDigest(byte[] bytes, int leafSize)
+    {
+        try (final HashFunction sha256 = HashFunction.createSHA256().await())
+        {
+            final java.util.List<byte[]> level = new java.util.ArrayList<>();
+            int startIndex = 0;
+            do
+            {
+                final int length = Math.minimum(leafSize, bytes.length - startIndex);
+                sha256.addByte((byte)0);
+                sha256.addBytes(bytes, startIndex, length);
+                level.add(sha256.takeDigest().toByteArray());
+                startIndex += length;
+            }
+            while (startIndex < bytes.length);
+
+            while (level.size() > 1)
+            {
+                final java.util.List<byte[]> nextLevel = new java.util.ArrayList<>();
+                for (int i = 0; i < level.size(); i += 2)
+                {
+                    if (i + 1 == level.size())
+                    {
+                        nextLevel.add(level.get(i));
+                    }
+                    else
+                    {
+                        sha256.addByte((byte)1);
+                        sha256.addBytes(level.get(i));
+                        sha256.addBytes(level.get(i + 1));
+                        nextLevel.add(sha256.takeDigest().toByteArray());
+                    }
+                }
+                level.clear();
+                level.addAll(nextLevel);
+            }
+
+            return BitArray.createFromBytes(level.get(0));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package qub;
+
+public interface VerifyingByteReadStreamTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(VerifyingByteReadStream.class, () ->
+        {
+            runner.testGroup("create(ByteReadStream,DigestManifest,Function0<Result<? extends HashFunction>>,ForkJoinPool,int)", () ->
+            {
+                runner.test("with null innerStream", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(new byte[10], 4).await();
+                    test.assertThrows(() -> VerifyingByteReadStream.create(null, manifest, HashFunction::createSHA256, java.util.concurrent.ForkJoinPool.commonPool(), 4),
+                        new PreConditionFailure("innerStream cannot be null."));
+                });
+
+                runner.test("with null manifest", (Test test) ->
+                {
+                    test.assertThrows(() -> VerifyingByteReadStream.create(InMemoryByteStream.create(), null, HashFunction::createSHA256, java.util.concurrent.ForkJoinPool.commonPool(), 4),
+                        new PreConditionFailure("manifest cannot be null."));
+                });
+
+                runner.test("with 0 maximumInFlightChunks", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(new byte[10], 4).await();
+                    test.assertThrows(() -> VerifyingByteReadStream.create(InMemoryByteStream.create(), manifest, HashFunction::createSHA256, java.util.concurrent.ForkJoinPool.commonPool(), 0),
+                        new PreConditionFailure("maximumInFlightChunks (0) must be greater than or equal to 1."));
+                });
+
+                runner.test("with a hash function with the wrong digest length", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(new byte[10], 4).await();
+                    test.assertThrows(() -> VerifyingByteReadStream.create(InMemoryByteStream.create(), manifest, HashFunction::createMD5, java.util.concurrent.ForkJoinPool.commonPool(), 4).await(),
+                        new PreConditionFailure("hashFunction.getDigestLength() (16) must be 32."));
+                });
+
+                runner.test("with valid arguments", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(new byte[10], 4).await();
+                    try (final VerifyingByteReadStream stream = VerifyingByteReadStream.create(InMemoryByteStream.create(), manifest, HashFunction::createSHA256, java.util.concurrent.ForkJoinPool.commonPool(), 4).await())
+                    {
+                        test.assertSame(manifest, stream.getManifest());
+                        test.assertEqual(4, stream.getMaximumInFlightChunks());
+                        test.assertEqual(0L, stream.getBytesRead());
+                        test.assertFalse(stream.isDisposed());
+                    }
+                });
+            });
+
+            runner.testGroup("readBytes(byte[],int,int)", () ->
+            {
+                final Action3<Integer,Integer,Integer> readBytesTest = (Integer chunkSize, Integer byteCount, Integer readSize) ->
+                {
+                    runner.test("with a matching stream of " + byteCount + " bytes in " + chunkSize + "-byte chunks and " + readSize + "-byte reads", (Test test) ->
+                    {
+                        final byte[] data = MerkleTreeTests.getData(byteCount);
+                        final DigestManifest manifest = DigestManifest.createSHA256(data, chunkSize).await();
+                        try (final VerifyingByteReadStream stream = VerifyingByteReadStream.createSHA256(InMemoryByteStream.create(data).endOfStream(), manifest).await())
+                        {
+                            test.assertEqual(BitArray.createFromBytes(data), BitArray.createFromBytes(VerifyingByteReadStreamTests.readAll(stream, readSize)));
+                            test.assertEqual((long)byteCount, stream.getBytesRead());
+                            test.assertThrows(() -> stream.readBytes(new byte[1], 0, 1).await(), new EmptyException());
+                            stream.awaitVerification().await();
+                            test.assertEqual(java.util.List.of(), stream.getMismatchedRanges());
+                        }
+                    });
+                };
+
+                readBytesTest.run(10, 0, 7);
+                readBytesTest.run(10, 10, 10);
+                readBytesTest.run(10, 95, 7);
+                readBytesTest.run(10, 95, 100);
+                readBytesTest.run(64, 100000, 1000);
+                readBytesTest.run(4096, 1000000, 65536);
+
+                runner.test("with a mismatched chunk", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(100000);
+                    final DigestManifest manifest = DigestManifest.createSHA256(data, 1000).await();
+                    DigestManifestTests.changeByte(data, 12345);
+                    try (final VerifyingByteReadStream stream = VerifyingByteReadStream.create(InMemoryByteStream.create(data).endOfStream(), manifest, HashFunction::createSHA256, java.util.concurrent.ForkJoinPool.commonPool(), 2).await())
+                    {
+                        test.assertThrows(() -> VerifyingByteReadStreamTests.readAll(stream, 500),
+                            new ChunkDigestMismatchException(12, 12000, 1000));
+                        test.assertTrue(stream.getBytesRead() < data.length);
+                        test.assertEqual(java.util.List.of(ChunkRange.create(12000, 1000)), stream.getMismatchedRanges());
+                        test.assertThrows(() -> stream.readBytes(new byte[10], 0, 10).await(),
+                            new ChunkDigestMismatchException(12, 12000, 1000));
+                    }
+                });
+
+                runner.test("with an inner stream that ends early", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(1000);
+                    final DigestManifest manifest = DigestManifest.createSHA256(data, 100).await();
+                    try (final VerifyingByteReadStream stream = VerifyingByteReadStream.createSHA256(InMemoryByteStream.create(java.util.Arrays.copyOf(data, 650)).endOfStream(), manifest).await())
+                    {
+                        test.assertThrows(() -> VerifyingByteReadStreamTests.readAll(stream, 64),
+                            new ChunkDigestMismatchException(6, 600, 100));
+                        test.assertEqual(650L, stream.getBytesRead());
+                        test.assertEqual(java.util.List.of(ChunkRange.create(600, 400)), stream.getMismatchedRanges());
+                    }
+                });
+
+                runner.test("with an inner stream that is longer than the manifest", (Test test) ->
+                {
+                    final DigestManifest manifest = DigestManifest.createSHA256(MerkleTreeTests.getData(100), 10).await();
+                    try (final VerifyingByteReadStream stream = VerifyingByteReadStream.createSHA256(InMemoryByteStream.create(MerkleTreeTests.getData(101)).endOfStream(), manifest).await())
+                    {
+                        final byte[] buffer = new byte[101];
+                        test.assertEqual(100, stream.readBytes(buffer, 0, 100).await());
+                        test.assertThrows(() -> stream.readBytes(buffer, 100, 1).await(),
+                            new java.io.IOException("The stream is longer than the 100 bytes in the digest manifest."));
+                    }
+                });
+            });
+
+            runner.testGroup("readByte()", () ->
+            {
+                runner.test("with a matching stream", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(250);
+                    final DigestManifest manifest = DigestManifest.createSHA256(data, 16).await();
+                    try (final VerifyingByteReadStream stream = VerifyingByteReadStream.createSHA256(InMemoryByteStream.create(data).endOfStream(), manifest).await())
+                    {
+                        for (final byte value : data)
+                        {
+                            test.assertEqual(value, stream.readByte().await());
+                        }
+                        test.assertThrows(() -> stream.readByte().await(), new EmptyException());
+                    }
+                });
+
+                runner.test("with a mismatched last chunk", (Test test) ->
+                {
+                    final byte[] data = MerkleTreeTests.getData(250);
+                    final DigestManifest manifest = DigestManifest.createSHA256(data, 16).await();
+                    DigestManifestTests.changeByte(data, 249);
+                    try (final VerifyingByteReadStream stream = VerifyingByteReadStream.createSHA256(InMemoryByteStream.create(data).endOfStream(), manifest).await())
+                    {
+                        for (int i = 0; i < data.length; ++i)
+                        {
+                            stream.readByte().await();
+                        }
+                        test.assertThrows(() -> stream.readByte().await(),
+                            new ChunkDigestMismatchException(15, 240, 10));
+                    }
+                });
+            });
+
+            runner.test("dispose()", (Test test) ->
+            {
+                final InMemoryByteStream innerStream = InMemoryByteStream.create(new byte[10]).endOfStream();
+                final VerifyingByteReadStream stream = VerifyingByteReadStream.createSHA256(innerStream, DigestManifest.createSHA256(new byte[10], 4).await()).await();
+                test.assertTrue(stream.dispose().await());
+                test.assertTrue(stream.isDisposed());
+                test.assertTrue(innerStream.isDisposed());
+                test.assertFalse(stream.dispose().await());
+                test.assertThrows(() -> stream.readByte(),
+                    new PreConditionFailure("this.isDisposed() cannot be true."));
+            });
+        });
+    }
+
+    /**
+     * Read from the provided stream until it ends.
+     */
+    static byte[] readAll(VerifyingByteReadStream stream, int readSize)
+    {
+        final java.io.ByteArrayOutputStream result = new java.io.ByteArrayOutputStream();
+        final byte[] buffer = new byte[readSize];
+        while (true)
+        {
+            final int bytesRead;
+            try
+            {
+                bytesRead = stream.readBytes(buffer, 0, buffer.length).await();
+            }
+            catch (EmptyException e)
+            {
+                break;
+            }
+            result.write(buffer, 0, bytesRead);
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,98 @@
+package qub;
+
+public interface XXH128HashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(XXH128HashFunction.class, () ->
+        {
+            final byte[] sanityBuffer = XXH64HashFunctionTests.createSanityBuffer();
+
+            runner.test("create()", (Test test) ->
+            {
+                try (final XXH128HashFunction hashFunction = XXH128HashFunction.create())
+                {
+                    test.assertEqual(0L, hashFunction.getSeed());
+                    test.assertEqual(16, hashFunction.getDigestLength());
+                    test.assertEqual("99AA06D3014798D86001C324468D497F", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.testGroup("hash(byte[],int,int,long,long[],int)", () ->
+            {
+                runner.test("with null output", (Test test) ->
+                {
+                    test.assertThrows(() -> XXH128HashFunction.hash(new byte[0], 0, 0, 0, null, 0),
+                        new PreConditionFailure("output cannot be null."));
+                });
+
+                runner.test("with output that is too small", (Test test) ->
+                {
+                    test.assertThrows(() -> XXH128HashFunction.hash(new byte[0], 0, 0, 0, new long[2], 1),
+                        new PreConditionFailure("outputStartIndex (1) must be between 0 and 0."));
+                });
+
+                final Action4<Integer,Long,Long,Long> hashTest = (Integer length, Long seed, Long expectedLow, Long expectedHigh) ->
+                {
+                    runner.test("with " + English.andList(length, seed), (Test test) ->
+                    {
+                        final long[] expected = new long[] { expectedLow, expectedHigh };
+                        final long[] output = new long[2];
+                        XXH128HashFunction.hash(sanityBuffer, 0, length, seed, output, 0);
+                        test.assertEqual(expected, output);
+
+                        try (final XXH128HashFunction hashFunction = XXH128HashFunction.create(seed))
+                        {
+                            for (int i = 0; i < length; ++i)
+                            {
+                                hashFunction.addByte(sanityBuffer[i]);
+                            }
+                            hashFunction.takeLongDigest(output, 0);
+                            test.assertEqual(expected, output);
+
+                            for (int i = 0; i < length; i += 13)
+                            {
+                                hashFunction.addBytes(sanityBuffer, i, Math.minimum(13, length - i));
+                            }
+                            hashFunction.takeLongDigest(output, 0);
+                            test.assertEqual(expected, output);
+
+                            final java.nio.ByteBuffer digest = java.nio.ByteBuffer.wrap(hashFunction.takeDigest(sanityBuffer, 0, length).toByteArray());
+                            test.assertEqual(expectedHigh, digest.getLong());
+                            test.assertEqual(expectedLow, digest.getLong());
+                        }
+                    });
+                };
+
+                hashTest.run(0, 0L, 0x6001C324468D497FL, 0x99AA06D3014798D8L);
+                hashTest.run(0, XXH64HashFunctionTests.prime32, 0x5444F7869C671AB0L, 0x92220AE55E14AB50L);
+                hashTest.run(1, 0L, 0xC44BDFF4074EECDBL, 0xA6CD5E9392000F6AL);
+                hashTest.run(1, XXH64HashFunctionTests.prime32, 0xB53D5557E7F76F8DL, 0x89B99554BA22467CL);
+                hashTest.run(6, 0L, 0x3E7039BDDA43CFC6L, 0x082AFE0B8162D12AL);
+                hashTest.run(6, XXH64HashFunctionTests.prime32, 0x269D8F70BE98856EL, 0x5A865B5389ABD2B1L);
+                hashTest.run(12, 0L, 0x061A192713F69AD9L, 0x6E3EFD8FC7802B18L);
+                hashTest.run(12, XXH64HashFunctionTests.prime32, 0x9BE9F9A67F3C7DFBL, 0xD7E09D518A3405D3L);
+                hashTest.run(24, 0L, 0x1E7044D28B1B901DL, 0x0CE966E4678D3761L);
+                hashTest.run(24, XXH64HashFunctionTests.prime32, 0xD7304C54EBAD40A9L, 0x3162026714A6A243L);
+                hashTest.run(48, 0L, 0xF942219AED80F67BL, 0xA002AC4E5478227EL);
+                hashTest.run(48, XXH64HashFunctionTests.prime32, 0x7BA3C3E453A1934EL, 0x163ADDE36C072295L);
+                hashTest.run(81, 0L, 0x5E8BAFB9F95FB803L, 0x4952F58181AB0042L);
+                hashTest.run(81, XXH64HashFunctionTests.prime32, 0x703FBB3D7A5F755CL, 0x2724EC7ADC750FB6L);
+                hashTest.run(222, 0L, 0xF1AEBD597CEC6B3AL, 0x337E09641B948717L);
+                hashTest.run(222, XXH64HashFunctionTests.prime32, 0xAE995BB8AF917A8DL, 0x91820016621E97F1L);
+                hashTest.run(403, 0L, 0xCDEB804D65C6DEA4L, 0x1B6DE21E332DD73DL);
+                hashTest.run(403, XXH64HashFunctionTests.prime64, 0x6259F6ECFD6443FDL, 0xBED311971E0BE8F2L);
+                hashTest.run(512, 0L, 0x617E49599013CB6BL, 0x18D2D110DCC9BCA1L);
+                hashTest.run(512, XXH64HashFunctionTests.prime64, 0x3CE457DE14C27708L, 0x925D06B8EC5B8040L);
+                hashTest.run(2048, 0L, 0xDD59E2C3A5F038E0L, 0xF736557FD47073A5L);
+                hashTest.run(2048, XXH64HashFunctionTests.prime32, 0x230D43F30206260BL, 0x7FB03F7E7186C3EAL);
+                hashTest.run(2240, 0L, 0x6E73A90539CF2948L, 0xCCB134FBFA7CE49DL);
+                hashTest.run(2240, XXH64HashFunctionTests.prime32, 0xED385111126FBA6FL, 0x50A1FE17B338995FL);
+                hashTest.run(2367, 0L, 0xCB37AEB9E5D361EDL, 0xE89C0F6FF369B427L);
+                hashTest.run(2367, XXH64HashFunctionTests.prime32, 0x6F5360AE69C2F406L, 0xD23AAE4B76C31ECBL);
+            });
+
+            HashFunctionTests.test(runner, XXH128HashFunction::create);
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package qub;
+
+public interface XXH3HashFunctionTests
+{
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(XXH3HashFunction.class, () ->
+        {
+            final byte[] sanityBuffer = XXH64HashFunctionTests.createSanityBuffer();
+
+            runner.test("create()", (Test test) ->
+            {
+                try (final XXH3HashFunction hashFunction = XXH3HashFunction.create())
+                {
+                    test.assertEqual(0L, hashFunction.getSeed());
+                    test.assertEqual(8, hashFunction.getDigestLength());
+                    test.assertEqual("2D06800538D394C2", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.testGroup("hash(byte[],int,int,long)", () ->
+            {
+                runner.test("with null values", (Test test) ->
+                {
+                    test.assertThrows(() -> XXH3HashFunction.hash(null, 0, 0, 0),
+                        new PreConditionFailure("values cannot be null."));
+                });
+
+                final Action3<Integer,Long,Long> hashTest = (Integer length, Long seed, Long expected) ->
+                {
+                    runner.test("with " + English.andList(length, seed), (Test test) ->
+                    {
+                        test.assertEqual(expected, XXH3HashFunction.hash(sanityBuffer, 0, length, seed));
+
+                        try (final XXH3HashFunction hashFunction = XXH3HashFunction.create(seed))
+                        {
+                            for (int i = 0; i < length; ++i)
+                            {
+                                hashFunction.addByte(sanityBuffer[i]);
+                            }
+                            test.assertEqual(expected, hashFunction.takeLongDigest());
+
+                            for (int i = 0; i < length; i += 7)
+                            {
+                                hashFunction.addBytes(sanityBuffer, i, Math.minimum(7, length - i));
+                            }
+                            test.assertEqual(expected, hashFunction.takeLongDigest());
+
+                            test.assertEqual(expected, hashFunction.takeLongDigest(sanityBuffer, 0, length));
+                        }
+                    });
+                };
+
+                hashTest.run(0, 0L, 0x2D06800538D394C2L);
+                hashTest.run(0, XXH64HashFunctionTests.prime64, 0xA8A6B918B2F0364AL);
+                hashTest.run(1, 0L, 0xC44BDFF4074EECDBL);
+                hashTest.run(1, XXH64HashFunctionTests.prime64, 0x032BE332DD766EF8L);
+                hashTest.run(6, 0L, 0x27B56A84CD2D7325L);
+                hashTest.run(6, XXH64HashFunctionTests.prime64, 0x84589C116AB59AB9L);
+                hashTest.run(12, 0L, 0xA713DAF0DFBB77E7L);
+                hashTest.run(12, XXH64HashFunctionTests.prime64, 0xE7303E1B2336DE0EL);
+                hashTest.run(24, 0L, 0xA3FE70BF9D3510EBL);
+                hashTest.run(24, XXH64HashFunctionTests.prime64, 0x850E80FC35BDD690L);
+                hashTest.run(48, 0L, 0x397DA259ECBA1F11L);
+                hashTest.run(48, XXH64HashFunctionTests.prime64, 0xADC2CBAA44ACC616L);
+                hashTest.run(80, 0L, 0xBCDEFBBB2C47C90AL);
+                hashTest.run(80, XXH64HashFunctionTests.prime64, 0xC6DD0CB699532E73L);
+                hashTest.run(195, 0L, 0xCD94217EE362EC3AL);
+                hashTest.run(195, XXH64HashFunctionTests.prime64, 0xBA68003D370CB3D9L);
+                hashTest.run(403, 0L, 0xCDEB804D65C6DEA4L);
+                hashTest.run(403, XXH64HashFunctionTests.prime64, 0x6259F6ECFD6443FDL);
+                hashTest.run(512, 0L, 0x617E49599013CB6BL);
+                hashTest.run(512, XXH64HashFunctionTests.prime64, 0x3CE457DE14C27708L);
+                hashTest.run(2048, 0L, 0xDD59E2C3A5F038E0L);
+                hashTest.run(2048, XXH64HashFunctionTests.prime64, 0x66F81670669ABABCL);
+                hashTest.run(2240, 0L, 0x6E73A90539CF2948L);
+                hashTest.run(2240, XXH64HashFunctionTests.prime64, 0x757BA8487D1B5247L);
+                hashTest.run(2367, 0L, 0xCB37AEB9E5D361EDL);
+                hashTest.run(2367, XXH64HashFunctionTests.prime64, 0xD2DB3415B942B42AL);
+            });
+
+            HashFunctionTests.test(runner, XXH3HashFunction::create);
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package qub;
+
+public interface XXH64HashFunctionTests
+{
+    /**
+     * The seed that the reference implementation's 64-bit sanity tests use.
+     */
+    long prime32 = 2654435761L;
+
+    /**
+     * The seed that the reference implementation's XXH3 sanity tests use.
+     */
+    long prime64 = 0x9E3779B185EBCA8DL;
+
+    /**
+     * Create the buffer that the reference implementation's sanity tests hash.
+     */
+    static byte[] createSanityBuffer()
+    {
+        final byte[] result = new byte[2367];
+        long generator = XXH64HashFunctionTests.prime32;
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = (byte)(generator >>> 56);
+            generator *= XXH64HashFunctionTests.prime64;
+        }
+        return result;
+    }
+
+    public static void test(TestRunner runner)
+    {
+        runner.testGroup(XXH64HashFunction.class, () ->
+        {
+            final byte[] sanityBuffer = XXH64HashFunctionTests.createSanityBuffer();
+
+            runner.test("create()", (Test test) ->
+            {
+                try (final XXH64HashFunction hashFunction = XXH64HashFunction.create())
+                {
+                    test.assertEqual(0L, hashFunction.getSeed());
+                    test.assertEqual(8, hashFunction.getDigestLength());
+                    test.assertEqual("EF46DB3751D8E999", hashFunction.takeDigest().toHexString());
+                }
+            });
+
+            runner.testGroup("hash(byte[],int,int,long)", () ->
+            {
+                runner.test("with null values", (Test test) ->
+                {
+                    test.assertThrows(() -> XXH64HashFunction.hash(null, 0, 0, 0),
+                        new PreConditionFailure("values cannot be null."));
+                });
+
+                runner.test("with negative length", (Test test) ->
+                {
+                    test.assertThrows(() -> XXH64HashFunction.hash(new byte[3], 0, -1, 0),
+                        new PreConditionFailure("length (-1) must be between 0 and 3."));
+                });
+
+                final Action3<Integer,Long,Long> hashTest = (Integer length, Long seed, Long expected) ->
+                {
+                    runner.test("with " + English.andList(length, seed), (Test test) ->
+                    {
+                        test.assertEqual(expected, XXH64HashFunction.hash(sanityBuffer, 0, length, seed));
+
+                        try (final XXH64HashFunction hashFunction = XXH64HashFunction.create(seed))
+                        {
+                            for (int i = 0; i < length; ++i)
+                            {
+                                hashFunction.addByte(sanityBuffer[i]);
+                            }
+                            test.assertEqual(expected, hashFunction.takeLongDigest());
+
+                            for (int i = 0; i < length; i += 13)
+                            {
+                                hashFunction.addBytes(sanityBuffer, i, Math.minimum(13, length - i));
+                            }
+                            test.assertEqual(expected, hashFunction.takeLongDigest());
+
+                            final byte[] digest = new byte[8];
+                            hashFunction.addBytes(sanityBuffer, 0, length);
+                            hashFunction.takeDigest(digest, 0);
+                            test.assertEqual(expected, java.nio.ByteBuffer.wrap(digest).getLong());
+                        }
+                    });
+                };
+
+                hashTest.run(0, 0L, 0xEF46DB3751D8E999L);
+                hashTest.run(1, 0L, 0xE934A84ADB052768L);
+                hashTest.run(1, XXH64HashFunctionTests.prime32, 0x5014607643A9B4C3L);
+                hashTest.run(4, 0L, 0x9136A0DCA57457EEL);
+                hashTest.run(14, 0L, 0x8282DCC4994E35C8L);
+                hashTest.run(14, XXH64HashFunctionTests.prime32, 0xC3BD6BF63DEB6DF0L);
+                hashTest.run(222, 0L, 0xB641AE8CB691C174L);
+                hashTest.run(222, XXH64HashFunctionTests.prime32, 0x20CB8AB7AE10C14AL);
+            });
+
+            HashFunctionTests.test(runner, XXH64HashFunction::create);
+        });
+    }
+}